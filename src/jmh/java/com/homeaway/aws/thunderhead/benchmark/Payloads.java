@@ -0,0 +1,171 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.benchmark;
+
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic search responses and SDF batches shaped like a movie listing domain. The payloads are built from a fixed
+ * seed so every run of a benchmark sees the same bytes.
+ *
+ * @author jmonette
+ */
+final class Payloads {
+
+    /** The fields returned with each hit and sent with each document */
+    private static final String[] FIELDS = {"title", "director", "genre", "year", "description"};
+
+    private static final String[] WORDS = {"star", "wars", "empire", "strikes", "back", "return", "jedi", "force",
+                                           "awakens", "rogue", "galaxy", "far", "away", "hope", "new", "&", "<dark>"};
+
+    private Payloads() {
+    }
+
+    /**
+     * An xml search response with the given number of hits
+     */
+    static byte[] xmlResponse(int hits) {
+        Random random = new Random(hits);
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<results xmlns=\"http://cloudsearch.amazonaws.com/2011-02-01/results\">")
+                .append("<rank>-text_relevance</rank>")
+                .append("<match-expr>(label 'star wars')</match-expr>")
+                .append("<hits found=\"").append(hits).append("\" start=\"0\">");
+
+        for (int i = 0; i < hits; i++) {
+            xml.append("<hit id=\"tt").append(i).append("\">");
+            for (String field : FIELDS) {
+                xml.append("<d name=\"").append(field).append("\">").append(escapeXml(value(random, field))).append("</d>");
+            }
+            xml.append("</hit>");
+        }
+
+        xml.append("</hits>")
+           .append("<facets><facet name=\"genre\"><constraint value=\"Sci-Fi\" count=\"").append(hits).append("\"/></facet></facets>")
+           .append("<info rid=\"b7c167f6c2da6d93531b9a7b314ad030b3a74803b4b7797e\" time-ms=\"3\" cpu-time-ms=\"0\"/>")
+           .append("</results>");
+
+        return bytes(xml);
+    }
+
+    /**
+     * A json search response with the same hits as the xml response
+     */
+    static byte[] jsonResponse(int hits) {
+        Random random = new Random(hits);
+        StringBuilder json = new StringBuilder("{\"rank\":\"-text_relevance\",")
+                .append("\"match-expr\":\"(label 'star wars')\",")
+                .append("\"hits\":{\"found\":").append(hits).append(",\"start\":0,\"hit\":[");
+
+        for (int i = 0; i < hits; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"tt").append(i).append("\",\"data\":{");
+            for (int j = 0; j < FIELDS.length; j++) {
+                if (j > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(FIELDS[j]).append("\":[\"").append(value(random, FIELDS[j])).append("\"]");
+            }
+            json.append("}}");
+        }
+
+        json.append("]},")
+            .append("\"facets\":{\"genre\":{\"constraints\":[{\"value\":\"Sci-Fi\",\"count\":").append(hits).append("}]}},")
+            .append("\"info\":{\"rid\":\"b7c167f6c2da6d93531b9a7b314ad030b3a74803b4b7797e\",\"time-ms\":3,\"cpu-time-ms\":0}}");
+
+        return bytes(json);
+    }
+
+    /**
+     * An SDF batch of adds, with one delete for every ten adds. A thousand documents come to roughly half a megabyte
+     * of xml.
+     */
+    static SearchDocumentFormat batch(int documents) {
+        Random random = new Random(documents);
+        List<SearchDocumentAdd> adds = new ArrayList<SearchDocumentAdd>(documents);
+        List<SearchDocumentDelete> deletes = new ArrayList<SearchDocumentDelete>(documents / 10);
+
+        for (int i = 0; i < documents; i++) {
+            List<Field> fields = new ArrayList<Field>(FIELDS.length);
+            for (String name : FIELDS) {
+                Field field = new Field();
+                field.setName(name);
+                field.setValue(value(random, name));
+                fields.add(field);
+            }
+
+            SearchDocumentAdd add = new SearchDocumentAdd();
+            add.setId("tt" + i);
+            add.setVersion(String.valueOf(i + 1));
+            add.setLang("en");
+            add.setFields(fields);
+            adds.add(add);
+
+            if (i % 10 == 0) {
+                SearchDocumentDelete delete = new SearchDocumentDelete();
+                delete.setId("old" + i);
+                delete.setVersion(String.valueOf(i + 1));
+                deletes.add(delete);
+            }
+        }
+
+        SearchDocumentFormat searchDocumentFormat = new SearchDocumentFormat();
+        searchDocumentFormat.setSearchDocumentAdds(adds);
+        searchDocumentFormat.setSearchDocumentDeletes(deletes);
+
+        return searchDocumentFormat;
+    }
+
+    private static String value(Random random, String field) {
+        if ("year".equals(field)) {
+            return String.valueOf(1950 + random.nextInt(70));
+        }
+
+        int words = "description".equals(field) ? 60 : 3;
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                value.append(' ');
+            }
+            value.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+
+        return value.toString();
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static byte[] bytes(StringBuilder text) {
+        try {
+            return text.toString().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new IllegalStateException(uee);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.benchmark;
+
+import com.homeaway.aws.thunderhead.client.cache.QueryCacheKey;
+import com.homeaway.aws.thunderhead.client.impl.SearchRequests;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchQueryParam;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchResultsType;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work done for every query before it reaches the network: the copy of the query params, the results type
+ * override, the URL encoding of the search URI and the coalescing key. Nothing is sent.
+ *
+ * @author jmonette
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryRequestBenchmark {
+
+    private Client client;
+    private WebResource webResource;
+    private MultivaluedMap<String, String> queryParams;
+
+    @Setup
+    public void setUp() {
+        this.client = Client.create();
+        this.webResource = this.client.resource("http://search-movies-abc123.us-east-1.cloudsearch.amazonaws.com");
+
+        this.queryParams = new MultivaluedMapImpl();
+        this.queryParams.add(CloudSearchQueryParam.BQ.getName(), "(and title:'star wars' (not genre:'Comedy') year:1977..1983)");
+        this.queryParams.add(CloudSearchQueryParam.RETURN_FIELDS.getName(), "title,director,genre,year,description");
+        this.queryParams.add(CloudSearchQueryParam.FACET.getName(), "genre,year");
+        this.queryParams.add(CloudSearchQueryParam.RANK.getName(), "-text_relevance");
+        this.queryParams.add(CloudSearchQueryParam.SIZE.getName(), "100");
+        this.queryParams.add(CloudSearchQueryParam.START.getName(), "0");
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.client.destroy();
+    }
+
+    /**
+     * Builds the search URI with the same SearchRequests calls CloudSearchClientImpl.executeQuery makes
+     */
+    @Benchmark
+    public URI buildSearchUri() {
+        MultivaluedMap<String, String> myQueryParams = SearchRequests.buildQueryParams(this.queryParams, CloudSearchResultsType.XML);
+
+        return SearchRequests.searchResource(this.webResource, myQueryParams).getURI();
+    }
+
+    @Benchmark
+    public QueryCacheKey buildCacheKey() {
+        return QueryCacheKey.of(this.queryParams);
+    }
+}
@@ -0,0 +1,85 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.benchmark;
+
+import com.homeaway.aws.thunderhead.client.io.SearchDocumentFormatJsonWriter;
+import com.homeaway.aws.thunderhead.client.io.SearchDocumentFormatWriter;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of writing an SDF batch. The batch is written to a stream that discards it, so only the serialization is
+ * measured. Ten thousand documents come to several megabytes. The JAXB marshaller is kept as the baseline the StAX
+ * writer replaced.
+ *
+ * @author jmonette
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchDocumentFormatWriteBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int documents;
+
+    private SearchDocumentFormat batch;
+
+    private final SearchDocumentFormatWriter xmlWriter = new SearchDocumentFormatWriter();
+    private final SearchDocumentFormatJsonWriter jsonWriter = new SearchDocumentFormatJsonWriter();
+    private final OutputStream out = ByteStreams.nullOutputStream();
+    private Marshaller marshaller;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.batch = Payloads.batch(this.documents);
+        this.marshaller = JAXBContext.newInstance(SearchDocumentFormat.class).createMarshaller();
+    }
+
+    @Benchmark
+    public void writeXml() throws Exception {
+        this.xmlWriter.write(this.batch.getSearchDocumentAdds().iterator(), this.batch.getSearchDocumentDeletes().iterator(), this.out);
+    }
+
+    @Benchmark
+    public void writeJson() throws Exception {
+        this.jsonWriter.write(this.batch.getSearchDocumentAdds().iterator(), this.batch.getSearchDocumentDeletes().iterator(), this.out);
+    }
+
+    @Benchmark
+    public void writeXmlJaxb() throws Exception {
+        this.marshaller.marshal(this.batch, this.out);
+    }
+}
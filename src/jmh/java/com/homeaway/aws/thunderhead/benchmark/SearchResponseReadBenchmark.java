@@ -0,0 +1,84 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.benchmark;
+
+import com.homeaway.aws.thunderhead.client.io.SearchResponseJsonReader;
+import com.homeaway.aws.thunderhead.client.io.SearchResponseReader;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of reading a search response off the wire. The JAXB unmarshaller is kept as the baseline the StAX reader
+ * replaced.
+ *
+ * @author jmonette
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchResponseReadBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int hits;
+
+    private byte[] xml;
+    private byte[] json;
+
+    private final SearchResponseReader xmlReader = new SearchResponseReader();
+    private final SearchResponseJsonReader jsonReader = new SearchResponseJsonReader();
+    private Unmarshaller unmarshaller;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.xml = Payloads.xmlResponse(this.hits);
+        this.json = Payloads.jsonResponse(this.hits);
+        this.unmarshaller = JAXBContext.newInstance(SearchResponse.class).createUnmarshaller();
+    }
+
+    @Benchmark
+    public SearchResponse readXml() throws Exception {
+        return this.xmlReader.read(new ByteArrayInputStream(this.xml));
+    }
+
+    @Benchmark
+    public SearchResponse readJson() throws Exception {
+        return this.jsonReader.read(new ByteArrayInputStream(this.json));
+    }
+
+    @Benchmark
+    public Object readXmlJaxb() throws Exception {
+        return this.unmarshaller.unmarshal(new ByteArrayInputStream(this.xml));
+    }
+}
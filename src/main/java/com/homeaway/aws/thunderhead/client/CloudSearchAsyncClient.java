@@ -0,0 +1,57 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentStream;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * A thread-pool asynchronous cloudsearch client: the calling thread does not wait on Amazon, a client thread does. A
+ * failed request completes the returned future with the same CloudSearchClientException that the blocking
+ * CloudSearchClient would have thrown.
+ *
+ * The requests are sent over the blocking http client by a bounded pool of client threads, see
+ * CloudSearchClientBuilder.asyncThreadPoolSize, and each request holds one of them for its round trip, so the number of
+ * requests in flight is bounded by the pool size rather than freed from needing a thread each. Cancelling a future completes it at once but does not stop its request,
+ * which keeps its thread and connection until the response arrives or the read times out. The response is then closed
+ * unread and the connection goes back to the pool.
+ *
+ * @author jmonette
+ */
+public interface CloudSearchAsyncClient {
+
+    ListenableFuture<UploadResponse> updateDomainAsync(SearchDocumentFormat entity);
+
+    /**
+     * Posts an SDF batch whose documents are written to Amazon as they are pulled from the stream. The batch is posted
+     * as a single request and is not split. Unless the client was built with chunked uploads, the whole request is
+     * still buffered in memory before it is sent.
+     */
+    ListenableFuture<UploadResponse> updateDomainAsync(SearchDocumentStream entity);
+
+    ListenableFuture<SearchResponse> queryAsync(MultivaluedMap<String, String> queryParams);
+
+    /**
+     * Releases the connections held by this client. The client can no longer be used once it has been closed.
+     */
+    void close();
+}
@@ -18,9 +18,9 @@ package com.homeaway.aws.thunderhead.client;
 
 import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
 import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentStream;
 import com.homeaway.aws.thunderhead.model.search.SearchResponse;
 import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
-import org.perf4j.aop.Profiled;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,9 +36,19 @@ public interface CloudSearchClient {
     /** The logger used for logging */
     public static final Logger LOGGER = LoggerFactory.getLogger(CloudSearchClient.class);
 
-    @Profiled(tag = "CloudSearchReadWriteClient.updateDomain")
     UploadResponse updateDomain(SearchDocumentFormat entity) throws CloudSearchClientException;
 
-    @Profiled(tag = "CloudSearchReadClient.query")
+    /**
+     * Posts an SDF batch whose documents are written to Amazon as they are pulled from the stream. The batch is posted
+     * as a single request and is not split. Unless the client was built with chunked uploads, the whole request is
+     * still buffered in memory before it is sent.
+     */
+    UploadResponse updateDomain(SearchDocumentStream entity) throws CloudSearchClientException;
+
     SearchResponse query(MultivaluedMap<String, String> queryParams) throws CloudSearchClientException;
+
+    /**
+     * Releases the connections held by this client. The client can no longer be used once it has been closed.
+     */
+    void close();
 }
@@ -0,0 +1,53 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client;
+
+import com.homeaway.aws.thunderhead.model.result.CloudSearchResult;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentStream;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * A cloudsearch client that returns failures instead of throwing them. A failed call returns a CloudSearchResult with
+ * the status and error entity that the blocking CloudSearchClient would have thrown in a CloudSearchClientException.
+ * The exceptions raised on the calling thread within these calls are created without stack traces, which makes a
+ * failing domain much cheaper to call. Exceptions raised on the client's own threads, as with hedged queries, and those
+ * of a query coalesced with other callers keep their stack traces, see CloudSearchErrors.
+ *
+ * @author jmonette
+ */
+public interface CloudSearchResultClient {
+
+    CloudSearchResult<UploadResponse> updateDomainResult(SearchDocumentFormat entity);
+
+    /**
+     * Posts an SDF batch whose documents are written to Amazon as they are pulled from the stream. The batch is posted
+     * as a single request and is not split. Unless the client was built with chunked uploads, the whole request is
+     * still buffered in memory before it is sent.
+     */
+    CloudSearchResult<UploadResponse> updateDomainResult(SearchDocumentStream entity);
+
+    CloudSearchResult<SearchResponse> queryResult(MultivaluedMap<String, String> queryParams);
+
+    /**
+     * Releases the connections held by this client. The client can no longer be used once it has been closed.
+     */
+    void close();
+}
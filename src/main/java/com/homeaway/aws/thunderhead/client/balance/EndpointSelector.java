@@ -0,0 +1,35 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.balance;
+
+import java.util.List;
+
+/**
+ * Picks the endpoint a query is sent to
+ *
+ * @author jmonette
+ */
+public interface EndpointSelector {
+
+    /**
+     * Pick one of the endpoints
+     *
+     * @param endpoints the endpoints queries may be sent to, never empty
+     * @return the endpoint to send the query to
+     */
+    QueryEndpoint select(List<QueryEndpoint> endpoints);
+}
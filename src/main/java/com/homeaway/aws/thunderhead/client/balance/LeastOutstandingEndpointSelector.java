@@ -0,0 +1,47 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.balance;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends queries to the endpoint with the fewest requests outstanding. Ties are broken in turn, so idle endpoints share
+ * the load evenly.
+ *
+ * @author jmonette
+ */
+public class LeastOutstandingEndpointSelector implements EndpointSelector {
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Override
+    public QueryEndpoint select(List<QueryEndpoint> endpoints) {
+        int size = endpoints.size();
+        int offset = (this.next.getAndIncrement() & Integer.MAX_VALUE) % size;
+
+        QueryEndpoint best = null;
+        for (int i = 0; i < size; i++) {
+            QueryEndpoint endpoint = endpoints.get((offset + i) % size);
+            if (best == null || endpoint.getOutstanding() < best.getOutstanding()) {
+                best = endpoint;
+            }
+        }
+
+        return best;
+    }
+}
@@ -0,0 +1,57 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.balance;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Picks two endpoints at random and sends the query to the cheaper one, the cost of an endpoint being the moving
+ * average of its response times multiplied by its outstanding requests plus one. Comparing two random endpoints rather
+ * than all of them keeps a slow endpoint from being shunned outright while it recovers, and keeps every client from
+ * piling onto the same fastest endpoint. An endpoint with no recorded response time costs nothing, so new endpoints
+ * are tried first.
+ *
+ * @author jmonette
+ */
+public class PowerOfTwoChoicesEndpointSelector implements EndpointSelector {
+
+    private final Random random = new Random();
+
+    @Override
+    public QueryEndpoint select(List<QueryEndpoint> endpoints) {
+        int size = endpoints.size();
+        if (size == 1) {
+            return endpoints.get(0);
+        }
+
+        int first = this.random.nextInt(size);
+        int second = this.random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        QueryEndpoint a = endpoints.get(first);
+        QueryEndpoint b = endpoints.get(second);
+
+        return (cost(b) < cost(a) ? b : a);
+    }
+
+    private double cost(QueryEndpoint endpoint) {
+        return endpoint.getEwmaNanos() * (endpoint.getOutstanding() + 1);
+    }
+}
@@ -0,0 +1,151 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.balance;
+
+import com.google.common.base.Objects;
+import com.homeaway.aws.thunderhead.client.breaker.CircuitBreaker;
+import com.sun.jersey.api.client.AsyncWebResource;
+import com.sun.jersey.api.client.WebResource;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One search endpoint queries can be sent to, with what is known about it: the requests outstanding to it, a moving
+ * average of its response times, and whether it is ejected from the pool.
+ *
+ * @author jmonette
+ */
+public class QueryEndpoint {
+
+    /** The weight of the newest response time in the moving average */
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final String name;
+    private final WebResource webResource;
+    private final AsyncWebResource asyncWebResource;
+    private final CircuitBreaker circuitBreaker;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private double ewmaNanos;
+    private int consecutiveFailures;
+    private long ejectedUntil;
+    private boolean ejected;
+
+    /**
+     * Creates an endpoint
+     *
+     * @param webResource the web resource of the endpoint
+     * @param asyncWebResource the async web resource of the endpoint, or null if it is not queried asynchronously
+     * @param circuitBreaker the circuit breaker in front of the endpoint, or null for none
+     */
+    public QueryEndpoint(WebResource webResource, AsyncWebResource asyncWebResource, CircuitBreaker circuitBreaker) {
+        this.name = webResource.getURI().toString();
+        this.webResource = webResource;
+        this.asyncWebResource = asyncWebResource;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public WebResource getWebResource() {
+        return webResource;
+    }
+
+    public AsyncWebResource getAsyncWebResource() {
+        return asyncWebResource;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * The requests sent to the endpoint that have not completed
+     *
+     * @return the number of outstanding requests
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * The moving average of the endpoint's response times
+     *
+     * @return the average in nanoseconds, or 0 if no response has been recorded
+     */
+    public synchronized double getEwmaNanos() {
+        return ewmaNanos;
+    }
+
+    /**
+     * Whether the endpoint is ejected at the given time
+     *
+     * @param now the time in nanoseconds
+     * @return true if queries should not be sent to the endpoint
+     */
+    public synchronized boolean isEjected(long now) {
+        return this.ejected && now - this.ejectedUntil < 0;
+    }
+
+    void started() {
+        this.outstanding.incrementAndGet();
+    }
+
+    void completed() {
+        this.outstanding.decrementAndGet();
+    }
+
+    synchronized void recordSuccess(long nanos) {
+        this.ewmaNanos = (this.ewmaNanos == 0 ? nanos : this.ewmaNanos + EWMA_ALPHA * (nanos - this.ewmaNanos));
+        this.consecutiveFailures = 0;
+    }
+
+    /**
+     * @return the number of failures in a row, including this one
+     */
+    synchronized int recordFailure() {
+        return ++this.consecutiveFailures;
+    }
+
+    synchronized void eject(long until) {
+        this.ejected = true;
+        this.ejectedUntil = until;
+    }
+
+    synchronized void readmit() {
+        this.ejected = false;
+        this.consecutiveFailures = 0;
+    }
+
+    /**
+     * String representation of the QueryEndpoint object
+     *
+     * @return String representation of the QueryEndpoint object
+     */
+    @Override
+    public synchronized String toString() {
+        return Objects.toStringHelper(this)
+                      .add("name", this.name)
+                      .add("outstanding", getOutstanding())
+                      .add("ewmaNanos", this.ewmaNanos)
+                      .add("consecutiveFailures", this.consecutiveFailures)
+                      .add("ejected", this.ejected)
+                      .toString();
+    }
+}
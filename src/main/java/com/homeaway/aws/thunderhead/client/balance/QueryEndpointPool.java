@@ -0,0 +1,315 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.balance;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.breaker.CircuitBreaker;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search endpoints of replicas of the same index, with the selector that spreads queries across them. Every query
+ * sent through the pool is recorded against its endpoint, so the selector can see each endpoint's outstanding requests
+ * and response times.
+ *
+ * An endpoint that fails several queries in a row is ejected for a while, and queries go to the other endpoints. When
+ * the ejection expires the endpoint gets queries again, and is ejected again at its next failure unless it succeeded
+ * first. An endpoint whose circuit breaker would reject a query is passed over the same way, as an endpoint that fails
+ * intermittently can open its breaker without failing enough queries in a row to be ejected. If every endpoint is
+ * ejected or rejecting, queries are spread across all of them rather than failing outright. Health checks
+ * can also probe every endpoint on a schedule, ejecting the endpoints that do not answer and readmitting those that do.
+ *
+ * @author jmonette
+ */
+public class QueryEndpointPool {
+    public static final int DEFAULT_MAX_CONSECUTIVE_FAILURES = 5;
+    public static final long DEFAULT_EJECTION_TIME = 30000L;
+
+    private final List<QueryEndpoint> endpoints;
+    private final EndpointSelector endpointSelector;
+    private final int maxConsecutiveFailures;
+    private final long ejectionNanos;
+    private final Ticker ticker;
+    private ScheduledExecutorService healthCheckExecutor;
+
+    /**
+     * Creates a pool which ejects an endpoint for 30 seconds after 5 failures in a row
+     *
+     * @param endpoints the endpoints, at least one
+     * @param endpointSelector picks the endpoint of each query
+     */
+    public QueryEndpointPool(List<QueryEndpoint> endpoints, EndpointSelector endpointSelector) {
+        this(endpoints, endpointSelector, DEFAULT_MAX_CONSECUTIVE_FAILURES, DEFAULT_EJECTION_TIME, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a pool
+     *
+     * @param endpoints the endpoints, at least one
+     * @param endpointSelector picks the endpoint of each query
+     * @param maxConsecutiveFailures the failures in a row after which an endpoint is ejected
+     * @param ejectionTime how long in milliseconds an endpoint stays ejected
+     * @param ticker the time source
+     */
+    public QueryEndpointPool(List<QueryEndpoint> endpoints, EndpointSelector endpointSelector, int maxConsecutiveFailures,
+                             long ejectionTime, Ticker ticker) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("A QueryEndpointPool needs at least one endpoint");
+        }
+
+        this.endpoints = ImmutableList.copyOf(endpoints);
+        this.endpointSelector = endpointSelector;
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+        this.ticker = ticker;
+    }
+
+    public List<QueryEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public EndpointSelector getEndpointSelector() {
+        return endpointSelector;
+    }
+
+    /**
+     * Pick the endpoint of a query among the endpoints not ejected and whose circuit breakers would let it through
+     *
+     * @return the endpoint to send the query to
+     */
+    public QueryEndpoint select() {
+        return select(null);
+    }
+
+    /**
+     * Pick the endpoint of a duplicate of a query, preferring an endpoint other than the one the query was sent to
+     *
+     * @param exclude the endpoint the query was sent to
+     * @return the endpoint to send the duplicate to
+     */
+    public QueryEndpoint selectOther(QueryEndpoint exclude) {
+        return select(exclude);
+    }
+
+    private QueryEndpoint select(QueryEndpoint exclude) {
+        if (this.endpoints.size() == 1) {
+            return this.endpoints.get(0);
+        }
+
+        long now = this.ticker.read();
+        List<QueryEndpoint> available = null;
+        for (int i = 0; i < this.endpoints.size(); i++) {
+            QueryEndpoint endpoint = this.endpoints.get(i);
+            boolean skip = (endpoint == exclude || endpoint.isEjected(now)
+                            || (endpoint.getCircuitBreaker() != null && !endpoint.getCircuitBreaker().isCallPermitted()));
+
+            if (skip && available == null) {
+                available = Lists.newArrayList(this.endpoints.subList(0, i));
+            } else if (!skip && available != null) {
+                available.add(endpoint);
+            }
+        }
+
+        if (available == null) {
+            return this.endpointSelector.select(this.endpoints);
+        } else if (available.isEmpty()) {
+            return (exclude != null ? exclude : this.endpointSelector.select(this.endpoints));
+        }
+
+        return this.endpointSelector.select(available);
+    }
+
+    /**
+     * Send a query to the endpoint through its circuit breaker, recording its outcome
+     *
+     * @param endpoint the endpoint
+     * @param callable sends the query
+     * @param <T> the type of the response
+     * @return the response
+     * @throws CloudSearchClientException if the query failed
+     */
+    public <T> T call(QueryEndpoint endpoint, Callable<T> callable) throws CloudSearchClientException {
+        endpoint.started();
+        long start = this.ticker.read();
+        try {
+            T result = (endpoint.getCircuitBreaker() == null ? invoke(callable) : endpoint.getCircuitBreaker().call(callable));
+            endpoint.recordSuccess(this.ticker.read() - start);
+            return result;
+        } catch (CloudSearchClientException csce) {
+            onFailure(endpoint, csce);
+            throw csce;
+        } catch (RuntimeException re) {
+            onFailure(endpoint, re);
+            throw re;
+        } finally {
+            endpoint.completed();
+        }
+    }
+
+    /**
+     * Send a query to the endpoint without blocking through its circuit breaker, recording its outcome when it completes
+     *
+     * @param endpoint the endpoint
+     * @param callable starts the query
+     * @param <T> the type of the response
+     * @return the future of the response
+     */
+    public <T> ListenableFuture<T> callAsync(final QueryEndpoint endpoint, Callable<ListenableFuture<T>> callable) {
+        endpoint.started();
+        final long start = this.ticker.read();
+
+        ListenableFuture<T> future;
+        if (endpoint.getCircuitBreaker() != null) {
+            future = endpoint.getCircuitBreaker().callAsync(callable);
+        } else {
+            try {
+                future = callable.call();
+            } catch (Exception e) {
+                future = Futures.immediateFailedFuture(e);
+            }
+        }
+
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                endpoint.completed();
+                endpoint.recordSuccess(ticker.read() - start);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                endpoint.completed();
+                if (!(t instanceof CancellationException)) {
+                    QueryEndpointPool.this.onFailure(endpoint, t);
+                }
+            }
+        });
+
+        return future;
+    }
+
+    private void onFailure(QueryEndpoint endpoint, Throwable t) {
+        if (!CircuitBreaker.isEndpointFailure(t)) {
+            return;
+        }
+
+        if (endpoint.recordFailure() >= this.maxConsecutiveFailures && this.endpoints.size() > 1) {
+            long now = this.ticker.read();
+            if (!endpoint.isEjected(now)) {
+                CloudSearchClient.LOGGER.info("Ejecting query endpoint {} after {} failures in a row", endpoint.getName(), this.maxConsecutiveFailures);
+            }
+            endpoint.eject(now + this.ejectionNanos);
+        }
+    }
+
+    private <T> T invoke(Callable<T> callable) throws CloudSearchClientException {
+        try {
+            return callable.call();
+        } catch (CloudSearchClientException csce) {
+            throw csce;
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new CloudSearchRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Probe every endpoint on a schedule, ejecting the endpoints that fail the health check and readmitting those that
+     * pass it
+     *
+     * @param healthCheck probes an endpoint
+     * @param interval the time in milliseconds between rounds of probes
+     */
+    public synchronized void startHealthChecks(final HealthCheck healthCheck, long interval) {
+        if (this.healthCheckExecutor != null) {
+            throw new IllegalStateException("Health checks have already been started");
+        }
+
+        this.healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                                       .setNameFormat("thunderhead-health-check-%d")
+                                                                                                       .build());
+        this.healthCheckExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                for (QueryEndpoint endpoint : endpoints) {
+                    check(healthCheck, endpoint);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void check(HealthCheck healthCheck, QueryEndpoint endpoint) {
+        boolean healthy;
+        try {
+            healthy = healthCheck.isHealthy(endpoint);
+        } catch (RuntimeException re) {
+            CloudSearchClient.LOGGER.debug("Health check of {} failed: {}", endpoint.getName(), re);
+            healthy = false;
+        }
+
+        long now = this.ticker.read();
+        if (healthy && endpoint.isEjected(now)) {
+            CloudSearchClient.LOGGER.info("Readmitting query endpoint {} which passed its health check", endpoint.getName());
+            endpoint.readmit();
+        } else if (!healthy && this.endpoints.size() > 1) {
+            if (!endpoint.isEjected(now)) {
+                CloudSearchClient.LOGGER.info("Ejecting query endpoint {} which failed its health check", endpoint.getName());
+            }
+            endpoint.eject(now + this.ejectionNanos);
+        }
+    }
+
+    /**
+     * Stop the health checks
+     */
+    public synchronized void close() {
+        if (this.healthCheckExecutor != null) {
+            this.healthCheckExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * String representation of the QueryEndpointPool object
+     *
+     * @return String representation of the QueryEndpointPool object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("endpoints", this.endpoints)
+                      .add("endpointSelector", this.endpointSelector.getClass().getSimpleName())
+                      .add("maxConsecutiveFailures", this.maxConsecutiveFailures)
+                      .add("ejectionNanos", this.ejectionNanos)
+                      .toString();
+    }
+}
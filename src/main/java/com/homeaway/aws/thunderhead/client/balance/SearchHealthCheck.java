@@ -0,0 +1,64 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.balance;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchQueryParam;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Probes an endpoint with a query asking for no hits. Any answer short of a server error shows the endpoint is up, so
+ * the probe query does not have to match anything in the index.
+ *
+ * @author jmonette
+ */
+public class SearchHealthCheck implements HealthCheck {
+    public static final String DEFAULT_PROBE_QUERY = "thunderhead-health-check";
+
+    private final String probeQuery;
+
+    public SearchHealthCheck() {
+        this(DEFAULT_PROBE_QUERY);
+    }
+
+    /**
+     * Creates a health check
+     *
+     * @param probeQuery the text query sent as the probe
+     */
+    public SearchHealthCheck(String probeQuery) {
+        this.probeQuery = probeQuery;
+    }
+
+    @Override
+    public boolean isHealthy(QueryEndpoint endpoint) {
+        ClientResponse clientResponse = null;
+        try {
+            clientResponse = endpoint.getWebResource().path(CloudSearchClient.CLOUDSEARCH_VERSION)
+                                                      .path("search")
+                                                      .queryParam(CloudSearchQueryParam.Q.getName(), this.probeQuery)
+                                                      .queryParam(CloudSearchQueryParam.SIZE.getName(), "0")
+                                                      .get(ClientResponse.class);
+
+            return clientResponse.getStatus() < 500;
+        } finally {
+            if (clientResponse != null) {
+                clientResponse.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.batch;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.homeaway.aws.thunderhead.client.CloudSearchClient.LOGGER;
+
+/**
+ * Collects SDF adds and deletes submitted from any number of threads into batches and uploads them with the
+ * CloudSearchClient. A batch is uploaded once its estimated size would pass the maximum batch size, once it holds the
+ * maximum number of documents, or once its first document has waited for the linger time, whichever comes first.
+ *
+ * Every submitted document gets a future which completes with the UploadResponse of the batch it was uploaded in, or
+ * with the exception that the upload failed with.
+ *
+ * @author jmonette
+ */
+public class BatchingDocumentUploader {
+
+    /** The maximum size of an SDF batch accepted by Amazon cloudsearch */
+    public static final long DEFAULT_MAX_BATCH_BYTES = 5L * 1024L * 1024L;
+    public static final int DEFAULT_MAX_BATCH_DOCUMENTS = 5000;
+    public static final long DEFAULT_LINGER_MILLIS = 250L;
+    public static final int DEFAULT_UPLOAD_THREADS = 2;
+
+    private final CloudSearchClient cloudSearchClient;
+    private final SearchDocumentSizeEstimator sizeEstimator;
+    private final long maxBatchBytes;
+    private final int maxBatchDocuments;
+    private final long lingerMillis;
+
+    private final ScheduledExecutorService lingerExecutor;
+    private final ExecutorService uploadExecutor;
+
+    /** Bounds the batches waiting to be uploaded so that submitters block instead of queueing without limit */
+    private final Semaphore pendingBatches;
+
+    private final Object lock = new Object();
+
+    /** The batch currently being filled, guarded by lock */
+    private Batch batch;
+
+    /** Whether the uploader has been closed, guarded by lock */
+    private boolean closed = false;
+
+    /**
+     * Creates an uploader
+     *
+     * @param cloudSearchClient the client used to upload the batches
+     * @param sizeEstimator estimates the serialized size of each document
+     * @param maxBatchBytes the maximum serialized size of a batch in bytes
+     * @param maxBatchDocuments the maximum number of documents in a batch
+     * @param lingerMillis the longest time in milliseconds a document waits for its batch to fill before it is uploaded
+     * @param uploadThreads the number of batches uploaded concurrently
+     */
+    public BatchingDocumentUploader(CloudSearchClient cloudSearchClient, SearchDocumentSizeEstimator sizeEstimator,
+                                    long maxBatchBytes, int maxBatchDocuments, long lingerMillis, int uploadThreads) {
+        if (maxBatchBytes <= SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES) {
+            throw new IllegalArgumentException("maxBatchBytes must be greater than " + SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES);
+        }
+        if (maxBatchDocuments < 1 || uploadThreads < 1) {
+            throw new IllegalArgumentException("maxBatchDocuments and uploadThreads must be positive");
+        }
+
+        this.cloudSearchClient = cloudSearchClient;
+        this.sizeEstimator = sizeEstimator;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxBatchDocuments = maxBatchDocuments;
+        this.lingerMillis = lingerMillis;
+
+        this.lingerExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                                                   .setNameFormat("thunderhead-batch-linger-%d")
+                                                                                                   .build());
+        this.uploadExecutor = Executors.newFixedThreadPool(uploadThreads, new ThreadFactoryBuilder().setDaemon(true)
+                                                                                                    .setNameFormat("thunderhead-batch-upload-%d")
+                                                                                                    .build());
+        this.pendingBatches = new Semaphore(uploadThreads * 2);
+    }
+
+    /**
+     * Submit an add to be uploaded in the next batch
+     *
+     * @param searchDocumentAdd the add to upload
+     * @return a future completed with the UploadResponse for the batch the add was uploaded in
+     * @throws IllegalArgumentException if the add alone is larger than the maximum batch size
+     */
+    public ListenableFuture<UploadResponse> add(SearchDocumentAdd searchDocumentAdd) {
+        return submit(searchDocumentAdd, this.sizeEstimator.estimate(searchDocumentAdd));
+    }
+
+    /**
+     * Submit a delete to be uploaded in the next batch
+     *
+     * @param searchDocumentDelete the delete to upload
+     * @return a future completed with the UploadResponse for the batch the delete was uploaded in
+     * @throws IllegalArgumentException if the delete alone is larger than the maximum batch size
+     */
+    public ListenableFuture<UploadResponse> delete(SearchDocumentDelete searchDocumentDelete) {
+        return submit(searchDocumentDelete, this.sizeEstimator.estimate(searchDocumentDelete));
+    }
+
+    /**
+     * Upload the batch currently being filled without waiting for it to fill or linger
+     */
+    public void flush() {
+        Batch flushed;
+        synchronized (this.lock) {
+            flushed = this.batch;
+            this.batch = null;
+        }
+
+        if (flushed != null) {
+            upload(flushed);
+        }
+    }
+
+    /**
+     * Uploads the batch currently being filled and stops accepting documents. Batches already handed off continue to be
+     * uploaded in the background.
+     */
+    public void close() {
+        synchronized (this.lock) {
+            this.closed = true;
+        }
+
+        /* A linger already firing may still be handing off its batch, so let it finish before the upload threads stop */
+        this.lingerExecutor.shutdownNow();
+        try {
+            this.lingerExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+        this.uploadExecutor.shutdown();
+    }
+
+    /**
+     * Wait for the batches handed off before close to finish uploading
+     *
+     * @param timeout the longest time to wait
+     * @param unit the unit of the timeout
+     * @return true if every batch finished uploading, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.uploadExecutor.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * Add a document to the batch being filled, handing off any batch that fills up
+     *
+     * @param document the SearchDocumentAdd or SearchDocumentDelete
+     * @param size the estimated serialized size of the document
+     * @return a future completed with the UploadResponse for the batch the document was uploaded in
+     */
+    private ListenableFuture<UploadResponse> submit(Object document, long size) {
+        if (size + SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES > this.maxBatchBytes) {
+            throw new IllegalArgumentException("Document of about " + size + " bytes is larger than the maximum batch size of "
+                                               + this.maxBatchBytes + " bytes");
+        }
+
+        SettableFuture<UploadResponse> future = SettableFuture.create();
+        List<Batch> full = Lists.newArrayListWithCapacity(2);
+
+        synchronized (this.lock) {
+            if (this.closed) {
+                throw new IllegalStateException("BatchingDocumentUploader has been closed");
+            }
+
+            if (this.batch != null && this.batch.bytes + size > this.maxBatchBytes) {
+                full.add(this.batch);
+                this.batch = null;
+            }
+
+            if (this.batch == null) {
+                this.batch = new Batch();
+                scheduleLinger(this.batch);
+            }
+
+            this.batch.add(document, size, future);
+
+            if (this.batch.size() >= this.maxBatchDocuments) {
+                full.add(this.batch);
+                this.batch = null;
+            }
+        }
+
+        for (Batch batch : full) {
+            upload(batch);
+        }
+
+        return future;
+    }
+
+    /**
+     * Upload the batch once the linger time passes, unless it has filled up and been handed off already
+     *
+     * @param lingering the newly started batch
+     */
+    private void scheduleLinger(final Batch lingering) {
+        this.lingerExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    if (batch != lingering) {
+                        return;
+                    }
+                    batch = null;
+                }
+
+                upload(lingering);
+            }
+        }, this.lingerMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hand the batch off to the upload threads, blocking while too many batches are already waiting to be uploaded
+     *
+     * @param batch the batch to upload
+     */
+    private void upload(final Batch batch) {
+        this.pendingBatches.acquireUninterruptibly();
+        try {
+            this.uploadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        batch.upload();
+                    } finally {
+                        pendingBatches.release();
+                    }
+                }
+            });
+        } catch (RuntimeException re) {
+            this.pendingBatches.release();
+            batch.fail(re);
+        }
+    }
+
+    /**
+     * String representation of the BatchingDocumentUploader object
+     *
+     * @return String representation of the BatchingDocumentUploader object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("maxBatchBytes", this.maxBatchBytes)
+                      .add("maxBatchDocuments", this.maxBatchDocuments)
+                      .add("lingerMillis", this.lingerMillis)
+                      .toString();
+    }
+
+    /**
+     * The documents of a single upload and the futures waiting on it
+     */
+    private class Batch {
+        private final SearchDocumentFormat searchDocumentFormat = new SearchDocumentFormat();
+        private final List<SettableFuture<UploadResponse>> futures = Lists.newArrayList();
+        private long bytes = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES;
+
+        Batch() {
+            this.searchDocumentFormat.setSearchDocumentAdds(Lists.<SearchDocumentAdd>newArrayList());
+            this.searchDocumentFormat.setSearchDocumentDeletes(Lists.<SearchDocumentDelete>newArrayList());
+        }
+
+        void add(Object document, long size, SettableFuture<UploadResponse> future) {
+            if (document instanceof SearchDocumentAdd) {
+                this.searchDocumentFormat.getSearchDocumentAdds().add((SearchDocumentAdd) document);
+            } else {
+                this.searchDocumentFormat.getSearchDocumentDeletes().add((SearchDocumentDelete) document);
+            }
+
+            this.futures.add(future);
+            this.bytes += size;
+        }
+
+        int size() {
+            return this.futures.size();
+        }
+
+        void upload() {
+            LOGGER.debug("Uploading a batch of {} documents and about {} bytes", size(), this.bytes);
+            try {
+                UploadResponse uploadResponse = cloudSearchClient.updateDomain(this.searchDocumentFormat);
+                for (SettableFuture<UploadResponse> future : this.futures) {
+                    future.set(uploadResponse);
+                }
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        void fail(Throwable t) {
+            LOGGER.debug("Failed to upload a batch of " + size() + " documents", t);
+            for (SettableFuture<UploadResponse> future : this.futures) {
+                future.setException(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.batch;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits an SDF batch into sub-batches that fit within the cloudsearch batch size limit, and merges the responses of
+ * those sub-batches back into a single UploadResponse. Sub-batches keep the order of the original batch, adds first
+ * and then deletes.
+ *
+ * @author jmonette
+ */
+public class SearchDocumentBatchSplitter {
+
+    /** The status cloudsearch reports for a batch that was accepted */
+    public static final String SUCCESS_STATUS = "success";
+
+    /** The status cloudsearch reports for a batch with errors */
+    public static final String ERROR_STATUS = "error";
+
+    private final SearchDocumentSizeEstimator sizeEstimator;
+    private final long maxBatchBytes;
+
+    public SearchDocumentBatchSplitter(SearchDocumentSizeEstimator sizeEstimator, long maxBatchBytes) {
+        this.sizeEstimator = sizeEstimator;
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    public long getMaxBatchBytes() {
+        return this.maxBatchBytes;
+    }
+
+    /**
+     * Estimate the size of the batch as it is sent
+     *
+     * @param searchDocumentFormat the batch
+     * @return the estimated size of the batch in bytes
+     */
+    public long estimate(SearchDocumentFormat searchDocumentFormat) {
+        long total = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES;
+        for (SearchDocumentAdd searchDocumentAdd : nullToEmpty(searchDocumentFormat.getSearchDocumentAdds())) {
+            total += this.sizeEstimator.estimate(searchDocumentAdd);
+        }
+        for (SearchDocumentDelete searchDocumentDelete : nullToEmpty(searchDocumentFormat.getSearchDocumentDeletes())) {
+            total += this.sizeEstimator.estimate(searchDocumentDelete);
+        }
+
+        return total;
+    }
+
+    /**
+     * Split the batch into sub-batches whose estimated size is within the maximum batch size. A document that is too
+     * large on its own is placed in a sub-batch by itself.
+     *
+     * @param searchDocumentFormat the batch to split
+     * @return the batch itself if it fits, otherwise the sub-batches in order
+     */
+    public List<SearchDocumentFormat> split(SearchDocumentFormat searchDocumentFormat) {
+        List<SearchDocumentAdd> adds = nullToEmpty(searchDocumentFormat.getSearchDocumentAdds());
+        List<SearchDocumentDelete> deletes = nullToEmpty(searchDocumentFormat.getSearchDocumentDeletes());
+
+        long[] addSizes = new long[adds.size()];
+        long[] deleteSizes = new long[deletes.size()];
+        long total = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES;
+
+        for (int i = 0; i < addSizes.length; i++) {
+            addSizes[i] = this.sizeEstimator.estimate(adds.get(i));
+            total += addSizes[i];
+        }
+        for (int i = 0; i < deleteSizes.length; i++) {
+            deleteSizes[i] = this.sizeEstimator.estimate(deletes.get(i));
+            total += deleteSizes[i];
+        }
+
+        if (total <= this.maxBatchBytes) {
+            return Collections.singletonList(searchDocumentFormat);
+        }
+
+        List<SearchDocumentFormat> batches = Lists.newArrayList();
+        SearchDocumentFormat batch = newBatch();
+        long batchBytes = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES;
+
+        for (int i = 0; i < addSizes.length; i++) {
+            if (batchBytes + addSizes[i] > this.maxBatchBytes && !isEmpty(batch)) {
+                batches.add(batch);
+                batch = newBatch();
+                batchBytes = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES;
+            }
+            batch.getSearchDocumentAdds().add(adds.get(i));
+            batchBytes += addSizes[i];
+        }
+
+        for (int i = 0; i < deleteSizes.length; i++) {
+            if (batchBytes + deleteSizes[i] > this.maxBatchBytes && !isEmpty(batch)) {
+                batches.add(batch);
+                batch = newBatch();
+                batchBytes = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES;
+            }
+            batch.getSearchDocumentDeletes().add(deletes.get(i));
+            batchBytes += deleteSizes[i];
+        }
+
+        if (!isEmpty(batch)) {
+            batches.add(batch);
+        }
+
+        return batches;
+    }
+
+    /**
+     * Split the batch into two halves by document count
+     *
+     * @param searchDocumentFormat the batch to split
+     * @return the two halves in order, or the batch itself if it holds fewer than two documents
+     */
+    public List<SearchDocumentFormat> halve(SearchDocumentFormat searchDocumentFormat) {
+        List<SearchDocumentAdd> adds = nullToEmpty(searchDocumentFormat.getSearchDocumentAdds());
+        List<SearchDocumentDelete> deletes = nullToEmpty(searchDocumentFormat.getSearchDocumentDeletes());
+
+        int documents = adds.size() + deletes.size();
+        if (documents < 2) {
+            return Collections.singletonList(searchDocumentFormat);
+        }
+
+        int middle = documents / 2;
+        SearchDocumentFormat first = newBatch();
+        SearchDocumentFormat second = newBatch();
+
+        if (middle <= adds.size()) {
+            first.getSearchDocumentAdds().addAll(adds.subList(0, middle));
+            second.getSearchDocumentAdds().addAll(adds.subList(middle, adds.size()));
+            second.getSearchDocumentDeletes().addAll(deletes);
+        } else {
+            first.getSearchDocumentAdds().addAll(adds);
+            first.getSearchDocumentDeletes().addAll(deletes.subList(0, middle - adds.size()));
+            second.getSearchDocumentDeletes().addAll(deletes.subList(middle - adds.size(), deletes.size()));
+        }
+
+        return Lists.newArrayList(first, second);
+    }
+
+    /**
+     * Merge the responses of the sub-batches of a split batch. The adds and deletes are summed, the errors are
+     * concatenated and the status is only successful if every sub-batch was successful.
+     *
+     * @param uploadResponses the responses of the sub-batches
+     * @return the merged response
+     */
+    public UploadResponse merge(List<UploadResponse> uploadResponses) {
+        if (uploadResponses.size() == 1) {
+            return uploadResponses.get(0);
+        }
+
+        UploadResponse merged = new UploadResponse();
+        merged.setStatus(SUCCESS_STATUS);
+
+        for (UploadResponse uploadResponse : uploadResponses) {
+            merged.setAdds(merged.getAdds() + uploadResponse.getAdds());
+            merged.setDeletes(merged.getDeletes() + uploadResponse.getDeletes());
+
+            if (!SUCCESS_STATUS.equals(uploadResponse.getStatus())) {
+                merged.setStatus(uploadResponse.getStatus() == null ? ERROR_STATUS : uploadResponse.getStatus());
+            }
+
+            if (uploadResponse.getErrors() != null) {
+                if (merged.getErrors() == null) {
+                    merged.setErrors(Lists.<String>newArrayList());
+                }
+                merged.getErrors().addAll(uploadResponse.getErrors());
+            }
+        }
+
+        return merged;
+    }
+
+    private SearchDocumentFormat newBatch() {
+        SearchDocumentFormat searchDocumentFormat = new SearchDocumentFormat();
+        searchDocumentFormat.setSearchDocumentAdds(Lists.<SearchDocumentAdd>newArrayList());
+        searchDocumentFormat.setSearchDocumentDeletes(Lists.<SearchDocumentDelete>newArrayList());
+
+        return searchDocumentFormat;
+    }
+
+    private boolean isEmpty(SearchDocumentFormat searchDocumentFormat) {
+        return searchDocumentFormat.getSearchDocumentAdds().isEmpty() && searchDocumentFormat.getSearchDocumentDeletes().isEmpty();
+    }
+
+    private <T> List<T> nullToEmpty(List<T> list) {
+        return list == null ? Collections.<T>emptyList() : list;
+    }
+
+    /**
+     * String representation of the SearchDocumentBatchSplitter object
+     *
+     * @return String representation of the SearchDocumentBatchSplitter object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("maxBatchBytes", this.maxBatchBytes)
+                      .toString();
+    }
+}
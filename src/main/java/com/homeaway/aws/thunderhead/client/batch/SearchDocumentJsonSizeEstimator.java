@@ -0,0 +1,96 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.batch;
+
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+
+/**
+ * Estimates the number of bytes an SDF document adds to the json body of a batch upload. Like the xml estimate it is an
+ * upper bound of the UTF-8 encoded size.
+ *
+ * @author jmonette
+ */
+public class SearchDocumentJsonSizeEstimator extends SearchDocumentSizeEstimator {
+
+    /** The object of an add without any values or fields, followed by the comma separating it from the next document */
+    private static final int ADD_OVERHEAD_BYTES = "{\"type\":\"add\",\"id\":\"\",\"version\":\"\",\"lang\":\"\",\"fields\":{}},".length();
+
+    /**
+     * A field without the name or value. A field written as one value of a multi-valued field takes less than this, as
+     * its name is written only once.
+     */
+    private static final int FIELD_OVERHEAD_BYTES = "\"\":[\"\"],".length();
+
+    /** The object of a delete without any values, followed by the comma separating it from the next document */
+    private static final int DELETE_OVERHEAD_BYTES = "{\"type\":\"delete\",\"id\":\"\",\"version\":\"\"},".length();
+
+    @Override
+    public long estimate(SearchDocumentAdd searchDocumentAdd) {
+        long size = ADD_OVERHEAD_BYTES
+                  + encodedLength(searchDocumentAdd.getId())
+                  + encodedLength(searchDocumentAdd.getVersion())
+                  + encodedLength(searchDocumentAdd.getLang());
+
+        if (searchDocumentAdd.getFields() != null) {
+            for (Field field : searchDocumentAdd.getFields()) {
+                size += FIELD_OVERHEAD_BYTES + encodedLength(field.getName()) + encodedLength(field.getValue());
+            }
+        }
+
+        return size;
+    }
+
+    @Override
+    public long estimate(SearchDocumentDelete searchDocumentDelete) {
+        return DELETE_OVERHEAD_BYTES
+             + encodedLength(searchDocumentDelete.getId())
+             + encodedLength(searchDocumentDelete.getVersion());
+    }
+
+    /**
+     * The UTF-8 length of a string once escaped for a json string. Control characters are counted as unicode escapes.
+     *
+     * @param value the string to measure, may be null
+     * @return the escaped and encoded length in bytes
+     */
+    @Override
+    protected long encodedLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                length += 2;
+            } else if (c < 0x20) {
+                length += 6;
+            } else if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800 || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,113 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.batch;
+
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+
+/**
+ * Estimates the number of bytes an SDF document adds to the xml body of a batch upload. The estimate is an upper bound
+ * of the UTF-8 encoded size, so batches built from these estimates never exceed the size they were built for.
+ *
+ * @author jmonette
+ */
+public class SearchDocumentSizeEstimator {
+
+    /** The xml declaration and the batch element wrapping the documents, including the namespace declaration */
+    public static final int BATCH_OVERHEAD_BYTES = 160;
+
+    /** The markup of an add element without any attribute values, fields or whitespace */
+    private static final int ADD_OVERHEAD_BYTES = "<add id=\"\" version=\"\" lang=\"\"></add>".length();
+
+    /** The markup of a field element without the name or value */
+    private static final int FIELD_OVERHEAD_BYTES = "<field name=\"\"></field>".length();
+
+    /** The markup of a delete element without the attribute values */
+    private static final int DELETE_OVERHEAD_BYTES = "<delete id=\"\" version=\"\"/>".length();
+
+    /**
+     * Estimate the serialized size of an add
+     *
+     * @param searchDocumentAdd the add to estimate
+     * @return the estimated size in bytes
+     */
+    public long estimate(SearchDocumentAdd searchDocumentAdd) {
+        long size = ADD_OVERHEAD_BYTES
+                  + encodedLength(searchDocumentAdd.getId())
+                  + encodedLength(searchDocumentAdd.getVersion())
+                  + encodedLength(searchDocumentAdd.getLang());
+
+        if (searchDocumentAdd.getFields() != null) {
+            for (Field field : searchDocumentAdd.getFields()) {
+                size += FIELD_OVERHEAD_BYTES + encodedLength(field.getName()) + encodedLength(field.getValue());
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Estimate the serialized size of a delete
+     *
+     * @param searchDocumentDelete the delete to estimate
+     * @return the estimated size in bytes
+     */
+    public long estimate(SearchDocumentDelete searchDocumentDelete) {
+        return DELETE_OVERHEAD_BYTES
+             + encodedLength(searchDocumentDelete.getId())
+             + encodedLength(searchDocumentDelete.getVersion());
+    }
+
+    /**
+     * The UTF-8 length of a string once escaped for xml. Quotes are always counted as escaped so the result holds for
+     * both attribute values and text.
+     *
+     * @param value the string to measure, may be null
+     * @return the escaped and encoded length in bytes
+     */
+    protected long encodedLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&': length += 5; break;
+                case '<':
+                case '>': length += 4; break;
+                case '"': length += 6; break;
+                case '\t':
+                case '\n':
+                case '\r': length += 5; break;
+                default:
+                    if (c < 0x80) {
+                        length += 1;
+                    } else if (c < 0x800 || (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+                        /* A surrogate pair encodes to four bytes, counted as two for each half */
+                        length += 2;
+                    } else {
+                        length += 3;
+                    }
+            }
+        }
+
+        return length;
+    }
+}
@@ -0,0 +1,363 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.breaker;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.enums.CircuitBreakerState;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchCircuitOpenException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A circuit breaker in front of one cloudsearch endpoint. While closed it lets every request through and records the
+ * outcomes of the latest ones. When too many of them failed, or were slower than the slow call threshold, it opens and
+ * fails requests at once with a CloudSearchCircuitOpenException instead of letting them wait for the read timeout.
+ * After the open duration it lets a few probe requests through while half-open; it closes if they all succeed in time,
+ * and opens again otherwise.
+ *
+ * A request fails if it could not be sent or answered, or if Amazon answered with a server error or a request timeout.
+ * Other error statuses mean the endpoint is answering, and are recorded as successes.
+ *
+ * @author jmonette
+ */
+public class CircuitBreaker {
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final double slowCallRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Ticker ticker;
+    private final List<CircuitBreakerListener> listeners = new CopyOnWriteArrayList<CircuitBreakerListener>();
+
+    private final boolean[] failures;
+    private final boolean[] slowCalls;
+    private int next;
+    private int recorded;
+    private int failureCount;
+    private int slowCallCount;
+
+    private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    /**
+     * Creates a closed circuit breaker
+     *
+     * @param name the name of the breaker, usually the endpoint it guards
+     * @param windowSize the number of latest outcomes the failure and slow call rates are computed from
+     * @param minimumCalls the number of outcomes needed before the breaker can open
+     * @param failureRateThreshold the failure rate, between 0 and 1, at which the breaker opens
+     * @param slowCallNanos the response time in nanoseconds from which a call is slow
+     * @param slowCallRateThreshold the slow call rate, between 0 and 1, at which the breaker opens
+     * @param openNanos how long in nanoseconds the breaker stays open before letting probes through
+     * @param halfOpenCalls the number of probes let through while half-open
+     * @param ticker the time source
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold, long slowCallNanos,
+                          double slowCallRateThreshold, long openNanos, int halfOpenCalls, Ticker ticker) {
+        if (windowSize < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("windowSize and halfOpenCalls must be at least 1");
+        }
+
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(Math.max(minimumCalls, 1), windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallNanos;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.ticker = ticker;
+        this.failures = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized CircuitBreakerState getState() {
+        return state;
+    }
+
+    /**
+     * Add a listener called on every state transition
+     *
+     * @param listener the listener
+     */
+    public void addListener(CircuitBreakerListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Call the operation if the breaker lets it through, recording its outcome
+     *
+     * @param callable the operation
+     * @param <T> the type of the result
+     * @return the result of the operation
+     * @throws CloudSearchCircuitOpenException if the breaker did not let the operation through
+     * @throws CloudSearchClientException if the operation failed
+     */
+    public <T> T call(Callable<T> callable) throws CloudSearchClientException {
+        if (!tryAcquirePermission()) {
+            throw new CloudSearchCircuitOpenException(this.name, getState());
+        }
+
+        long start = this.ticker.read();
+        try {
+            T result = callable.call();
+            onSuccess(this.ticker.read() - start);
+            return result;
+        } catch (CloudSearchClientException csce) {
+            onError(csce, this.ticker.read() - start);
+            throw csce;
+        } catch (RuntimeException re) {
+            onError(re, this.ticker.read() - start);
+            throw re;
+        } catch (Exception e) {
+            onError(e, this.ticker.read() - start);
+            throw new CloudSearchRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Call the asynchronous operation if the breaker lets it through, recording its outcome when its future completes
+     *
+     * @param callable starts the operation
+     * @param <T> the type of the result
+     * @return the future of the operation, or a future failed with a CloudSearchCircuitOpenException if the breaker
+     *         did not let the operation through
+     */
+    public <T> ListenableFuture<T> callAsync(Callable<ListenableFuture<T>> callable) {
+        if (!tryAcquirePermission()) {
+            return Futures.immediateFailedFuture(new CloudSearchCircuitOpenException(this.name, getState()));
+        }
+
+        final long start = this.ticker.read();
+        ListenableFuture<T> future;
+        try {
+            future = callable.call();
+        } catch (Exception e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                CircuitBreaker.this.onSuccess(ticker.read() - start);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                onError(t, ticker.read() - start);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Whether a request sent now would be let through, without taking permission or changing the state
+     *
+     * @return true if the breaker is closed, has been open for the open duration, or has half-open calls left
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (this.state) {
+            case CLOSED: return true;
+            case OPEN: return this.ticker.read() - this.openedAt >= this.openNanos;
+            default: return this.halfOpenPermits < this.halfOpenCalls;
+        }
+    }
+
+    /**
+     * Take permission to send a request, moving from open to half-open once the open duration has passed
+     *
+     * @return true if the request may be sent, in which case its outcome must be recorded
+     */
+    public boolean tryAcquirePermission() {
+        CircuitBreakerState from = null;
+        boolean permitted;
+
+        synchronized (this) {
+            if (this.state == CircuitBreakerState.OPEN && this.ticker.read() - this.openedAt >= this.openNanos) {
+                from = transitionTo(CircuitBreakerState.HALF_OPEN);
+            }
+
+            if (this.state == CircuitBreakerState.CLOSED) {
+                permitted = true;
+            } else if (this.state == CircuitBreakerState.HALF_OPEN && this.halfOpenPermits < this.halfOpenCalls) {
+                this.halfOpenPermits++;
+                permitted = true;
+            } else {
+                permitted = false;
+            }
+        }
+
+        notifyListeners(from, CircuitBreakerState.HALF_OPEN);
+        return permitted;
+    }
+
+    /**
+     * Record a request that was answered
+     *
+     * @param nanos the response time in nanoseconds
+     */
+    public void onSuccess(long nanos) {
+        record(false, nanos >= this.slowCallNanos);
+    }
+
+    /**
+     * Record a request that failed. Cancelled requests are not recorded, and errors that show the endpoint is answering
+     * are recorded as successes.
+     *
+     * @param t the failure
+     * @param nanos the time until the failure in nanoseconds
+     */
+    public void onError(Throwable t, long nanos) {
+        if (t instanceof CancellationException) {
+            synchronized (this) {
+                if (this.state == CircuitBreakerState.HALF_OPEN && this.halfOpenPermits > this.halfOpenSuccesses) {
+                    this.halfOpenPermits--;
+                }
+            }
+        } else {
+            record(isEndpointFailure(t), nanos >= this.slowCallNanos);
+        }
+    }
+
+    /**
+     * Whether the failure shows the endpoint is unhealthy: the request could not be sent or answered, or Amazon answered
+     * with a server error or a request timeout
+     *
+     * @param t the failure
+     * @return true if the failure counts against the endpoint
+     */
+    public static boolean isEndpointFailure(Throwable t) {
+        if (t instanceof CloudSearchClientException) {
+            Integer status = ((CloudSearchClientException) t).getCloudSearchStatusCode();
+            return status != null && (status >= 500 || status == 408);
+        }
+
+        return true;
+    }
+
+    private void record(boolean failure, boolean slowCall) {
+        CircuitBreakerState from = null;
+        CircuitBreakerState to = null;
+
+        synchronized (this) {
+            if (this.state == CircuitBreakerState.HALF_OPEN) {
+                if (failure || slowCall) {
+                    to = CircuitBreakerState.OPEN;
+                } else if (++this.halfOpenSuccesses >= this.halfOpenCalls) {
+                    to = CircuitBreakerState.CLOSED;
+                }
+            } else if (this.state == CircuitBreakerState.CLOSED) {
+                if (this.recorded == this.windowSize) {
+                    this.failureCount -= (this.failures[this.next] ? 1 : 0);
+                    this.slowCallCount -= (this.slowCalls[this.next] ? 1 : 0);
+                } else {
+                    this.recorded++;
+                }
+
+                this.failures[this.next] = failure;
+                this.slowCalls[this.next] = slowCall;
+                this.failureCount += (failure ? 1 : 0);
+                this.slowCallCount += (slowCall ? 1 : 0);
+                this.next = (this.next + 1) % this.windowSize;
+
+                if (this.recorded >= this.minimumCalls
+                    && (this.failureCount >= this.failureRateThreshold * this.recorded
+                        || this.slowCallCount >= this.slowCallRateThreshold * this.recorded)) {
+                    to = CircuitBreakerState.OPEN;
+                }
+            }
+
+            if (to != null) {
+                from = transitionTo(to);
+            }
+        }
+
+        notifyListeners(from, to);
+    }
+
+    /**
+     * Enter the state, starting it afresh. Must hold the lock.
+     *
+     * @return the state left
+     */
+    private CircuitBreakerState transitionTo(CircuitBreakerState to) {
+        CircuitBreakerState from = this.state;
+
+        this.state = to;
+        this.openedAt = this.ticker.read();
+        this.halfOpenPermits = 0;
+        this.halfOpenSuccesses = 0;
+        this.next = 0;
+        this.recorded = 0;
+        this.failureCount = 0;
+        this.slowCallCount = 0;
+
+        return from;
+    }
+
+    private void notifyListeners(CircuitBreakerState from, CircuitBreakerState to) {
+        if (from == null) {
+            return;
+        }
+
+        CloudSearchClient.LOGGER.info("Circuit breaker for {} is now {}", this.name, to.getName());
+        for (CircuitBreakerListener listener : this.listeners) {
+            try {
+                listener.onStateChange(this, from, to);
+            } catch (RuntimeException re) {
+                CloudSearchClient.LOGGER.warn("Circuit breaker listener failed", re);
+            }
+        }
+    }
+
+    /**
+     * String representation of the CircuitBreaker object
+     *
+     * @return String representation of the CircuitBreaker object
+     */
+    @Override
+    public synchronized String toString() {
+        return Objects.toStringHelper(this)
+                      .add("name", this.name)
+                      .add("state", this.state)
+                      .add("recorded", this.recorded)
+                      .add("failureCount", this.failureCount)
+                      .add("slowCallCount", this.slowCallCount)
+                      .toString();
+    }
+}
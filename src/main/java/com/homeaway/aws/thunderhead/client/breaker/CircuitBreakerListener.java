@@ -0,0 +1,37 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.breaker;
+
+import com.homeaway.aws.thunderhead.model.enums.CircuitBreakerState;
+
+/**
+ * Observes the state transitions of a circuit breaker, for example to log them or to export them as metrics. Listeners
+ * are called on the thread whose request caused the transition, so they should return quickly.
+ *
+ * @author jmonette
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * Called after the circuit breaker changed state
+     *
+     * @param circuitBreaker the circuit breaker
+     * @param from the state it left
+     * @param to the state it entered
+     */
+    void onStateChange(CircuitBreaker circuitBreaker, CircuitBreakerState from, CircuitBreakerState to);
+}
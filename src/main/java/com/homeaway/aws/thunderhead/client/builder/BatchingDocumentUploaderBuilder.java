@@ -0,0 +1,83 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.batch.BatchingDocumentUploader;
+import com.homeaway.aws.thunderhead.client.batch.SearchDocumentSizeEstimator;
+
+/**
+ * A builder for the BatchingDocumentUploader which groups individual SDF adds and deletes into batch uploads.
+ *
+ * @author jmonette
+ */
+public class BatchingDocumentUploaderBuilder {
+
+    private CloudSearchClient cloudSearchClient;
+    private SearchDocumentSizeEstimator sizeEstimator = new SearchDocumentSizeEstimator();
+    private long maxBatchBytes = BatchingDocumentUploader.DEFAULT_MAX_BATCH_BYTES;
+    private int maxBatchDocuments = BatchingDocumentUploader.DEFAULT_MAX_BATCH_DOCUMENTS;
+    private long lingerMillis = BatchingDocumentUploader.DEFAULT_LINGER_MILLIS;
+    private int uploadThreads = BatchingDocumentUploader.DEFAULT_UPLOAD_THREADS;
+
+    private BatchingDocumentUploaderBuilder(CloudSearchClient cloudSearchClient) {
+        this.cloudSearchClient = cloudSearchClient;
+    }
+
+    public static BatchingDocumentUploaderBuilder newInstance(CloudSearchClient cloudSearchClient) {
+        return new BatchingDocumentUploaderBuilder(cloudSearchClient);
+    }
+
+    public BatchingDocumentUploaderBuilder sizeEstimator(SearchDocumentSizeEstimator sizeEstimator) {
+        this.sizeEstimator = sizeEstimator;
+        return this;
+    }
+
+    public BatchingDocumentUploaderBuilder maxBatchBytes(long maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    public BatchingDocumentUploaderBuilder maxBatchDocuments(int maxBatchDocuments) {
+        this.maxBatchDocuments = maxBatchDocuments;
+        return this;
+    }
+
+    public BatchingDocumentUploaderBuilder lingerMillis(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+        return this;
+    }
+
+    public BatchingDocumentUploaderBuilder uploadThreads(int uploadThreads) {
+        this.uploadThreads = uploadThreads;
+        return this;
+    }
+
+    /**
+     * Build and return a BatchingDocumentUploader
+     *
+     * @return the BatchingDocumentUploader that was built from this builder
+     */
+    public BatchingDocumentUploader build() {
+        if (this.cloudSearchClient == null) {
+            throw new IllegalStateException("A CloudSearchClient is required to build a BatchingDocumentUploader");
+        }
+
+        return new BatchingDocumentUploader(this.cloudSearchClient, this.sizeEstimator, this.maxBatchBytes,
+                                            this.maxBatchDocuments, this.lingerMillis, this.uploadThreads);
+    }
+}
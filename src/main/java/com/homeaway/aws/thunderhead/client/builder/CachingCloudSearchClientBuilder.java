@@ -0,0 +1,113 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.cache.CachingCloudSearchClient;
+import com.homeaway.aws.thunderhead.client.cache.QueryCacheKey;
+import com.homeaway.aws.thunderhead.client.cache.SearchResponseWeigher;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A builder for the CachingCloudSearchClient which caches search responses in front of another CloudSearchClient.
+ *
+ * Every cached response expires after the same time to live; there is no time to live per query or per entry, as the
+ * Guava cache only expires entries a fixed time after they were written. Queries that need fresher results than the
+ * others should be made on the underlying client, or on a second caching client built with a shorter time to live.
+ *
+ * @author jmonette
+ */
+public class CachingCloudSearchClientBuilder {
+    public static final long DEFAULT_MAXIMUM_SIZE = 1000L;
+    public static final long DEFAULT_TIME_TO_LIVE = 60000L;
+
+    private CloudSearchClient cloudSearchClient;
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private long maximumWeight = 0L;
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+    private Ticker ticker = Ticker.systemTicker();
+
+    private CachingCloudSearchClientBuilder(CloudSearchClient cloudSearchClient) {
+        this.cloudSearchClient = cloudSearchClient;
+    }
+
+    public static CachingCloudSearchClientBuilder newInstance(CloudSearchClient cloudSearchClient) {
+        return new CachingCloudSearchClientBuilder(cloudSearchClient);
+    }
+
+    /**
+     * The maximum number of cached responses. The least recently used responses are evicted past it.
+     */
+    public CachingCloudSearchClientBuilder maximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * The maximum total weight of the cached responses, weighed by the characters they hold. When set it is used
+     * instead of the maximum size.
+     */
+    public CachingCloudSearchClientBuilder maximumWeight(long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+        return this;
+    }
+
+    /**
+     * How long in milliseconds a response stays cached after it was fetched, the same for every query
+     */
+    public CachingCloudSearchClientBuilder timeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+        return this;
+    }
+
+    /**
+     * The time source used to expire responses, for tests
+     */
+    public CachingCloudSearchClientBuilder ticker(Ticker ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    /**
+     * Build and return a CachingCloudSearchClient
+     *
+     * @return the CachingCloudSearchClient that was built from this builder
+     */
+    public CachingCloudSearchClient build() {
+        if (this.cloudSearchClient == null) {
+            throw new IllegalStateException("A CloudSearchClient is required to build a CachingCloudSearchClient");
+        }
+
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+                                                                .expireAfterWrite(this.timeToLive, TimeUnit.MILLISECONDS)
+                                                                .ticker(this.ticker)
+                                                                .recordStats();
+
+        if (this.maximumWeight > 0) {
+            return new CachingCloudSearchClient(this.cloudSearchClient, cacheBuilder.maximumWeight(this.maximumWeight)
+                                                                                    .weigher(new SearchResponseWeigher())
+                                                                                    .<QueryCacheKey, SearchResponse>build());
+        }
+
+        return new CachingCloudSearchClient(this.cloudSearchClient, cacheBuilder.maximumSize(this.maximumSize)
+                                                                                .<QueryCacheKey, SearchResponse>build());
+    }
+}
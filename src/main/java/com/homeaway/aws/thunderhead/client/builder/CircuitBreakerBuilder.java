@@ -0,0 +1,133 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.homeaway.aws.thunderhead.client.breaker.CircuitBreaker;
+import com.homeaway.aws.thunderhead.client.breaker.CircuitBreakerListener;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A builder for CircuitBreakers. The CloudSearchClientBuilder builds a separate breaker from it for each endpoint.
+ *
+ * @author jmonette
+ */
+public class CircuitBreakerBuilder {
+    public static final int DEFAULT_WINDOW_SIZE = 20;
+    public static final int DEFAULT_MINIMUM_CALLS = 10;
+    public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+    public static final long DEFAULT_SLOW_CALL_DURATION = 2000L;
+    public static final double DEFAULT_SLOW_CALL_RATE_THRESHOLD = 0.8;
+    public static final long DEFAULT_OPEN_DURATION = 5000L;
+    public static final int DEFAULT_HALF_OPEN_CALLS = 3;
+
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+    private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+    private double failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+    private long slowCallDuration = DEFAULT_SLOW_CALL_DURATION;
+    private double slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+    private long openDuration = DEFAULT_OPEN_DURATION;
+    private int halfOpenCalls = DEFAULT_HALF_OPEN_CALLS;
+    private Ticker ticker = Ticker.systemTicker();
+    private List<CircuitBreakerListener> listeners = Lists.newArrayList();
+
+    private CircuitBreakerBuilder() {}
+
+    public static CircuitBreakerBuilder newInstance() {
+        return new CircuitBreakerBuilder();
+    }
+
+    /**
+     * The number of latest outcomes the failure and slow call rates are computed from, and the number needed before
+     * the breaker can open
+     */
+    public CircuitBreakerBuilder window(int windowSize, int minimumCalls) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    /**
+     * The failure rate, between 0 and 1, at which the breaker opens
+     */
+    public CircuitBreakerBuilder failureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    /**
+     * The response time in milliseconds from which a call is slow, and the slow call rate, between 0 and 1, at which
+     * the breaker opens
+     */
+    public CircuitBreakerBuilder slowCallThreshold(long slowCallDuration, double slowCallRateThreshold) {
+        this.slowCallDuration = slowCallDuration;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        return this;
+    }
+
+    /**
+     * How long in milliseconds the breaker stays open before letting probes through
+     */
+    public CircuitBreakerBuilder openDuration(long openDuration) {
+        this.openDuration = openDuration;
+        return this;
+    }
+
+    /**
+     * The number of probes let through while half-open, all of which must succeed for the breaker to close
+     */
+    public CircuitBreakerBuilder halfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+        return this;
+    }
+
+    /**
+     * A listener added to every breaker built
+     */
+    public CircuitBreakerBuilder listener(CircuitBreakerListener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * The time source, for tests
+     */
+    public CircuitBreakerBuilder ticker(Ticker ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    /**
+     * Build and return a CircuitBreaker
+     *
+     * @param name the name of the breaker, usually the endpoint it guards
+     * @return the CircuitBreaker that was built from this builder
+     */
+    public CircuitBreaker build(String name) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(name, this.windowSize, this.minimumCalls, this.failureRateThreshold,
+                                                           TimeUnit.MILLISECONDS.toNanos(this.slowCallDuration), this.slowCallRateThreshold,
+                                                           TimeUnit.MILLISECONDS.toNanos(this.openDuration), this.halfOpenCalls, this.ticker);
+        for (CircuitBreakerListener listener : this.listeners) {
+            circuitBreaker.addListener(listener);
+        }
+
+        return circuitBreaker;
+    }
+}
@@ -16,14 +16,50 @@
 
 package com.homeaway.aws.thunderhead.client.builder;
 
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.homeaway.aws.thunderhead.client.CloudSearchAsyncClient;
 import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.CloudSearchResultClient;
+import com.homeaway.aws.thunderhead.client.balance.EndpointSelector;
+import com.homeaway.aws.thunderhead.client.balance.PowerOfTwoChoicesEndpointSelector;
+import com.homeaway.aws.thunderhead.client.balance.QueryEndpoint;
+import com.homeaway.aws.thunderhead.client.balance.QueryEndpointPool;
+import com.homeaway.aws.thunderhead.client.balance.SearchHealthCheck;
+import com.homeaway.aws.thunderhead.client.batch.BatchingDocumentUploader;
+import com.homeaway.aws.thunderhead.client.batch.SearchDocumentBatchSplitter;
+import com.homeaway.aws.thunderhead.client.batch.SearchDocumentJsonSizeEstimator;
+import com.homeaway.aws.thunderhead.client.batch.SearchDocumentSizeEstimator;
+import com.homeaway.aws.thunderhead.client.cache.QueryCoalescer;
+import com.homeaway.aws.thunderhead.client.hedge.QueryHedger;
 import com.homeaway.aws.thunderhead.client.impl.CloudSearchClientImpl;
+import com.homeaway.aws.thunderhead.client.impl.HttpConnectionPool;
+import com.homeaway.aws.thunderhead.client.impl.RequestTimingFilter;
+import com.homeaway.aws.thunderhead.client.io.SearchDocumentFormatJsonWriter;
+import com.homeaway.aws.thunderhead.client.io.SearchDocumentFormatWriter;
+import com.homeaway.aws.thunderhead.client.io.SearchResponseJsonReader;
+import com.homeaway.aws.thunderhead.client.io.SearchResponseReader;
+import com.homeaway.aws.thunderhead.client.metrics.CompositeMetricsRecorder;
+import com.homeaway.aws.thunderhead.client.metrics.FlightRecorderMetricsRecorder;
+import com.homeaway.aws.thunderhead.client.metrics.MetricsClientFilter;
+import com.homeaway.aws.thunderhead.client.metrics.MetricsRecorder;
+import com.homeaway.aws.thunderhead.client.retry.RetryPolicy;
+import com.homeaway.aws.thunderhead.client.retry.Retryer;
+import com.homeaway.aws.thunderhead.client.throttle.AdaptiveRateLimiter;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchResultsType;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchSdfFormat;
+import com.sun.jersey.api.client.AsyncWebResource;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.client.apache.config.DefaultApacheHttpClientConfig;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.lang.StringUtils;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
 
 /**
  * A Client builder has been provided to help build out a cloudsearch client.
@@ -33,11 +69,14 @@ import java.net.URISyntaxException;
 public class CloudSearchClientBuilder {
     public static final int DEFAULT_CONNECT_TIMEOUT = 2000;
     public static final int DEFAULT_READ_TIMEOUT = 3000;
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    public static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 60000L;
+    public static final int DEFAULT_ASYNC_THREAD_POOL_SIZE = DEFAULT_MAX_CONNECTIONS;
 
     private boolean querySecure = false;
     private boolean updateSecure = false;
 
-    private String queryHost;
+    private List<String> queryHosts = Lists.newArrayList();
     private String updateHost;
 
     private int queryConnectTimeout = DEFAULT_CONNECT_TIMEOUT;
@@ -45,6 +84,36 @@ public class CloudSearchClientBuilder {
     private int updateConnectTimeout = DEFAULT_CONNECT_TIMEOUT;
     private int updateReadTimeout = DEFAULT_READ_TIMEOUT;
 
+    private int queryMaxConnections = DEFAULT_MAX_CONNECTIONS;
+    private int updateMaxConnections = DEFAULT_MAX_CONNECTIONS;
+    private long idleConnectionTimeout = DEFAULT_IDLE_CONNECTION_TIMEOUT;
+    private boolean staleConnectionCheck = true;
+    private int socketSendBufferSize = 0;
+    private int socketReceiveBufferSize = 0;
+    private int asyncThreadPoolSize = DEFAULT_ASYNC_THREAD_POOL_SIZE;
+    private long maxBatchBytes = BatchingDocumentUploader.DEFAULT_MAX_BATCH_BYTES;
+    private boolean chunkedUploads = false;
+    private boolean jaxbSearchResponses = false;
+    private CloudSearchResultsType resultsType = CloudSearchResultsType.XML;
+    private CloudSearchSdfFormat sdfFormat = CloudSearchSdfFormat.XML;
+    private boolean coalesceQueries = false;
+    private RetryPolicy retryPolicy;
+    private CircuitBreakerBuilder circuitBreakerBuilder;
+    private ConcurrencyLimiterBuilder concurrencyLimiterBuilder;
+    private MetricsRecorder metricsRecorder;
+    private boolean flightRecorderEvents = false;
+    private long flightRecorderQueryThreshold = 0L;
+    private long flightRecorderUpdateThreshold = 0L;
+    private double queryRequestsPerSecond = 0;
+    private double updateRequestsPerSecond = 0;
+    private double updateBytesPerSecond = 0;
+    private boolean hedgeQueries = false;
+    private double hedgePercentile = QueryHedger.DEFAULT_PERCENTILE;
+    private double maxHedgeRatio = QueryHedger.DEFAULT_MAX_HEDGE_RATIO;
+    private EndpointSelector endpointSelector;
+    private int maxConsecutiveFailures = QueryEndpointPool.DEFAULT_MAX_CONSECUTIVE_FAILURES;
+    private long ejectionTime = QueryEndpointPool.DEFAULT_EJECTION_TIME;
+    private long healthCheckInterval = 0L;
 
     private CloudSearchClientBuilder() {}
 
@@ -63,7 +132,15 @@ public class CloudSearchClientBuilder {
     }
 
     public CloudSearchClientBuilder queryHost(String queryHost) {
-        this.queryHost = queryHost;
+        this.queryHosts = Lists.newArrayList(queryHost);
+        return this;
+    }
+
+    /**
+     * The hosts of replicas of the same index, in separate domains, that queries are spread across
+     */
+    public CloudSearchClientBuilder queryHosts(String... queryHosts) {
+        this.queryHosts = Lists.newArrayList(queryHosts);
         return this;
     }
 
@@ -92,6 +169,240 @@ public class CloudSearchClientBuilder {
         return this;
     }
 
+    /**
+     * The maximum number of pooled connections kept open to the query host
+     */
+    public CloudSearchClientBuilder queryMaxConnections(int queryMaxConnections) {
+        this.queryMaxConnections = queryMaxConnections;
+        return this;
+    }
+
+    /**
+     * The maximum number of pooled connections kept open to the update host
+     */
+    public CloudSearchClientBuilder updateMaxConnections(int updateMaxConnections) {
+        this.updateMaxConnections = updateMaxConnections;
+        return this;
+    }
+
+    /**
+     * How long in milliseconds a pooled connection may sit idle before it is closed. Zero disables idle eviction.
+     */
+    public CloudSearchClientBuilder idleConnectionTimeout(long idleConnectionTimeout) {
+        this.idleConnectionTimeout = idleConnectionTimeout;
+        return this;
+    }
+
+    /**
+     * Whether a pooled connection is checked for having been closed by the server before it is reused
+     */
+    public CloudSearchClientBuilder staleConnectionCheck(boolean staleConnectionCheck) {
+        this.staleConnectionCheck = staleConnectionCheck;
+        return this;
+    }
+
+    /**
+     * The socket send buffer size in bytes. Zero uses the operating system default.
+     */
+    public CloudSearchClientBuilder socketSendBufferSize(int socketSendBufferSize) {
+        this.socketSendBufferSize = socketSendBufferSize;
+        return this;
+    }
+
+    /**
+     * The socket receive buffer size in bytes. Zero uses the operating system default.
+     */
+    public CloudSearchClientBuilder socketReceiveBufferSize(int socketReceiveBufferSize) {
+        this.socketReceiveBufferSize = socketReceiveBufferSize;
+        return this;
+    }
+
+    /**
+     * The number of threads that send asynchronous requests, for the query client and the update client each. The
+     * asynchronous operations are run on a pool of threads over the same blocking http client, so every request in
+     * flight holds one of these threads until its response has been read. Requests beyond the pool size wait in a
+     * queue for a thread rather than starting new ones. The default matches the default maximum connections per host,
+     * as a request past the connection limit would only wait for a connection. Zero uses an unbounded pool, one thread
+     * per request in flight.
+     */
+    public CloudSearchClientBuilder asyncThreadPoolSize(int asyncThreadPoolSize) {
+        this.asyncThreadPoolSize = asyncThreadPoolSize;
+        return this;
+    }
+
+    /**
+     * The largest SDF batch in bytes posted in one request. Larger batches are split into several requests.
+     */
+    public CloudSearchClientBuilder maxBatchBytes(long maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    /**
+     * Whether SDF uploads are streamed to the update host with chunked transfer encoding. This is off by default, as
+     * the document service expects a Content-Length: the apache client then buffers the whole request entity before
+     * sending it, a SearchDocumentStream included, so each upload in flight holds memory in proportion to its batch
+     * size, up to maxBatchBytes for a split batch. Turn this on only for an update host that accepts chunked requests.
+     */
+    public CloudSearchClientBuilder chunkedUploads(boolean chunkedUploads) {
+        this.chunkedUploads = chunkedUploads;
+        return this;
+    }
+
+    /**
+     * Whether search responses are read with the JAXB mapping instead of the StAX reader. The StAX reader is used by
+     * default as it is considerably cheaper, JAXB is kept as a fallback.
+     */
+    public CloudSearchClientBuilder jaxbSearchResponses(boolean jaxbSearchResponses) {
+        this.jaxbSearchResponses = jaxbSearchResponses;
+        return this;
+    }
+
+    /**
+     * The format search results are requested in. Both formats are read into the same search model.
+     */
+    public CloudSearchClientBuilder resultsType(CloudSearchResultsType resultsType) {
+        this.resultsType = resultsType;
+        return this;
+    }
+
+    /**
+     * The format SDF batches are uploaded in. Json batches are smaller, so more documents fit in each batch.
+     */
+    public CloudSearchClientBuilder sdfFormat(CloudSearchSdfFormat sdfFormat) {
+        this.sdfFormat = sdfFormat;
+        return this;
+    }
+
+    /**
+     * Whether identical queries in flight at the same time share a single request, and so the same SearchResponse
+     * instance or exception
+     */
+    public CloudSearchClientBuilder coalesceQueries(boolean coalesceQueries) {
+        this.coalesceQueries = coalesceQueries;
+        return this;
+    }
+
+    /**
+     * The policy used to retry queries that fail transiently, and SDF batch uploads if the policy allows it. Failures
+     * are not retried by default. A policy can be shared by several clients to share its limit on retries per second.
+     */
+    public CloudSearchClientBuilder retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * The circuit breaker built for each of the query and update endpoints, failing requests at once while an endpoint
+     * is failing or too slow instead of waiting for the read timeout. There are no circuit breakers by default.
+     */
+    public CloudSearchClientBuilder circuitBreaker(CircuitBreakerBuilder circuitBreakerBuilder) {
+        this.circuitBreakerBuilder = circuitBreakerBuilder;
+        return this;
+    }
+
+    /**
+     * Limits the queries in flight at once to a limit estimated from their response times. Queries over the limit wait
+     * in a short queue and are shed with a CloudSearchLoadShedException when it is full. Each attempt of a retried query
+     * and each hedged duplicate is limited and timed as a request of its own. There is no limit by default.
+     */
+    public CloudSearchClientBuilder concurrencyLimiter(ConcurrencyLimiterBuilder concurrencyLimiterBuilder) {
+        this.concurrencyLimiterBuilder = concurrencyLimiterBuilder;
+        return this;
+    }
+
+    /**
+     * Receives the latency, bytes and status of every query and SDF batch upload sent, and the timing breakdown of
+     * every query. No metrics are recorded by default. An InMemoryMetricsRecorder keeps them in memory to be snapshotted.
+     */
+    public CloudSearchClientBuilder metricsRecorder(MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+        return this;
+    }
+
+    /**
+     * Emit JDK Flight Recorder events for the requests, queries and uploads at least as slow as the thresholds in
+     * milliseconds, alongside the metrics recorder if there is one. The events cost next to nothing while no recording is
+     * running, and nothing on a JVM without the Flight Recorder.
+     */
+    public CloudSearchClientBuilder flightRecorderEvents(long queryThreshold, long updateThreshold) {
+        this.flightRecorderEvents = true;
+        this.flightRecorderQueryThreshold = queryThreshold;
+        this.flightRecorderUpdateThreshold = updateThreshold;
+        return this;
+    }
+
+    /**
+     * The most queries per second. The limit is cut on every 509 response and grows back while queries succeed. Zero,
+     * the default, for no limit.
+     */
+    public CloudSearchClientBuilder queryRateLimit(double queryRequestsPerSecond) {
+        this.queryRequestsPerSecond = queryRequestsPerSecond;
+        return this;
+    }
+
+    /**
+     * The most SDF batches and bytes per second uploaded. The limits are cut on every 509 response and grow back while
+     * uploads succeed. Zero, the default, for no limit.
+     */
+    public CloudSearchClientBuilder updateRateLimit(double updateRequestsPerSecond, double updateBytesPerSecond) {
+        this.updateRequestsPerSecond = updateRequestsPerSecond;
+        this.updateBytesPerSecond = updateBytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Picks the query host each query is sent to. By default the cheaper of two random hosts by response time and
+     * outstanding queries.
+     */
+    public CloudSearchClientBuilder endpointSelector(EndpointSelector endpointSelector) {
+        this.endpointSelector = endpointSelector;
+        return this;
+    }
+
+    /**
+     * The failures in a row after which a query host is ejected, and how long in milliseconds it stays ejected
+     */
+    public CloudSearchClientBuilder queryHostEjection(int maxConsecutiveFailures, long ejectionTime) {
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        this.ejectionTime = ejectionTime;
+        return this;
+    }
+
+    /**
+     * The time in milliseconds between probes of every query host, ejecting the hosts that do not answer and
+     * readmitting those that do. Zero, the default, for no probes.
+     */
+    public CloudSearchClientBuilder queryHealthCheckInterval(long healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+        return this;
+    }
+
+    /**
+     * Whether a duplicate of a query is sent when no response has arrived by the time most queries have been answered,
+     * taking whichever response comes first
+     */
+    public CloudSearchClientBuilder hedgeQueries(boolean hedgeQueries) {
+        this.hedgeQueries = hedgeQueries;
+        return this;
+    }
+
+    /**
+     * The percentile of recent response times, between 0 and 1, after which a query is hedged
+     */
+    public CloudSearchClientBuilder hedgePercentile(double hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+        return this;
+    }
+
+    /**
+     * The largest share of queries that may be hedged, bounding the extra load hedging adds
+     */
+    public CloudSearchClientBuilder maxHedgeRatio(double maxHedgeRatio) {
+        this.maxHedgeRatio = maxHedgeRatio;
+        return this;
+    }
+
     /**
      * Build and return a WebResource
      *
@@ -99,28 +410,194 @@ public class CloudSearchClientBuilder {
      * @throws URISyntaxException if the host provided does not match a URI scheme
      */
     public CloudSearchClient build() throws URISyntaxException {
+        return buildClient();
+    }
+
+    /**
+     * Build and return a client whose operations run on a pool of client threads instead of the calling thread
+     *
+     * @return the asynchronous client that was built from this builder
+     * @throws URISyntaxException if the host provided does not match a URI scheme
+     */
+    public CloudSearchAsyncClient buildAsync() throws URISyntaxException {
+        return buildClient();
+    }
+
+    /**
+     * Build and return a client which returns failures as results instead of throwing them
+     *
+     * @return the result client that was built from this builder
+     * @throws URISyntaxException if the host provided does not match a URI scheme
+     */
+    public CloudSearchResultClient buildResult() throws URISyntaxException {
+        return buildClient();
+    }
+
+    private CloudSearchClientImpl buildClient() throws URISyntaxException {
 
         WebResource queryWebResource = null;
         WebResource updateWebResouce = null;
+        AsyncWebResource asyncQueryWebResource = null;
+        AsyncWebResource asyncUpdateWebResource = null;
+        HttpConnectionPool queryConnectionPool = null;
+        HttpConnectionPool updateConnectionPool = null;
+
+        MetricsRecorder metricsRecorder = this.metricsRecorder;
+        if (this.flightRecorderEvents) {
+            FlightRecorderMetricsRecorder flightRecorder = new FlightRecorderMetricsRecorder(this.flightRecorderQueryThreshold,
+                                                                                             this.flightRecorderUpdateThreshold);
+            metricsRecorder = (metricsRecorder == null ? flightRecorder : new CompositeMetricsRecorder(metricsRecorder, flightRecorder));
+        }
+
+        List<QueryEndpoint> queryEndpoints = Lists.newArrayList();
+        List<String> hosts = Lists.newArrayList();
+        for (String host : this.queryHosts) {
+            if (StringUtils.isNotEmpty(host)) {
+                hosts.add(host);
+            }
+        }
 
-        if (StringUtils.isNotEmpty(this.queryHost)) {
+        if (!hosts.isEmpty()) {
             String scheme = (this.querySecure ? "https://" : "http://");
-            URI uri = new URI(scheme + this.queryHost);
-            Client client = Client.create();
-            client.setConnectTimeout(this.queryConnectTimeout);
+            queryConnectionPool = buildConnectionPool(this.queryConnectTimeout, this.queryMaxConnections, hosts.size());
+            Client client = queryConnectionPool.createClient(buildClientConfig(false));
             client.setReadTimeout(this.queryReadTimeout);
-            queryWebResource = client.resource(uri);
+            client.addFilter(new RequestTimingFilter());
+            if (metricsRecorder != null) {
+                client.addFilter(new MetricsClientFilter(metricsRecorder, CloudSearchOperation.QUERY));
+            }
+
+            for (String host : hosts) {
+                URI uri = new URI(scheme + host);
+                WebResource webResource = client.resource(uri);
+                queryEndpoints.add(new QueryEndpoint(webResource, client.asyncResource(uri),
+                                                     (this.circuitBreakerBuilder == null ? null : this.circuitBreakerBuilder.build(uri.toString()))));
+            }
+
+            queryWebResource = queryEndpoints.get(0).getWebResource();
+            asyncQueryWebResource = queryEndpoints.get(0).getAsyncWebResource();
         }
 
         if (StringUtils.isNotEmpty(this.updateHost)) {
             String scheme = (this.updateSecure ? "https://" : "http://");
             URI uri = new URI(scheme + this.updateHost);
-            Client client = Client.create();
-            client.setConnectTimeout(this.updateConnectTimeout);
+            updateConnectionPool = buildConnectionPool(this.updateConnectTimeout, this.updateMaxConnections, 1);
+            Client client = updateConnectionPool.createClient(buildClientConfig(this.chunkedUploads));
             client.setReadTimeout(this.updateReadTimeout);
+            if (metricsRecorder != null) {
+                client.addFilter(new MetricsClientFilter(metricsRecorder, CloudSearchOperation.UPDATE));
+            }
             updateWebResouce = client.resource(uri);
+            asyncUpdateWebResource = client.asyncResource(uri);
+        }
+
+        CloudSearchClientImpl cloudSearchClient = new CloudSearchClientImpl(queryWebResource, updateWebResouce,
+                                                                            asyncQueryWebResource, asyncUpdateWebResource,
+                                                                            queryConnectionPool, updateConnectionPool);
+        SearchDocumentSizeEstimator sizeEstimator = (this.sdfFormat == CloudSearchSdfFormat.JSON ? new SearchDocumentJsonSizeEstimator()
+                                                                                                : new SearchDocumentSizeEstimator());
+        cloudSearchClient.setBatchSplitter(new SearchDocumentBatchSplitter(sizeEstimator, this.maxBatchBytes));
+        cloudSearchClient.setResultsType(this.resultsType);
+        cloudSearchClient.setSdfFormat(this.sdfFormat);
+
+        if (this.coalesceQueries) {
+            cloudSearchClient.setQueryCoalescer(new QueryCoalescer());
+        }
+
+        if (!queryEndpoints.isEmpty()) {
+            QueryEndpointPool queryEndpointPool = new QueryEndpointPool(queryEndpoints,
+                                                                        (this.endpointSelector == null ? new PowerOfTwoChoicesEndpointSelector() : this.endpointSelector),
+                                                                        this.maxConsecutiveFailures, this.ejectionTime, Ticker.systemTicker());
+            if (this.healthCheckInterval > 0) {
+                queryEndpointPool.startHealthChecks(new SearchHealthCheck(), this.healthCheckInterval);
+            }
+            cloudSearchClient.setQueryEndpointPool(queryEndpointPool);
+        }
+
+        if (this.circuitBreakerBuilder != null && updateWebResouce != null) {
+            cloudSearchClient.setUpdateCircuitBreaker(this.circuitBreakerBuilder.build(updateWebResouce.getURI().toString()));
+        }
+
+        cloudSearchClient.setMetricsRecorder(metricsRecorder);
+
+        if (this.concurrencyLimiterBuilder != null) {
+            cloudSearchClient.setQueryConcurrencyLimiter(this.concurrencyLimiterBuilder.build());
+        }
+
+        if (this.queryRequestsPerSecond > 0) {
+            cloudSearchClient.setQueryRateLimiter(new AdaptiveRateLimiter(this.queryRequestsPerSecond, 0));
+        }
+
+        if (this.updateRequestsPerSecond > 0 || this.updateBytesPerSecond > 0) {
+            cloudSearchClient.setUpdateRateLimiter(new AdaptiveRateLimiter(this.updateRequestsPerSecond, this.updateBytesPerSecond));
+        }
+
+        if (this.hedgeQueries) {
+            cloudSearchClient.setQueryHedger(new QueryHedger(this.hedgePercentile, this.maxHedgeRatio));
+        }
+
+        if (this.retryPolicy != null) {
+            cloudSearchClient.setQueryRetryer(new Retryer(this.retryPolicy));
+            if (this.retryPolicy.isRetryUpdates()) {
+                cloudSearchClient.setUpdateRetryer(new Retryer(this.retryPolicy));
+            }
+        }
+
+        return cloudSearchClient;
+    }
+
+    /**
+     * Build the jersey config for the query or update client
+     *
+     * @param chunked whether request entities are streamed with chunked transfer encoding
+     * @return the jersey client config
+     */
+    private ClientConfig buildClientConfig(boolean chunked) {
+        ClientConfig clientConfig = new DefaultApacheHttpClientConfig();
+        clientConfig.getSingletons().add(new SearchDocumentFormatWriter());
+        clientConfig.getSingletons().add(new SearchDocumentFormatJsonWriter());
+        clientConfig.getSingletons().add(new SearchResponseJsonReader());
+
+        if (!this.jaxbSearchResponses) {
+            clientConfig.getSingletons().add(new SearchResponseReader());
+        }
+
+        if (this.asyncThreadPoolSize > 0) {
+            clientConfig.getProperties().put(ClientConfig.PROPERTY_THREADPOOL_SIZE, this.asyncThreadPoolSize);
+        }
+
+        if (chunked) {
+            /* The apache client ignores the chunk size itself and uses its own */
+            clientConfig.getProperties().put(ClientConfig.PROPERTY_CHUNKED_ENCODING_SIZE, 0);
+        }
+
+        return clientConfig;
+    }
+
+    /**
+     * Build a pool of keep-alive connections for one or more hosts
+     *
+     * @param connectTimeout the connect timeout in milliseconds
+     * @param maxConnections the maximum number of connections to keep open to each host
+     * @param hosts the number of hosts
+     * @return the connection pool
+     */
+    private HttpConnectionPool buildConnectionPool(int connectTimeout, int maxConnections, int hosts) {
+        HttpConnectionManagerParams params = new HttpConnectionManagerParams();
+        params.setConnectionTimeout(connectTimeout);
+        params.setDefaultMaxConnectionsPerHost(maxConnections);
+        params.setMaxTotalConnections(maxConnections * hosts);
+        params.setStaleCheckingEnabled(this.staleConnectionCheck);
+        params.setTcpNoDelay(true);
+
+        if (this.socketSendBufferSize > 0) {
+            params.setSendBufferSize(this.socketSendBufferSize);
+        }
+
+        if (this.socketReceiveBufferSize > 0) {
+            params.setReceiveBufferSize(this.socketReceiveBufferSize);
         }
 
-        return new CloudSearchClientImpl(queryWebResource, updateWebResouce);
+        return new HttpConnectionPool(params, this.idleConnectionTimeout);
     }
 }
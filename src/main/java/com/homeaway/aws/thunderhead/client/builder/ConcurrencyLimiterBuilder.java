@@ -0,0 +1,115 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.google.common.base.Ticker;
+import com.homeaway.aws.thunderhead.client.limit.ConcurrencyLimit;
+import com.homeaway.aws.thunderhead.client.limit.ConcurrencyLimiter;
+import com.homeaway.aws.thunderhead.client.limit.GradientConcurrencyLimit;
+import com.homeaway.aws.thunderhead.client.limit.VegasConcurrencyLimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A builder for ConcurrencyLimiters. The limit is estimated from the gradient of the response times by default.
+ *
+ * @author jmonette
+ */
+public class ConcurrencyLimiterBuilder {
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_MAX_LIMIT = 200;
+    public static final int DEFAULT_MAX_QUEUE_SIZE = 20;
+    public static final long DEFAULT_MAX_QUEUE_WAIT = 50L;
+
+    private boolean vegas = false;
+    private int initialLimit = DEFAULT_INITIAL_LIMIT;
+    private int minLimit = DEFAULT_MIN_LIMIT;
+    private int maxLimit = DEFAULT_MAX_LIMIT;
+    private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+    private long maxQueueWait = DEFAULT_MAX_QUEUE_WAIT;
+    private Ticker ticker = Ticker.systemTicker();
+
+    private ConcurrencyLimiterBuilder() {}
+
+    public static ConcurrencyLimiterBuilder newInstance() {
+        return new ConcurrencyLimiterBuilder();
+    }
+
+    /**
+     * Estimate the limit from the gradient between the long term and the latest response times
+     */
+    public ConcurrencyLimiterBuilder gradient() {
+        this.vegas = false;
+        return this;
+    }
+
+    /**
+     * Estimate the limit from the requests queued at the endpoint, judged from the fastest response time, as TCP Vegas
+     * does
+     */
+    public ConcurrencyLimiterBuilder vegas() {
+        this.vegas = true;
+        return this;
+    }
+
+    /**
+     * The limit before any response was seen
+     */
+    public ConcurrencyLimiterBuilder initialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+        return this;
+    }
+
+    /**
+     * The smallest and largest limits
+     */
+    public ConcurrencyLimiterBuilder limits(int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        return this;
+    }
+
+    /**
+     * The most requests waiting for their turn, and the longest time in milliseconds they wait before being shed. A
+     * size of zero sheds requests over the limit at once.
+     */
+    public ConcurrencyLimiterBuilder queue(int maxQueueSize, long maxQueueWait) {
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueWait = maxQueueWait;
+        return this;
+    }
+
+    /**
+     * The time source the response times are measured with, for tests
+     */
+    public ConcurrencyLimiterBuilder ticker(Ticker ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    /**
+     * Build and return a ConcurrencyLimiter
+     *
+     * @return the ConcurrencyLimiter that was built from this builder
+     */
+    public ConcurrencyLimiter build() {
+        ConcurrencyLimit limit = (this.vegas ? new VegasConcurrencyLimit(this.initialLimit, this.minLimit, this.maxLimit)
+                                             : new GradientConcurrencyLimit(this.initialLimit, this.minLimit, this.maxLimit));
+        return new ConcurrencyLimiter(limit, this.maxQueueSize, TimeUnit.MILLISECONDS.toNanos(this.maxQueueWait), this.ticker);
+    }
+}
@@ -0,0 +1,161 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.homeaway.aws.thunderhead.client.batch.BatchingDocumentUploader;
+import com.homeaway.aws.thunderhead.server.FakeCloudSearchIndex;
+import com.homeaway.aws.thunderhead.server.FakeCloudSearchServer;
+import com.homeaway.aws.thunderhead.server.LatencyDistribution;
+import com.homeaway.aws.thunderhead.server.LatencyDistributions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A builder for the FakeCloudSearchServer, a local stand-in for a CloudSearch domain. The server is returned
+ * unstarted.
+ *
+ * @author jmonette
+ */
+public class FakeCloudSearchServerBuilder {
+    public static final int DEFAULT_THREADS = 32;
+
+    private int port = 0;
+    private int threads = DEFAULT_THREADS;
+    private boolean tcpNoDelay = true;
+    private long maxBatchBytes = BatchingDocumentUploader.DEFAULT_MAX_BATCH_BYTES;
+    private FakeCloudSearchIndex index;
+    private Random random;
+    private LatencyDistribution searchLatency = LatencyDistributions.none();
+    private LatencyDistribution updateLatency = LatencyDistributions.none();
+    private Map<Integer, Double> searchErrorRates = new LinkedHashMap<Integer, Double>();
+    private Map<Integer, Double> updateErrorRates = new LinkedHashMap<Integer, Double>();
+
+    private FakeCloudSearchServerBuilder() {
+    }
+
+    public static FakeCloudSearchServerBuilder newInstance() {
+        return new FakeCloudSearchServerBuilder();
+    }
+
+    /**
+     * The port to listen on, by default any free port
+     */
+    public FakeCloudSearchServerBuilder port(int port) {
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * The number of threads serving requests. Requests beyond it wait, as they would on a small domain.
+     */
+    public FakeCloudSearchServerBuilder threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Whether to turn off Nagle's algorithm on the server's sockets, by default true. The JDK http server leaves it on,
+     * which against the delayed acks of the client adds around 40ms to every response. It can only be turned off
+     * through the sun.net.httpserver.nodelay system property, which the server sets when started unless it already has
+     * a value. The property is JVM-wide and read once, when the first JDK http server is created, so it also applies to
+     * any other such server in the JVM; set it to false to leave the property alone.
+     */
+    public FakeCloudSearchServerBuilder tcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    /**
+     * The size in bytes over which a batch is rejected with a 413, by default the 5MB limit of CloudSearch
+     */
+    public FakeCloudSearchServerBuilder maxBatchBytes(long maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    /**
+     * The documents to serve, by default a new empty index
+     */
+    public FakeCloudSearchServerBuilder index(FakeCloudSearchIndex index) {
+        this.index = index;
+        return this;
+    }
+
+    /**
+     * Seed the injected latencies and errors, so a run can be repeated
+     */
+    public FakeCloudSearchServerBuilder seed(long seed) {
+        this.random = new Random(seed);
+        return this;
+    }
+
+    /**
+     * The latency added to each search request
+     */
+    public FakeCloudSearchServerBuilder searchLatency(LatencyDistribution searchLatency) {
+        this.searchLatency = searchLatency;
+        return this;
+    }
+
+    /**
+     * The latency added to each document batch
+     */
+    public FakeCloudSearchServerBuilder updateLatency(LatencyDistribution updateLatency) {
+        this.updateLatency = updateLatency;
+        return this;
+    }
+
+    /**
+     * Fail the fraction of the search requests with the status, such as 500 or 509
+     */
+    public FakeCloudSearchServerBuilder searchErrorRate(int status, double errorRate) {
+        this.searchErrorRates.put(status, errorRate);
+        return this;
+    }
+
+    /**
+     * Fail the fraction of the document batches with the status, such as 413, 500 or 509
+     */
+    public FakeCloudSearchServerBuilder updateErrorRate(int status, double errorRate) {
+        this.updateErrorRates.put(status, errorRate);
+        return this;
+    }
+
+    /**
+     * Build and return a FakeCloudSearchServer
+     *
+     * @return the FakeCloudSearchServer that was built from this builder, not yet started
+     */
+    public FakeCloudSearchServer build() {
+        FakeCloudSearchServer server = new FakeCloudSearchServer(this.port, this.threads, this.tcpNoDelay, this.maxBatchBytes,
+                                                                 (this.index == null ? new FakeCloudSearchIndex() : this.index),
+                                                                 (this.random == null ? new Random() : this.random));
+
+        server.getSearchFaults().setLatencyDistribution(this.searchLatency);
+        server.getUpdateFaults().setLatencyDistribution(this.updateLatency);
+        for (Map.Entry<Integer, Double> errorRate : this.searchErrorRates.entrySet()) {
+            server.getSearchFaults().setErrorRate(errorRate.getKey(), errorRate.getValue());
+        }
+        for (Map.Entry<Integer, Double> errorRate : this.updateErrorRates.entrySet()) {
+            server.getUpdateFaults().setErrorRate(errorRate.getKey(), errorRate.getValue());
+        }
+
+        return server;
+    }
+}
@@ -0,0 +1,79 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.google.common.collect.ImmutableList;
+import com.homeaway.aws.thunderhead.model.sdf.ImmutableField;
+import com.homeaway.aws.thunderhead.model.sdf.ImmutableSearchDocumentAdd;
+
+/**
+ * A builder for the ImmutableSearchDocumentAdd. The builder can be built more than once and keeps its fields.
+ *
+ * @author jmonette
+ */
+public class ImmutableSearchDocumentAddBuilder {
+    private String id;
+    private String version;
+    private String lang;
+    private ImmutableList.Builder<ImmutableField> fields = ImmutableList.builder();
+
+    private ImmutableSearchDocumentAddBuilder() {}
+
+    public static ImmutableSearchDocumentAddBuilder newInstance() {
+        return new ImmutableSearchDocumentAddBuilder();
+    }
+
+    public ImmutableSearchDocumentAddBuilder id(String id) {
+        this.id = id;
+        return this;
+    }
+
+    public ImmutableSearchDocumentAddBuilder version(String version) {
+        this.version = version;
+        return this;
+    }
+
+    public ImmutableSearchDocumentAddBuilder lang(String lang) {
+        this.lang = lang;
+        return this;
+    }
+
+    /**
+     * Add a field to be indexed
+     */
+    public ImmutableSearchDocumentAddBuilder field(String name, String value) {
+        this.fields.add(new ImmutableField(name, value));
+        return this;
+    }
+
+    /**
+     * Add fields to be indexed
+     */
+    public ImmutableSearchDocumentAddBuilder fields(Iterable<ImmutableField> fields) {
+        this.fields.addAll(fields);
+        return this;
+    }
+
+    /**
+     * Build and return an ImmutableSearchDocumentAdd
+     *
+     * @return the ImmutableSearchDocumentAdd that was built from this builder
+     */
+    public ImmutableSearchDocumentAdd build() {
+        return new ImmutableSearchDocumentAdd(this.id, this.version, this.lang, this.fields.build());
+    }
+}
@@ -0,0 +1,58 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.homeaway.aws.thunderhead.model.search.ImmutableSearchHit;
+
+/**
+ * A builder for the ImmutableSearchHit. The builder can be built more than once and keeps its return fields.
+ *
+ * @author jmonette
+ */
+public class ImmutableSearchHitBuilder {
+    private String id;
+    private ImmutableListMultimap.Builder<String, String> returnFields = ImmutableListMultimap.builder();
+
+    private ImmutableSearchHitBuilder() {}
+
+    public static ImmutableSearchHitBuilder newInstance() {
+        return new ImmutableSearchHitBuilder();
+    }
+
+    public ImmutableSearchHitBuilder id(String id) {
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * Add a value of a return field. A field given more than once keeps its values in the order they were added.
+     */
+    public ImmutableSearchHitBuilder returnField(String name, String value) {
+        this.returnFields.put(name, value);
+        return this;
+    }
+
+    /**
+     * Build and return an ImmutableSearchHit
+     *
+     * @return the ImmutableSearchHit that was built from this builder
+     */
+    public ImmutableSearchHit build() {
+        return new ImmutableSearchHit(this.id, this.returnFields.build());
+    }
+}
@@ -0,0 +1,68 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.google.common.collect.ImmutableList;
+import com.homeaway.aws.thunderhead.model.search.ImmutableSearchHit;
+import com.homeaway.aws.thunderhead.model.search.ImmutableSearchHits;
+
+/**
+ * A builder for the ImmutableSearchHits. The builder can be built more than once and keeps its hits.
+ *
+ * @author jmonette
+ */
+public class ImmutableSearchHitsBuilder {
+    private int count;
+    private int start;
+    private ImmutableList.Builder<ImmutableSearchHit> hits = ImmutableList.builder();
+
+    private ImmutableSearchHitsBuilder() {}
+
+    public static ImmutableSearchHitsBuilder newInstance() {
+        return new ImmutableSearchHitsBuilder();
+    }
+
+    /**
+     * The number of documents found, which may be more than the hits on this page
+     */
+    public ImmutableSearchHitsBuilder count(int count) {
+        this.count = count;
+        return this;
+    }
+
+    /**
+     * The index of the first hit on this page
+     */
+    public ImmutableSearchHitsBuilder start(int start) {
+        this.start = start;
+        return this;
+    }
+
+    public ImmutableSearchHitsBuilder hit(ImmutableSearchHit hit) {
+        this.hits.add(hit);
+        return this;
+    }
+
+    /**
+     * Build and return an ImmutableSearchHits
+     *
+     * @return the ImmutableSearchHits that was built from this builder
+     */
+    public ImmutableSearchHits build() {
+        return new ImmutableSearchHits(this.count, this.start, this.hits.build());
+    }
+}
@@ -0,0 +1,81 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.homeaway.aws.thunderhead.model.search.ImmutableSearchHits;
+import com.homeaway.aws.thunderhead.model.search.ImmutableSearchResponse;
+
+/**
+ * A builder for the ImmutableSearchResponse.
+ *
+ * @author jmonette
+ */
+public class ImmutableSearchResponseBuilder {
+    private String rank;
+    private String matchExpr;
+    private ImmutableSearchHits found;
+    private String rid;
+    private String timeMs;
+    private String cpuTimeMs;
+
+    private ImmutableSearchResponseBuilder() {}
+
+    public static ImmutableSearchResponseBuilder newInstance() {
+        return new ImmutableSearchResponseBuilder();
+    }
+
+    public ImmutableSearchResponseBuilder rank(String rank) {
+        this.rank = rank;
+        return this;
+    }
+
+    public ImmutableSearchResponseBuilder matchExpr(String matchExpr) {
+        this.matchExpr = matchExpr;
+        return this;
+    }
+
+    public ImmutableSearchResponseBuilder found(ImmutableSearchHits found) {
+        this.found = found;
+        return this;
+    }
+
+    /**
+     * The request id cloudsearch assigned to the query
+     */
+    public ImmutableSearchResponseBuilder rid(String rid) {
+        this.rid = rid;
+        return this;
+    }
+
+    /**
+     * The time and cpu time in milliseconds cloudsearch reported for the query
+     */
+    public ImmutableSearchResponseBuilder times(String timeMs, String cpuTimeMs) {
+        this.timeMs = timeMs;
+        this.cpuTimeMs = cpuTimeMs;
+        return this;
+    }
+
+    /**
+     * Build and return an ImmutableSearchResponse
+     *
+     * @return the ImmutableSearchResponse that was built from this builder
+     */
+    public ImmutableSearchResponse build() {
+        return new ImmutableSearchResponse(this.rank, this.matchExpr, this.found, this.rid, this.timeMs, this.cpuTimeMs);
+    }
+}
@@ -0,0 +1,140 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.load.LoadGenerator;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A builder for the LoadGenerator which drives a CloudSearchClient with queries and uploads
+ *
+ * @author jmonette
+ */
+public class LoadGeneratorBuilder {
+    public static final int DEFAULT_THREADS = 16;
+    public static final long DEFAULT_WARMUP = 10000L;
+    public static final long DEFAULT_DURATION = 60000L;
+    public static final double DEFAULT_QUERY_RATIO = 0.9;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final int DEFAULT_DOCUMENT_BYTES = 1000;
+
+    private CloudSearchClient cloudSearchClient;
+    private int threads = DEFAULT_THREADS;
+    private long warmup = DEFAULT_WARMUP;
+    private long duration = DEFAULT_DURATION;
+    private double queryRatio = DEFAULT_QUERY_RATIO;
+    private List<MultivaluedMap<String, String>> queries = new ArrayList<MultivaluedMap<String, String>>();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int documentBytes = DEFAULT_DOCUMENT_BYTES;
+    private long seed = 0L;
+
+    private LoadGeneratorBuilder(CloudSearchClient cloudSearchClient) {
+        this.cloudSearchClient = cloudSearchClient;
+    }
+
+    public static LoadGeneratorBuilder newInstance(CloudSearchClient cloudSearchClient) {
+        return new LoadGeneratorBuilder(cloudSearchClient);
+    }
+
+    /**
+     * The number of threads sending requests, each waiting for its response before sending the next
+     */
+    public LoadGeneratorBuilder threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * How long in milliseconds to send requests before measuring
+     */
+    public LoadGeneratorBuilder warmup(long warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    /**
+     * How long in milliseconds to measure
+     */
+    public LoadGeneratorBuilder duration(long duration) {
+        this.duration = duration;
+        return this;
+    }
+
+    /**
+     * The share of the requests which are queries, between 0 and 1. The rest are uploads.
+     */
+    public LoadGeneratorBuilder queryRatio(double queryRatio) {
+        this.queryRatio = queryRatio;
+        return this;
+    }
+
+    /**
+     * The query params to draw queries from. Queries on the synthetic documents are used when none are given.
+     */
+    public LoadGeneratorBuilder queries(List<MultivaluedMap<String, String>> queries) {
+        this.queries = queries;
+        return this;
+    }
+
+    /**
+     * The number of documents in each uploaded batch
+     */
+    public LoadGeneratorBuilder batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * The rough size of the text of each uploaded document
+     */
+    public LoadGeneratorBuilder documentBytes(int documentBytes) {
+        this.documentBytes = documentBytes;
+        return this;
+    }
+
+    /**
+     * Seed the choice of requests, so a run can be repeated
+     */
+    public LoadGeneratorBuilder seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Build and return a LoadGenerator
+     *
+     * @return the LoadGenerator that was built from this builder
+     */
+    public LoadGenerator build() {
+        if (this.cloudSearchClient == null) {
+            throw new IllegalStateException("A CloudSearchClient is required to build a LoadGenerator");
+        }
+        if (this.threads < 1) {
+            throw new IllegalStateException("At least one thread is required");
+        }
+        if (this.queryRatio < 0 || this.queryRatio > 1) {
+            throw new IllegalStateException("The query ratio must be between 0 and 1");
+        }
+
+        return new LoadGenerator(this.cloudSearchClient, this.threads, this.warmup, this.duration, this.queryRatio,
+                                 this.queries, this.batchSize, this.documentBytes, this.seed);
+    }
+}
@@ -0,0 +1,130 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.builder;
+
+import com.homeaway.aws.thunderhead.client.retry.RetryPolicy;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchStatusCode;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A builder for the RetryPolicy used by the CloudSearchClientBuilder to retry transient failures.
+ *
+ * @author jmonette
+ */
+public class RetryPolicyBuilder {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY = 50L;
+    public static final long DEFAULT_MAX_DELAY = 2000L;
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+    public static final int DEFAULT_BUDGET_RESERVE = 10;
+
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long baseDelay = DEFAULT_BASE_DELAY;
+    private long maxDelay = DEFAULT_MAX_DELAY;
+    private Set<CloudSearchStatusCode> retryableStatusCodes = EnumSet.of(CloudSearchStatusCode.REQUEST_TIMEOUT,
+                                                                         CloudSearchStatusCode.INTERNAL_SERVER_ERROR,
+                                                                         CloudSearchStatusCode.BANDWIDTH_LIMIT_EXCEEDED);
+    private boolean retryIoFailures = true;
+    private boolean retryUpdates = false;
+    private double budgetRatio = DEFAULT_BUDGET_RATIO;
+    private int budgetReserve = DEFAULT_BUDGET_RESERVE;
+    private double maxRetriesPerSecond = 0;
+
+    private RetryPolicyBuilder() {}
+
+    public static RetryPolicyBuilder newInstance() {
+        return new RetryPolicyBuilder();
+    }
+
+    /**
+     * The most times an operation is attempted, including the first attempt
+     */
+    public RetryPolicyBuilder maxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * The cap in milliseconds on the wait before the first retry. The cap doubles for each retry after it.
+     */
+    public RetryPolicyBuilder baseDelay(long baseDelay) {
+        this.baseDelay = baseDelay;
+        return this;
+    }
+
+    /**
+     * The largest cap in milliseconds on the wait before a retry
+     */
+    public RetryPolicyBuilder maxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+        return this;
+    }
+
+    /**
+     * The status codes that are retried, by default request timeouts, internal server errors and bandwidth limits
+     */
+    public RetryPolicyBuilder retryableStatusCodes(CloudSearchStatusCode first, CloudSearchStatusCode... rest) {
+        this.retryableStatusCodes = EnumSet.of(first, rest);
+        return this;
+    }
+
+    /**
+     * Whether requests that failed with an I/O error, such as a refused connection or a read timeout, are retried
+     */
+    public RetryPolicyBuilder retryIoFailures(boolean retryIoFailures) {
+        this.retryIoFailures = retryIoFailures;
+        return this;
+    }
+
+    /**
+     * Whether SDF batch uploads are retried as well as queries. Off by default, as a batch that failed may still have
+     * been applied.
+     */
+    public RetryPolicyBuilder retryUpdates(boolean retryUpdates) {
+        this.retryUpdates = retryUpdates;
+        return this;
+    }
+
+    /**
+     * The retries each operation earns for every request it makes, and the most it can save up
+     */
+    public RetryPolicyBuilder budget(double budgetRatio, int budgetReserve) {
+        this.budgetRatio = budgetRatio;
+        this.budgetReserve = budgetReserve;
+        return this;
+    }
+
+    /**
+     * The most retries per second across every client using the policy, zero for no limit
+     */
+    public RetryPolicyBuilder maxRetriesPerSecond(double maxRetriesPerSecond) {
+        this.maxRetriesPerSecond = maxRetriesPerSecond;
+        return this;
+    }
+
+    /**
+     * Build and return a RetryPolicy
+     *
+     * @return the RetryPolicy that was built from this builder
+     */
+    public RetryPolicy build() {
+        return new RetryPolicy(this.maxAttempts, this.baseDelay, this.maxDelay, this.retryableStatusCodes, this.retryIoFailures,
+                               this.retryUpdates, this.budgetRatio, this.budgetReserve, this.maxRetriesPerSecond);
+    }
+}
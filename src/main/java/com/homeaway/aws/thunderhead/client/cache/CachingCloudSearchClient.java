@@ -0,0 +1,148 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.cache;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentStream;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A CloudSearchClient that caches search responses in process, keyed on the canonical form of the query params. Only
+ * successful responses are cached. Concurrent queries for the same params wait for a single request to Amazon rather
+ * than each making their own.
+ *
+ * A cached response is shared by every caller that receives it, so callers must not modify it, and its SearchTiming
+ * is that of the request which fetched it. Documents updated through this client do not invalidate the cache, and
+ * cloudsearch takes time to make updates searchable anyway, so a cached response may be as old as the time to live of
+ * the cache.
+ *
+ * @author jmonette
+ */
+public class CachingCloudSearchClient implements CloudSearchClient {
+
+    private final CloudSearchClient cloudSearchClient;
+    private final Cache<QueryCacheKey, SearchResponse> cache;
+
+    /**
+     * Creates a caching client
+     *
+     * @param cloudSearchClient the client queried on a cache miss and used for updates
+     * @param cache the cache of search responses
+     */
+    public CachingCloudSearchClient(CloudSearchClient cloudSearchClient, Cache<QueryCacheKey, SearchResponse> cache) {
+        this.cloudSearchClient = cloudSearchClient;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the cached response for the query params, querying Amazon if there is none
+     *
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a SearchResponse object which represents query results
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    @Override
+    public SearchResponse query(final MultivaluedMap<String, String> queryParams) throws CloudSearchClientException {
+        try {
+            return this.cache.get(QueryCacheKey.of(queryParams), new Callable<SearchResponse>() {
+                @Override
+                public SearchResponse call() throws CloudSearchClientException {
+                    return cloudSearchClient.query(queryParams);
+                }
+            });
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof CloudSearchClientException) {
+                throw (CloudSearchClientException) ee.getCause();
+            }
+            throw new CloudSearchRuntimeException(ee.getCause().getMessage(), ee.getCause());
+        } catch (UncheckedExecutionException uee) {
+            if (uee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) uee.getCause();
+            }
+            throw uee;
+        }
+    }
+
+    @Override
+    public UploadResponse updateDomain(SearchDocumentFormat entity) throws CloudSearchClientException {
+        return this.cloudSearchClient.updateDomain(entity);
+    }
+
+    @Override
+    public UploadResponse updateDomain(SearchDocumentStream entity) throws CloudSearchClientException {
+        return this.cloudSearchClient.updateDomain(entity);
+    }
+
+    /**
+     * Empties the cache and closes the underlying client
+     */
+    @Override
+    public void close() {
+        this.cache.invalidateAll();
+        this.cloudSearchClient.close();
+    }
+
+    /**
+     * Removes every cached response
+     */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    /**
+     * The hit, miss, load and eviction counts of the cache
+     *
+     * @return a snapshot of the cache statistics
+     */
+    public CacheStats getStats() {
+        return this.cache.stats();
+    }
+
+    /**
+     * The number of responses currently cached
+     *
+     * @return the approximate number of cached responses
+     */
+    public long getSize() {
+        return this.cache.size();
+    }
+
+    /**
+     * String representation of the CachingCloudSearchClient object
+     *
+     * @return String representation of the CachingCloudSearchClient object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("cloudSearchClient", this.cloudSearchClient)
+                      .add("stats", this.cache.stats())
+                      .toString();
+    }
+}
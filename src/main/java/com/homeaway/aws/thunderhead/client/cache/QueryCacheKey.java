@@ -0,0 +1,89 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.cache;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Ordering;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchQueryParam;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The canonical form of a set of query params, used to key cached search responses. Two sets of params that only
+ * differ in the order of their keys or of the values of a key give equal keys. The results type is left out as the
+ * client always decides it.
+ *
+ * @author jmonette
+ */
+public final class QueryCacheKey {
+
+    private final ImmutableSortedMap<String, List<String>> queryParams;
+    private final int hashCode;
+
+    private QueryCacheKey(ImmutableSortedMap<String, List<String>> queryParams) {
+        this.queryParams = queryParams;
+        this.hashCode = queryParams.hashCode();
+    }
+
+    /**
+     * Build the key for the query params
+     *
+     * @param queryParams the query params of a search
+     * @return the canonical key for the query params
+     */
+    public static QueryCacheKey of(MultivaluedMap<String, String> queryParams) {
+        ImmutableSortedMap.Builder<String, List<String>> builder = ImmutableSortedMap.naturalOrder();
+
+        for (Map.Entry<String, List<String>> entry : queryParams.entrySet()) {
+            if (entry.getKey() == null || CloudSearchQueryParam.RESULTS_TYPE.getName().equals(entry.getKey())) {
+                continue;
+            }
+
+            List<String> values = entry.getValue();
+            builder.put(entry.getKey(), values == null ? Collections.<String>emptyList()
+                                                       : Collections.unmodifiableList(Ordering.natural().nullsFirst().sortedCopy(values)));
+        }
+
+        return new QueryCacheKey(builder.build());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {return true;}
+        if (obj == null || !(obj instanceof QueryCacheKey)) {return false;}
+
+        final QueryCacheKey that = (QueryCacheKey) obj;
+        return this.hashCode == that.hashCode
+            && Objects.equal(this.queryParams, that.queryParams);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("queryParams", queryParams)
+                      .toString();
+    }
+}
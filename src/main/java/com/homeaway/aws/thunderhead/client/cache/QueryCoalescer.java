@@ -0,0 +1,189 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.cache;
+
+import com.google.common.base.Objects;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchErrors;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Lets identical queries that are in flight at the same time share a single request to Amazon. The first caller for a
+ * key makes the request and every caller that arrives while it is outstanding waits for it, so all of them receive the
+ * same SearchResponse instance or the same exception. Once the request completes the next caller makes a new one;
+ * nothing is cached.
+ *
+ * Since the response is shared, callers must not modify it. For the same reason the exceptions of the shared request
+ * capture their stack traces even when it is made for a CloudSearchResultClient call, which otherwise creates them
+ * without. Its SearchTiming is the timing of the shared request.
+ *
+ * @author jmonette
+ */
+public class QueryCoalescer {
+
+    private final ConcurrentMap<QueryCacheKey, SettableFuture<SearchResponse>> inFlight = new ConcurrentHashMap<QueryCacheKey, SettableFuture<SearchResponse>>();
+
+    /**
+     * Query in the calling thread, or wait for the identical query already in flight
+     *
+     * @param key the canonical key of the query
+     * @param query makes the request to Amazon
+     * @return the response shared by every caller of the request
+     * @throws CloudSearchClientException if the shared request did not return a 2XX status code
+     */
+    public SearchResponse query(QueryCacheKey key, Callable<SearchResponse> query) throws CloudSearchClientException {
+        SettableFuture<SearchResponse> searchResponse = SettableFuture.create();
+        SettableFuture<SearchResponse> existing = this.inFlight.putIfAbsent(key, searchResponse);
+
+        if (existing != null) {
+            return await(existing);
+        }
+
+        boolean suppressed = CloudSearchErrors.allowStackTraces();
+        try {
+            SearchResponse result = query.call();
+            this.inFlight.remove(key, searchResponse);
+            searchResponse.set(result);
+
+            return result;
+        } catch (Throwable t) {
+            this.inFlight.remove(key, searchResponse);
+            searchResponse.setException(t);
+
+            throw propagate(t);
+        } finally {
+            CloudSearchErrors.restoreStackTraces(suppressed);
+        }
+    }
+
+    /**
+     * Start the query, or join the identical query already in flight. Each caller gets its own future so that cancelling
+     * it does not affect the other callers, nor the shared request.
+     *
+     * @param key the canonical key of the query
+     * @param query starts the request to Amazon
+     * @return a future completed with the response shared by every caller of the request
+     */
+    public ListenableFuture<SearchResponse> queryAsync(final QueryCacheKey key, Callable<ListenableFuture<SearchResponse>> query) {
+        final SettableFuture<SearchResponse> searchResponse = SettableFuture.create();
+        SettableFuture<SearchResponse> existing = this.inFlight.putIfAbsent(key, searchResponse);
+
+        if (existing != null) {
+            return forward(existing);
+        }
+
+        ListenableFuture<SearchResponse> request;
+        boolean suppressed = CloudSearchErrors.allowStackTraces();
+        try {
+            request = query.call();
+        } catch (Throwable t) {
+            this.inFlight.remove(key, searchResponse);
+            searchResponse.setException(t);
+            return forward(searchResponse);
+        } finally {
+            CloudSearchErrors.restoreStackTraces(suppressed);
+        }
+
+        Futures.addCallback(request, new FutureCallback<SearchResponse>() {
+            @Override
+            public void onSuccess(SearchResponse result) {
+                inFlight.remove(key, searchResponse);
+                searchResponse.set(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                inFlight.remove(key, searchResponse);
+                searchResponse.setException(t);
+            }
+        });
+
+        return forward(searchResponse);
+    }
+
+    /**
+     * The number of distinct queries currently in flight
+     *
+     * @return the number of in-flight requests
+     */
+    public int getInFlight() {
+        return this.inFlight.size();
+    }
+
+    private SearchResponse await(ListenableFuture<SearchResponse> searchResponse) throws CloudSearchClientException {
+        try {
+            return Uninterruptibles.getUninterruptibly(searchResponse);
+        } catch (ExecutionException ee) {
+            throw propagate(ee.getCause());
+        }
+    }
+
+    private ListenableFuture<SearchResponse> forward(ListenableFuture<SearchResponse> shared) {
+        final SettableFuture<SearchResponse> searchResponse = SettableFuture.create();
+        Futures.addCallback(shared, new FutureCallback<SearchResponse>() {
+            @Override
+            public void onSuccess(SearchResponse result) {
+                searchResponse.set(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                searchResponse.setException(t);
+            }
+        });
+
+        return searchResponse;
+    }
+
+    /**
+     * Rethrow the failure of a shared request as is, so that every caller sees the same exception
+     */
+    private CloudSearchClientException propagate(Throwable t) throws CloudSearchClientException {
+        if (t instanceof CloudSearchClientException) {
+            throw (CloudSearchClientException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        }
+
+        throw new CloudSearchRuntimeException(t.getMessage(), t);
+    }
+
+    /**
+     * String representation of the QueryCoalescer object
+     *
+     * @return String representation of the QueryCoalescer object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("inFlight", this.inFlight.size())
+                      .toString();
+    }
+}
@@ -0,0 +1,60 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.cache;
+
+import com.google.common.cache.Weigher;
+import com.homeaway.aws.thunderhead.model.search.ReturnFields;
+import com.homeaway.aws.thunderhead.model.search.SearchHit;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+
+/**
+ * Weighs a cached search response by the characters it holds, a rough stand-in for the memory it takes. Hits and return
+ * fields add a fixed amount each for the objects that hold them.
+ *
+ * @author jmonette
+ */
+public class SearchResponseWeigher implements Weigher<QueryCacheKey, SearchResponse> {
+
+    /** The weight of the response, hits and info objects before any strings */
+    private static final int RESPONSE_WEIGHT = 128;
+
+    /** The weight of a SearchHit or ReturnFields object and its list slot */
+    private static final int ENTRY_WEIGHT = 32;
+
+    @Override
+    public int weigh(QueryCacheKey key, SearchResponse searchResponse) {
+        long weight = RESPONSE_WEIGHT + length(searchResponse.getRank()) + length(searchResponse.getMatchExpr());
+
+        if (searchResponse.getFound() != null && searchResponse.getFound().getHits() != null) {
+            for (SearchHit searchHit : searchResponse.getFound().getHits()) {
+                weight += ENTRY_WEIGHT + length(searchHit.getId());
+
+                if (searchHit.getReturnFieldsList() != null) {
+                    for (ReturnFields returnFields : searchHit.getReturnFieldsList()) {
+                        weight += ENTRY_WEIGHT + length(returnFields.getName()) + length(returnFields.getValue());
+                    }
+                }
+            }
+        }
+
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    private int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,41 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.hedge;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * One of the requests of a hedged query, with the endpoint it goes to, so that its response time is tracked against
+ * that endpoint
+ *
+ * @author jmonette
+ */
+public interface HedgeTarget<T> {
+
+    /**
+     * The name of the endpoint the request goes to
+     */
+    String getEndpoint();
+
+    /**
+     * Send the request
+     *
+     * @return a future of the response
+     * @throws Exception if the request could not be sent
+     */
+    ListenableFuture<T> send() throws Exception;
+}
@@ -0,0 +1,102 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.hedge;
+
+import com.google.common.base.Objects;
+
+import java.util.Arrays;
+
+/**
+ * Tracks a percentile of the recent response times of one endpoint. The latest samples are kept in a ring buffer and
+ * the percentile is recomputed from them every few samples, so reading it costs only a volatile read.
+ *
+ * @author jmonette
+ */
+public class LatencyTracker {
+    public static final int SAMPLE_SIZE = 512;
+    public static final int MIN_SAMPLES = 64;
+
+    private static final int RECOMPUTE_INTERVAL = 32;
+
+    private final double percentile;
+    private final long[] samples = new long[SAMPLE_SIZE];
+    private long count;
+    private volatile long percentileNanos = -1L;
+
+    /**
+     * Creates a tracker
+     *
+     * @param percentile the percentile tracked, between 0 and 1
+     */
+    public LatencyTracker(double percentile) {
+        if (percentile <= 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile must be greater than 0 and at most 1");
+        }
+
+        this.percentile = percentile;
+    }
+
+    /**
+     * Record the time a response took
+     *
+     * @param nanos the response time in nanoseconds
+     */
+    public void record(long nanos) {
+        long[] snapshot = null;
+        synchronized (this) {
+            this.samples[(int) (this.count % SAMPLE_SIZE)] = nanos;
+            this.count++;
+
+            if (this.count >= MIN_SAMPLES && this.count % RECOMPUTE_INTERVAL == 0) {
+                snapshot = Arrays.copyOf(this.samples, (int) Math.min(this.count, SAMPLE_SIZE));
+            }
+        }
+
+        if (snapshot != null) {
+            Arrays.sort(snapshot);
+            int index = (int) Math.ceil(this.percentile * snapshot.length) - 1;
+            this.percentileNanos = snapshot[Math.max(0, index)];
+        }
+    }
+
+    /**
+     * The tracked percentile of the recent response times
+     *
+     * @return the percentile in nanoseconds, or -1 until enough responses have been recorded
+     */
+    public long getPercentileNanos() {
+        return this.percentileNanos;
+    }
+
+    public synchronized long getCount() {
+        return this.count;
+    }
+
+    /**
+     * String representation of the LatencyTracker object
+     *
+     * @return String representation of the LatencyTracker object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("percentile", this.percentile)
+                      .add("percentileNanos", this.percentileNanos)
+                      .add("count", getCount())
+                      .toString();
+    }
+}
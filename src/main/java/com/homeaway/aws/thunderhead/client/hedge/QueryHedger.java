@@ -0,0 +1,263 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.hedge;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.homeaway.aws.thunderhead.client.retry.RetryBudget;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a duplicate of a query that has not been answered by the time most queries to the same endpoint have been, and
+ * completes with whichever response arrives first, cancelling the other request. The threshold is a percentile of the
+ * endpoint's recent response times, so only the slowest queries are hedged. Queries are not hedged until the endpoint
+ * has answered enough of them to know the percentile. The duplicate may go to another endpoint, and each request's
+ * response time is tracked against the endpoint it went to.
+ *
+ * The share of queries that may be hedged is capped with a budget: each query earns a fraction of a hedge, and each
+ * hedge spends a whole one. When the endpoint slows down as a whole the budget runs out rather than doubling its load.
+ *
+ * @author jmonette
+ */
+public class QueryHedger {
+    public static final double DEFAULT_PERCENTILE = 0.95;
+    public static final double DEFAULT_MAX_HEDGE_RATIO = 0.05;
+
+    private static final int HEDGE_RESERVE = 5;
+
+    private static final ScheduledExecutorService SCHEDULER =
+        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                             .setNameFormat("thunderhead-hedge-scheduler")
+                                                                             .build());
+
+    private final double percentile;
+    private final RetryBudget hedgeBudget;
+    private final ConcurrentMap<String, LatencyTracker> latencyTrackers = new ConcurrentHashMap<String, LatencyTracker>();
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    /**
+     * Creates a hedger that hedges queries slower than the 95th percentile, up to 5% of queries
+     */
+    public QueryHedger() {
+        this(DEFAULT_PERCENTILE, DEFAULT_MAX_HEDGE_RATIO);
+    }
+
+    /**
+     * Creates a hedger
+     *
+     * @param percentile the percentile of response times after which a query is hedged, between 0 and 1
+     * @param maxHedgeRatio the largest share of queries that may be hedged
+     */
+    public QueryHedger(double percentile, double maxHedgeRatio) {
+        this.percentile = percentile;
+        this.hedgeBudget = new RetryBudget(maxHedgeRatio, HEDGE_RESERVE);
+    }
+
+    /**
+     * The response times of the endpoint
+     *
+     * @param endpoint the endpoint
+     * @return the tracker of the endpoint's response times
+     */
+    public LatencyTracker getLatencyTracker(String endpoint) {
+        LatencyTracker latencyTracker = this.latencyTrackers.get(endpoint);
+        if (latencyTracker == null) {
+            LatencyTracker newLatencyTracker = new LatencyTracker(this.percentile);
+            latencyTracker = this.latencyTrackers.putIfAbsent(endpoint, newLatencyTracker);
+            if (latencyTracker == null) {
+                latencyTracker = newLatencyTracker;
+            }
+        }
+
+        return latencyTracker;
+    }
+
+    public long getHedgesSent() {
+        return hedgesSent.get();
+    }
+
+    public long getHedgesWon() {
+        return hedgesWon.get();
+    }
+
+    /**
+     * Send the query to the endpoint, sending it again if it is slower than the tracked percentile
+     *
+     * @param endpoint the endpoint the query is sent to
+     * @param callable sends the query
+     * @param <T> the type of the response
+     * @return a future of the first successful response, or of the last failure if every request failed
+     */
+    public <T> ListenableFuture<T> hedge(final String endpoint, final Callable<ListenableFuture<T>> callable) {
+        HedgeTarget<T> target = new HedgeTarget<T>() {
+            @Override
+            public String getEndpoint() {
+                return endpoint;
+            }
+
+            @Override
+            public ListenableFuture<T> send() throws Exception {
+                return callable.call();
+            }
+        };
+
+        return hedge(target, Suppliers.ofInstance(target));
+    }
+
+    /**
+     * Send the query to its endpoint, sending a duplicate if it is slower than the percentile tracked for that endpoint
+     *
+     * @param primary the first request of the query
+     * @param hedge picks the duplicate request, only once the query is hedged
+     * @param <T> the type of the response
+     * @return a future of the first successful response, or of the last failure if every request failed
+     */
+    public <T> ListenableFuture<T> hedge(HedgeTarget<T> primary, final Supplier<HedgeTarget<T>> hedge) {
+        final Hedge<T> hedged = new Hedge<T>();
+
+        this.hedgeBudget.deposit();
+        hedged.send(Suppliers.ofInstance(primary), false);
+
+        long threshold = getLatencyTracker(primary.getEndpoint()).getPercentileNanos();
+        if (threshold >= 0 && !hedged.result.isDone()) {
+            SCHEDULER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    if (!hedged.result.isDone() && hedgeBudget.tryWithdraw()) {
+                        hedgesSent.incrementAndGet();
+                        hedged.send(hedge, true);
+                    }
+                }
+            }, threshold, TimeUnit.NANOSECONDS);
+        }
+
+        return hedged.result;
+    }
+
+    /**
+     * String representation of the QueryHedger object
+     *
+     * @return String representation of the QueryHedger object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("percentile", this.percentile)
+                      .add("hedgeBudget", this.hedgeBudget)
+                      .add("hedgesSent", getHedgesSent())
+                      .add("hedgesWon", getHedgesWon())
+                      .toString();
+    }
+
+    /**
+     * The requests sent for one query. The first successful response completes the result, which cancels the
+     * requests still outstanding. The result fails only once every request sent has failed. Each response time is
+     * recorded against the endpoint of its own request.
+     */
+    private class Hedge<T> {
+        private final SettableFuture<T> result = SettableFuture.create();
+        private final List<ListenableFuture<T>> requests = Lists.newArrayListWithCapacity(2);
+        private int outstanding;
+
+        Hedge() {
+            this.result.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    for (ListenableFuture<T> request : requests()) {
+                        request.cancel(true);
+                    }
+                }
+            }, MoreExecutors.sameThreadExecutor());
+        }
+
+        void send(Supplier<HedgeTarget<T>> targets, final boolean isHedge) {
+            synchronized (this) {
+                if (this.result.isDone()) {
+                    return;
+                }
+                this.outstanding++;
+            }
+
+            final long start = System.nanoTime();
+            LatencyTracker targetLatencyTracker = null;
+            ListenableFuture<T> request;
+            try {
+                HedgeTarget<T> target = targets.get();
+                targetLatencyTracker = getLatencyTracker(target.getEndpoint());
+                request = target.send();
+            } catch (Exception e) {
+                request = Futures.immediateFailedFuture(e);
+            }
+            final LatencyTracker latencyTracker = targetLatencyTracker;
+
+            synchronized (this) {
+                this.requests.add(request);
+            }
+            if (this.result.isDone()) {
+                request.cancel(true);
+            }
+
+            Futures.addCallback(request, new FutureCallback<T>() {
+                @Override
+                public void onSuccess(T value) {
+                    latencyTracker.record(System.nanoTime() - start);
+                    if (result.set(value) && isHedge) {
+                        hedgesWon.incrementAndGet();
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (t instanceof CancellationException && !result.isCancelled() && latencyTracker != null) {
+                        // the slower request, cancelled when the other one answered, took at least this long
+                        latencyTracker.record(System.nanoTime() - start);
+                    }
+
+                    boolean last;
+                    synchronized (Hedge.this) {
+                        last = (--outstanding == 0);
+                    }
+                    if (last) {
+                        result.setException(t);
+                    }
+                }
+            });
+        }
+
+        private synchronized List<ListenableFuture<T>> requests() {
+            return Lists.newArrayList(this.requests);
+        }
+    }
+}
@@ -16,32 +16,117 @@
 
 package com.homeaway.aws.thunderhead.client.impl;
 
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.homeaway.aws.thunderhead.client.CloudSearchAsyncClient;
 import com.homeaway.aws.thunderhead.client.CloudSearchClient;
-import com.homeaway.aws.thunderhead.model.enums.CloudSearchQueryParam;
+import com.homeaway.aws.thunderhead.client.CloudSearchResultClient;
+import com.homeaway.aws.thunderhead.client.balance.QueryEndpoint;
+import com.homeaway.aws.thunderhead.client.balance.QueryEndpointPool;
+import com.homeaway.aws.thunderhead.client.balance.RoundRobinEndpointSelector;
+import com.homeaway.aws.thunderhead.client.batch.BatchingDocumentUploader;
+import com.homeaway.aws.thunderhead.client.batch.SearchDocumentBatchSplitter;
+import com.homeaway.aws.thunderhead.client.batch.SearchDocumentSizeEstimator;
+import com.homeaway.aws.thunderhead.client.breaker.CircuitBreaker;
+import com.homeaway.aws.thunderhead.client.cache.QueryCacheKey;
+import com.homeaway.aws.thunderhead.client.cache.QueryCoalescer;
+import com.homeaway.aws.thunderhead.client.hedge.HedgeTarget;
+import com.homeaway.aws.thunderhead.client.hedge.QueryHedger;
+import com.homeaway.aws.thunderhead.client.limit.ConcurrencyLimiter;
+import com.homeaway.aws.thunderhead.client.metrics.MetricsRecorder;
+import com.homeaway.aws.thunderhead.client.retry.Retryer;
+import com.homeaway.aws.thunderhead.client.throttle.AdaptiveRateLimiter;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchResultsType;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchSdfFormat;
 import com.homeaway.aws.thunderhead.model.enums.CloudSearchStatusCode;
 import com.homeaway.aws.thunderhead.model.exceptions.*;
+import com.homeaway.aws.thunderhead.model.result.CloudSearchResult;
 import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentStream;
+import com.homeaway.aws.thunderhead.model.search.SearchInfo;
 import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.homeaway.aws.thunderhead.model.search.SearchTiming;
 import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+import com.sun.jersey.api.client.AsyncWebResource;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
-import com.sun.jersey.core.util.MultivaluedMapImpl;
-import org.perf4j.aop.Profiled;
+import com.sun.jersey.api.client.async.TypeListener;
 
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * @author jmonette
  */
-public class CloudSearchClientImpl implements CloudSearchClient {
+public class CloudSearchClientImpl implements CloudSearchClient, CloudSearchAsyncClient, CloudSearchResultClient {
 
     private WebResource queryWebResource;
     private WebResource updateWebResource;
+    private AsyncWebResource asyncQueryWebResource;
+    private AsyncWebResource asyncUpdateWebResource;
+    private HttpConnectionPool[] connectionPools;
+    private QueryEndpointPool queryEndpointPool;
+    private SearchDocumentBatchSplitter batchSplitter = new SearchDocumentBatchSplitter(new SearchDocumentSizeEstimator(),
+                                                                                        BatchingDocumentUploader.DEFAULT_MAX_BATCH_BYTES);
+    private CloudSearchResultsType resultsType = CloudSearchResultsType.XML;
+    private CloudSearchSdfFormat sdfFormat = CloudSearchSdfFormat.XML;
+    private QueryCoalescer queryCoalescer;
+    private Retryer queryRetryer;
+    private Retryer updateRetryer;
+    private QueryHedger queryHedger;
+    private CircuitBreaker updateCircuitBreaker;
+    private ConcurrencyLimiter queryConcurrencyLimiter;
+    private MetricsRecorder metricsRecorder;
+    private AdaptiveRateLimiter queryRateLimiter;
+    private AdaptiveRateLimiter updateRateLimiter;
 
-    public CloudSearchClientImpl(WebResource queryWebResource, WebResource updateWebResource) {
+    /**
+     * Creates a client for the given web resources
+     *
+     * @param queryWebResource the web resource for the search endpoint, or null if the client will not query
+     * @param updateWebResource the web resource for the document endpoint, or null if the client will not update
+     * @param connectionPools the connection pools backing the web resources which are shutdown when the client is closed
+     */
+    public CloudSearchClientImpl(WebResource queryWebResource, WebResource updateWebResource, HttpConnectionPool... connectionPools) {
+        this(queryWebResource, updateWebResource, null, null, connectionPools);
+    }
+
+    /**
+     * Creates a client for the given web resources that also supports the asynchronous operations
+     *
+     * @param queryWebResource the web resource for the search endpoint, or null if the client will not query
+     * @param updateWebResource the web resource for the document endpoint, or null if the client will not update
+     * @param asyncQueryWebResource the async web resource for the search endpoint, or null if the client will not query asynchronously
+     * @param asyncUpdateWebResource the async web resource for the document endpoint, or null if the client will not update asynchronously
+     * @param connectionPools the connection pools backing the web resources which are shutdown when the client is closed
+     */
+    public CloudSearchClientImpl(WebResource queryWebResource, WebResource updateWebResource,
+                                 AsyncWebResource asyncQueryWebResource, AsyncWebResource asyncUpdateWebResource,
+                                 HttpConnectionPool... connectionPools) {
         this.queryWebResource = queryWebResource;
         this.updateWebResource = updateWebResource;
+        this.asyncQueryWebResource = asyncQueryWebResource;
+        this.asyncUpdateWebResource = asyncUpdateWebResource;
+        this.connectionPools = connectionPools;
+
+        if (queryWebResource != null) {
+            this.queryEndpointPool = new QueryEndpointPool(Collections.singletonList(new QueryEndpoint(queryWebResource, asyncQueryWebResource, null)),
+                                                           new RoundRobinEndpointSelector());
+        }
     }
 
     public WebResource getQueryWebResource() {
@@ -52,6 +137,157 @@ public class CloudSearchClientImpl implements CloudSearchClient {
         return updateWebResource;
     }
 
+    public AsyncWebResource getAsyncQueryWebResource() {
+        return asyncQueryWebResource;
+    }
+
+    public AsyncWebResource getAsyncUpdateWebResource() {
+        return asyncUpdateWebResource;
+    }
+
+    /**
+     * The connection pools backing the web resources, null for an operation the client was not configured for
+     */
+    public HttpConnectionPool[] getConnectionPools() {
+        return connectionPools;
+    }
+
+    public QueryEndpointPool getQueryEndpointPool() {
+        return queryEndpointPool;
+    }
+
+    /**
+     * Sets the pool of query endpoints queries are spread across, replacing the pool of the single query web resource
+     * the client was created with
+     */
+    public void setQueryEndpointPool(final QueryEndpointPool queryEndpointPool) {
+        this.queryEndpointPool = queryEndpointPool;
+    }
+
+    public SearchDocumentBatchSplitter getBatchSplitter() {
+        return batchSplitter;
+    }
+
+    public void setBatchSplitter(final SearchDocumentBatchSplitter batchSplitter) {
+        this.batchSplitter = batchSplitter;
+    }
+
+    public CloudSearchResultsType getResultsType() {
+        return resultsType;
+    }
+
+    public void setResultsType(final CloudSearchResultsType resultsType) {
+        this.resultsType = resultsType;
+    }
+
+    public CloudSearchSdfFormat getSdfFormat() {
+        return sdfFormat;
+    }
+
+    public void setSdfFormat(final CloudSearchSdfFormat sdfFormat) {
+        this.sdfFormat = sdfFormat;
+    }
+
+    public QueryCoalescer getQueryCoalescer() {
+        return queryCoalescer;
+    }
+
+    /**
+     * Sets the coalescer that lets identical concurrent queries share one request, or null to send every query
+     */
+    public void setQueryCoalescer(final QueryCoalescer queryCoalescer) {
+        this.queryCoalescer = queryCoalescer;
+    }
+
+    public Retryer getQueryRetryer() {
+        return queryRetryer;
+    }
+
+    /**
+     * Sets the retryer that retries failed queries, or null to send each query once
+     */
+    public void setQueryRetryer(final Retryer queryRetryer) {
+        this.queryRetryer = queryRetryer;
+    }
+
+    public Retryer getUpdateRetryer() {
+        return updateRetryer;
+    }
+
+    /**
+     * Sets the retryer that retries failed SDF batch uploads, or null to post each batch once. Uploads of a
+     * SearchDocumentStream are never retried, as the stream cannot be read twice.
+     */
+    public void setUpdateRetryer(final Retryer updateRetryer) {
+        this.updateRetryer = updateRetryer;
+    }
+
+    public QueryHedger getQueryHedger() {
+        return queryHedger;
+    }
+
+    /**
+     * Sets the hedger that sends a duplicate of slow queries, or null to send each query attempt once
+     */
+    public void setQueryHedger(final QueryHedger queryHedger) {
+        this.queryHedger = queryHedger;
+    }
+
+    public CircuitBreaker getUpdateCircuitBreaker() {
+        return updateCircuitBreaker;
+    }
+
+    /**
+     * Sets the circuit breaker in front of the update endpoint, or null to always send uploads
+     */
+    public void setUpdateCircuitBreaker(final CircuitBreaker updateCircuitBreaker) {
+        this.updateCircuitBreaker = updateCircuitBreaker;
+    }
+
+    public ConcurrencyLimiter getQueryConcurrencyLimiter() {
+        return queryConcurrencyLimiter;
+    }
+
+    /**
+     * Sets the limiter on the number of queries in flight at once, or null to send queries as they come
+     */
+    public void setQueryConcurrencyLimiter(final ConcurrencyLimiter queryConcurrencyLimiter) {
+        this.queryConcurrencyLimiter = queryConcurrencyLimiter;
+    }
+
+    public MetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    /**
+     * Sets the recorder the timing of every query is passed to, or null to only attach it to the SearchResponse
+     */
+    public void setMetricsRecorder(final MetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    public AdaptiveRateLimiter getQueryRateLimiter() {
+        return queryRateLimiter;
+    }
+
+    /**
+     * Sets the limiter on the rate queries are sent at, or null to send queries as they come
+     */
+    public void setQueryRateLimiter(final AdaptiveRateLimiter queryRateLimiter) {
+        this.queryRateLimiter = queryRateLimiter;
+    }
+
+    public AdaptiveRateLimiter getUpdateRateLimiter() {
+        return updateRateLimiter;
+    }
+
+    /**
+     * Sets the limiter on the rate SDF batches are uploaded at, or null to upload batches as they come
+     */
+    public void setUpdateRateLimiter(final AdaptiveRateLimiter updateRateLimiter) {
+        this.updateRateLimiter = updateRateLimiter;
+    }
+
     /**
      * This method queries Amazon and returns the results found
      *
@@ -60,33 +296,164 @@ public class CloudSearchClientImpl implements CloudSearchClient {
      * @throws CloudSearchClientException if the response did not return a 2XX status code
      */
     @Override
-    @Profiled(tag = "CloudSearchReadClient.query")
-    public SearchResponse query(MultivaluedMap<String, String> queryParams) throws CloudSearchClientException {
-        if (this.queryWebResource == null) {
+    public SearchResponse query(final MultivaluedMap<String, String> queryParams) throws CloudSearchClientException {
+        if (this.queryEndpointPool == null) {
             throw new IllegalStateException("CloudSearchClient not configured for querying cloudsearch");
         }
 
+        if (this.queryCoalescer == null) {
+            return retryingQuery(queryParams);
+        }
+
+        return this.queryCoalescer.query(QueryCacheKey.of(queryParams), new Callable<SearchResponse>() {
+            @Override
+            public SearchResponse call() throws CloudSearchClientException {
+                return retryingQuery(queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query to Amazon, retrying it if there is a query retryer
+     *
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a SearchResponse object which represents query results
+     * @throws CloudSearchClientException if the response of the last attempt did not return a 2XX status code
+     */
+    private SearchResponse retryingQuery(final MultivaluedMap<String, String> queryParams) throws CloudSearchClientException {
+        if (this.queryRetryer == null) {
+            return sendQuery(queryParams);
+        }
+
+        return this.queryRetryer.call(new Callable<SearchResponse>() {
+            @Override
+            public SearchResponse call() throws CloudSearchClientException {
+                return sendQuery(queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query to an endpoint picked from the query endpoint pool, hedging it if there is a query hedger. A
+     * hedged query is sent without blocking, as both requests have to be in flight at once, and waited for on the
+     * calling thread.
+     *
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a SearchResponse object which represents query results
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    private SearchResponse sendQuery(MultivaluedMap<String, String> queryParams) throws CloudSearchClientException {
+        if (this.queryHedger == null) {
+            return doQuery(this.queryEndpointPool.select(), queryParams);
+        }
+
+        ListenableFuture<SearchResponse> searchResponse = sendQueryAsync(queryParams);
+        try {
+            return searchResponse.get();
+        } catch (InterruptedException ie) {
+            searchResponse.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CloudSearchRuntimeException("Interrupted while waiting for a hedged query", ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof CloudSearchClientException) {
+                throw (CloudSearchClientException) ee.getCause();
+            } else if (ee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ee.getCause();
+            }
+            throw new CloudSearchRuntimeException(ee.getCause().getMessage(), ee.getCause());
+        }
+    }
+
+    /**
+     * Sends the query to the endpoint once the query rate limiter, if there is one, allows it
+     *
+     * @param endpoint the endpoint to send the query to
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a SearchResponse object which represents query results
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    private SearchResponse doQuery(final QueryEndpoint endpoint, final MultivaluedMap<String, String> queryParams) throws CloudSearchClientException {
+        if (this.queryRateLimiter == null) {
+            return limitedQuery(endpoint, queryParams);
+        }
+
+        return this.queryRateLimiter.call(0L, new Callable<SearchResponse>() {
+            @Override
+            public SearchResponse call() throws CloudSearchClientException {
+                return limitedQuery(endpoint, queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query to the endpoint once the query concurrency limiter, if there is one, has room for it. The limiter
+     * is fed the response time of this one request, so retries, their backoff and the rate limiter's waits are not
+     * taken for latency of the domain.
+     *
+     * @param endpoint the endpoint to send the query to
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a SearchResponse object which represents query results
+     * @throws CloudSearchLoadShedException if the concurrency limiter shed the query
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    private SearchResponse limitedQuery(final QueryEndpoint endpoint, final MultivaluedMap<String, String> queryParams) throws CloudSearchClientException {
+        if (this.queryConcurrencyLimiter == null) {
+            return guardedQuery(endpoint, queryParams);
+        }
+
+        return this.queryConcurrencyLimiter.call(new Callable<SearchResponse>() {
+            @Override
+            public SearchResponse call() throws CloudSearchClientException {
+                return guardedQuery(endpoint, queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query to the endpoint through the endpoint pool, which records its outcome and passes it through the
+     * endpoint's circuit breaker, if there is one
+     *
+     * @param endpoint the endpoint to send the query to
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a SearchResponse object which represents query results
+     * @throws CloudSearchCircuitOpenException if the circuit breaker did not let the query through
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    private SearchResponse guardedQuery(final QueryEndpoint endpoint, final MultivaluedMap<String, String> queryParams) throws CloudSearchClientException {
+        return this.queryEndpointPool.call(endpoint, new Callable<SearchResponse>() {
+            @Override
+            public SearchResponse call() throws CloudSearchClientException {
+                return executeQuery(endpoint.getWebResource(), queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query to Amazon
+     *
+     * @param webResource the web resource of the endpoint to send the query to
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a SearchResponse object which represents query results
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    private SearchResponse executeQuery(WebResource webResource, MultivaluedMap<String, String> queryParams) throws CloudSearchClientException {
         ClientResponse clientResponse = null;
         SearchResponse searchResponse = null;
 
-        /* Force request xml results from AWS cloudsearch */
-        MultivaluedMap<String, String> myQueryParams = new MultivaluedMapImpl(queryParams);
-        myQueryParams.remove(CloudSearchQueryParam.RESULTS_TYPE.getName());
-        myQueryParams.add(CloudSearchQueryParam.RESULTS_TYPE.getName(), "xml");
+        MultivaluedMap<String, String> myQueryParams = SearchRequests.buildQueryParams(queryParams, this.resultsType);
 
-        LOGGER.debug("Querying to {} with query params: {}", this.queryWebResource.getURI(), myQueryParams);
+        LOGGER.debug("Querying to {} with query params: {}", webResource.getURI(), myQueryParams);
         try {
 
-            clientResponse = this.queryWebResource.path(CLOUDSEARCH_VERSION)
-                                                  .path("search")
-                                                  .queryParams(myQueryParams)
-                                                  .get(ClientResponse.class);
+            clientResponse = SearchRequests.searchResource(webResource, myQueryParams).get(ClientResponse.class);
 
 
-            LOGGER.debug("Received a status of {} for query to {}", clientResponse.getStatus(), this.queryWebResource.getURI());
+            LOGGER.debug("Received a status of {} for query to {}", clientResponse.getStatus(), webResource.getURI());
             checkStatus(clientResponse);
 
+            long parseStart = Ticker.systemTicker().read();
             searchResponse = clientResponse.getEntity(SearchResponse.class);
+            attachTiming(clientResponse, searchResponse, parseStart);
         } catch(RuntimeException re) {
             throw new CloudSearchRuntimeException(re.getMessage(), re);
         } finally {
@@ -99,29 +466,169 @@ public class CloudSearchClientImpl implements CloudSearchClient {
     }
 
     /**
-     * This method will post the SDF to the Amazon. The SDF can have both adds and delete requests
+     * This method will post the SDF to the Amazon. The SDF can have both adds and delete requests. An SDF larger than
+     * the maximum batch size is split into sub-batches which are posted in order, and a batch rejected as too large is
+     * split in half and retried. The responses of the sub-batches are merged into one.
      *
      * @param entity the SDF entity
      * @return returns a UploadResponse object which represents the output returned from Amazon
      * @throws CloudSearchClientException if the response did not return a 2XX status code
      */
     @Override
-    @Profiled(tag = "CloudSearchReadWriteClient.updateDomain")
     public UploadResponse updateDomain(SearchDocumentFormat entity) throws CloudSearchClientException {
         if (this.updateWebResource == null) {
             throw new IllegalStateException("CloudSearchClient not configured for updating cloudsearch");
         }
 
+        List<SearchDocumentFormat> batches = this.batchSplitter.split(entity);
+        if (batches.size() > 1) {
+            LOGGER.debug("Split a batch larger than {} bytes into {} batches", this.batchSplitter.getMaxBatchBytes(), batches.size());
+        }
+
+        List<UploadResponse> uploadResponses = Lists.newArrayListWithCapacity(batches.size());
+        for (SearchDocumentFormat batch : batches) {
+            uploadResponses.add(postSplittingWhenTooLarge(batch));
+        }
+
+        return this.batchSplitter.merge(uploadResponses);
+    }
+
+    /**
+     * This method will post the SDF to the Amazon, writing each document to the request as it is pulled from the
+     * stream. The stream is posted as a single batch and is not split, so it must be kept within the maximum batch size
+     * by the caller. Without chunked uploads the request is buffered in full before it is sent.
+     *
+     * @param entity the SDF stream
+     * @return returns a UploadResponse object which represents the output returned from Amazon
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    @Override
+    public UploadResponse updateDomain(SearchDocumentStream entity) throws CloudSearchClientException {
+        if (this.updateWebResource == null) {
+            throw new IllegalStateException("CloudSearchClient not configured for updating cloudsearch");
+        }
+
+        return post(entity);
+    }
+
+    /**
+     * Posts the batch, splitting it in half and posting the halves if Amazon rejects it as too large
+     *
+     * @param batch the SDF batch
+     * @return the UploadResponse for the batch
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    private UploadResponse postSplittingWhenTooLarge(SearchDocumentFormat batch) throws CloudSearchClientException {
+        try {
+            return retryingPost(batch);
+        } catch (CloudSearchRequestTooLargeException csrtle) {
+            List<SearchDocumentFormat> halves = this.batchSplitter.halve(batch);
+            if (halves.size() < 2) {
+                throw csrtle;
+            }
+
+            LOGGER.debug("Batch rejected as too large by {}, retrying as two halves", this.updateWebResource.getURI());
+            List<UploadResponse> uploadResponses = Lists.newArrayListWithCapacity(2);
+            for (SearchDocumentFormat half : halves) {
+                uploadResponses.add(postSplittingWhenTooLarge(half));
+            }
+
+            return this.batchSplitter.merge(uploadResponses);
+        }
+    }
+
+    /**
+     * Posts a single SDF batch to Amazon, retrying it if there is an update retryer
+     *
+     * @param batch the SDF batch
+     * @return the UploadResponse for the batch
+     * @throws CloudSearchClientException if the response of the last attempt did not return a 2XX status code
+     */
+    private UploadResponse retryingPost(final SearchDocumentFormat batch) throws CloudSearchClientException {
+        if (this.updateRetryer == null) {
+            return post(batch);
+        }
+
+        return this.updateRetryer.call(new Callable<UploadResponse>() {
+            @Override
+            public UploadResponse call() throws CloudSearchClientException {
+                return post(batch);
+            }
+        });
+    }
+
+    /**
+     * Posts a single SDF batch to Amazon once the update rate limiter, if there is one, allows it
+     *
+     * @param entity the SearchDocumentFormat or SearchDocumentStream
+     * @return the UploadResponse for the batch
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    private UploadResponse post(final Object entity) throws CloudSearchClientException {
+        if (this.updateRateLimiter == null) {
+            return guardedPost(entity);
+        }
+
+        return this.updateRateLimiter.call(estimateBytes(entity), new Callable<UploadResponse>() {
+            @Override
+            public UploadResponse call() throws CloudSearchClientException {
+                return guardedPost(entity);
+            }
+        });
+    }
+
+    /**
+     * Posts a single SDF batch to Amazon through the update circuit breaker, if there is one
+     *
+     * @param entity the SearchDocumentFormat or SearchDocumentStream
+     * @return the UploadResponse for the batch
+     * @throws CloudSearchCircuitOpenException if the circuit breaker did not let the batch through
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    private UploadResponse guardedPost(final Object entity) throws CloudSearchClientException {
+        if (this.updateCircuitBreaker == null) {
+            return executePost(entity);
+        }
+
+        return this.updateCircuitBreaker.call(new Callable<UploadResponse>() {
+            @Override
+            public UploadResponse call() throws CloudSearchClientException {
+                return executePost(entity);
+            }
+        });
+    }
+
+    /**
+     * The estimated size of the batch for the update rate limiter. A SearchDocumentStream cannot be measured before it
+     * is sent, so only its request is counted.
+     */
+    private long estimateBytes(Object entity) {
+        if (entity instanceof SearchDocumentFormat && this.updateRateLimiter.isLimitingBytes()) {
+            return this.batchSplitter.estimate((SearchDocumentFormat) entity);
+        }
+
+        return 0L;
+    }
+
+    /**
+     * Posts a single SDF batch to Amazon
+     *
+     * @param entity the SearchDocumentFormat or SearchDocumentStream
+     * @return the UploadResponse for the batch
+     * @throws CloudSearchClientException if the response did not return a 2XX status code
+     */
+    private UploadResponse executePost(Object entity) throws CloudSearchClientException {
         ClientResponse clientResponse = null;
         UploadResponse uploadResponse = null;
 
-        LOGGER.debug("POSTing to {} with document: {}", this.updateWebResource.getURI(), entity);
+        LOGGER.debug("POSTing a document batch to {}", this.updateWebResource.getURI());
+        long start = Ticker.systemTicker().read();
         try {
             clientResponse = this.updateWebResource.path(CLOUDSEARCH_VERSION)
                                                    .path("documents")
                                                    .path("batch")
                                                    .accept(MediaType.APPLICATION_XML)
-                                                   .entity(entity, MediaType.APPLICATION_XML)
+                                                   .entity(entity, this.sdfFormat.getMediaType())
                                                    .post(ClientResponse.class);
 
             LOGGER.debug("Received a status of {} for query to {}", clientResponse.getStatus(), this.updateWebResource.getURI());
@@ -129,6 +636,7 @@ public class CloudSearchClientImpl implements CloudSearchClient {
             checkStatus(clientResponse);
 
             uploadResponse = clientResponse.getEntity(UploadResponse.class);
+            recordUpload(this.updateWebResource.getURI(), uploadResponse, start);
         } catch(RuntimeException re) {
             throw new CloudSearchRuntimeException(re.getMessage(), re);
         } finally {
@@ -140,6 +648,441 @@ public class CloudSearchClientImpl implements CloudSearchClient {
         return uploadResponse;
     }
 
+    /**
+     * This method queries Amazon on the client's thread pool, without blocking the calling thread, and completes the
+     * returned future with the results found
+     *
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a future completed with a SearchResponse object, or with a CloudSearchClientException if the response
+     *         did not return a 2XX status code
+     */
+    @Override
+    public ListenableFuture<SearchResponse> queryAsync(final MultivaluedMap<String, String> queryParams) {
+        if (this.asyncQueryWebResource == null) {
+            throw new IllegalStateException("CloudSearchClient not configured for asynchronously querying cloudsearch");
+        }
+
+        if (this.queryCoalescer == null) {
+            return retryingQueryAsync(queryParams);
+        }
+
+        return this.queryCoalescer.queryAsync(QueryCacheKey.of(queryParams), new Callable<ListenableFuture<SearchResponse>>() {
+            @Override
+            public ListenableFuture<SearchResponse> call() {
+                return retryingQueryAsync(queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query to Amazon without blocking, retrying it if there is a query retryer
+     *
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a future completed with a SearchResponse object
+     */
+    private ListenableFuture<SearchResponse> retryingQueryAsync(final MultivaluedMap<String, String> queryParams) {
+        if (this.queryRetryer == null) {
+            return sendQueryAsync(queryParams);
+        }
+
+        return this.queryRetryer.callAsync(new Callable<ListenableFuture<SearchResponse>>() {
+            @Override
+            public ListenableFuture<SearchResponse> call() {
+                return sendQueryAsync(queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query without blocking to an endpoint picked from the query endpoint pool, hedging it if there is a
+     * query hedger. The duplicate of a hedged query goes to another endpoint if there is one, and its response time is
+     * tracked against that endpoint.
+     *
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a future completed with a SearchResponse object
+     */
+    private ListenableFuture<SearchResponse> sendQueryAsync(final MultivaluedMap<String, String> queryParams) {
+        final QueryEndpoint endpoint = this.queryEndpointPool.select();
+        if (this.queryHedger == null) {
+            return doQueryAsync(endpoint, queryParams);
+        }
+
+        return this.queryHedger.hedge(hedgeTarget(endpoint, queryParams), new Supplier<HedgeTarget<SearchResponse>>() {
+            @Override
+            public HedgeTarget<SearchResponse> get() {
+                return hedgeTarget(queryEndpointPool.selectOther(endpoint), queryParams);
+            }
+        });
+    }
+
+    /**
+     * One request of a hedged query
+     *
+     * @param endpoint the endpoint to send the query to
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return the request of the query to the endpoint
+     */
+    private HedgeTarget<SearchResponse> hedgeTarget(final QueryEndpoint endpoint, final MultivaluedMap<String, String> queryParams) {
+        return new HedgeTarget<SearchResponse>() {
+            @Override
+            public String getEndpoint() {
+                return endpoint.getName();
+            }
+
+            @Override
+            public ListenableFuture<SearchResponse> send() {
+                return doQueryAsync(endpoint, queryParams);
+            }
+        };
+    }
+
+    /**
+     * Sends the query to the endpoint without blocking once the query rate limiter, if there is one, allows it
+     *
+     * @param endpoint the endpoint to send the query to
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a future completed with a SearchResponse object
+     */
+    private ListenableFuture<SearchResponse> doQueryAsync(final QueryEndpoint endpoint, final MultivaluedMap<String, String> queryParams) {
+        if (this.queryRateLimiter == null) {
+            return limitedQueryAsync(endpoint, queryParams);
+        }
+
+        return this.queryRateLimiter.callAsync(0L, new Callable<ListenableFuture<SearchResponse>>() {
+            @Override
+            public ListenableFuture<SearchResponse> call() {
+                return limitedQueryAsync(endpoint, queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query to the endpoint without blocking once the query concurrency limiter, if there is one, has room
+     * for it. The limiter is fed the response time of this one request.
+     *
+     * @param endpoint the endpoint to send the query to
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a future completed with a SearchResponse object, or with a CloudSearchLoadShedException if the
+     *         concurrency limiter shed the query
+     */
+    private ListenableFuture<SearchResponse> limitedQueryAsync(final QueryEndpoint endpoint, final MultivaluedMap<String, String> queryParams) {
+        if (this.queryConcurrencyLimiter == null) {
+            return guardedQueryAsync(endpoint, queryParams);
+        }
+
+        return this.queryConcurrencyLimiter.callAsync(new Callable<ListenableFuture<SearchResponse>>() {
+            @Override
+            public ListenableFuture<SearchResponse> call() {
+                return guardedQueryAsync(endpoint, queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query to the endpoint without blocking through the endpoint pool, which records its outcome and passes
+     * it through the endpoint's circuit breaker, if there is one
+     *
+     * @param endpoint the endpoint to send the query to
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a future completed with a SearchResponse object, or with a CloudSearchCircuitOpenException if the
+     *         circuit breaker did not let the query through
+     */
+    private ListenableFuture<SearchResponse> guardedQueryAsync(final QueryEndpoint endpoint, final MultivaluedMap<String, String> queryParams) {
+        return this.queryEndpointPool.callAsync(endpoint, new Callable<ListenableFuture<SearchResponse>>() {
+            @Override
+            public ListenableFuture<SearchResponse> call() {
+                return executeQueryAsync(endpoint.getAsyncWebResource(), queryParams);
+            }
+        });
+    }
+
+    /**
+     * Sends the query to Amazon without blocking
+     *
+     * @param asyncWebResource the async web resource of the endpoint to send the query to
+     * @param queryParams a MultivaluedMap of the query params to use
+     * @return a future completed with a SearchResponse object
+     */
+    private ListenableFuture<SearchResponse> executeQueryAsync(AsyncWebResource asyncWebResource, MultivaluedMap<String, String> queryParams) {
+        SettableFuture<SearchResponse> searchResponse = SettableFuture.create();
+        MultivaluedMap<String, String> myQueryParams = SearchRequests.buildQueryParams(queryParams, this.resultsType);
+
+        LOGGER.debug("Asynchronously querying to {} with query params: {}", asyncWebResource.getURI(), myQueryParams);
+        try {
+            SearchRequests.searchResource(asyncWebResource, myQueryParams)
+                          .get(new ResponseListener<SearchResponse>(SearchResponse.class, searchResponse, asyncWebResource.getURI()));
+        } catch(RuntimeException re) {
+            searchResponse.setException(new CloudSearchRuntimeException(re.getMessage(), re));
+        }
+
+        return searchResponse;
+    }
+
+    /**
+     * This method will post the SDF to the Amazon on the client's thread pool, without blocking the calling thread. The
+     * SDF can have both adds and delete requests. An SDF larger than the maximum batch size is split into sub-batches
+     * which are posted one after another in order, and a batch rejected as too large is split in half and retried. The responses of the sub-batches are merged into one.
+     *
+     * @param entity the SDF entity
+     * @return a future completed with an UploadResponse object, or with a CloudSearchClientException if the response
+     *         did not return a 2XX status code
+     */
+    @Override
+    public ListenableFuture<UploadResponse> updateDomainAsync(SearchDocumentFormat entity) {
+        if (this.asyncUpdateWebResource == null) {
+            throw new IllegalStateException("CloudSearchClient not configured for asynchronously updating cloudsearch");
+        }
+
+        return postAllAsync(this.batchSplitter.split(entity));
+    }
+
+    /**
+     * This method will post the SDF to the Amazon on the client's thread pool, writing each document to the request as
+     * it is pulled from the stream. The stream is posted as a single batch and is not split, so it must be kept within
+     * the maximum batch size by the caller. Without chunked uploads the request is buffered in full before it is sent.
+     *
+     * @param entity the SDF stream
+     * @return a future completed with an UploadResponse object, or with a CloudSearchClientException if the response
+     *         did not return a 2XX status code
+     */
+    @Override
+    public ListenableFuture<UploadResponse> updateDomainAsync(SearchDocumentStream entity) {
+        if (this.asyncUpdateWebResource == null) {
+            throw new IllegalStateException("CloudSearchClient not configured for asynchronously updating cloudsearch");
+        }
+
+        return postAsync(entity);
+    }
+
+    /**
+     * Posts the batches without blocking and merges their responses. Each batch is posted once the one before it has
+     * completed, so the batches are applied in the same order as by updateDomain, and the first failure fails the
+     * future without posting the batches after it.
+     *
+     * @param batches the SDF batches
+     * @return a future completed with the merged UploadResponse
+     */
+    private ListenableFuture<UploadResponse> postAllAsync(List<SearchDocumentFormat> batches) {
+        if (batches.size() == 1) {
+            return postSplittingWhenTooLargeAsync(batches.get(0));
+        }
+
+        List<UploadResponse> uploadResponses = Lists.newArrayListWithCapacity(batches.size());
+
+        return Futures.transform(postInOrderAsync(batches, 0, uploadResponses), new Function<List<UploadResponse>, UploadResponse>() {
+            @Override
+            public UploadResponse apply(List<UploadResponse> uploadResponses) {
+                return batchSplitter.merge(uploadResponses);
+            }
+        });
+    }
+
+    /**
+     * Posts the batches from the index onwards without blocking, each once the one before it has completed
+     *
+     * @param batches the SDF batches
+     * @param index the index of the next batch to post
+     * @param uploadResponses the responses of the batches posted so far
+     * @return a future completed with the responses of all the batches
+     */
+    private ListenableFuture<List<UploadResponse>> postInOrderAsync(final List<SearchDocumentFormat> batches,
+                                                                    final int index,
+                                                                    final List<UploadResponse> uploadResponses) {
+        if (index == batches.size()) {
+            return Futures.immediateFuture(uploadResponses);
+        }
+
+        return Futures.transform(postSplittingWhenTooLargeAsync(batches.get(index)), new AsyncFunction<UploadResponse, List<UploadResponse>>() {
+            @Override
+            public ListenableFuture<List<UploadResponse>> apply(UploadResponse uploadResponse) {
+                uploadResponses.add(uploadResponse);
+                return postInOrderAsync(batches, index + 1, uploadResponses);
+            }
+        });
+    }
+
+    /**
+     * Posts the batch without blocking, splitting it in half and posting the halves if Amazon rejects it as too large
+     *
+     * @param batch the SDF batch
+     * @return a future completed with the UploadResponse for the batch
+     */
+    private ListenableFuture<UploadResponse> postSplittingWhenTooLargeAsync(final SearchDocumentFormat batch) {
+        return Futures.withFallback(retryingPostAsync(batch), new FutureFallback<UploadResponse>() {
+            @Override
+            public ListenableFuture<UploadResponse> create(Throwable t) {
+                List<SearchDocumentFormat> halves = batchSplitter.halve(batch);
+                if (!(t instanceof CloudSearchRequestTooLargeException) || halves.size() < 2) {
+                    return Futures.immediateFailedFuture(t);
+                }
+
+                LOGGER.debug("Batch rejected as too large by {}, retrying as two halves", asyncUpdateWebResource.getURI());
+                return postAllAsync(halves);
+            }
+        });
+    }
+
+    /**
+     * Posts a single SDF batch to Amazon without blocking, retrying it if there is an update retryer
+     *
+     * @param batch the SDF batch
+     * @return a future completed with the UploadResponse for the batch
+     */
+    private ListenableFuture<UploadResponse> retryingPostAsync(final SearchDocumentFormat batch) {
+        if (this.updateRetryer == null) {
+            return postAsync(batch);
+        }
+
+        return this.updateRetryer.callAsync(new Callable<ListenableFuture<UploadResponse>>() {
+            @Override
+            public ListenableFuture<UploadResponse> call() {
+                return postAsync(batch);
+            }
+        });
+    }
+
+    /**
+     * Posts a single SDF batch to Amazon without blocking once the update rate limiter, if there is one, allows it
+     *
+     * @param entity the SearchDocumentFormat or SearchDocumentStream
+     * @return a future completed with the UploadResponse for the batch
+     */
+    private ListenableFuture<UploadResponse> postAsync(final Object entity) {
+        if (this.updateRateLimiter == null) {
+            return guardedPostAsync(entity);
+        }
+
+        return this.updateRateLimiter.callAsync(estimateBytes(entity), new Callable<ListenableFuture<UploadResponse>>() {
+            @Override
+            public ListenableFuture<UploadResponse> call() {
+                return guardedPostAsync(entity);
+            }
+        });
+    }
+
+    /**
+     * Posts a single SDF batch to Amazon without blocking through the update circuit breaker, if there is one
+     *
+     * @param entity the SearchDocumentFormat or SearchDocumentStream
+     * @return a future completed with the UploadResponse for the batch, or with a CloudSearchCircuitOpenException if
+     *         the circuit breaker did not let the batch through
+     */
+    private ListenableFuture<UploadResponse> guardedPostAsync(final Object entity) {
+        if (this.updateCircuitBreaker == null) {
+            return executePostAsync(entity);
+        }
+
+        return this.updateCircuitBreaker.callAsync(new Callable<ListenableFuture<UploadResponse>>() {
+            @Override
+            public ListenableFuture<UploadResponse> call() {
+                return executePostAsync(entity);
+            }
+        });
+    }
+
+    /**
+     * Posts a single SDF batch to Amazon without blocking
+     *
+     * @param entity the SearchDocumentFormat or SearchDocumentStream
+     * @return a future completed with the UploadResponse for the batch
+     */
+    private ListenableFuture<UploadResponse> executePostAsync(Object entity) {
+        SettableFuture<UploadResponse> uploadResponse = SettableFuture.create();
+
+        LOGGER.debug("Asynchronously POSTing a document batch to {}", this.asyncUpdateWebResource.getURI());
+        try {
+            this.asyncUpdateWebResource.path(CLOUDSEARCH_VERSION)
+                                       .path("documents")
+                                       .path("batch")
+                                       .accept(MediaType.APPLICATION_XML)
+                                       .entity(entity, this.sdfFormat.getMediaType())
+                                       .post(new ResponseListener<UploadResponse>(UploadResponse.class, uploadResponse, this.asyncUpdateWebResource.getURI()));
+        } catch(RuntimeException re) {
+            uploadResponse.setException(new CloudSearchRuntimeException(re.getMessage(), re));
+        }
+
+        return uploadResponse;
+    }
+
+    /**
+     * Queries Amazon, returning a failed CloudSearchResult instead of throwing when the query fails. The exceptions
+     * raised on this thread while the query runs are created without stack traces, unless the query is coalesced.
+     *
+     * @param queryParams the query parameters
+     * @return the SearchResponse, or the status and error entity of the failure
+     */
+    @Override
+    public CloudSearchResult<SearchResponse> queryResult(MultivaluedMap<String, String> queryParams) {
+        boolean suppressed = CloudSearchErrors.suppressStackTraces();
+        try {
+            return CloudSearchResult.success(query(queryParams));
+        } catch (CloudSearchClientException csce) {
+            return CloudSearchResult.failure(csce);
+        } catch (CloudSearchRuntimeException csre) {
+            return CloudSearchResult.failure(csre);
+        } finally {
+            CloudSearchErrors.restoreStackTraces(suppressed);
+        }
+    }
+
+    /**
+     * Posts the SDF to Amazon as updateDomain does, returning a failed CloudSearchResult instead of throwing when the
+     * update fails
+     *
+     * @param entity the SDF
+     * @return the UploadResponse, or the status and error entity of the failure
+     */
+    @Override
+    public CloudSearchResult<UploadResponse> updateDomainResult(SearchDocumentFormat entity) {
+        boolean suppressed = CloudSearchErrors.suppressStackTraces();
+        try {
+            return CloudSearchResult.success(updateDomain(entity));
+        } catch (CloudSearchClientException csce) {
+            return CloudSearchResult.failure(csce);
+        } catch (CloudSearchRuntimeException csre) {
+            return CloudSearchResult.failure(csre);
+        } finally {
+            CloudSearchErrors.restoreStackTraces(suppressed);
+        }
+    }
+
+    /**
+     * Posts the SDF stream to Amazon as updateDomain does, returning a failed CloudSearchResult instead of throwing
+     * when the update fails
+     *
+     * @param entity the SDF stream
+     * @return the UploadResponse, or the status and error entity of the failure
+     */
+    @Override
+    public CloudSearchResult<UploadResponse> updateDomainResult(SearchDocumentStream entity) {
+        boolean suppressed = CloudSearchErrors.suppressStackTraces();
+        try {
+            return CloudSearchResult.success(updateDomain(entity));
+        } catch (CloudSearchClientException csce) {
+            return CloudSearchResult.failure(csce);
+        } catch (CloudSearchRuntimeException csre) {
+            return CloudSearchResult.failure(csre);
+        } finally {
+            CloudSearchErrors.restoreStackTraces(suppressed);
+        }
+    }
+
+    /**
+     * Stops the health checks of the query endpoints and shuts down the connection pools backing this client
+     */
+    @Override
+    public void close() {
+        if (this.queryEndpointPool != null) {
+            this.queryEndpointPool.close();
+        }
+
+        for (HttpConnectionPool connectionPool : this.connectionPools) {
+            if (connectionPool != null) {
+                connectionPool.shutdown();
+            }
+        }
+    }
+
     /**
      * Checks the status of the response and throws exceptions accordingly
      *
@@ -170,6 +1113,47 @@ public class CloudSearchClientImpl implements CloudSearchClient {
         }
     }
 
+    /**
+     * Completes the timing the RequestTimingFilter left on the response, if it is there, with the parse time and the
+     * times cloudsearch reported, and attaches it to the SearchResponse
+     *
+     * @param clientResponse the response the SearchResponse was read from
+     * @param searchResponse the SearchResponse
+     * @param parseStart when reading the SearchResponse started, in nanoseconds of the system ticker
+     */
+    private void attachTiming(ClientResponse clientResponse, SearchResponse searchResponse, long parseStart) {
+        SearchTiming timing = (SearchTiming) clientResponse.getProperties().get(RequestTimingFilter.TIMING_PROPERTY);
+        if (timing == null || searchResponse == null) {
+            return;
+        }
+
+        timing.setParseNanos(Math.max(0L, Ticker.systemTicker().read() - parseStart - timing.getBodyReadNanos()));
+        SearchInfo info = searchResponse.getInfo();
+        if (info != null) {
+            timing.setServerTimeMs(info.getTimeMillis());
+            timing.setServerCpuTimeMs(info.getCpuTimeMillis());
+            timing.setRid(info.getRid());
+        }
+        searchResponse.setTiming(timing);
+
+        if (this.metricsRecorder != null) {
+            this.metricsRecorder.onSearchTiming(timing);
+        }
+    }
+
+    /**
+     * Passes the response of an SDF batch upload to the metrics recorder, if there is one
+     *
+     * @param uri the uri of the update endpoint
+     * @param uploadResponse the response of the upload
+     * @param start when the upload was sent, in nanoseconds of the system ticker
+     */
+    private void recordUpload(URI uri, UploadResponse uploadResponse, long start) {
+        if (this.metricsRecorder != null && uploadResponse != null) {
+            this.metricsRecorder.onUploadResponse(uri.toString(), uploadResponse, Ticker.systemTicker().read() - start);
+        }
+    }
+
     /**
      * Determines whether or not the http request was successful
      *
@@ -180,4 +1164,60 @@ public class CloudSearchClientImpl implements CloudSearchClient {
         return (status >= 200 && status < 400);
     }
 
+    /**
+     * Completes a future with the entity of an asynchronous response, mapping unsuccessful statuses to the same
+     * exceptions as the blocking operations. Cancelling the future does not cancel the jersey request, whose late
+     * response would then be dropped without being closed and would hold its pooled connection. The request runs to
+     * the end instead, and its response is closed unread once it arrives.
+     */
+    private class ResponseListener<T> extends TypeListener<ClientResponse> {
+
+        private final Class<T> entityType;
+        private final SettableFuture<T> result;
+        private final URI uri;
+        private final long start = Ticker.systemTicker().read();
+
+        ResponseListener(Class<T> entityType, SettableFuture<T> result, URI uri) {
+            super(ClientResponse.class);
+            this.entityType = entityType;
+            this.result = result;
+            this.uri = uri;
+        }
+
+        @Override
+        public void onComplete(Future<ClientResponse> future) throws InterruptedException {
+            ClientResponse clientResponse = null;
+            try {
+                clientResponse = future.get();
+                if (this.result.isDone()) {
+                    LOGGER.debug("Discarding the response to a cancelled asynchronous request to {}", this.uri);
+                    return;
+                }
+
+                LOGGER.debug("Received a status of {} for asynchronous request to {}", clientResponse.getStatus(), this.uri);
+                checkStatus(clientResponse);
+
+                long parseStart = Ticker.systemTicker().read();
+                T entity = clientResponse.getEntity(this.entityType);
+                if (entity instanceof SearchResponse) {
+                    attachTiming(clientResponse, (SearchResponse) entity, parseStart);
+                } else if (entity instanceof UploadResponse) {
+                    recordUpload(this.uri, (UploadResponse) entity, this.start);
+                }
+                this.result.set(entity);
+            } catch (CloudSearchClientException csce) {
+                this.result.setException(csce);
+            } catch (CancellationException ce) {
+                this.result.cancel(false);
+            } catch (ExecutionException ee) {
+                this.result.setException(new CloudSearchRuntimeException(ee.getCause().getMessage(), ee.getCause()));
+            } catch (RuntimeException re) {
+                this.result.setException(new CloudSearchRuntimeException(re.getMessage(), re));
+            } finally {
+                if (clientResponse != null) {
+                    clientResponse.close();
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,51 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.impl;
+
+/**
+ * The last connection checked out of an HttpConnectionPool on the current thread. Requests are sent on the thread that
+ * checks out their connection, so the RequestTimingFilter finds the checkout of its request here.
+ *
+ * @author jmonette
+ */
+final class ConnectionCheckout {
+
+    private static final ThreadLocal<ConnectionCheckout> LAST = new ThreadLocal<ConnectionCheckout>();
+
+    final long nanos;
+    final boolean reused;
+
+    private ConnectionCheckout(long nanos, boolean reused) {
+        this.nanos = nanos;
+        this.reused = reused;
+    }
+
+    static void record(long nanos, boolean reused) {
+        LAST.set(new ConnectionCheckout(nanos, reused));
+    }
+
+    /**
+     * Take the last checkout on the current thread
+     *
+     * @return the checkout, or null if there was none since the last was taken
+     */
+    static ConnectionCheckout take() {
+        ConnectionCheckout checkout = LAST.get();
+        LAST.remove();
+        return checkout;
+    }
+}
@@ -0,0 +1,175 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.impl;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.client.apache.ApacheHttpClient;
+import com.sun.jersey.client.apache.ApacheHttpClientHandler;
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of keep-alive http connections backing one or more jersey clients. Connections are reused across requests
+ * instead of being opened for every call, and connections that sit idle for too long are evicted in the background.
+ *
+ * @author jmonette
+ */
+public class HttpConnectionPool {
+
+    /** How often the eviction thread looks for idle connections */
+    private static final long IDLE_CONNECTION_CHECK_INTERVAL = 1000L;
+
+    private final TimedConnectionManager connectionManager;
+    private final IdleConnectionTimeoutThread idleConnectionTimeoutThread;
+    private final List<Client> clients = Lists.newCopyOnWriteArrayList();
+    private volatile boolean shutdown = false;
+
+    /**
+     * Creates a connection pool
+     *
+     * @param params the connection manager params such as the max connections and socket options
+     * @param idleConnectionTimeout the time in milliseconds a connection may sit idle before it is closed, a value less
+     *                              than or equal to zero disables idle eviction
+     */
+    public HttpConnectionPool(HttpConnectionManagerParams params, long idleConnectionTimeout) {
+        this.connectionManager = new TimedConnectionManager();
+        this.connectionManager.setParams(params);
+
+        if (idleConnectionTimeout > 0) {
+            this.idleConnectionTimeoutThread = new IdleConnectionTimeoutThread();
+            this.idleConnectionTimeoutThread.setName("thunderhead-idle-connection-evictor");
+            this.idleConnectionTimeoutThread.setConnectionTimeout(idleConnectionTimeout);
+            this.idleConnectionTimeoutThread.setTimeoutInterval(Math.min(idleConnectionTimeout, IDLE_CONNECTION_CHECK_INTERVAL));
+            this.idleConnectionTimeoutThread.addConnectionManager(this.connectionManager);
+            this.idleConnectionTimeoutThread.start();
+        } else {
+            this.idleConnectionTimeoutThread = null;
+        }
+    }
+
+    /**
+     * Creates a jersey client that sends its requests over the connections in this pool
+     *
+     * @param clientConfig the jersey client config
+     * @return a jersey client backed by this pool
+     */
+    public Client createClient(ClientConfig clientConfig) {
+        if (this.shutdown) {
+            throw new IllegalStateException("HttpConnectionPool has been shutdown");
+        }
+
+        HttpClient httpClient = new HttpClient(this.connectionManager);
+        Client client = new ApacheHttpClient(new ApacheHttpClientHandler(httpClient, clientConfig));
+        this.clients.add(client);
+
+        return client;
+    }
+
+    public MultiThreadedHttpConnectionManager getConnectionManager() {
+        return this.connectionManager;
+    }
+
+    /**
+     * The number of connections currently open in the pool, both idle and in use
+     *
+     * @return the number of connections currently open in the pool
+     */
+    public int getConnectionsInPool() {
+        return this.connectionManager.getConnectionsInPool();
+    }
+
+    /**
+     * The number of connections currently checked out of the pool by in-flight requests. A connection is checked in
+     * when its response is closed, so a response that is never closed keeps its connection counted as in use.
+     *
+     * @return the number of connections currently in use
+     */
+    public int getConnectionsInUse() {
+        return this.connectionManager.connectionsInUse.get();
+    }
+
+    /**
+     * Destroys the clients created by this pool and their asynchronous request threads, closes all of the pooled
+     * connections and stops idle eviction. Calling this more than once has no effect.
+     */
+    public synchronized void shutdown() {
+        if (this.shutdown) {
+            return;
+        }
+        this.shutdown = true;
+
+        for (Client client : this.clients) {
+            client.getExecutorService().shutdown();
+            client.destroy();
+        }
+        this.clients.clear();
+
+        if (this.idleConnectionTimeoutThread != null) {
+            this.idleConnectionTimeoutThread.shutdown();
+        }
+        this.connectionManager.shutdown();
+    }
+
+    /**
+     * Records how long each connection took to check out, and whether it was already open, for the RequestTimingFilter,
+     * and counts the connections checked out and not yet released
+     */
+    private static class TimedConnectionManager extends MultiThreadedHttpConnectionManager {
+        private final AtomicInteger connectionsInUse = new AtomicInteger();
+
+        @Override
+        public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration, long timeout) throws ConnectionPoolTimeoutException {
+            long start = System.nanoTime();
+            HttpConnection connection = super.getConnectionWithTimeout(hostConfiguration, timeout);
+            this.connectionsInUse.incrementAndGet();
+            ConnectionCheckout.record(System.nanoTime() - start, connection.isOpen());
+            return connection;
+        }
+
+        @Override
+        public void releaseConnection(HttpConnection connection) {
+            this.connectionsInUse.decrementAndGet();
+            super.releaseConnection(connection);
+        }
+    }
+
+    /**
+     * String representation of the HttpConnectionPool object
+     *
+     * @return String representation of the HttpConnectionPool object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("maxConnectionsPerHost", this.connectionManager.getParams().getDefaultMaxConnectionsPerHost())
+                      .add("maxTotalConnections", this.connectionManager.getParams().getMaxTotalConnections())
+                      .add("connectionsInPool", getConnectionsInPool())
+                      .add("shutdown", this.shutdown)
+                      .toString();
+    }
+}
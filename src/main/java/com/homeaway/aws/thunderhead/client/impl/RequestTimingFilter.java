@@ -0,0 +1,110 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.impl;
+
+import com.google.common.base.Ticker;
+import com.homeaway.aws.thunderhead.model.search.SearchTiming;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * A jersey client filter timing the connect, first byte and body read phases of every request sent through a client
+ * backed by an HttpConnectionPool. The timing is left in the properties of the response, for the CloudSearchClient to
+ * add the parse time and attach it to the SearchResponse.
+ *
+ * @author jmonette
+ */
+public class RequestTimingFilter extends ClientFilter {
+
+    /** The response property holding the SearchTiming of the request */
+    public static final String TIMING_PROPERTY = SearchTiming.class.getName();
+
+    private final Ticker ticker;
+
+    public RequestTimingFilter() {
+        this(Ticker.systemTicker());
+    }
+
+    public RequestTimingFilter(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest clientRequest) throws ClientHandlerException {
+        ConnectionCheckout.take();
+        long start = this.ticker.read();
+        ClientResponse clientResponse = getNext().handle(clientRequest);
+        long headers = this.ticker.read();
+
+        URI uri = clientRequest.getURI();
+        SearchTiming timing = new SearchTiming();
+        timing.setEndpoint(uri.getScheme() + "://" + uri.getRawAuthority());
+
+        ConnectionCheckout checkout = ConnectionCheckout.take();
+        if (checkout != null) {
+            timing.setConnectNanos(checkout.nanos);
+            timing.setConnectionReused(checkout.reused);
+        }
+        timing.setFirstByteNanos(Math.max(0L, headers - start - timing.getConnectNanos()));
+
+        if (clientResponse.getEntityInputStream() != null) {
+            clientResponse.setEntityInputStream(new TimedInputStream(clientResponse.getEntityInputStream(), timing));
+        }
+        clientResponse.getProperties().put(TIMING_PROPERTY, timing);
+
+        return clientResponse;
+    }
+
+    /**
+     * Adds the time spent waiting in reads of the response body to the body read time
+     */
+    private class TimedInputStream extends FilterInputStream {
+        private final SearchTiming timing;
+
+        TimedInputStream(InputStream in, SearchTiming timing) {
+            super(in);
+            this.timing = timing;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = ticker.read();
+            try {
+                return super.read();
+            } finally {
+                this.timing.setBodyReadNanos(this.timing.getBodyReadNanos() + ticker.read() - start);
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = ticker.read();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                this.timing.setBodyReadNanos(this.timing.getBodyReadNanos() + ticker.read() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.impl;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchQueryParam;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchResultsType;
+import com.sun.jersey.api.client.AsyncWebResource;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Builds the search request of a query: the query params sent to Amazon and the resource they are sent to. The blocking
+ * and asynchronous queries of the CloudSearchClientImpl both go through here, as do the benchmarks of the query path.
+ *
+ * @author jmonette
+ */
+public final class SearchRequests {
+
+    private SearchRequests() {
+    }
+
+    /**
+     * Copies the query params and forces the results type from AWS cloudsearch
+     *
+     * @param queryParams the query params supplied by the caller
+     * @param resultsType the results type the responses are read as
+     * @return the query params to send to AWS cloudsearch
+     */
+    public static MultivaluedMap<String, String> buildQueryParams(MultivaluedMap<String, String> queryParams, CloudSearchResultsType resultsType) {
+        MultivaluedMap<String, String> myQueryParams = new MultivaluedMapImpl(queryParams);
+        myQueryParams.remove(CloudSearchQueryParam.RESULTS_TYPE.getName());
+        myQueryParams.add(CloudSearchQueryParam.RESULTS_TYPE.getName(), resultsType.getName());
+
+        return myQueryParams;
+    }
+
+    /**
+     * The search resource of the endpoint with the query params
+     *
+     * @param webResource the web resource of the endpoint
+     * @param queryParams the query params to send, as built by buildQueryParams
+     * @return the resource to GET
+     */
+    public static WebResource searchResource(WebResource webResource, MultivaluedMap<String, String> queryParams) {
+        return webResource.path(CloudSearchClient.CLOUDSEARCH_VERSION)
+                          .path("search")
+                          .queryParams(queryParams);
+    }
+
+    /**
+     * The asynchronous search resource of the endpoint with the query params
+     *
+     * @param asyncWebResource the async web resource of the endpoint
+     * @param queryParams the query params to send, as built by buildQueryParams
+     * @return the resource to GET
+     */
+    public static AsyncWebResource searchResource(AsyncWebResource asyncWebResource, MultivaluedMap<String, String> queryParams) {
+        return asyncWebResource.path(CloudSearchClient.CLOUDSEARCH_VERSION)
+                               .path("search")
+                               .queryParams(queryParams);
+    }
+}
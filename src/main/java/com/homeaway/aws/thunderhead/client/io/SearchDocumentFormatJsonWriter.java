@@ -0,0 +1,210 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.io;
+
+import com.google.common.collect.Iterators;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentStream;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes a SearchDocumentFormat or a SearchDocumentStream as json SDF with the jackson streaming generator. Each
+ * document becomes an object in the batch array, with a type of add or delete. Fields that share a name within an add
+ * are written as a single multi-valued field, and a version made up only of digits is written as a number.
+ *
+ * Like the xml writer, each document is written to the request as soon as it is reached.
+ *
+ * @author jmonette
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class SearchDocumentFormatJsonWriter implements MessageBodyWriter<Object> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return (SearchDocumentFormat.class.isAssignableFrom(type) || SearchDocumentStream.class.isAssignableFrom(type))
+            && MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType);
+    }
+
+    @Override
+    public long getSize(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+        if (entity instanceof SearchDocumentStream) {
+            SearchDocumentStream searchDocumentStream = (SearchDocumentStream) entity;
+            write(searchDocumentStream.getSearchDocumentAdds(), searchDocumentStream.getSearchDocumentDeletes(), entityStream);
+        } else {
+            SearchDocumentFormat searchDocumentFormat = (SearchDocumentFormat) entity;
+            write(iterator(searchDocumentFormat.getSearchDocumentAdds()), iterator(searchDocumentFormat.getSearchDocumentDeletes()), entityStream);
+        }
+    }
+
+    /**
+     * Write the batch to the stream, leaving the stream open
+     *
+     * @param adds the adds to write
+     * @param deletes the deletes to write
+     * @param out the stream to write to
+     * @throws IOException if the json could not be written
+     */
+    public void write(Iterator<SearchDocumentAdd> adds, Iterator<SearchDocumentDelete> deletes, OutputStream out) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createJsonGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            generator.writeStartArray();
+
+            while (adds.hasNext()) {
+                writeAdd(generator, adds.next());
+            }
+
+            while (deletes.hasNext()) {
+                writeDelete(generator, deletes.next());
+            }
+
+            generator.writeEndArray();
+            generator.flush();
+        } finally {
+            generator.close();
+        }
+    }
+
+    private void writeAdd(JsonGenerator generator, SearchDocumentAdd add) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "add");
+        writeStringField(generator, "id", add.getId());
+        writeVersion(generator, add.getVersion());
+        writeStringField(generator, "lang", add.getLang());
+
+        generator.writeObjectFieldStart("fields");
+        List<Field> fields = add.getFields();
+        if (fields != null) {
+            for (int i = 0; i < fields.size(); i++) {
+                writeField(generator, fields, i);
+            }
+        }
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write the field at the index along with every later field of the same name, unless an earlier field of the same
+     * name has already written it. Documents have few fields, so looking through them is cheaper than building a map.
+     */
+    private void writeField(JsonGenerator generator, List<Field> fields, int index) throws IOException {
+        String name = fields.get(index).getName();
+        if (name == null) {
+            throw new IOException("Unable to write a field without a name");
+        }
+
+        for (int i = 0; i < index; i++) {
+            if (name.equals(fields.get(i).getName())) {
+                return;
+            }
+        }
+
+        int count = 1;
+        for (int i = index + 1; i < fields.size(); i++) {
+            if (name.equals(fields.get(i).getName())) {
+                count++;
+            }
+        }
+
+        generator.writeFieldName(name);
+        if (count == 1) {
+            generator.writeString(fields.get(index).getValue());
+            return;
+        }
+
+        generator.writeStartArray();
+        for (int i = index; i < fields.size(); i++) {
+            if (name.equals(fields.get(i).getName())) {
+                generator.writeString(fields.get(i).getValue());
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeDelete(JsonGenerator generator, SearchDocumentDelete delete) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", "delete");
+        writeStringField(generator, "id", delete.getId());
+        writeVersion(generator, delete.getVersion());
+        generator.writeEndObject();
+    }
+
+    private void writeStringField(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    private void writeVersion(JsonGenerator generator, String version) throws IOException {
+        if (version == null) {
+            return;
+        }
+
+        generator.writeFieldName("version");
+        if (isDigits(version)) {
+            generator.writeNumber(version);
+        } else {
+            generator.writeString(version);
+        }
+    }
+
+    private boolean isDigits(String value) {
+        if (value.length() == 0 || value.length() > 18) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private <T> Iterator<T> iterator(List<T> list) {
+        return list == null ? Iterators.<T>emptyIterator() : list.iterator();
+    }
+}
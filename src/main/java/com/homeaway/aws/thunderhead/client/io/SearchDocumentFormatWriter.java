@@ -0,0 +1,156 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.io;
+
+import com.google.common.collect.Iterators;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentStream;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes a SearchDocumentFormat or a SearchDocumentStream as SDF xml with StAX. Each document is written to the request
+ * as soon as it is reached, so unlike JAXB no marshalled copy of the whole batch is built up in memory first. When the
+ * update client uses chunked transfer encoding the memory used by an upload stays the same however large the batch is.
+ *
+ * The xml written is the same as the JAXB mapping of the sdf model.
+ *
+ * @author jmonette
+ */
+@Provider
+@Produces(MediaType.APPLICATION_XML)
+public class SearchDocumentFormatWriter implements MessageBodyWriter<Object> {
+
+    /** The namespace of the SDF elements, as mapped in the sdf package-info */
+    public static final String SDF_NAMESPACE = "http://cloudsearch.amazonaws.com/2011-02-01/results";
+
+    private static final String ENCODING = "UTF-8";
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return (SearchDocumentFormat.class.isAssignableFrom(type) || SearchDocumentStream.class.isAssignableFrom(type))
+            && MediaType.APPLICATION_XML_TYPE.isCompatible(mediaType);
+    }
+
+    @Override
+    public long getSize(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException, WebApplicationException {
+        try {
+            if (entity instanceof SearchDocumentStream) {
+                SearchDocumentStream searchDocumentStream = (SearchDocumentStream) entity;
+                write(searchDocumentStream.getSearchDocumentAdds(), searchDocumentStream.getSearchDocumentDeletes(), entityStream);
+            } else {
+                SearchDocumentFormat searchDocumentFormat = (SearchDocumentFormat) entity;
+                write(iterator(searchDocumentFormat.getSearchDocumentAdds()), iterator(searchDocumentFormat.getSearchDocumentDeletes()), entityStream);
+            }
+        } catch (XMLStreamException xse) {
+            throw new IOException("Unable to write the SDF batch", xse);
+        }
+    }
+
+    /**
+     * Write the batch to the stream, leaving the stream open
+     *
+     * @param adds the adds to write
+     * @param deletes the deletes to write
+     * @param out the stream to write to
+     * @throws XMLStreamException if the xml could not be written
+     */
+    public void write(Iterator<SearchDocumentAdd> adds, Iterator<SearchDocumentDelete> deletes, OutputStream out) throws XMLStreamException {
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, ENCODING);
+        try {
+            writer.writeStartDocument(ENCODING, "1.0");
+            writer.setDefaultNamespace(SDF_NAMESPACE);
+            writer.writeStartElement(SDF_NAMESPACE, "batch");
+            writer.writeDefaultNamespace(SDF_NAMESPACE);
+
+            while (adds.hasNext()) {
+                writeAdd(writer, adds.next());
+            }
+
+            while (deletes.hasNext()) {
+                writeDelete(writer, deletes.next());
+            }
+
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeAdd(XMLStreamWriter writer, SearchDocumentAdd add) throws XMLStreamException {
+        writer.writeStartElement(SDF_NAMESPACE, "add");
+        writeAttribute(writer, "id", add.getId());
+        writeAttribute(writer, "version", add.getVersion());
+        writeAttribute(writer, "lang", add.getLang());
+
+        if (add.getFields() != null) {
+            for (Field field : add.getFields()) {
+                writer.writeStartElement(SDF_NAMESPACE, "field");
+                writeAttribute(writer, "name", field.getName());
+                if (field.getValue() != null) {
+                    writer.writeCharacters(field.getValue());
+                }
+                writer.writeEndElement();
+            }
+        }
+
+        writer.writeEndElement();
+    }
+
+    private void writeDelete(XMLStreamWriter writer, SearchDocumentDelete delete) throws XMLStreamException {
+        writer.writeEmptyElement(SDF_NAMESPACE, "delete");
+        writeAttribute(writer, "id", delete.getId());
+        writeAttribute(writer, "version", delete.getVersion());
+    }
+
+    private void writeAttribute(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        if (value != null) {
+            writer.writeAttribute(name, value);
+        }
+    }
+
+    private <T> Iterator<T> iterator(List<T> list) {
+        return list == null ? Iterators.<T>emptyIterator() : list.iterator();
+    }
+}
@@ -0,0 +1,257 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.io;
+
+import com.homeaway.aws.thunderhead.model.search.ReturnFields;
+import com.homeaway.aws.thunderhead.model.search.SearchHit;
+import com.homeaway.aws.thunderhead.model.search.SearchHits;
+import com.homeaway.aws.thunderhead.model.search.SearchInfo;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a 2011-02-01 cloudsearch json search response into the search model with the jackson streaming tokenizer. The
+ * model is filled exactly as it is from the xml response, so the results type can be switched without any change to
+ * the callers. Each value of a multi-valued field in a hit's data becomes its own ReturnFields, as each is its own d
+ * element in the xml response.
+ *
+ * @author jmonette
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+public class SearchResponseJsonReader implements MessageBodyReader<SearchResponse> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == SearchResponse.class
+            && (mediaType.getSubtype().equals("json") || mediaType.getSubtype().endsWith("+json"));
+    }
+
+    @Override
+    public SearchResponse readFrom(Class<SearchResponse> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                                   MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
+        return read(entityStream);
+    }
+
+    /**
+     * Read a search response from the stream, leaving the stream open
+     *
+     * @param in the stream holding the json search response
+     * @return the search response
+     * @throws IOException if the json is malformed or is not an object
+     */
+    public SearchResponse read(InputStream in) throws IOException {
+        JsonParser parser = JSON_FACTORY.createJsonParser(in);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected the search response to be a json object");
+            }
+
+            return readResults(parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private SearchResponse readResults(JsonParser parser) throws IOException {
+        SearchResponse searchResponse = new SearchResponse();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if ("hits".equals(name) && value == JsonToken.START_OBJECT) {
+                searchResponse.setFound(readHits(parser));
+            } else if ("info".equals(name) && value == JsonToken.START_OBJECT) {
+                searchResponse.setInfo(readInfo(parser));
+            } else if ("rank".equals(name)) {
+                searchResponse.setRank(text(parser));
+            } else if ("match-expr".equals(name)) {
+                searchResponse.setMatchExpr(text(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return searchResponse;
+    }
+
+    private SearchHits readHits(JsonParser parser) throws IOException {
+        SearchHits searchHits = new SearchHits();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if ("found".equals(name)) {
+                searchHits.setCount(intValue(parser));
+            } else if ("start".equals(name)) {
+                searchHits.setStart(intValue(parser));
+            } else if ("hit".equals(name) && value == JsonToken.START_ARRAY) {
+                searchHits.setHits(readHitArray(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return searchHits;
+    }
+
+    private List<SearchHit> readHitArray(JsonParser parser) throws IOException {
+        List<SearchHit> hits = null;
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                if (hits == null) {
+                    hits = new ArrayList<SearchHit>();
+                }
+                hits.add(readHit(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return hits;
+    }
+
+    private SearchHit readHit(JsonParser parser) throws IOException {
+        SearchHit searchHit = new SearchHit();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if ("id".equals(name)) {
+                searchHit.setId(text(parser));
+            } else if ("data".equals(name) && value == JsonToken.START_OBJECT) {
+                searchHit.setReturnFieldsList(readData(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return searchHit;
+    }
+
+    private List<ReturnFields> readData(JsonParser parser) throws IOException {
+        List<ReturnFields> returnFieldsList = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if (value == JsonToken.START_ARRAY) {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        continue;
+                    }
+
+                    returnFieldsList = addReturnFields(returnFieldsList, name, text(parser));
+                }
+            } else if (value == JsonToken.START_OBJECT) {
+                parser.skipChildren();
+            } else {
+                returnFieldsList = addReturnFields(returnFieldsList, name, text(parser));
+            }
+        }
+
+        return returnFieldsList;
+    }
+
+    private SearchInfo readInfo(JsonParser parser) throws IOException {
+        SearchInfo searchInfo = new SearchInfo();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+
+            if ("rid".equals(name)) {
+                searchInfo.setRid(text(parser));
+            } else if ("time-ms".equals(name)) {
+                searchInfo.setTimeMs(text(parser));
+            } else if ("cpu-time-ms".equals(name)) {
+                searchInfo.setCpuTimeMs(text(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return searchInfo;
+    }
+
+    private List<ReturnFields> addReturnFields(List<ReturnFields> returnFieldsList, String name, String value) {
+        List<ReturnFields> list = returnFieldsList;
+        if (list == null) {
+            list = new ArrayList<ReturnFields>();
+        }
+
+        ReturnFields returnFields = new ReturnFields();
+        returnFields.setName(name);
+        returnFields.setValue(value);
+        list.add(returnFields);
+
+        return list;
+    }
+
+    /**
+     * The text of the current scalar value, or null for a json null
+     */
+    private String text(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+
+        return parser.getText();
+    }
+
+    /**
+     * The current value as an int, reading anything that is not a number as zero as the xml path does
+     */
+    private int intValue(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+
+        parser.skipChildren();
+        try {
+            return Integer.parseInt(parser.getText().trim());
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
+    }
+}
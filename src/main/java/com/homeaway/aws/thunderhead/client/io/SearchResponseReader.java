@@ -0,0 +1,245 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.io;
+
+import com.homeaway.aws.thunderhead.model.search.ReturnFields;
+import com.homeaway.aws.thunderhead.model.search.SearchHit;
+import com.homeaway.aws.thunderhead.model.search.SearchHits;
+import com.homeaway.aws.thunderhead.model.search.SearchInfo;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a 2011-02-01 cloudsearch xml search response into the search model with a StAX pull parser. It fills the same
+ * model objects as the JAXB mapping, without the reflection and intermediate state JAXB needs, and skips any element
+ * the model has no place for.
+ *
+ * Elements are matched on their local names, so a response is read the same whether or not it declares the results
+ * namespace.
+ *
+ * @author jmonette
+ */
+@Provider
+@Consumes({MediaType.APPLICATION_XML, MediaType.TEXT_XML})
+public class SearchResponseReader implements MessageBodyReader<SearchResponse> {
+
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == SearchResponse.class
+            && (mediaType.getSubtype().equals("xml") || mediaType.getSubtype().endsWith("+xml"));
+    }
+
+    @Override
+    public SearchResponse readFrom(Class<SearchResponse> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                                   MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException, WebApplicationException {
+        try {
+            return read(entityStream);
+        } catch (XMLStreamException xse) {
+            throw new IOException("Unable to read the search response", xse);
+        }
+    }
+
+    /**
+     * Read a search response from the stream, leaving the stream open
+     *
+     * @param in the stream holding the xml search response
+     * @return the search response
+     * @throws XMLStreamException if the xml is malformed
+     * @throws IOException if the root element is not a results element
+     */
+    public SearchResponse read(InputStream in) throws XMLStreamException, IOException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+        try {
+            while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                if (reader.getEventType() == XMLStreamConstants.END_DOCUMENT) {
+                    throw new IOException("The search response is empty");
+                }
+            }
+
+            if (!"results".equals(reader.getLocalName())) {
+                throw new IOException("Expected a results element but found " + reader.getLocalName());
+            }
+
+            return readResults(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private SearchResponse readResults(XMLStreamReader reader) throws XMLStreamException {
+        SearchResponse searchResponse = new SearchResponse();
+
+        while (nextChild(reader)) {
+            String name = reader.getLocalName();
+            if ("hits".equals(name)) {
+                searchResponse.setFound(readHits(reader));
+            } else if ("info".equals(name)) {
+                searchResponse.setInfo(readInfo(reader));
+            } else if ("rank".equals(name)) {
+                searchResponse.setRank(reader.getElementText());
+            } else if ("match-expr".equals(name)) {
+                searchResponse.setMatchExpr(reader.getElementText());
+            } else {
+                skip(reader);
+            }
+        }
+
+        return searchResponse;
+    }
+
+    private SearchHits readHits(XMLStreamReader reader) throws XMLStreamException {
+        SearchHits searchHits = new SearchHits();
+
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = reader.getAttributeLocalName(i);
+            if ("found".equals(name)) {
+                searchHits.setCount(parseInt(reader.getAttributeValue(i)));
+            } else if ("start".equals(name)) {
+                searchHits.setStart(parseInt(reader.getAttributeValue(i)));
+            }
+        }
+
+        List<SearchHit> hits = null;
+        while (nextChild(reader)) {
+            if ("hit".equals(reader.getLocalName())) {
+                if (hits == null) {
+                    hits = new ArrayList<SearchHit>();
+                }
+                hits.add(readHit(reader));
+            } else {
+                skip(reader);
+            }
+        }
+        searchHits.setHits(hits);
+
+        return searchHits;
+    }
+
+    private SearchHit readHit(XMLStreamReader reader) throws XMLStreamException {
+        SearchHit searchHit = new SearchHit();
+        searchHit.setId(reader.getAttributeValue(null, "id"));
+
+        List<ReturnFields> returnFieldsList = null;
+        while (nextChild(reader)) {
+            if ("d".equals(reader.getLocalName())) {
+                ReturnFields returnFields = new ReturnFields();
+                returnFields.setName(reader.getAttributeValue(null, "name"));
+                returnFields.setValue(reader.getElementText());
+
+                if (returnFieldsList == null) {
+                    returnFieldsList = new ArrayList<ReturnFields>();
+                }
+                returnFieldsList.add(returnFields);
+            } else {
+                skip(reader);
+            }
+        }
+        searchHit.setReturnFieldsList(returnFieldsList);
+
+        return searchHit;
+    }
+
+    private SearchInfo readInfo(XMLStreamReader reader) throws XMLStreamException {
+        SearchInfo searchInfo = new SearchInfo();
+
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = reader.getAttributeLocalName(i);
+            if ("rid".equals(name)) {
+                searchInfo.setRid(reader.getAttributeValue(i));
+            } else if ("time-ms".equals(name)) {
+                searchInfo.setTimeMs(reader.getAttributeValue(i));
+            } else if ("cpu-time-ms".equals(name)) {
+                searchInfo.setCpuTimeMs(reader.getAttributeValue(i));
+            }
+        }
+        skip(reader);
+
+        return searchInfo;
+    }
+
+    /**
+     * Advance to the next child element of the current element
+     *
+     * @param reader the reader positioned within the parent element
+     * @return true if positioned on the next child, false if positioned on the end of the parent
+     * @throws XMLStreamException if the xml is malformed
+     */
+    private boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Skip past the end of the current element and everything within it
+     *
+     * @param reader the reader positioned on the start of the element
+     * @throws XMLStreamException if the xml is malformed
+     */
+    private void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Parse an int attribute the way JAXB does, leniently reading anything that is not a number as zero
+     */
+    private int parseInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.limit;
+
+/**
+ * Estimates how many requests can be in flight at once from the response times and failures of the requests sent
+ *
+ * @author jmonette
+ */
+public interface ConcurrencyLimit {
+
+    /**
+     * The current estimate
+     *
+     * @return the number of requests that may be in flight at once, at least 1
+     */
+    int getLimit();
+
+    /**
+     * Update the estimate with the outcome of a request
+     *
+     * @param rttNanos the response time of the request in nanoseconds
+     * @param inFlight the number of requests in flight when it was sent, itself included
+     * @param dropped whether the request failed in a way that shows the endpoint is overloaded
+     */
+    void onSample(long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,367 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.limit;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.homeaway.aws.thunderhead.client.breaker.CircuitBreaker;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchLoadShedException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Limits the number of requests in flight at once to the limit estimated by a ConcurrencyLimit from their response
+ * times. A request over the limit waits in a short queue for another to complete, and is shed with a
+ * CloudSearchLoadShedException if the queue is full or it waits too long, so an overloaded domain sheds load at once
+ * instead of building up requests that will time out.
+ *
+ * Blocking calls wait in the queue on the calling thread. Asynchronous calls are started by the request that hands them
+ * its place, so no thread is held while waiting.
+ *
+ * @author jmonette
+ */
+public class ConcurrencyLimiter {
+
+    private static final ScheduledExecutorService SCHEDULER =
+        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                             .setNameFormat("thunderhead-concurrency-limiter")
+                                                                             .build());
+
+    private final ConcurrencyLimit limit;
+    private final int maxQueueSize;
+    private final long maxQueueWaitNanos;
+    private final Ticker ticker;
+    private final Deque<SettableFuture<Integer>> queue = new ArrayDeque<SettableFuture<Integer>>();
+
+    private int inFlight;
+    private long shedCount;
+
+    /**
+     * Creates a limiter
+     *
+     * @param limit estimates the number of requests allowed in flight
+     * @param maxQueueSize the most requests waiting for their turn, zero to shed requests over the limit at once
+     * @param maxQueueWait the longest time in milliseconds a request waits for its turn
+     */
+    public ConcurrencyLimiter(ConcurrencyLimit limit, int maxQueueSize, long maxQueueWait) {
+        this(limit, maxQueueSize, TimeUnit.MILLISECONDS.toNanos(maxQueueWait), Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a limiter
+     *
+     * @param limit estimates the number of requests allowed in flight
+     * @param maxQueueSize the most requests waiting for their turn, zero to shed requests over the limit at once
+     * @param maxQueueWaitNanos the longest time in nanoseconds a request waits for its turn
+     * @param ticker the time source the response times are measured with
+     */
+    public ConcurrencyLimiter(ConcurrencyLimit limit, int maxQueueSize, long maxQueueWaitNanos, Ticker ticker) {
+        this.limit = limit;
+        this.maxQueueSize = (maxQueueWaitNanos > 0 ? maxQueueSize : 0);
+        this.maxQueueWaitNanos = maxQueueWaitNanos;
+        this.ticker = ticker;
+    }
+
+    public ConcurrencyLimit getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * The number of requests in flight
+     *
+     * @return the number of requests in flight
+     */
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * The number of requests waiting for their turn
+     *
+     * @return the number of requests in the queue
+     */
+    public synchronized int getQueued() {
+        return this.queue.size();
+    }
+
+    /**
+     * The number of requests shed since the limiter was created
+     *
+     * @return the number of requests shed
+     */
+    public synchronized long getShedCount() {
+        return this.shedCount;
+    }
+
+    /**
+     * Call the operation once there is room for it, updating the limit with its response time
+     *
+     * @param callable the operation
+     * @param <T> the type of the result
+     * @return the result of the operation
+     * @throws CloudSearchLoadShedException if there was no room for the operation in time
+     * @throws CloudSearchClientException if the operation failed
+     */
+    public <T> T call(Callable<T> callable) throws CloudSearchClientException {
+        int inFlightAtStart = acquire();
+        long start = this.ticker.read();
+        try {
+            T result = callable.call();
+            complete(start, inFlightAtStart, null);
+            return result;
+        } catch (CloudSearchClientException csce) {
+            complete(start, inFlightAtStart, csce);
+            throw csce;
+        } catch (RuntimeException re) {
+            complete(start, inFlightAtStart, re);
+            throw re;
+        } catch (Exception e) {
+            complete(start, inFlightAtStart, e);
+            throw new CloudSearchRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Start the asynchronous operation once there is room for it, updating the limit with its response time
+     *
+     * @param callable starts the operation
+     * @param <T> the type of the result
+     * @return a future of the result of the operation, failed with a CloudSearchLoadShedException if there was no room
+     *         for the operation in time
+     */
+    public <T> ListenableFuture<T> callAsync(final Callable<ListenableFuture<T>> callable) {
+        Integer inFlightAtStart = null;
+        final SettableFuture<Integer> permit = SettableFuture.create();
+        synchronized (this) {
+            if (this.inFlight < this.limit.getLimit()) {
+                inFlightAtStart = ++this.inFlight;
+            } else if (this.queue.size() < this.maxQueueSize) {
+                this.queue.addLast(permit);
+            } else {
+                return Futures.immediateFailedFuture(newShedException(false));
+            }
+        }
+
+        if (inFlightAtStart != null) {
+            return start(callable, inFlightAtStart);
+        }
+
+        final SettableFuture<T> result = SettableFuture.create();
+        final ScheduledFuture<?> timeout = SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (dequeue(permit)) {
+                    result.setException(newShedException(true));
+                }
+            }
+        }, this.maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled() && dequeue(permit)) {
+                    timeout.cancel(false);
+                }
+            }
+        }, MoreExecutors.sameThreadExecutor());
+
+        Futures.addCallback(permit, new FutureCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer inFlightAtStart) {
+                timeout.cancel(false);
+                if (result.isCancelled()) {
+                    release();
+                    return;
+                }
+
+                final ListenableFuture<T> future = start(callable, inFlightAtStart);
+                result.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (result.isCancelled()) {
+                            future.cancel(true);
+                        }
+                    }
+                }, MoreExecutors.sameThreadExecutor());
+                Futures.addCallback(future, new FutureCallback<T>() {
+                    @Override
+                    public void onSuccess(T value) {
+                        result.set(value);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        result.setException(t);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.setException(t);
+            }
+        });
+
+        return result;
+    }
+
+    private <T> ListenableFuture<T> start(Callable<ListenableFuture<T>> callable, final int inFlightAtStart) {
+        final long start = this.ticker.read();
+        ListenableFuture<T> future;
+        try {
+            future = callable.call();
+        } catch (Exception e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                complete(start, inFlightAtStart, null);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                complete(start, inFlightAtStart, t);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Take a place in flight, waiting in the queue for one if there is room in it
+     *
+     * @return the number of requests in flight once the place was taken
+     * @throws CloudSearchLoadShedException if there was no room in the queue or no place in time
+     */
+    private int acquire() throws CloudSearchLoadShedException {
+        SettableFuture<Integer> permit = SettableFuture.create();
+        synchronized (this) {
+            if (this.inFlight < this.limit.getLimit()) {
+                return ++this.inFlight;
+            } else if (this.queue.size() < this.maxQueueSize) {
+                this.queue.addLast(permit);
+            } else {
+                throw newShedException(false);
+            }
+        }
+
+        try {
+            return permit.get(this.maxQueueWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException te) {
+            if (dequeue(permit)) {
+                throw newShedException(true);
+            }
+        } catch (InterruptedException ie) {
+            if (!dequeue(permit)) {
+                release();
+            }
+            Thread.currentThread().interrupt();
+            throw new CloudSearchRuntimeException("Interrupted while waiting for the concurrency limiter", ie);
+        } catch (ExecutionException ee) {
+            throw new CloudSearchRuntimeException(ee.getCause().getMessage(), ee.getCause());
+        }
+
+        // The place was handed over while timing out
+        try {
+            return Uninterruptibles.getUninterruptibly(permit);
+        } catch (ExecutionException ee) {
+            throw new CloudSearchRuntimeException(ee.getCause().getMessage(), ee.getCause());
+        }
+    }
+
+    /**
+     * Take the waiting request out of the queue
+     *
+     * @return false if it was already handed a place
+     */
+    private synchronized boolean dequeue(SettableFuture<Integer> permit) {
+        return this.queue.remove(permit);
+    }
+
+    private void complete(long start, int inFlightAtStart, Throwable t) {
+        long rtt = this.ticker.read() - start;
+        if (t == null) {
+            this.limit.onSample(rtt, inFlightAtStart, false);
+        } else if (!(t instanceof CancellationException) && CircuitBreaker.isEndpointFailure(t)) {
+            this.limit.onSample(rtt, inFlightAtStart, true);
+        }
+
+        release();
+    }
+
+    /**
+     * Give up a place in flight, handing the free places to the requests waiting in the queue
+     */
+    private void release() {
+        List<SettableFuture<Integer>> granted = Lists.newArrayList();
+        int inFlightNow;
+        synchronized (this) {
+            this.inFlight--;
+            while (!this.queue.isEmpty() && this.inFlight < this.limit.getLimit()) {
+                granted.add(this.queue.pollFirst());
+                this.inFlight++;
+            }
+            inFlightNow = this.inFlight;
+        }
+
+        for (SettableFuture<Integer> permit : granted) {
+            permit.set(inFlightNow);
+        }
+    }
+
+    private synchronized CloudSearchLoadShedException newShedException(boolean queued) {
+        this.shedCount++;
+        return new CloudSearchLoadShedException(this.limit.getLimit(), queued);
+    }
+
+    /**
+     * String representation of the ConcurrencyLimiter object
+     *
+     * @return String representation of the ConcurrencyLimiter object
+     */
+    @Override
+    public synchronized String toString() {
+        return Objects.toStringHelper(this)
+                      .add("limit", this.limit)
+                      .add("inFlight", this.inFlight)
+                      .add("queued", this.queue.size())
+                      .add("shedCount", this.shedCount)
+                      .toString();
+    }
+}
@@ -0,0 +1,132 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.limit;
+
+import com.google.common.base.Objects;
+
+/**
+ * Adjusts the limit by the gradient between the long term average response time and the latest one. While responses
+ * are as fast as usual the gradient is 1 and the limit grows by its square root, leaving room for a queue of requests;
+ * as responses slow down the gradient falls towards one half and the limit shrinks with it. The long term average
+ * follows the latest response times when they stay much faster, so a domain that has scaled up is not held to its old
+ * response times.
+ *
+ * @author jmonette
+ */
+public class GradientConcurrencyLimit implements ConcurrencyLimit {
+
+    public static final double DEFAULT_TOLERANCE = 1.5;
+    public static final int DEFAULT_LONG_WINDOW = 600;
+    public static final double DEFAULT_SMOOTHING = 0.2;
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double DROP_FACTOR = 0.9;
+    private static final double SHORT_ALPHA = 0.5;
+    private static final double DRIFT_RATIO = 2.0;
+    private static final double DRIFT_DECAY = 0.95;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double longAlpha;
+    private final double smoothing;
+
+    private double limit;
+    private double longRtt;
+    private double shortRtt;
+
+    /**
+     * Creates a limit with the default tolerance, long term window and smoothing
+     *
+     * @param initialLimit the limit before any response was seen
+     * @param minLimit the smallest limit
+     * @param maxLimit the largest limit
+     */
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_TOLERANCE, DEFAULT_LONG_WINDOW, DEFAULT_SMOOTHING);
+    }
+
+    /**
+     * Creates a limit
+     *
+     * @param initialLimit the limit before any response was seen
+     * @param minLimit the smallest limit
+     * @param maxLimit the largest limit
+     * @param tolerance how many times slower than the long term average responses may get before the limit shrinks
+     * @param longWindow the number of responses the long term average is taken over
+     * @param smoothing the weight, between 0 and 1, of each new estimate of the limit
+     */
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, int longWindow, double smoothing) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tolerance = tolerance;
+        this.longAlpha = 2.0 / (longWindow + 1);
+        this.smoothing = smoothing;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            this.limit = Math.max(this.minLimit, this.limit * DROP_FACTOR);
+            return;
+        }
+
+        if (this.longRtt == 0) {
+            this.longRtt = rttNanos;
+            this.shortRtt = rttNanos;
+            return;
+        }
+
+        this.shortRtt += SHORT_ALPHA * (rttNanos - this.shortRtt);
+        this.longRtt += this.longAlpha * (rttNanos - this.longRtt);
+        if (this.longRtt / this.shortRtt > DRIFT_RATIO) {
+            this.longRtt *= DRIFT_DECAY;
+        }
+
+        // Not enough requests to tell whether more would be too many
+        if (inFlight < this.limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, this.tolerance * this.longRtt / this.shortRtt));
+        double newLimit = this.limit * gradient + Math.sqrt(this.limit);
+        this.limit = this.limit * (1 - this.smoothing) + newLimit * this.smoothing;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, this.limit));
+    }
+
+    /**
+     * String representation of the GradientConcurrencyLimit object
+     *
+     * @return String representation of the GradientConcurrencyLimit object
+     */
+    @Override
+    public synchronized String toString() {
+        return Objects.toStringHelper(this)
+                      .add("limit", (int) this.limit)
+                      .add("minLimit", this.minLimit)
+                      .add("maxLimit", this.maxLimit)
+                      .add("longRtt", (long) this.longRtt)
+                      .add("shortRtt", (long) this.shortRtt)
+                      .toString();
+    }
+}
@@ -0,0 +1,130 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.limit;
+
+import com.google.common.base.Objects;
+
+/**
+ * Adjusts the limit the way TCP Vegas adjusts its window. The fastest response time seen is taken as the time of a
+ * request that did not queue, and the limit times the share of the latest response time above it as the number of
+ * requests queued at the endpoint. The limit grows while few requests are queued, shrinks when many are or a request is
+ * dropped, and is left alone in between. The fastest response time is forgotten every so often so it is measured again
+ * after the domain changes.
+ *
+ * @author jmonette
+ */
+public class VegasConcurrencyLimit implements ConcurrencyLimit {
+
+    public static final int DEFAULT_ALPHA = 3;
+    public static final int DEFAULT_BETA = 6;
+    public static final int DEFAULT_PROBE_MULTIPLIER = 30;
+
+    private static final double DROP_FACTOR = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int alpha;
+    private final int beta;
+    private final int probeMultiplier;
+
+    private double limit;
+    private long noLoadRtt;
+    private long samplesUntilProbe;
+
+    /**
+     * Creates a limit with the default queue thresholds and probe interval
+     *
+     * @param initialLimit the limit before any response was seen
+     * @param minLimit the smallest limit
+     * @param maxLimit the largest limit
+     */
+    public VegasConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_ALPHA, DEFAULT_BETA, DEFAULT_PROBE_MULTIPLIER);
+    }
+
+    /**
+     * Creates a limit. The queue thresholds are multiplied by the log of the limit, so larger limits tolerate longer
+     * queues.
+     *
+     * @param initialLimit the limit before any response was seen
+     * @param minLimit the smallest limit
+     * @param maxLimit the largest limit
+     * @param alpha the queued requests below which the limit grows
+     * @param beta the queued requests above which the limit shrinks
+     * @param probeMultiplier the fastest response time is measured again every this many times the limit responses
+     */
+    public VegasConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, int alpha, int beta, int probeMultiplier) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.alpha = alpha;
+        this.beta = beta;
+        this.probeMultiplier = probeMultiplier;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.samplesUntilProbe = nextProbe();
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    @Override
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (--this.samplesUntilProbe <= 0) {
+            this.noLoadRtt = 0;
+            this.samplesUntilProbe = nextProbe();
+        }
+
+        if (dropped) {
+            this.limit = Math.max(this.minLimit, this.limit * DROP_FACTOR);
+            return;
+        }
+
+        if (this.noLoadRtt == 0 || rttNanos < this.noLoadRtt) {
+            this.noLoadRtt = rttNanos;
+            return;
+        }
+
+        double log = Math.max(1.0, Math.log10(this.limit));
+        double queued = this.limit * (1 - (double) this.noLoadRtt / rttNanos);
+
+        if (queued > this.beta * log) {
+            this.limit = Math.max(this.minLimit, this.limit - log);
+        } else if (queued < this.alpha * log && inFlight * 2 >= this.limit) {
+            this.limit = Math.min(this.maxLimit, this.limit + log);
+        }
+    }
+
+    private long nextProbe() {
+        return (long) (this.probeMultiplier * this.limit);
+    }
+
+    /**
+     * String representation of the VegasConcurrencyLimit object
+     *
+     * @return String representation of the VegasConcurrencyLimit object
+     */
+    @Override
+    public synchronized String toString() {
+        return Objects.toStringHelper(this)
+                      .add("limit", (int) this.limit)
+                      .add("minLimit", this.minLimit)
+                      .add("maxLimit", this.maxLimit)
+                      .add("noLoadRtt", this.noLoadRtt)
+                      .toString();
+    }
+}
@@ -0,0 +1,83 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.model.search.SearchTiming;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+
+import java.util.List;
+
+/**
+ * Passes the metrics on to several recorders, such as an InMemoryMetricsRecorder and a FlightRecorderMetricsRecorder
+ *
+ * @author jmonette
+ */
+public class CompositeMetricsRecorder implements MetricsRecorder {
+
+    private final List<MetricsRecorder> metricsRecorders;
+
+    public CompositeMetricsRecorder(MetricsRecorder... metricsRecorders) {
+        this.metricsRecorders = ImmutableList.copyOf(metricsRecorders);
+    }
+
+    @Override
+    public Object onRequestStarted(CloudSearchOperation operation, String endpoint) {
+        Object[] contexts = new Object[this.metricsRecorders.size()];
+        for (int i = 0; i < contexts.length; i++) {
+            contexts[i] = this.metricsRecorders.get(i).onRequestStarted(operation, endpoint);
+        }
+        return contexts;
+    }
+
+    @Override
+    public void onRequestCompleted(CloudSearchOperation operation, String endpoint, long latencyNanos, int status, long requestBytes,
+                                   long responseBytes, Object context) {
+        Object[] contexts = (Object[]) context;
+        for (int i = 0; i < contexts.length; i++) {
+            this.metricsRecorders.get(i).onRequestCompleted(operation, endpoint, latencyNanos, status, requestBytes, responseBytes, contexts[i]);
+        }
+    }
+
+    @Override
+    public void onSearchTiming(SearchTiming timing) {
+        for (MetricsRecorder metricsRecorder : this.metricsRecorders) {
+            metricsRecorder.onSearchTiming(timing);
+        }
+    }
+
+    @Override
+    public void onUploadResponse(String endpoint, UploadResponse uploadResponse, long latencyNanos) {
+        for (MetricsRecorder metricsRecorder : this.metricsRecorders) {
+            metricsRecorder.onUploadResponse(endpoint, uploadResponse, latencyNanos);
+        }
+    }
+
+    /**
+     * String representation of the CompositeMetricsRecorder object
+     *
+     * @return String representation of the CompositeMetricsRecorder object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("metricsRecorders", this.metricsRecorders)
+                      .toString();
+    }
+}
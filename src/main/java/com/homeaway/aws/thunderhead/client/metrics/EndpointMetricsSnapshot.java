@@ -0,0 +1,152 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.google.common.base.Objects;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.model.enums.SearchTimingPhase;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The metrics of one operation on one endpoint at one point in time
+ *
+ * @author jmonette
+ */
+public class EndpointMetricsSnapshot {
+
+    private final CloudSearchOperation operation;
+    private final String endpoint;
+    private final HistogramSnapshot latency;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final int inFlight;
+    private final Map<Integer, Long> statusCounts;
+    private final Map<SearchTimingPhase, HistogramSnapshot> phases;
+    private final long documentsAdded;
+    private final long documentsDeleted;
+
+    EndpointMetricsSnapshot(CloudSearchOperation operation, String endpoint, HistogramSnapshot latency, long requestBytes, long responseBytes,
+                            int inFlight, Map<Integer, Long> statusCounts, Map<SearchTimingPhase, HistogramSnapshot> phases,
+                            long documentsAdded, long documentsDeleted) {
+        this.operation = operation;
+        this.endpoint = endpoint;
+        this.latency = latency;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        this.inFlight = inFlight;
+        this.statusCounts = Collections.unmodifiableMap(statusCounts);
+        this.phases = Collections.unmodifiableMap(phases);
+        this.documentsAdded = documentsAdded;
+        this.documentsDeleted = documentsDeleted;
+    }
+
+    public CloudSearchOperation getOperation() {
+        return this.operation;
+    }
+
+    public String getEndpoint() {
+        return this.endpoint;
+    }
+
+    public HistogramSnapshot getLatency() {
+        return this.latency;
+    }
+
+    public long getRequestBytes() {
+        return this.requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return this.responseBytes;
+    }
+
+    public int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * The number of documents cloudsearch reported added by the batches uploaded to the endpoint
+     *
+     * @return the number of documents added
+     */
+    public long getDocumentsAdded() {
+        return this.documentsAdded;
+    }
+
+    /**
+     * The number of documents cloudsearch reported deleted by the batches uploaded to the endpoint
+     *
+     * @return the number of documents deleted
+     */
+    public long getDocumentsDeleted() {
+        return this.documentsDeleted;
+    }
+
+    /**
+     * The number of responses of each http status, with 0 counting the requests that got no response
+     *
+     * @return the response counts by status
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        return this.statusCounts;
+    }
+
+    /**
+     * The number of responses of the given http status
+     *
+     * @param status the http status, or 0 for the requests that got no response
+     * @return the number of responses
+     */
+    public long getStatusCount(int status) {
+        Long count = this.statusCounts.get(status);
+        return (count == null ? 0L : count);
+    }
+
+    /**
+     * The latencies of one timing phase of the queries sent to the endpoint
+     *
+     * @param phase the timing phase
+     * @return the latency histogram of the phase, empty for updates
+     */
+    public HistogramSnapshot getPhaseLatency(SearchTimingPhase phase) {
+        HistogramSnapshot latency = this.phases.get(phase);
+        return (latency == null ? HistogramSnapshot.empty() : latency);
+    }
+
+    /**
+     * String representation of the EndpointMetricsSnapshot object
+     *
+     * @return String representation of the EndpointMetricsSnapshot object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("operation", this.operation.getName())
+                      .add("endpoint", this.endpoint)
+                      .add("latency", this.latency)
+                      .add("requestBytes", this.requestBytes)
+                      .add("responseBytes", this.responseBytes)
+                      .add("inFlight", this.inFlight)
+                      .add("statusCounts", this.statusCounts)
+                      .add("phases", this.phases)
+                      .add("documentsAdded", this.documentsAdded)
+                      .add("documentsDeleted", this.documentsDeleted)
+                      .toString();
+    }
+}
@@ -0,0 +1,391 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.model.search.SearchTiming;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emits JDK Flight Recorder events for the requests, queries and uploads of the client, so slow requests can be matched
+ * with the GC, lock and socket events of the same recording. Three events are defined under the Thunderhead category:
+ * <ul>
+ *     <li>thunderhead.Request, for every http request: operation, endpoint, status, request and response bytes, latency</li>
+ *     <li>thunderhead.Query, for every query answered: endpoint, rid and the time of each phase of its SearchTiming</li>
+ *     <li>thunderhead.Upload, for every SDF batch accepted: endpoint, status, documents added and deleted, errors, latency</li>
+ * </ul>
+ *
+ * A thunderhead.Request event begins when its request is sent and ends when its response has been read, so it spans the
+ * request on the recording's timeline and the threshold setting of the recording applies to it. The query and upload
+ * events are emitted once the response has been parsed and carry the time of the request in their fields; they line up
+ * with the request event that ends just before them.
+ *
+ * The client is built for Java 6, so the events are defined at runtime through jdk.jfr.EventFactory by reflection. On a
+ * JVM without the Flight Recorder, or while no recording is running, every method returns after reading a volatile
+ * flag. Requests faster than the threshold of their operation emit no event.
+ *
+ * @author jmonette
+ */
+public class FlightRecorderMetricsRecorder implements MetricsRecorder {
+
+    private static final String CATEGORY = "Thunderhead";
+
+    private static final EventType REQUEST = EventType.create("thunderhead.Request", "CloudSearch Request",
+                                                              "An http request sent to cloudsearch",
+                                                              field(String.class, "operation", "Operation", null),
+                                                              field(String.class, "endpoint", "Endpoint", null),
+                                                              field(int.class, "status", "Status", null),
+                                                              field(long.class, "requestBytes", "Request Bytes", "jdk.jfr.DataAmount"),
+                                                              field(long.class, "responseBytes", "Response Bytes", "jdk.jfr.DataAmount"),
+                                                              field(long.class, "latency", "Latency", "jdk.jfr.Timespan"));
+
+    private static final EventType QUERY = EventType.create("thunderhead.Query", "CloudSearch Query",
+                                                            "A query answered by cloudsearch, with where its time went",
+                                                            field(String.class, "endpoint", "Endpoint", null),
+                                                            field(String.class, "rid", "Request Id", null),
+                                                            field(boolean.class, "connectionReused", "Connection Reused", null),
+                                                            field(long.class, "connect", "Connect", "jdk.jfr.Timespan"),
+                                                            field(long.class, "firstByte", "First Byte", "jdk.jfr.Timespan"),
+                                                            field(long.class, "bodyRead", "Body Read", "jdk.jfr.Timespan"),
+                                                            field(long.class, "parse", "Parse", "jdk.jfr.Timespan"),
+                                                            field(long.class, "serverTime", "Server Time", "jdk.jfr.Timespan"),
+                                                            field(long.class, "serverCpuTime", "Server CPU Time", "jdk.jfr.Timespan"),
+                                                            field(long.class, "total", "Total", "jdk.jfr.Timespan"));
+
+    private static final EventType UPLOAD = EventType.create("thunderhead.Upload", "CloudSearch Upload",
+                                                             "An SDF batch accepted by cloudsearch",
+                                                             field(String.class, "endpoint", "Endpoint", null),
+                                                             field(String.class, "status", "Status", null),
+                                                             field(int.class, "adds", "Documents Added", null),
+                                                             field(int.class, "deletes", "Documents Deleted", null),
+                                                             field(int.class, "errors", "Errors", null),
+                                                             field(long.class, "latency", "Latency", "jdk.jfr.Timespan"));
+
+    private static volatile boolean recording = false;
+
+    static {
+        if (REQUEST != null && QUERY != null && UPLOAD != null) {
+            listenForRecordings();
+        }
+    }
+
+    private final long queryThresholdNanos;
+    private final long updateThresholdNanos;
+
+    /**
+     * Creates a recorder emitting events for every request
+     */
+    public FlightRecorderMetricsRecorder() {
+        this(0L, 0L);
+    }
+
+    /**
+     * Creates a recorder
+     *
+     * @param queryThreshold the time in milliseconds from which queries emit events
+     * @param updateThreshold the time in milliseconds from which SDF batch uploads emit events
+     */
+    public FlightRecorderMetricsRecorder(long queryThreshold, long updateThreshold) {
+        this.queryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(queryThreshold);
+        this.updateThresholdNanos = TimeUnit.MILLISECONDS.toNanos(updateThreshold);
+    }
+
+    /**
+     * Whether the JVM has a Flight Recorder the events can be emitted to
+     *
+     * @return true if the events are defined
+     */
+    public static boolean isAvailable() {
+        return REQUEST != null && QUERY != null && UPLOAD != null;
+    }
+
+    /**
+     * Whether a Flight Recorder recording is running, so events are emitted
+     *
+     * @return true if events are emitted
+     */
+    public static boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Begins the request event, if a recording is running
+     *
+     * @return the event of the request, or null if no recording is running
+     */
+    @Override
+    public Object onRequestStarted(CloudSearchOperation operation, String endpoint) {
+        if (!recording) {
+            return null;
+        }
+
+        return REQUEST.begin();
+    }
+
+    /**
+     * Ends and commits the event the request began with, unless the request was faster than the threshold
+     */
+    @Override
+    public void onRequestCompleted(CloudSearchOperation operation, String endpoint, long latencyNanos, int status, long requestBytes,
+                                   long responseBytes, Object context) {
+        long thresholdNanos = (operation == CloudSearchOperation.QUERY ? this.queryThresholdNanos : this.updateThresholdNanos);
+        if (context == null || latencyNanos < thresholdNanos) {
+            return;
+        }
+
+        REQUEST.end(context, operation.getName(), endpoint, status, requestBytes, responseBytes, latencyNanos);
+    }
+
+    @Override
+    public void onSearchTiming(SearchTiming timing) {
+        if (!recording || timing.getTotalNanos() < this.queryThresholdNanos) {
+            return;
+        }
+
+        QUERY.commit(timing.getEndpoint(), timing.getRid(), timing.isConnectionReused(), timing.getConnectNanos(), timing.getFirstByteNanos(),
+                     timing.getBodyReadNanos(), timing.getParseNanos(), toTimespan(timing.getServerTimeMs()),
+                     toTimespan(timing.getServerCpuTimeMs()), timing.getTotalNanos());
+    }
+
+    @Override
+    public void onUploadResponse(String endpoint, UploadResponse uploadResponse, long latencyNanos) {
+        if (!recording || latencyNanos < this.updateThresholdNanos) {
+            return;
+        }
+
+        UPLOAD.commit(endpoint, uploadResponse.getStatus(), uploadResponse.getAdds(), uploadResponse.getDeletes(),
+                      (uploadResponse.getErrors() == null ? 0 : uploadResponse.getErrors().size()), latencyNanos);
+    }
+
+    /**
+     * A server time in nanoseconds, or Long.MIN_VALUE, which the Flight Recorder shows as N/A, if it was not reported
+     */
+    private static long toTimespan(Long millis) {
+        return (millis == null ? Long.MIN_VALUE : TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * String representation of the FlightRecorderMetricsRecorder object
+     *
+     * @return String representation of the FlightRecorderMetricsRecorder object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("available", isAvailable())
+                      .add("recording", recording)
+                      .add("queryThresholdNanos", this.queryThresholdNanos)
+                      .add("updateThresholdNanos", this.updateThresholdNanos)
+                      .toString();
+    }
+
+    private static Field field(Class<?> type, String name, String label, String unitAnnotation) {
+        return new Field(type, name, label, unitAnnotation);
+    }
+
+    /**
+     * Keeps the recording flag up to date through a jdk.jfr.FlightRecorderListener
+     */
+    private static void listenForRecordings() {
+        try {
+            Class<?> flightRecorder = Class.forName("jdk.jfr.FlightRecorder");
+            Class<?> listenerType = Class.forName("jdk.jfr.FlightRecorderListener");
+            Method getFlightRecorder = flightRecorder.getMethod("getFlightRecorder");
+            Method getRecordings = flightRecorder.getMethod("getRecordings");
+            Method getState = Class.forName("jdk.jfr.Recording").getMethod("getState");
+
+            Object listener = Proxy.newProxyInstance(FlightRecorderMetricsRecorder.class.getClassLoader(), new Class<?>[] {listenerType},
+                                                     new RecordingListener(getFlightRecorder, getRecordings, getState));
+            flightRecorder.getMethod("addListener", listenerType).invoke(null, listener);
+        } catch (Exception e) {
+            CloudSearchClient.LOGGER.warn("Unable to listen for Flight Recorder recordings, no events will be emitted", e);
+        }
+    }
+
+    /**
+     * Sets the recording flag to whether any recording is running whenever the state of a recording changes
+     */
+    private static class RecordingListener implements InvocationHandler {
+        private final Method getFlightRecorder;
+        private final Method getRecordings;
+        private final Method getState;
+
+        RecordingListener(Method getFlightRecorder, Method getRecordings, Method getState) {
+            this.getFlightRecorder = getFlightRecorder;
+            this.getRecordings = getRecordings;
+            this.getState = getState;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            } else if ("toString".equals(method.getName())) {
+                return "thunderhead-recording-listener";
+            }
+
+            boolean running = false;
+            for (Object recording : (List<?>) this.getRecordings.invoke(this.getFlightRecorder.invoke(null))) {
+                running |= "RUNNING".equals(String.valueOf(this.getState.invoke(recording)));
+            }
+            FlightRecorderMetricsRecorder.recording = running;
+            return null;
+        }
+    }
+
+    /**
+     * A field of an event type
+     */
+    private static class Field {
+        private final Class<?> type;
+        private final String name;
+        private final String label;
+        private final String unitAnnotation;
+
+        Field(Class<?> type, String name, String label, String unitAnnotation) {
+            this.type = type;
+            this.name = name;
+            this.label = label;
+            this.unitAnnotation = unitAnnotation;
+        }
+    }
+
+    /**
+     * An event type defined through jdk.jfr.EventFactory
+     */
+    private static class EventType {
+        private final Object eventFactory;
+        private final Method newEvent;
+        private final Method begin;
+        private final Method end;
+        private final Method set;
+        private final Method commit;
+
+        private EventType(Object eventFactory, Method newEvent, Method begin, Method end, Method set, Method commit) {
+            this.eventFactory = eventFactory;
+            this.newEvent = newEvent;
+            this.begin = begin;
+            this.end = end;
+            this.set = set;
+            this.commit = commit;
+        }
+
+        /**
+         * Define an event type
+         *
+         * @return the event type, or null if the JVM has no Flight Recorder
+         */
+        static EventType create(String name, String label, String description, Field... fields) {
+            try {
+                Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+                Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+                Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+                Constructor<?> newAnnotation = annotationElement.getConstructor(Class.class, Object.class);
+                Constructor<?> newValueDescriptor = valueDescriptor.getConstructor(Class.class, String.class, List.class);
+
+                List<Object> annotations = Lists.newArrayList();
+                annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Name"), name));
+                annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Label"), label));
+                annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Description"), description));
+                annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Category"), new String[] {CATEGORY}));
+                annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.StackTrace"), Boolean.FALSE));
+
+                List<Object> valueDescriptors = Lists.newArrayList();
+                for (Field field : fields) {
+                    List<Object> fieldAnnotations = Lists.newArrayList();
+                    fieldAnnotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Label"), field.label));
+                    if ("jdk.jfr.Timespan".equals(field.unitAnnotation)) {
+                        fieldAnnotations.add(newAnnotation.newInstance(annotation(field.unitAnnotation), "NANOSECONDS"));
+                    } else if ("jdk.jfr.DataAmount".equals(field.unitAnnotation)) {
+                        fieldAnnotations.add(newAnnotation.newInstance(annotation(field.unitAnnotation), "BYTES"));
+                    }
+                    valueDescriptors.add(newValueDescriptor.newInstance(field.type, field.name, fieldAnnotations));
+                }
+
+                Object factory = eventFactory.getMethod("create", List.class, List.class).invoke(null, annotations, valueDescriptors);
+                Class<?> event = Class.forName("jdk.jfr.Event");
+                return new EventType(factory, eventFactory.getMethod("newEvent"), event.getMethod("begin"), event.getMethod("end"),
+                                     event.getMethod("set", int.class, Object.class), event.getMethod("commit"));
+            } catch (ClassNotFoundException cnfe) {
+                return null;
+            } catch (Exception e) {
+                CloudSearchClient.LOGGER.warn("Unable to define the Flight Recorder event " + name, e);
+                return null;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<? extends Annotation> annotation(String name) throws ClassNotFoundException {
+            return (Class<? extends Annotation>) Class.forName(name);
+        }
+
+        /**
+         * Create an event of this type and begin its timing
+         *
+         * @return the event, or null if it could not be created
+         */
+        Object begin() {
+            try {
+                Object event = this.newEvent.invoke(this.eventFactory);
+                this.begin.invoke(event);
+                return event;
+            } catch (Exception e) {
+                CloudSearchClient.LOGGER.debug("Unable to begin a Flight Recorder event", e);
+                return null;
+            }
+        }
+
+        /**
+         * Emit an event of this type that ends as it is emitted
+         */
+        void commit(Object... values) {
+            try {
+                end(this.newEvent.invoke(this.eventFactory), values);
+            } catch (Exception e) {
+                CloudSearchClient.LOGGER.debug("Unable to emit a Flight Recorder event", e);
+            }
+        }
+
+        /**
+         * End an event returned by begin and emit it with the values of its fields
+         */
+        void end(Object event, Object... values) {
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    this.set.invoke(event, i, values[i]);
+                }
+                this.end.invoke(event);
+                this.commit.invoke(event);
+            } catch (Exception e) {
+                CloudSearchClient.LOGGER.debug("Unable to emit a Flight Recorder event", e);
+            }
+        }
+    }
+}
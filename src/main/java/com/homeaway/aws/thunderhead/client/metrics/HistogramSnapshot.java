@@ -0,0 +1,156 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.google.common.base.Objects;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The counts of a LatencyHistogram at one point in time. All values are in nanoseconds.
+ *
+ * @author jmonette
+ */
+public class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long min, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * An empty snapshot, to merge others into
+     *
+     * @return a snapshot of no latencies
+     */
+    public static HistogramSnapshot empty() {
+        return new HistogramSnapshot(new long[LatencyHistogram.BUCKET_COUNT], 0L, 0L, 0L, 0L);
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public long getMin() {
+        return this.min;
+    }
+
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * The mean latency
+     *
+     * @return the mean latency, or 0 if there are none
+     */
+    public double getMean() {
+        return (this.count == 0 ? 0.0 : (double) this.sum / this.count);
+    }
+
+    /**
+     * The latency at or under which the given share of the latencies fall, to within 1.6%
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency at the percentile, or 0 if there are none
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0L;
+        for (long bucketCount : this.counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0L;
+        }
+
+        long rank = Math.max(1L, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * total));
+        long seen = 0L;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValueAt(i), this.max);
+            }
+        }
+
+        return this.max;
+    }
+
+    public long getP50() {
+        return getValueAtPercentile(50.0);
+    }
+
+    public long getP99() {
+        return getValueAtPercentile(99.0);
+    }
+
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    /**
+     * Combine this snapshot with another, such as the snapshots of the same operation on different endpoints
+     *
+     * @param other the snapshot to combine with
+     * @return a snapshot of the latencies of both
+     */
+    public HistogramSnapshot merge(HistogramSnapshot other) {
+        long[] merged = new long[this.counts.length];
+        for (int i = 0; i < merged.length; i++) {
+            merged[i] = this.counts[i] + other.counts[i];
+        }
+
+        long mergedMin;
+        if (this.count == 0) {
+            mergedMin = other.min;
+        } else if (other.count == 0) {
+            mergedMin = this.min;
+        } else {
+            mergedMin = Math.min(this.min, other.min);
+        }
+
+        return new HistogramSnapshot(merged, this.count + other.count, this.sum + other.sum, mergedMin, Math.max(this.max, other.max));
+    }
+
+    /**
+     * String representation of the HistogramSnapshot object, in milliseconds
+     *
+     * @return String representation of the HistogramSnapshot object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("count", this.count)
+                      .add("p50", toMillis(getP50()))
+                      .add("p99", toMillis(getP99()))
+                      .add("p999", toMillis(getP999()))
+                      .add("max", toMillis(this.max))
+                      .toString();
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
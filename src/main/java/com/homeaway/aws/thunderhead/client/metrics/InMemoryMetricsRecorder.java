@@ -0,0 +1,167 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.model.enums.SearchTimingPhase;
+import com.homeaway.aws.thunderhead.model.search.SearchTiming;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the metrics of each operation on each endpoint in memory: a latency histogram, the bytes sent and received, the
+ * count of each response status, the requests in flight, and a latency histogram of each timing phase for queries or
+ * the documents added and deleted for uploads. A snapshot of them can be taken at any time, to log or publish them.
+ *
+ * @author jmonette
+ */
+public class InMemoryMetricsRecorder implements MetricsRecorder {
+
+    private final ConcurrentMap<String, EndpointMetrics> metrics = Maps.newConcurrentMap();
+
+    @Override
+    public Object onRequestStarted(CloudSearchOperation operation, String endpoint) {
+        metricsFor(operation, endpoint).inFlight.incrementAndGet();
+        return null;
+    }
+
+    @Override
+    public void onRequestCompleted(CloudSearchOperation operation, String endpoint, long latencyNanos, int status, long requestBytes,
+                                   long responseBytes, Object context) {
+        EndpointMetrics endpointMetrics = metricsFor(operation, endpoint);
+        endpointMetrics.inFlight.decrementAndGet();
+        endpointMetrics.latency.record(latencyNanos);
+        endpointMetrics.requestBytes.addAndGet(requestBytes);
+        endpointMetrics.responseBytes.addAndGet(responseBytes);
+
+        AtomicLong statusCount = endpointMetrics.statusCounts.get(status);
+        if (statusCount == null) {
+            AtomicLong newStatusCount = new AtomicLong();
+            statusCount = endpointMetrics.statusCounts.putIfAbsent(status, newStatusCount);
+            if (statusCount == null) {
+                statusCount = newStatusCount;
+            }
+        }
+        statusCount.incrementAndGet();
+    }
+
+    @Override
+    public void onSearchTiming(SearchTiming timing) {
+        EndpointMetrics endpointMetrics = metricsFor(CloudSearchOperation.QUERY, timing.getEndpoint());
+        for (Map.Entry<SearchTimingPhase, LatencyHistogram> entry : endpointMetrics.phases.entrySet()) {
+            long nanos = timing.getNanos(entry.getKey());
+            if (nanos >= 0) {
+                entry.getValue().record(nanos);
+            }
+        }
+    }
+
+    @Override
+    public void onUploadResponse(String endpoint, UploadResponse uploadResponse, long latencyNanos) {
+        EndpointMetrics endpointMetrics = metricsFor(CloudSearchOperation.UPDATE, endpoint);
+        endpointMetrics.documentsAdded.addAndGet(uploadResponse.getAdds());
+        endpointMetrics.documentsDeleted.addAndGet(uploadResponse.getDeletes());
+    }
+
+    /**
+     * Copy the metrics recorded so far
+     *
+     * @return a snapshot of the metrics
+     */
+    public MetricsSnapshot snapshot() {
+        List<EndpointMetricsSnapshot> snapshots = Lists.newArrayList();
+        for (EndpointMetrics endpointMetrics : this.metrics.values()) {
+            Map<Integer, Long> statusCounts = Maps.newTreeMap();
+            for (Map.Entry<Integer, AtomicLong> entry : endpointMetrics.statusCounts.entrySet()) {
+                statusCounts.put(entry.getKey(), entry.getValue().get());
+            }
+
+            Map<SearchTimingPhase, HistogramSnapshot> phases = new EnumMap<SearchTimingPhase, HistogramSnapshot>(SearchTimingPhase.class);
+            for (Map.Entry<SearchTimingPhase, LatencyHistogram> entry : endpointMetrics.phases.entrySet()) {
+                phases.put(entry.getKey(), entry.getValue().snapshot());
+            }
+
+            snapshots.add(new EndpointMetricsSnapshot(endpointMetrics.operation, endpointMetrics.endpoint, endpointMetrics.latency.snapshot(),
+                                                      endpointMetrics.requestBytes.get(), endpointMetrics.responseBytes.get(),
+                                                      endpointMetrics.inFlight.get(), statusCounts, phases,
+                                                      endpointMetrics.documentsAdded.get(), endpointMetrics.documentsDeleted.get()));
+        }
+
+        return new MetricsSnapshot(snapshots);
+    }
+
+    private EndpointMetrics metricsFor(CloudSearchOperation operation, String endpoint) {
+        String key = operation.getName() + " " + endpoint;
+        EndpointMetrics endpointMetrics = this.metrics.get(key);
+        if (endpointMetrics == null) {
+            EndpointMetrics newEndpointMetrics = new EndpointMetrics(operation, endpoint);
+            endpointMetrics = this.metrics.putIfAbsent(key, newEndpointMetrics);
+            if (endpointMetrics == null) {
+                endpointMetrics = newEndpointMetrics;
+            }
+        }
+
+        return endpointMetrics;
+    }
+
+    /**
+     * String representation of the InMemoryMetricsRecorder object
+     *
+     * @return String representation of the InMemoryMetricsRecorder object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("metrics", snapshot())
+                      .toString();
+    }
+
+    /**
+     * The metrics of one operation on one endpoint
+     */
+    private static class EndpointMetrics {
+        private final CloudSearchOperation operation;
+        private final String endpoint;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong requestBytes = new AtomicLong();
+        private final AtomicLong responseBytes = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong documentsAdded = new AtomicLong();
+        private final AtomicLong documentsDeleted = new AtomicLong();
+        private final ConcurrentMap<Integer, AtomicLong> statusCounts = Maps.newConcurrentMap();
+        private final Map<SearchTimingPhase, LatencyHistogram> phases = new EnumMap<SearchTimingPhase, LatencyHistogram>(SearchTimingPhase.class);
+
+        EndpointMetrics(CloudSearchOperation operation, String endpoint) {
+            this.operation = operation;
+            this.endpoint = endpoint;
+            if (operation == CloudSearchOperation.QUERY) {
+                for (SearchTimingPhase phase : SearchTimingPhase.values()) {
+                    this.phases.put(phase, new LatencyHistogram());
+                }
+            }
+        }
+    }
+}
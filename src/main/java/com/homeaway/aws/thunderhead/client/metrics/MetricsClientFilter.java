@@ -0,0 +1,201 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.google.common.base.Ticker;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.sun.jersey.api.client.AbstractClientRequestAdapter;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientRequestAdapter;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A jersey client filter passing the metrics of every request sent through the client to a MetricsRecorder. The bytes
+ * of the request entity are counted as they are written and those of the response entity as they are read. A request
+ * completes when its response is closed, which the CloudSearchClient does once it has read the response, or when it
+ * fails without a response, so its latency covers reading the whole response.
+ *
+ * @author jmonette
+ */
+public class MetricsClientFilter extends ClientFilter {
+
+    private final MetricsRecorder metricsRecorder;
+    private final CloudSearchOperation operation;
+    private final Ticker ticker;
+
+    /**
+     * Creates a filter
+     *
+     * @param metricsRecorder receives the metrics
+     * @param operation the operation of the requests sent through the client
+     */
+    public MetricsClientFilter(MetricsRecorder metricsRecorder, CloudSearchOperation operation) {
+        this(metricsRecorder, operation, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a filter
+     *
+     * @param metricsRecorder receives the metrics
+     * @param operation the operation of the requests sent through the client
+     * @param ticker the time source the latencies are measured with
+     */
+    public MetricsClientFilter(MetricsRecorder metricsRecorder, CloudSearchOperation operation, Ticker ticker) {
+        this.metricsRecorder = metricsRecorder;
+        this.operation = operation;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public ClientResponse handle(ClientRequest clientRequest) throws ClientHandlerException {
+        URI uri = clientRequest.getURI();
+        String endpoint = uri.getScheme() + "://" + uri.getRawAuthority();
+        RequestMetrics requestMetrics = new RequestMetrics(endpoint, uri.toASCIIString().length(),
+                                                           this.metricsRecorder.onRequestStarted(this.operation, endpoint));
+        clientRequest.setAdapter(new CountingAdapter(clientRequest.getAdapter(), requestMetrics));
+
+        ClientResponse clientResponse;
+        try {
+            clientResponse = getNext().handle(clientRequest);
+        } catch (RuntimeException re) {
+            requestMetrics.complete(0);
+            throw re;
+        }
+
+        if (clientResponse.getEntityInputStream() == null) {
+            requestMetrics.complete(clientResponse.getStatus());
+        } else {
+            clientResponse.setEntityInputStream(new CountingInputStream(clientResponse.getEntityInputStream(), requestMetrics,
+                                                                        clientResponse.getStatus()));
+        }
+
+        return clientResponse;
+    }
+
+    /**
+     * The metrics of one request, recorded once when it completes
+     */
+    private class RequestMetrics {
+        private final String endpoint;
+        private final Object context;
+        private final long start = ticker.read();
+        private final AtomicLong requestBytes;
+        private final AtomicLong responseBytes = new AtomicLong();
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        RequestMetrics(String endpoint, long uriBytes, Object context) {
+            this.endpoint = endpoint;
+            this.context = context;
+            this.requestBytes = new AtomicLong(uriBytes);
+        }
+
+        void complete(int status) {
+            if (this.completed.compareAndSet(false, true)) {
+                metricsRecorder.onRequestCompleted(operation, this.endpoint, ticker.read() - this.start, status, this.requestBytes.get(),
+                                                   this.responseBytes.get(), this.context);
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes of the request entity as they are written
+     */
+    private static class CountingAdapter extends AbstractClientRequestAdapter {
+        private final RequestMetrics requestMetrics;
+
+        CountingAdapter(ClientRequestAdapter adapter, RequestMetrics requestMetrics) {
+            super(adapter);
+            this.requestMetrics = requestMetrics;
+        }
+
+        @Override
+        public OutputStream adapt(ClientRequest clientRequest, OutputStream out) throws IOException {
+            return new FilterOutputStream(getAdapter().adapt(clientRequest, out)) {
+                @Override
+                public void write(int b) throws IOException {
+                    this.out.write(b);
+                    requestMetrics.requestBytes.incrementAndGet();
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    this.out.write(b, off, len);
+                    requestMetrics.requestBytes.addAndGet(len);
+                }
+            };
+        }
+    }
+
+    /**
+     * Counts the bytes of the response entity as they are read, and completes the request when it is closed
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        private final RequestMetrics requestMetrics;
+        private final int status;
+
+        CountingInputStream(InputStream in, RequestMetrics requestMetrics, int status) {
+            super(in);
+            this.requestMetrics = requestMetrics;
+            this.status = status;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                this.requestMetrics.responseBytes.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                this.requestMetrics.responseBytes.addAndGet(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            this.requestMetrics.responseBytes.addAndGet(skipped);
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                this.requestMetrics.complete(this.status);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.model.search.SearchTiming;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+
+/**
+ * Receives the metrics of every request sent to cloudsearch, to record them or pass them on to a metrics library.
+ * Implementations are called from the threads sending and reading requests, so they must be thread safe and fast.
+ *
+ * @author jmonette
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Called when a request is sent
+     *
+     * @param operation the operation of the request
+     * @param endpoint the endpoint the request is sent to, as scheme://host[:port]
+     * @return the state the recorder keeps for the request, handed back to onRequestCompleted, or null if it keeps none
+     */
+    Object onRequestStarted(CloudSearchOperation operation, String endpoint);
+
+    /**
+     * Called once when a request completes, either after its response was read or when it failed without one
+     *
+     * @param operation the operation of the request
+     * @param endpoint the endpoint the request was sent to, as scheme://host[:port]
+     * @param latencyNanos the time in nanoseconds from sending the request to reading the end of its response
+     * @param status the http status of the response, or 0 if there was no response
+     * @param requestBytes the bytes of the request uri and entity
+     * @param responseBytes the bytes of the response entity read
+     * @param context what onRequestStarted returned for the request
+     */
+    void onRequestCompleted(CloudSearchOperation operation, String endpoint, long latencyNanos, int status, long requestBytes, long responseBytes,
+                            Object context);
+
+    /**
+     * Called once a successful query response has been parsed, with where the time of the query went
+     *
+     * @param timing the timing of the query, including the endpoint it was sent to
+     */
+    void onSearchTiming(SearchTiming timing);
+
+    /**
+     * Called once a successful SDF batch upload response has been parsed
+     *
+     * @param endpoint the endpoint the batch was uploaded to, as scheme://host[:port]
+     * @param uploadResponse the response, with the number of documents added and deleted
+     * @param latencyNanos the time in nanoseconds from sending the batch to parsing the response
+     */
+    void onUploadResponse(String endpoint, UploadResponse uploadResponse, long latencyNanos);
+}
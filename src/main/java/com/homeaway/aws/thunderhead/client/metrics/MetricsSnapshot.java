@@ -0,0 +1,108 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.google.common.base.Objects;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.model.enums.SearchTimingPhase;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The metrics of every operation and endpoint recorded by an InMemoryMetricsRecorder at one point in time
+ *
+ * @author jmonette
+ */
+public class MetricsSnapshot {
+
+    private final List<EndpointMetricsSnapshot> endpointMetrics;
+
+    MetricsSnapshot(List<EndpointMetricsSnapshot> endpointMetrics) {
+        this.endpointMetrics = Collections.unmodifiableList(endpointMetrics);
+    }
+
+    /**
+     * The metrics of each operation on each endpoint
+     *
+     * @return the metrics by operation and endpoint
+     */
+    public List<EndpointMetricsSnapshot> getEndpointMetrics() {
+        return this.endpointMetrics;
+    }
+
+    /**
+     * The metrics of the operation on the endpoint
+     *
+     * @param operation the operation
+     * @param endpoint the endpoint, as scheme://host[:port]
+     * @return the metrics, or null if no request of the operation was sent to the endpoint
+     */
+    public EndpointMetricsSnapshot get(CloudSearchOperation operation, String endpoint) {
+        for (EndpointMetricsSnapshot snapshot : this.endpointMetrics) {
+            if (snapshot.getOperation() == operation && snapshot.getEndpoint().equals(endpoint)) {
+                return snapshot;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * The latencies of the operation across all endpoints
+     *
+     * @param operation the operation
+     * @return the latency histogram of the operation
+     */
+    public HistogramSnapshot getLatency(CloudSearchOperation operation) {
+        HistogramSnapshot latency = HistogramSnapshot.empty();
+        for (EndpointMetricsSnapshot snapshot : this.endpointMetrics) {
+            if (snapshot.getOperation() == operation) {
+                latency = latency.merge(snapshot.getLatency());
+            }
+        }
+
+        return latency;
+    }
+
+    /**
+     * The latencies of one timing phase of the queries across all endpoints
+     *
+     * @param phase the timing phase
+     * @return the latency histogram of the phase
+     */
+    public HistogramSnapshot getPhaseLatency(SearchTimingPhase phase) {
+        HistogramSnapshot latency = HistogramSnapshot.empty();
+        for (EndpointMetricsSnapshot snapshot : this.endpointMetrics) {
+            latency = latency.merge(snapshot.getPhaseLatency(phase));
+        }
+
+        return latency;
+    }
+
+    /**
+     * String representation of the MetricsSnapshot object
+     *
+     * @return String representation of the MetricsSnapshot object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("endpointMetrics", this.endpointMetrics)
+                      .toString();
+    }
+}
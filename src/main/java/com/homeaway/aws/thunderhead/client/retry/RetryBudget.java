@@ -0,0 +1,84 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.retry;
+
+import com.google.common.base.Objects;
+
+/**
+ * Limits the retries of one operation to a share of its requests. Every request adds a fraction of a retry to the
+ * budget, up to a reserve, and every retry spends a whole one. While Amazon is healthy the reserve stays full; when
+ * most requests fail the budget runs dry and failures are returned to the caller instead of multiplying the load.
+ *
+ * @author jmonette
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double reserve;
+    private double balance;
+
+    /**
+     * Creates a full budget
+     *
+     * @param ratio the retries earned for every request
+     * @param reserve the most retries that can be saved up
+     */
+    public RetryBudget(double ratio, int reserve) {
+        this.ratio = ratio;
+        this.reserve = reserve;
+        this.balance = reserve;
+    }
+
+    /**
+     * Earn the share of a retry for a request
+     */
+    public synchronized void deposit() {
+        this.balance = Math.min(this.reserve, this.balance + this.ratio);
+    }
+
+    /**
+     * Spend a retry if the budget has one
+     *
+     * @return true if the retry may go ahead
+     */
+    public synchronized boolean tryWithdraw() {
+        if (this.balance < 1.0) {
+            return false;
+        }
+
+        this.balance -= 1.0;
+        return true;
+    }
+
+    public synchronized double getBalance() {
+        return this.balance;
+    }
+
+    /**
+     * String representation of the RetryBudget object
+     *
+     * @return String representation of the RetryBudget object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("ratio", this.ratio)
+                      .add("reserve", this.reserve)
+                      .add("balance", getBalance())
+                      .toString();
+    }
+}
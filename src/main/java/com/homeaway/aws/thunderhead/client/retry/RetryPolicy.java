@@ -0,0 +1,173 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.retry;
+
+import com.google.common.base.Objects;
+import com.google.common.util.concurrent.RateLimiter;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchStatusCode;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Decides which failures are worth retrying and how long to wait before each retry. A failure is retryable if Amazon
+ * answered with one of the retryable status codes, or if the request failed with an I/O error before any answer came
+ * back. Retries wait a random time between zero and an exponentially growing cap ("full jitter"), so that callers that
+ * failed together do not retry together.
+ *
+ * Every Retryer created from the same policy shares its limit on the number of retries per second, so the limit holds
+ * across operations and across clients.
+ *
+ * @author jmonette
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Set<CloudSearchStatusCode> retryableStatusCodes;
+    private final boolean retryIoFailures;
+    private final boolean retryUpdates;
+    private final double budgetRatio;
+    private final int budgetReserve;
+    private final RateLimiter retryRateLimiter;
+
+    /**
+     * Creates a retry policy
+     *
+     * @param maxAttempts the most times an operation is attempted, including the first attempt
+     * @param baseDelayMillis the cap on the wait before the first retry, doubled for each retry after it
+     * @param maxDelayMillis the largest cap on the wait before a retry
+     * @param retryableStatusCodes the status codes that are retried
+     * @param retryIoFailures whether requests that failed with an I/O error are retried
+     * @param retryUpdates whether document uploads are retried as well as queries
+     * @param budgetRatio the retries each operation earns for every request it makes
+     * @param budgetReserve the most retries an operation can save up
+     * @param maxRetriesPerSecond the most retries per second across every operation using this policy, zero for no limit
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Set<CloudSearchStatusCode> retryableStatusCodes,
+                       boolean retryIoFailures, boolean retryUpdates, double budgetRatio, int budgetReserve, double maxRetriesPerSecond) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retryableStatusCodes = (retryableStatusCodes.isEmpty() ? Collections.<CloudSearchStatusCode>emptySet()
+                                                                    : Collections.unmodifiableSet(EnumSet.copyOf(retryableStatusCodes)));
+        this.retryIoFailures = retryIoFailures;
+        this.retryUpdates = retryUpdates;
+        this.budgetRatio = budgetRatio;
+        this.budgetReserve = budgetReserve;
+        this.retryRateLimiter = (maxRetriesPerSecond > 0 ? RateLimiter.create(maxRetriesPerSecond) : null);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Set<CloudSearchStatusCode> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    public boolean isRetryUpdates() {
+        return retryUpdates;
+    }
+
+    /**
+     * Create a new budget for one operation
+     *
+     * @return a full budget
+     */
+    public RetryBudget newBudget() {
+        return new RetryBudget(this.budgetRatio, this.budgetReserve);
+    }
+
+    /**
+     * Whether the failure is a transient one worth retrying
+     *
+     * @param t the failure
+     * @return true if the failure may succeed when retried
+     */
+    public boolean isRetryable(Throwable t) {
+        if (t instanceof CloudSearchClientException) {
+            Integer status = ((CloudSearchClientException) t).getCloudSearchStatusCode();
+            return status != null && this.retryableStatusCodes.contains(CloudSearchStatusCode.fromStatus(status));
+        }
+
+        if (t instanceof CloudSearchRuntimeException && this.retryIoFailures) {
+            for (Throwable cause = t.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Take a permit from the limit on retries per second shared by every operation using this policy
+     *
+     * @return true if the retry may go ahead
+     */
+    public boolean tryAcquireRetry() {
+        return this.retryRateLimiter == null || this.retryRateLimiter.tryAcquire();
+    }
+
+    /**
+     * The time to wait before a retry, picked at random up to the capped exponential delay for the retry
+     *
+     * @param retry the number of the retry, starting at 1
+     * @param random the source of the jitter
+     * @return the time to wait in milliseconds
+     */
+    public long backoffMillis(int retry, Random random) {
+        long cap = this.maxDelayMillis;
+        if (retry - 1 < 62 && this.baseDelayMillis <= (this.maxDelayMillis >> (retry - 1))) {
+            cap = this.baseDelayMillis << (retry - 1);
+        }
+
+        return (long) (random.nextDouble() * (cap + 1));
+    }
+
+    /**
+     * String representation of the RetryPolicy object
+     *
+     * @return String representation of the RetryPolicy object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("maxAttempts", this.maxAttempts)
+                      .add("baseDelayMillis", this.baseDelayMillis)
+                      .add("maxDelayMillis", this.maxDelayMillis)
+                      .add("retryableStatusCodes", this.retryableStatusCodes)
+                      .add("retryIoFailures", this.retryIoFailures)
+                      .add("retryUpdates", this.retryUpdates)
+                      .add("budgetRatio", this.budgetRatio)
+                      .add("budgetReserve", this.budgetReserve)
+                      .add("maxRetriesPerSecond", this.retryRateLimiter == null ? 0 : this.retryRateLimiter.getRate())
+                      .toString();
+    }
+}
@@ -0,0 +1,226 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.retry;
+
+import com.google.common.base.Objects;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Retries one kind of operation, such as queries or document uploads, according to a RetryPolicy. Each Retryer has its
+ * own RetryBudget, so an operation that keeps failing uses up only its own budget, while the limit on retries per second
+ * is shared with every other Retryer of the same policy.
+ *
+ * Blocking calls sleep on the calling thread between attempts. Asynchronous calls wait on a shared scheduler thread, so
+ * no thread is held while waiting, and cancelling the returned future cancels the attempt in flight.
+ *
+ * @author jmonette
+ */
+public class Retryer {
+
+    private static final ScheduledExecutorService SCHEDULER =
+        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                             .setNameFormat("thunderhead-retry-scheduler")
+                                                                             .build());
+
+    private final RetryPolicy retryPolicy;
+    private final RetryBudget retryBudget;
+    private final Random random = new Random();
+
+    /**
+     * Creates a retryer with a new budget from the policy
+     *
+     * @param retryPolicy the policy
+     */
+    public Retryer(RetryPolicy retryPolicy) {
+        this(retryPolicy, retryPolicy.newBudget());
+    }
+
+    /**
+     * Creates a retryer
+     *
+     * @param retryPolicy the policy
+     * @param retryBudget the budget of this operation
+     */
+    public Retryer(RetryPolicy retryPolicy, RetryBudget retryBudget) {
+        this.retryPolicy = retryPolicy;
+        this.retryBudget = retryBudget;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * Call the operation, retrying it while it fails with a retryable failure
+     *
+     * @param callable the operation
+     * @param <T> the type of the result
+     * @return the result of the first attempt to succeed
+     * @throws CloudSearchClientException the failure of the last attempt
+     */
+    public <T> T call(Callable<T> callable) throws CloudSearchClientException {
+        this.retryBudget.deposit();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return callable.call();
+            } catch (Exception e) {
+                if (!shouldRetry(e, attempt)) {
+                    throw propagate(e);
+                }
+
+                long backoff = backoffMillis(e, attempt);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw propagate(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Call the asynchronous operation, retrying it while its future fails with a retryable failure
+     *
+     * @param callable starts an attempt of the operation
+     * @param <T> the type of the result
+     * @return a future of the result of the first attempt to succeed, or of the failure of the last attempt
+     */
+    public <T> ListenableFuture<T> callAsync(Callable<ListenableFuture<T>> callable) {
+        this.retryBudget.deposit();
+
+        final SettableFuture<T> result = SettableFuture.create();
+        final AtomicReference<ListenableFuture<T>> current = new AtomicReference<ListenableFuture<T>>();
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                ListenableFuture<T> attempt = current.get();
+                if (result.isCancelled() && attempt != null) {
+                    attempt.cancel(true);
+                }
+            }
+        }, SCHEDULER);
+
+        attemptAsync(callable, result, current, 1);
+
+        return result;
+    }
+
+    private <T> void attemptAsync(final Callable<ListenableFuture<T>> callable, final SettableFuture<T> result,
+                                  final AtomicReference<ListenableFuture<T>> current, final int attempt) {
+        if (result.isDone()) {
+            return;
+        }
+
+        ListenableFuture<T> future;
+        try {
+            future = callable.call();
+        } catch (Exception e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+
+        current.set(future);
+        if (result.isCancelled()) {
+            future.cancel(true);
+            return;
+        }
+
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                result.set(value);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof CancellationException || !shouldRetry(t, attempt)) {
+                    result.setException(t);
+                    return;
+                }
+
+                SCHEDULER.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        attemptAsync(callable, result, current, attempt + 1);
+                    }
+                }, backoffMillis(t, attempt), TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    /**
+     * Whether the failed attempt is retried. The retry has to be allowed by the policy, the budget and the shared limit
+     * on retries per second, checked in that order.
+     */
+    private boolean shouldRetry(Throwable t, int attempt) {
+        return attempt < this.retryPolicy.getMaxAttempts()
+            && this.retryPolicy.isRetryable(t)
+            && this.retryBudget.tryWithdraw()
+            && this.retryPolicy.tryAcquireRetry();
+    }
+
+    private long backoffMillis(Throwable t, int attempt) {
+        long backoff = this.retryPolicy.backoffMillis(attempt, this.random);
+        CloudSearchClient.LOGGER.debug("Retrying in {}ms after a failed attempt: {}", backoff, t);
+        return backoff;
+    }
+
+    private CloudSearchClientException propagate(Exception e) {
+        if (e instanceof CloudSearchClientException) {
+            return (CloudSearchClientException) e;
+        }
+
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+
+        throw new CloudSearchRuntimeException("Unable to complete the operation", e);
+    }
+
+    /**
+     * String representation of the Retryer object
+     *
+     * @return String representation of the Retryer object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("retryPolicy", this.retryPolicy)
+                      .add("retryBudget", this.retryBudget)
+                      .toString();
+    }
+}
@@ -0,0 +1,317 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.throttle;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchBandwidthExceededException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the requests per second and the bytes per second sent to one cloudsearch endpoint, adapting both limits to
+ * the bandwidth limit of the domain. Every 509 response cuts the limits by the decrease factor, at most once per
+ * cooldown so a burst of 509s counts as one, and while requests succeed the limits grow back by a fixed share of their
+ * maximum every second. So bulk uploads settle just under the domain's capacity instead of running into it again and
+ * again.
+ *
+ * Blocking calls wait on the calling thread for their turn. Asynchronous calls are started from a shared scheduler
+ * thread once it is their turn, so no thread is held while waiting.
+ *
+ * @author jmonette
+ */
+public class AdaptiveRateLimiter {
+
+    public static final double DEFAULT_DECREASE_FACTOR = 0.5;
+    public static final double DEFAULT_INCREASE_PER_SECOND = 0.05;
+    public static final double DEFAULT_MIN_SCALE = 0.05;
+    public static final long DEFAULT_COOLDOWN = 1000L;
+
+    private static final double BURST_SECONDS = 1.0;
+
+    private static final ScheduledExecutorService SCHEDULER =
+        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                                                                             .setNameFormat("thunderhead-rate-limiter")
+                                                                             .build());
+
+    private final double maxRequestsPerSecond;
+    private final double maxBytesPerSecond;
+    private final double decreaseFactor;
+    private final double increasePerSecond;
+    private final double minScale;
+    private final long cooldownNanos;
+    private final Ticker ticker;
+    private final TokenBucket requestBucket;
+    private final TokenBucket byteBucket;
+
+    private double scale = 1.0;
+    private long adjustedAt;
+    private long decreasedAt;
+
+    /**
+     * Creates a limiter running at its maximum rates, which halves them on a 509 response at most once a second, and
+     * grows them back by 5% of the maximum every second
+     *
+     * @param maxRequestsPerSecond the most requests per second, zero for no limit on requests
+     * @param maxBytesPerSecond the most bytes per second, zero for no limit on bytes
+     */
+    public AdaptiveRateLimiter(double maxRequestsPerSecond, double maxBytesPerSecond) {
+        this(maxRequestsPerSecond, maxBytesPerSecond, DEFAULT_DECREASE_FACTOR, DEFAULT_INCREASE_PER_SECOND, DEFAULT_MIN_SCALE,
+             TimeUnit.MILLISECONDS.toNanos(DEFAULT_COOLDOWN), Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a limiter running at its maximum rates
+     *
+     * @param maxRequestsPerSecond the most requests per second, zero for no limit on requests
+     * @param maxBytesPerSecond the most bytes per second, zero for no limit on bytes
+     * @param decreaseFactor the factor the limits are multiplied by on a 509 response
+     * @param increasePerSecond the share of the maximum rates the limits grow by every second while requests succeed
+     * @param minScale the smallest share of the maximum rates the limits are cut down to
+     * @param cooldownNanos the time in nanoseconds after a cut during which further 509 responses are not counted
+     * @param ticker the time source
+     */
+    public AdaptiveRateLimiter(double maxRequestsPerSecond, double maxBytesPerSecond, double decreaseFactor, double increasePerSecond,
+                               double minScale, long cooldownNanos, Ticker ticker) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.decreaseFactor = decreaseFactor;
+        this.increasePerSecond = increasePerSecond;
+        this.minScale = minScale;
+        this.cooldownNanos = cooldownNanos;
+        this.ticker = ticker;
+        this.requestBucket = (maxRequestsPerSecond > 0 ? new TokenBucket(maxRequestsPerSecond, BURST_SECONDS, ticker) : null);
+        this.byteBucket = (maxBytesPerSecond > 0 ? new TokenBucket(maxBytesPerSecond, BURST_SECONDS, ticker) : null);
+        this.adjustedAt = ticker.read();
+        this.decreasedAt = this.adjustedAt - cooldownNanos;
+    }
+
+    /**
+     * Whether the bytes of each request are limited, and so worth counting
+     *
+     * @return true if there is a limit on bytes per second
+     */
+    public boolean isLimitingBytes() {
+        return this.byteBucket != null;
+    }
+
+    /**
+     * The share of the maximum rates the limits are currently at
+     *
+     * @return the current scale, between the minimum scale and 1
+     */
+    public synchronized double getScale() {
+        return this.scale;
+    }
+
+    /**
+     * Take a turn to send a request of the given size
+     *
+     * @param bytes the size of the request
+     * @return how long in nanoseconds to wait before sending it
+     */
+    public long reserve(long bytes) {
+        long wait = (this.requestBucket == null ? 0L : this.requestBucket.reserve(1));
+        if (this.byteBucket != null && bytes > 0) {
+            wait = Math.max(wait, this.byteBucket.reserve(bytes));
+        }
+
+        return wait;
+    }
+
+    /**
+     * Call the operation once it is its turn, adapting the limits to its outcome
+     *
+     * @param bytes the size of the request
+     * @param callable the operation
+     * @param <T> the type of the result
+     * @return the result of the operation
+     * @throws CloudSearchClientException if the operation failed
+     */
+    public <T> T call(long bytes, Callable<T> callable) throws CloudSearchClientException {
+        long wait = reserve(bytes);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new CloudSearchRuntimeException("Interrupted while waiting for the rate limiter", ie);
+            }
+        }
+
+        try {
+            T result = callable.call();
+            onSuccess();
+            return result;
+        } catch (CloudSearchBandwidthExceededException csbee) {
+            onBandwidthExceeded();
+            throw csbee;
+        } catch (CloudSearchClientException csce) {
+            throw csce;
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Exception e) {
+            throw new CloudSearchRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Start the asynchronous operation once it is its turn, adapting the limits to its outcome
+     *
+     * @param bytes the size of the request
+     * @param callable starts the operation
+     * @param <T> the type of the result
+     * @return a future of the result of the operation
+     */
+    public <T> ListenableFuture<T> callAsync(long bytes, final Callable<ListenableFuture<T>> callable) {
+        long wait = reserve(bytes);
+        if (wait <= 0) {
+            return start(callable);
+        }
+
+        final SettableFuture<T> result = SettableFuture.create();
+        SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (result.isCancelled()) {
+                    return;
+                }
+
+                final ListenableFuture<T> future = start(callable);
+                result.addListener(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (result.isCancelled()) {
+                            future.cancel(true);
+                        }
+                    }
+                }, SCHEDULER);
+                Futures.addCallback(future, new FutureCallback<T>() {
+                    @Override
+                    public void onSuccess(T value) {
+                        result.set(value);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        result.setException(t);
+                    }
+                });
+            }
+        }, wait, TimeUnit.NANOSECONDS);
+
+        return result;
+    }
+
+    private <T> ListenableFuture<T> start(Callable<ListenableFuture<T>> callable) {
+        ListenableFuture<T> future;
+        try {
+            future = callable.call();
+        } catch (Exception e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+
+        Futures.addCallback(future, new FutureCallback<T>() {
+            @Override
+            public void onSuccess(T value) {
+                AdaptiveRateLimiter.this.onSuccess();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof CloudSearchBandwidthExceededException) {
+                    onBandwidthExceeded();
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Grow the limits for the time since they were last adjusted
+     */
+    public void onSuccess() {
+        synchronized (this) {
+            if (this.scale >= 1.0) {
+                this.adjustedAt = this.ticker.read();
+                return;
+            }
+
+            long now = this.ticker.read();
+            double elapsedSeconds = (double) (now - this.adjustedAt) / TimeUnit.SECONDS.toNanos(1);
+            this.scale = Math.min(1.0, this.scale + elapsedSeconds * this.increasePerSecond);
+            this.adjustedAt = now;
+        }
+
+        applyScale();
+    }
+
+    /**
+     * Cut the limits, unless they were cut within the cooldown
+     */
+    public void onBandwidthExceeded() {
+        synchronized (this) {
+            long now = this.ticker.read();
+            if (now - this.decreasedAt < this.cooldownNanos) {
+                return;
+            }
+
+            this.scale = Math.max(this.minScale, this.scale * this.decreaseFactor);
+            this.decreasedAt = now;
+            this.adjustedAt = now;
+        }
+
+        CloudSearchClient.LOGGER.info("Bandwidth limit exceeded, rate limits cut to {} of their maximum", getScale());
+        applyScale();
+    }
+
+    private void applyScale() {
+        double currentScale = getScale();
+        if (this.requestBucket != null) {
+            this.requestBucket.setRate(this.maxRequestsPerSecond * currentScale);
+        }
+        if (this.byteBucket != null) {
+            this.byteBucket.setRate(this.maxBytesPerSecond * currentScale);
+        }
+    }
+
+    /**
+     * String representation of the AdaptiveRateLimiter object
+     *
+     * @return String representation of the AdaptiveRateLimiter object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("maxRequestsPerSecond", this.maxRequestsPerSecond)
+                      .add("maxBytesPerSecond", this.maxBytesPerSecond)
+                      .add("scale", getScale())
+                      .toString();
+    }
+}
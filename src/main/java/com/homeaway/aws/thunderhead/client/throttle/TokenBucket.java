@@ -0,0 +1,106 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.throttle;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Ticker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket refilled at a rate that can be changed at any time. Taking more tokens than the bucket holds puts it in
+ * debt, and the caller is told how long to wait until the debt is paid, so callers that cannot block can schedule their
+ * work instead. Callers that arrive while the bucket is in debt queue up behind it.
+ *
+ * @author jmonette
+ */
+public class TokenBucket {
+
+    private final double burstSeconds;
+    private final Ticker ticker;
+    private double rate;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Creates a full bucket
+     *
+     * @param rate the tokens added per second
+     * @param burstSeconds the seconds of tokens the bucket holds when full
+     * @param ticker the time source
+     */
+    public TokenBucket(double rate, double burstSeconds, Ticker ticker) {
+        this.burstSeconds = burstSeconds;
+        this.ticker = ticker;
+        this.rate = rate;
+        this.tokens = rate * burstSeconds;
+        this.refilledAt = ticker.read();
+    }
+
+    /**
+     * Take the tokens, going into debt if there are not enough
+     *
+     * @param permits the tokens to take
+     * @return how long in nanoseconds the caller has to wait before going ahead
+     */
+    public synchronized long reserve(double permits) {
+        refill();
+        this.tokens -= permits;
+
+        if (this.tokens >= 0) {
+            return 0L;
+        }
+
+        return (long) (-this.tokens / this.rate * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public synchronized double getRate() {
+        return this.rate;
+    }
+
+    /**
+     * Change the refill rate, keeping the tokens already in the bucket up to its new size
+     *
+     * @param rate the tokens added per second
+     */
+    public synchronized void setRate(double rate) {
+        refill();
+        this.rate = rate;
+        this.tokens = Math.min(this.tokens, rate * this.burstSeconds);
+    }
+
+    private void refill() {
+        long now = this.ticker.read();
+        double elapsedSeconds = (double) (now - this.refilledAt) / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = Math.min(this.rate * this.burstSeconds, this.tokens + elapsedSeconds * this.rate);
+        this.refilledAt = now;
+    }
+
+    /**
+     * String representation of the TokenBucket object
+     *
+     * @return String representation of the TokenBucket object
+     */
+    @Override
+    public synchronized String toString() {
+        return Objects.toStringHelper(this)
+                      .add("rate", this.rate)
+                      .add("tokens", this.tokens)
+                      .add("burstSeconds", this.burstSeconds)
+                      .toString();
+    }
+}
@@ -0,0 +1,344 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.load;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.metrics.LatencyHistogram;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchStatusCode;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.homeaway.aws.thunderhead.client.CloudSearchClient.LOGGER;
+
+/**
+ * Drives a CloudSearchClient with a closed loop of queries and uploads from a fixed number of threads, then reports
+ * the throughput, the latency percentiles, the errors and the allocation of each operation. Each thread picks a query
+ * with the query ratio and otherwise uploads a batch of synthetic documents. Queries are drawn from the query corpus.
+ *
+ * Nothing is measured during the warmup, which lets the JIT and the connection pools settle. Build one with the
+ * LoadGeneratorBuilder, or run LoadGeneratorMain from the command line.
+ *
+ * @author jmonette
+ */
+public class LoadGenerator {
+
+    /** The words the synthetic documents and the default query corpus are made of */
+    private static final String[] WORDS = {"star", "wars", "empire", "strikes", "back", "return", "jedi", "force",
+                                           "awakens", "rogue", "galaxy", "far", "away", "hope", "new", "phantom"};
+
+    /** Document ids are reused past this many per thread, so a long run does not grow the domain without bound */
+    private static final int DOCUMENTS_PER_THREAD = 10000;
+
+    private final CloudSearchClient cloudSearchClient;
+    private final int threads;
+    private final long warmup;
+    private final long duration;
+    private final double queryRatio;
+    private final List<MultivaluedMap<String, String>> queries;
+    private final int batchSize;
+    private final int documentBytes;
+    private final long seed;
+
+    /**
+     * @param cloudSearchClient the client to drive
+     * @param threads the number of threads sending requests
+     * @param warmup how long in milliseconds to send requests before measuring
+     * @param duration how long in milliseconds to measure
+     * @param queryRatio the share of the requests which are queries, the rest are uploads
+     * @param queries the query params to draw queries from, the default corpus when empty
+     * @param batchSize the number of documents in each uploaded batch
+     * @param documentBytes the rough size of the text of each document
+     * @param seed the seed of the random choices, so the request sequence can be repeated
+     */
+    public LoadGenerator(CloudSearchClient cloudSearchClient, int threads, long warmup, long duration, double queryRatio,
+                         List<MultivaluedMap<String, String>> queries, int batchSize, int documentBytes, long seed) {
+        this.cloudSearchClient = cloudSearchClient;
+        this.threads = threads;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.queryRatio = queryRatio;
+        this.queries = (queries.isEmpty() ? defaultQueries() : queries);
+        this.batchSize = batchSize;
+        this.documentBytes = documentBytes;
+        this.seed = seed;
+    }
+
+    /**
+     * Run the load and wait for it to finish
+     *
+     * @return the report of the measured part of the run
+     */
+    public LoadReport run() {
+        Map<CloudSearchOperation, OperationStats> stats = new EnumMap<CloudSearchOperation, OperationStats>(CloudSearchOperation.class);
+        for (CloudSearchOperation operation : CloudSearchOperation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads, new ThreadFactoryBuilder().setDaemon(true)
+                                                                                                          .setNameFormat("thunderhead-load-%d")
+                                                                                                          .build());
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.MILLISECONDS.toNanos(this.warmup);
+        long end = measureStart + TimeUnit.MILLISECONDS.toNanos(this.duration);
+        CountDownLatch done = new CountDownLatch(this.threads);
+
+        LOGGER.info("Starting {} load threads with a query ratio of {}", this.threads, this.queryRatio);
+        try {
+            for (int i = 0; i < this.threads; i++) {
+                executor.execute(new Worker(i, new Random(this.seed + i), measureStart, end, stats, done));
+            }
+            Uninterruptibles.awaitUninterruptibly(done);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsed = Math.max(0L, System.nanoTime() - measureStart);
+        Map<CloudSearchOperation, OperationReport> operations = new EnumMap<CloudSearchOperation, OperationReport>(CloudSearchOperation.class);
+        for (Map.Entry<CloudSearchOperation, OperationStats> entry : stats.entrySet()) {
+            operations.put(entry.getKey(), entry.getValue().report(entry.getKey(), elapsed));
+        }
+
+        return new LoadReport(this.threads, elapsed, operations);
+    }
+
+    /**
+     * Read a query corpus, one query per line in the form of a url query string such as q=star+wars&amp;size=10. Blank
+     * lines and lines starting with # are skipped.
+     *
+     * @param reader the corpus
+     * @return the query params of each query
+     * @throws IOException if the corpus could not be read
+     */
+    public static List<MultivaluedMap<String, String>> readQueries(Reader reader) throws IOException {
+        List<MultivaluedMap<String, String>> queries = new ArrayList<MultivaluedMap<String, String>>();
+        BufferedReader lines = new BufferedReader(reader);
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#")) {
+                continue;
+            }
+
+            MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+            for (String param : line.split("&")) {
+                int equals = param.indexOf('=');
+                if (equals > 0) {
+                    queryParams.add(decode(param.substring(0, equals)), decode(param.substring(equals + 1)));
+                }
+            }
+            queries.add(queryParams);
+        }
+
+        return queries;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new IllegalStateException(uee);
+        }
+    }
+
+    /**
+     * A query on each word of the synthetic documents, and a few structured ones
+     */
+    private static List<MultivaluedMap<String, String>> defaultQueries() {
+        List<MultivaluedMap<String, String>> queries = new ArrayList<MultivaluedMap<String, String>>();
+        for (String word : WORDS) {
+            MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+            queryParams.add("q", word);
+            queryParams.add("return-fields", "title,year");
+            queries.add(queryParams);
+        }
+
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        queryParams.add("bq", "(and title:'star wars' (not year:..1980))");
+        queryParams.add("size", "20");
+        queries.add(queryParams);
+
+        queryParams = new MultivaluedMapImpl();
+        queryParams.add("bq", "(or title:'jedi' description:'rogue galaxy')");
+        queryParams.add("start", "10");
+        queries.add(queryParams);
+
+        return queries;
+    }
+
+    /**
+     * The counters of one operation, shared by the workers
+     */
+    private static final class OperationStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong allocatedBytes = new AtomicLong();
+        private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+
+        void error(String error) {
+            AtomicLong count = this.errors.get(error);
+            if (count == null) {
+                AtomicLong newCount = new AtomicLong();
+                count = this.errors.putIfAbsent(error, newCount);
+                if (count == null) {
+                    count = newCount;
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        OperationReport report(CloudSearchOperation operation, long elapsedNanos) {
+            Map<String, Long> errorCounts = new TreeMap<String, Long>();
+            for (Map.Entry<String, AtomicLong> error : this.errors.entrySet()) {
+                errorCounts.put(error.getKey(), error.getValue().get());
+            }
+
+            return new OperationReport(operation, this.requests.get(), errorCounts, this.latency.snapshot(),
+                                       (ThreadAllocation.isSupported() ? this.allocatedBytes.get() : -1L), elapsedNanos);
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final int id;
+        private final Random random;
+        private final long measureStart;
+        private final long end;
+        private final Map<CloudSearchOperation, OperationStats> stats;
+        private final CountDownLatch done;
+        private long version = System.currentTimeMillis() / 1000L;
+
+        Worker(int id, Random random, long measureStart, long end, Map<CloudSearchOperation, OperationStats> stats, CountDownLatch done) {
+            this.id = id;
+            this.random = random;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.stats = stats;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long now = System.nanoTime();
+                while (now < this.end && !Thread.currentThread().isInterrupted()) {
+                    CloudSearchOperation operation = (this.random.nextDouble() < queryRatio ? CloudSearchOperation.QUERY : CloudSearchOperation.UPDATE);
+                    MultivaluedMap<String, String> queryParams = null;
+                    SearchDocumentFormat batch = null;
+                    if (operation == CloudSearchOperation.QUERY) {
+                        queryParams = queries.get(this.random.nextInt(queries.size()));
+                    } else {
+                        batch = buildBatch();
+                    }
+
+                    String error = null;
+                    long allocatedBefore = ThreadAllocation.currentThreadAllocatedBytes();
+                    long begin = System.nanoTime();
+                    try {
+                        if (queryParams != null) {
+                            cloudSearchClient.query(queryParams);
+                        } else {
+                            cloudSearchClient.updateDomain(batch);
+                        }
+                    } catch (CloudSearchClientException csce) {
+                        error = (csce.getCloudSearchStatusCode() == null ? csce.getClass().getSimpleName()
+                                                                         : CloudSearchStatusCode.fromStatus(csce.getCloudSearchStatusCode()).name());
+                    } catch (RuntimeException re) {
+                        error = re.getClass().getSimpleName();
+                    }
+                    now = System.nanoTime();
+                    long allocated = ThreadAllocation.currentThreadAllocatedBytes() - allocatedBefore - ThreadAllocation.getOverhead();
+
+                    if (begin >= this.measureStart && now <= this.end) {
+                        OperationStats operationStats = this.stats.get(operation);
+                        operationStats.requests.incrementAndGet();
+                        operationStats.allocatedBytes.addAndGet(allocated);
+                        if (error == null) {
+                            operationStats.latency.record(now - begin);
+                        } else {
+                            operationStats.error(error);
+                        }
+                    }
+                }
+            } finally {
+                this.done.countDown();
+            }
+        }
+
+        private SearchDocumentFormat buildBatch() {
+            List<SearchDocumentAdd> adds = new ArrayList<SearchDocumentAdd>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                List<Field> fields = new ArrayList<Field>(3);
+                fields.add(field("title", words(3)));
+                fields.add(field("year", String.valueOf(1950 + this.random.nextInt(70))));
+                fields.add(field("description", words(Math.max(1, documentBytes / 6))));
+
+                SearchDocumentAdd add = new SearchDocumentAdd();
+                add.setId("load_" + this.id + "_" + this.random.nextInt(DOCUMENTS_PER_THREAD));
+                add.setVersion(String.valueOf(++this.version));
+                add.setLang("en");
+                add.setFields(fields);
+                adds.add(add);
+            }
+
+            SearchDocumentFormat batch = new SearchDocumentFormat();
+            batch.setSearchDocumentAdds(adds);
+            return batch;
+        }
+
+        private String words(int count) {
+            StringBuilder words = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    words.append(' ');
+                }
+                words.append(WORDS[this.random.nextInt(WORDS.length)]);
+            }
+            return words.toString();
+        }
+
+        private Field field(String name, String value) {
+            Field field = new Field();
+            field.setName(name);
+            field.setValue(value);
+            return field;
+        }
+    }
+}
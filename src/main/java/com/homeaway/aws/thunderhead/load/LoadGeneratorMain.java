@@ -0,0 +1,133 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.load;
+
+import com.google.common.base.Charsets;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.builder.CloudSearchClientBuilder;
+import com.homeaway.aws.thunderhead.client.builder.FakeCloudSearchServerBuilder;
+import com.homeaway.aws.thunderhead.client.builder.LoadGeneratorBuilder;
+import com.homeaway.aws.thunderhead.server.FakeCloudSearchServer;
+import com.homeaway.aws.thunderhead.server.LatencyDistributions;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Properties;
+
+/**
+ * Runs a LoadGenerator from the command line and prints its report. The settings are read from the properties file
+ * given as the only argument, if any, and then from the system properties, which win:
+ *
+ * <pre>
+ *   thunderhead.query.host          the search endpoint to load, the same key as the integration tests
+ *   thunderhead.update.host         the document endpoint to load
+ *   thunderhead.load.threads        the number of threads sending requests, 16 by default
+ *   thunderhead.load.maxConnections the connections the client may open per endpoint, the thread count by default
+ *   thunderhead.load.warmup         milliseconds of unmeasured load first, 10000 by default
+ *   thunderhead.load.duration       milliseconds of measured load, 60000 by default
+ *   thunderhead.load.queryRatio     the share of queries among the requests, 0.9 by default
+ *   thunderhead.load.queries        a file of queries, one url query string per line
+ *   thunderhead.load.batchSize      documents per uploaded batch, 100 by default
+ *   thunderhead.load.documentBytes  the rough size of each document, 1000 by default
+ *   thunderhead.load.seed           the seed of the request sequence, 0 by default
+ *   thunderhead.load.fake.median    without hosts a FakeCloudSearchServer is loaded, with this median latency in ms
+ *   thunderhead.load.fake.p99       and this 99th percentile latency in ms
+ *   thunderhead.load.fake.errorRate and this share of requests failing with a 509
+ * </pre>
+ *
+ * @author jmonette
+ */
+public final class LoadGeneratorMain {
+
+    private LoadGeneratorMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties props = new Properties();
+        if (args.length > 0) {
+            InputStream inputStream = new FileInputStream(args[0]);
+            try {
+                props.load(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        }
+        props.putAll(System.getProperties());
+
+        String queryHost = props.getProperty("thunderhead.query.host");
+        String updateHost = props.getProperty("thunderhead.update.host");
+        int threads = Integer.parseInt(props.getProperty("thunderhead.load.threads", String.valueOf(LoadGeneratorBuilder.DEFAULT_THREADS)));
+        int maxConnections = Integer.parseInt(props.getProperty("thunderhead.load.maxConnections", String.valueOf(threads)));
+
+        FakeCloudSearchServer server = null;
+        if (StringUtils.isEmpty(queryHost) && StringUtils.isEmpty(updateHost)) {
+            double errorRate = Double.parseDouble(props.getProperty("thunderhead.load.fake.errorRate", "0"));
+            server = FakeCloudSearchServerBuilder.newInstance()
+                                                 .threads(Math.max(FakeCloudSearchServerBuilder.DEFAULT_THREADS, maxConnections))
+                                                 .searchLatency(LatencyDistributions.logNormal(Long.parseLong(props.getProperty("thunderhead.load.fake.median", "5")),
+                                                                                               Long.parseLong(props.getProperty("thunderhead.load.fake.p99", "50"))))
+                                                 .searchErrorRate(509, errorRate)
+                                                 .updateErrorRate(509, errorRate)
+                                                 .build();
+            server.start();
+            queryHost = server.getHost();
+            updateHost = server.getHost();
+        }
+
+        CloudSearchClientBuilder clientBuilder = CloudSearchClientBuilder.newInstance()
+                                                                         .queryMaxConnections(maxConnections)
+                                                                         .updateMaxConnections(maxConnections);
+        if (StringUtils.isNotEmpty(queryHost)) {
+            clientBuilder.queryHost(queryHost);
+        }
+        if (StringUtils.isNotEmpty(updateHost)) {
+            clientBuilder.updateHost(updateHost);
+        }
+        CloudSearchClient cloudSearchClient = clientBuilder.build();
+
+        LoadGeneratorBuilder loadGeneratorBuilder = LoadGeneratorBuilder.newInstance(cloudSearchClient)
+                .threads(threads)
+                .warmup(Long.parseLong(props.getProperty("thunderhead.load.warmup", String.valueOf(LoadGeneratorBuilder.DEFAULT_WARMUP))))
+                .duration(Long.parseLong(props.getProperty("thunderhead.load.duration", String.valueOf(LoadGeneratorBuilder.DEFAULT_DURATION))))
+                .queryRatio(Double.parseDouble(props.getProperty("thunderhead.load.queryRatio", String.valueOf(LoadGeneratorBuilder.DEFAULT_QUERY_RATIO))))
+                .batchSize(Integer.parseInt(props.getProperty("thunderhead.load.batchSize", String.valueOf(LoadGeneratorBuilder.DEFAULT_BATCH_SIZE))))
+                .documentBytes(Integer.parseInt(props.getProperty("thunderhead.load.documentBytes", String.valueOf(LoadGeneratorBuilder.DEFAULT_DOCUMENT_BYTES))))
+                .seed(Long.parseLong(props.getProperty("thunderhead.load.seed", "0")));
+
+        String queries = props.getProperty("thunderhead.load.queries");
+        if (StringUtils.isNotEmpty(queries)) {
+            Reader reader = new InputStreamReader(new FileInputStream(queries), Charsets.UTF_8);
+            try {
+                loadGeneratorBuilder.queries(LoadGenerator.readQueries(reader));
+            } finally {
+                reader.close();
+            }
+        }
+
+        try {
+            System.out.print(loadGeneratorBuilder.build().run().format());
+        } finally {
+            cloudSearchClient.close();
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.load;
+
+import com.google.common.base.Objects;
+import com.homeaway.aws.thunderhead.client.metrics.HistogramSnapshot;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The results of a LoadGenerator run, over the measured part of the run only
+ *
+ * @author jmonette
+ */
+public class LoadReport {
+
+    private final int threads;
+    private final long elapsedNanos;
+    private final Map<CloudSearchOperation, OperationReport> operations;
+
+    public LoadReport(int threads, long elapsedNanos, Map<CloudSearchOperation, OperationReport> operations) {
+        this.threads = threads;
+        this.elapsedNanos = elapsedNanos;
+        this.operations = Collections.unmodifiableMap(operations);
+    }
+
+    /**
+     * The bytes per second allocated by the calling threads, or -1 if the JVM does not count them
+     */
+    public double getAllocationRate() {
+        long allocatedBytes = 0;
+        for (OperationReport operationReport : this.operations.values()) {
+            if (operationReport.getAllocatedBytes() < 0) {
+                return -1;
+            }
+            allocatedBytes += operationReport.getAllocatedBytes();
+        }
+
+        return (this.elapsedNanos == 0 ? 0 : allocatedBytes * 1e9 / this.elapsedNanos);
+    }
+
+    /**
+     * The report of one operation
+     */
+    public OperationReport get(CloudSearchOperation operation) {
+        return this.operations.get(operation);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public Map<CloudSearchOperation, OperationReport> getOperations() {
+        return operations;
+    }
+
+    /**
+     * A human readable summary, one line per operation with the latencies in milliseconds
+     */
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%d threads for %.1fs, %.1f MB/s allocated by the calling threads%n", this.threads,
+                                    this.elapsedNanos / 1e9, getAllocationRate() / (1024 * 1024)));
+        report.append(String.format("%-8s %10s %10s %9s %9s %9s %9s %9s %10s  %s%n", "op", "requests", "req/s", "p50",
+                                    "p90", "p99", "p99.9", "max", "bytes/req", "errors"));
+
+        for (OperationReport operationReport : this.operations.values()) {
+            HistogramSnapshot latency = operationReport.getLatency();
+            report.append(String.format("%-8s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %10d  %s%n",
+                                        operationReport.getOperation().getName(), operationReport.getRequests(),
+                                        operationReport.getThroughput(), millis(latency.getP50()),
+                                        millis(latency.getValueAtPercentile(90.0)), millis(latency.getP99()),
+                                        millis(latency.getP999()), millis(latency.getMax()),
+                                        operationReport.getAllocatedBytesPerRequest(), operationReport.getErrors()));
+        }
+
+        return report.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * String representation of the LoadReport object
+     *
+     * @return a String representing the LoadReport object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("threads", this.threads)
+                .add("elapsedNanos", this.elapsedNanos)
+                .add("operations", this.operations)
+                .toString();
+    }
+}
@@ -0,0 +1,120 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.load;
+
+import com.google.common.base.Objects;
+import com.homeaway.aws.thunderhead.client.metrics.HistogramSnapshot;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What a load run measured for one operation. The latency is of the successful requests only, the errors are counted
+ * by the CloudSearchStatusCode they failed with, or by the exception type when they failed without a status.
+ *
+ * @author jmonette
+ */
+public class OperationReport {
+
+    private final CloudSearchOperation operation;
+    private final long requests;
+    private final Map<String, Long> errors;
+    private final HistogramSnapshot latency;
+    private final long allocatedBytes;
+    private final long elapsedNanos;
+
+    public OperationReport(CloudSearchOperation operation, long requests, Map<String, Long> errors, HistogramSnapshot latency,
+                           long allocatedBytes, long elapsedNanos) {
+        this.operation = operation;
+        this.requests = requests;
+        this.errors = Collections.unmodifiableMap(errors);
+        this.latency = latency;
+        this.allocatedBytes = allocatedBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * The successful requests per second
+     */
+    public double getThroughput() {
+        return (this.elapsedNanos == 0 ? 0 : getSuccesses() * 1e9 / this.elapsedNanos);
+    }
+
+    /**
+     * The requests which did not fail
+     */
+    public long getSuccesses() {
+        long failures = 0;
+        for (Long count : this.errors.values()) {
+            failures += count;
+        }
+
+        return this.requests - failures;
+    }
+
+    /**
+     * The bytes the calling thread allocated per request, or -1 if the JVM does not count them
+     */
+    public long getAllocatedBytesPerRequest() {
+        if (this.allocatedBytes < 0) {
+            return -1L;
+        }
+
+        return (this.requests == 0 ? 0 : this.allocatedBytes / this.requests);
+    }
+
+    public CloudSearchOperation getOperation() {
+        return operation;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    /**
+     * The bytes the calling threads allocated in all the requests, or -1 if the JVM does not count them
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * String representation of the OperationReport object
+     *
+     * @return a String representing the OperationReport object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("operation", this.operation)
+                .add("requests", this.requests)
+                .add("errors", this.errors)
+                .add("latency", this.latency)
+                .add("allocatedBytes", this.allocatedBytes)
+                .add("elapsedNanos", this.elapsedNanos)
+                .toString();
+    }
+}
@@ -0,0 +1,108 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Reads how many bytes the current thread has allocated, from the com.sun.management.ThreadMXBean of HotSpot JVMs.
+ * The bean is reached by reflection so the library still loads on JVMs without it, where isSupported() is false.
+ *
+ * A read allocates nothing on HotSpot, but the reflective call boxes its result, so two reads back to back differ by a
+ * few dozen bytes. getOverhead() measures that so it can be taken off a measurement.
+ *
+ * @author jmonette
+ */
+public final class ThreadAllocation {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final Method GET_THREAD_ALLOCATED_BYTES = findMethod();
+    private static final long OVERHEAD = measureOverhead();
+
+    private ThreadAllocation() {
+    }
+
+    /**
+     * Whether the JVM counts the bytes allocated by each thread
+     */
+    public static boolean isSupported() {
+        return GET_THREAD_ALLOCATED_BYTES != null;
+    }
+
+    /**
+     * The bytes allocated by the current thread since it started
+     *
+     * @return the bytes allocated, or -1 if the JVM does not count them
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (GET_THREAD_ALLOCATED_BYTES == null) {
+            return -1L;
+        }
+
+        try {
+            return (Long) GET_THREAD_ALLOCATED_BYTES.invoke(THREAD_MX_BEAN, Thread.currentThread().getId());
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * The bytes two reads of currentThreadAllocatedBytes() back to back differ by
+     */
+    public static long getOverhead() {
+        return OVERHEAD;
+    }
+
+    private static Method findMethod() {
+        try {
+            Class<?> beanType = Class.forName("com.sun.management.ThreadMXBean");
+            if (!beanType.isInstance(THREAD_MX_BEAN)) {
+                return null;
+            }
+
+            if (!(Boolean) beanType.getMethod("isThreadAllocatedMemorySupported").invoke(THREAD_MX_BEAN)) {
+                return null;
+            }
+            beanType.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(THREAD_MX_BEAN, true);
+
+            return beanType.getMethod("getThreadAllocatedBytes", long.class);
+        } catch (Exception e) {
+            return null;
+        } catch (LinkageError le) {
+            return null;
+        }
+    }
+
+    /**
+     * The smallest difference seen over a few tries, as the first calls may still be resolving the reflection
+     */
+    private static long measureOverhead() {
+        if (GET_THREAD_ALLOCATED_BYTES == null) {
+            return 0L;
+        }
+
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 100; i++) {
+            long start = currentThreadAllocatedBytes();
+            overhead = Math.min(overhead, currentThreadAllocatedBytes() - start);
+        }
+
+        return overhead;
+    }
+}
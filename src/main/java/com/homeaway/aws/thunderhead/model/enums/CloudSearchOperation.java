@@ -0,0 +1,46 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.enums;
+
+import com.google.common.base.Objects;
+
+/**
+ * This class defines constants for the operations sent to cloudsearch that metrics are recorded for
+ *
+ * @author jmonette
+ */
+public enum CloudSearchOperation {
+    QUERY("query"),
+    UPDATE("update");
+
+    private String operation;
+    private CloudSearchOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getName() {
+        return this.operation;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("operation", this.operation)
+                .toString();
+
+    }
+}
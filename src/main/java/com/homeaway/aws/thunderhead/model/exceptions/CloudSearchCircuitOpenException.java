@@ -0,0 +1,56 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.exceptions;
+
+import com.homeaway.aws.thunderhead.model.enums.CircuitBreakerState;
+
+/**
+ * Thrown without contacting Amazon when the circuit breaker in front of an endpoint is not letting requests through.
+ * It has no status code, as no response was received.
+ *
+ * @author jmonette
+ */
+public class CloudSearchCircuitOpenException extends CloudSearchClientException {
+    private static final long serialVersionUID = -3262880467128377415L;
+
+    private final String endpoint;
+    private final CircuitBreakerState circuitBreakerState;
+
+    public CloudSearchCircuitOpenException(String endpoint, CircuitBreakerState circuitBreakerState) {
+        super(null, "The circuit breaker for " + endpoint + " is " + circuitBreakerState.getName(), null);
+        this.endpoint = endpoint;
+        this.circuitBreakerState = circuitBreakerState;
+    }
+
+    /**
+     * The endpoint whose circuit breaker rejected the request
+     *
+     * @return the endpoint
+     */
+    public String getEndpoint() {
+        return this.endpoint;
+    }
+
+    /**
+     * The state of the circuit breaker when it rejected the request
+     *
+     * @return the state of the circuit breaker
+     */
+    public CircuitBreakerState getCircuitBreakerState() {
+        return this.circuitBreakerState;
+    }
+}
@@ -34,11 +34,19 @@ public class CloudSearchClientException extends Exception {
     
     public CloudSearchClientException(Integer cloudSearchStatusCode, String message, String entity) {
         super(message);
-        this.errorId = UUID.randomUUID();
+        this.errorId = CloudSearchErrors.newErrorId();
         this.cloudSearchStatusCode = cloudSearchStatusCode;
         this.entity = entity;
     }
 
+    /**
+     * Capture the stack trace unless they are turned off, see CloudSearchErrors
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return (CloudSearchErrors.isStackTraceEnabled() ? super.fillInStackTrace() : this);
+    }
+
     /**
      * The error id assigned to this exception
      * 
@@ -56,6 +64,24 @@ public class CloudSearchClientException extends Exception {
     public Integer getCloudSearchStatusCode() {
         return this.cloudSearchStatusCode;
     }
+
+    /**
+     * The body of the response Amazon returned with the error
+     *
+     * @return the error entity, or null if no response was received
+     */
+    public String getEntity() {
+        return this.entity;
+    }
+
+    /**
+     * The message of the error, without the id, status code and entity that getMessage() adds to it
+     *
+     * @return the message of the error
+     */
+    public String getErrorMessage() {
+        return super.getMessage();
+    }
     
     @Override
     public String getMessage() {
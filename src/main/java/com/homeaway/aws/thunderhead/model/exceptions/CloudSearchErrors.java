@@ -0,0 +1,118 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.exceptions;
+
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * What the cloudsearch exceptions cost to create. By default they capture a stack trace like any exception. When a
+ * domain is failing thousands of them a second can be created, and the stack trace is most of their cost, so it can be
+ * turned off for the whole JVM with setStackTraceEnabled(false) or the thunderhead.exceptions.stackTraces=false
+ * system property.
+ *
+ * The CloudSearchResultClient also turns it off by itself, for the exceptions raised on the calling thread during its
+ * calls, which are only handed back to that caller inside a CloudSearchResult. Exceptions raised on the client's own
+ * threads, such as those of hedged queries, keep their stack traces, as do the exceptions of a query shared with other
+ * callers by the QueryCoalescer, which may be thrown to a caller of the blocking client.
+ *
+ * Error ids are random version 4 UUIDs drawn from a per thread Random, rather than from the SecureRandom shared by
+ * UUID.randomUUID(). They identify an error in the logs and are not meant to be unguessable.
+ *
+ * @author jmonette
+ */
+public final class CloudSearchErrors {
+
+    /** The system property which turns the stack traces of the cloudsearch exceptions off when false */
+    public static final String STACK_TRACES_PROPERTY = "thunderhead.exceptions.stackTraces";
+
+    private static volatile boolean stackTraceEnabled = !"false".equalsIgnoreCase(System.getProperty(STACK_TRACES_PROPERTY));
+
+    private static final ThreadLocal<Boolean> STACK_TRACE_SUPPRESSED = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return Boolean.FALSE;
+        }
+    };
+
+    private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private CloudSearchErrors() {
+    }
+
+    /**
+     * A new random error id
+     */
+    public static UUID newErrorId() {
+        Random random = RANDOM.get();
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Whether an exception created now on this thread captures its stack trace
+     */
+    public static boolean isStackTraceEnabled() {
+        return stackTraceEnabled && !STACK_TRACE_SUPPRESSED.get();
+    }
+
+    /**
+     * Turn the stack traces of the cloudsearch exceptions on or off for the whole JVM
+     */
+    public static void setStackTraceEnabled(boolean enabled) {
+        stackTraceEnabled = enabled;
+    }
+
+    /**
+     * Stop capturing stack traces on this thread until restoreStackTraces is called
+     *
+     * @return whether they were already suppressed, to hand back to restoreStackTraces
+     */
+    public static boolean suppressStackTraces() {
+        boolean suppressed = STACK_TRACE_SUPPRESSED.get();
+        STACK_TRACE_SUPPRESSED.set(Boolean.TRUE);
+        return suppressed;
+    }
+
+    /**
+     * Capture stack traces again on this thread until restoreStackTraces is called, for exceptions which may be handed
+     * to other callers
+     *
+     * @return whether they were suppressed, to hand back to restoreStackTraces
+     */
+    public static boolean allowStackTraces() {
+        boolean suppressed = STACK_TRACE_SUPPRESSED.get();
+        STACK_TRACE_SUPPRESSED.set(Boolean.FALSE);
+        return suppressed;
+    }
+
+    /**
+     * Undo suppressStackTraces or allowStackTraces
+     *
+     * @param suppressed what suppressStackTraces returned
+     */
+    public static void restoreStackTraces(boolean suppressed) {
+        STACK_TRACE_SUPPRESSED.set(suppressed);
+    }
+}
@@ -0,0 +1,55 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.exceptions;
+
+/**
+ * Thrown without contacting Amazon when the concurrency limiter sheds a request, because the limit of requests in
+ * flight was reached and the queue was full or the request waited in it too long. It has no status code, as no response
+ * was received.
+ *
+ * @author jmonette
+ */
+public class CloudSearchLoadShedException extends CloudSearchClientException {
+    private static final long serialVersionUID = 6021853914273605872L;
+
+    private final int limit;
+    private final boolean queued;
+
+    public CloudSearchLoadShedException(int limit, boolean queued) {
+        super(null, (queued ? "Timed out waiting for one of the " : "Queue full waiting for one of the ") + limit + " requests in flight", null);
+        this.limit = limit;
+        this.queued = queued;
+    }
+
+    /**
+     * The concurrency limit when the request was shed
+     *
+     * @return the number of requests allowed in flight
+     */
+    public int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * Whether the request was shed after waiting in the queue, rather than at once because the queue was full
+     *
+     * @return true if the request timed out in the queue
+     */
+    public boolean isQueued() {
+        return this.queued;
+    }
+}
@@ -29,7 +29,15 @@ public class CloudSearchRuntimeException extends RuntimeException {
     
     public CloudSearchRuntimeException(String message, Throwable cause) {
         super(message, cause);
-        this.errorId = UUID.randomUUID();
+        this.errorId = CloudSearchErrors.newErrorId();
+    }
+
+    /**
+     * Capture the stack trace unless they are turned off, see CloudSearchErrors
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return (CloudSearchErrors.isStackTraceEnabled() ? super.fillInStackTrace() : this);
     }
     
     public UUID getErrorId() {
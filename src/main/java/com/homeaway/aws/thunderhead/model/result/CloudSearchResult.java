@@ -0,0 +1,142 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.result;
+
+import com.google.common.base.Objects;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchStatusCode;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+
+import java.util.UUID;
+
+/**
+ * The outcome of a call on the CloudSearchResultClient: the response when the call succeeded, or what went wrong when
+ * it failed. A failure carries the status code and the error entity Amazon answered with, when it answered at all.
+ *
+ * @param <T> the type of the response
+ * @author jmonette
+ */
+public final class CloudSearchResult<T> {
+
+    private final T value;
+    private final Integer statusCode;
+    private final String entity;
+    private final String message;
+    private final UUID errorId;
+    private final Exception error;
+
+    private CloudSearchResult(T value, Integer statusCode, String entity, String message, UUID errorId, Exception error) {
+        this.value = value;
+        this.statusCode = statusCode;
+        this.entity = entity;
+        this.message = message;
+        this.errorId = errorId;
+        this.error = error;
+    }
+
+    public static <T> CloudSearchResult<T> success(T value) {
+        return new CloudSearchResult<T>(value, null, null, null, null, null);
+    }
+
+    public static <T> CloudSearchResult<T> failure(CloudSearchClientException csce) {
+        return new CloudSearchResult<T>(null, csce.getCloudSearchStatusCode(), csce.getEntity(), csce.getErrorMessage(),
+                                        csce.getErrorId(), csce);
+    }
+
+    public static <T> CloudSearchResult<T> failure(CloudSearchRuntimeException csre) {
+        return new CloudSearchResult<T>(null, null, null, csre.getMessage(), csre.getErrorId(), csre);
+    }
+
+    /**
+     * Whether the call succeeded
+     */
+    public boolean isSuccess() {
+        return this.error == null;
+    }
+
+    /**
+     * The response of a successful call
+     *
+     * @return the response, or null if the call failed
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * The http status Amazon answered a failed call with
+     *
+     * @return the status code, or null if the call succeeded or failed without a response
+     */
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * The CloudSearchStatusCode of a failed call
+     *
+     * @return the status, UNKNOWN if it failed without a response, or null if the call succeeded
+     */
+    public CloudSearchStatusCode getCloudSearchStatusCode() {
+        if (isSuccess()) {
+            return null;
+        }
+
+        return (this.statusCode == null ? CloudSearchStatusCode.UNKNOWN : CloudSearchStatusCode.fromStatus(this.statusCode));
+    }
+
+    /**
+     * The body of the response Amazon answered a failed call with
+     */
+    public String getEntity() {
+        return entity;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public UUID getErrorId() {
+        return errorId;
+    }
+
+    /**
+     * The exception the call failed with, for callers which need its type such as a CloudSearchLoadShedException. It
+     * was usually created without a stack trace, see CloudSearchErrors.
+     *
+     * @return the exception, or null if the call succeeded
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * String representation of the CloudSearchResult object
+     *
+     * @return a String representing the CloudSearchResult object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("value", this.value)
+                .add("statusCode", this.statusCode)
+                .add("entity", this.entity)
+                .add("message", this.message)
+                .add("errorId", this.errorId)
+                .toString();
+    }
+}
@@ -0,0 +1,112 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.sdf;
+
+import com.google.common.base.Objects;
+
+/**
+ * An immutable field to be indexed. Unlike Field it can be shared between threads and held in caches without being
+ * copied, and its hashcode is computed once when it is built.
+ *
+ * @author jmonette
+ */
+public final class ImmutableField {
+
+    /** The name of the field */
+    private final String name;
+
+    /** The value of the field */
+    private final String value;
+
+    private final int hashCode;
+
+    public ImmutableField(String name, String value) {
+        this.name = name;
+        this.value = value;
+        this.hashCode = Objects.hashCode(name, value);
+    }
+
+    /**
+     * An immutable copy of the field
+     *
+     * @param field the field to copy
+     * @return the immutable field
+     */
+    public static ImmutableField copyOf(Field field) {
+        return new ImmutableField(field.getName(), field.getValue());
+    }
+
+    /**
+     * A mutable copy of this field, for the JAXB mapping
+     *
+     * @return the Field
+     */
+    public Field toField() {
+        Field field = new Field();
+        field.setName(this.name);
+        field.setValue(this.value);
+        return field;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * The hashcode representing the ImmutableField object
+     *
+     * @return the hashcode representing the ImmutableField object
+     */
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Equals method for the ImmutableField object
+     *
+     * @param obj object to compare if this object is equal to
+     * @return true if the objects are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {return true;}
+        if (obj == null || !(obj instanceof ImmutableField)) {return false;}
+
+        final ImmutableField that = (ImmutableField) obj;
+        return this.hashCode == that.hashCode
+            && Objects.equal(this.name, that.name)
+            && Objects.equal(this.value, that.value);
+    }
+
+    /**
+     * String representation of the ImmutableField object
+     *
+     * @return String representation of the ImmutableField object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("name", name)
+                      .add("value", value)
+                      .toString();
+    }
+}
@@ -0,0 +1,151 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.sdf;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable add operation of an SDF. Unlike SearchDocumentAdd it can be shared between threads and held in caches
+ * without being copied. Its fields are held in an ImmutableList sized to them and its hashcode is computed once when it
+ * is built. It is built with an ImmutableSearchDocumentAddBuilder.
+ *
+ * @author jmonette
+ */
+public final class ImmutableSearchDocumentAdd {
+
+    /** The id for the add operation */
+    private final String id;
+
+    /** The version for the add operation */
+    private final String version;
+
+    /** The language associated with the add operation */
+    private final String lang;
+
+    /** The fields to be indexed */
+    private final ImmutableList<ImmutableField> fields;
+
+    private final int hashCode;
+
+    public ImmutableSearchDocumentAdd(String id, String version, String lang, List<ImmutableField> fields) {
+        this.id = id;
+        this.version = version;
+        this.lang = lang;
+        this.fields = (fields == null ? ImmutableList.<ImmutableField>of() : ImmutableList.copyOf(fields));
+        this.hashCode = Objects.hashCode(id, version, lang, this.fields);
+    }
+
+    /**
+     * An immutable copy of the add operation
+     *
+     * @param add the add operation to copy
+     * @return the immutable add operation
+     */
+    public static ImmutableSearchDocumentAdd copyOf(SearchDocumentAdd add) {
+        ImmutableList.Builder<ImmutableField> fields = ImmutableList.builder();
+        if (add.getFields() != null) {
+            for (Field field : add.getFields()) {
+                fields.add(ImmutableField.copyOf(field));
+            }
+        }
+
+        return new ImmutableSearchDocumentAdd(add.getId(), add.getVersion(), add.getLang(), fields.build());
+    }
+
+    /**
+     * A mutable copy of this add operation, to post it in a SearchDocumentFormat
+     *
+     * @return the SearchDocumentAdd
+     */
+    public SearchDocumentAdd toSearchDocumentAdd() {
+        List<Field> fieldList = new ArrayList<Field>(this.fields.size());
+        for (ImmutableField field : this.fields) {
+            fieldList.add(field.toField());
+        }
+
+        SearchDocumentAdd add = new SearchDocumentAdd();
+        add.setId(this.id);
+        add.setVersion(this.version);
+        add.setLang(this.lang);
+        add.setFields(fieldList);
+        return add;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getLang() {
+        return lang;
+    }
+
+    public ImmutableList<ImmutableField> getFields() {
+        return fields;
+    }
+
+    /**
+     * The hashcode representing the ImmutableSearchDocumentAdd object
+     *
+     * @return the hashcode representing the ImmutableSearchDocumentAdd object
+     */
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Equals method for the ImmutableSearchDocumentAdd object
+     *
+     * @param obj object to compare if this object is equal to
+     * @return true if the objects are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {return true;}
+        if (obj == null || !(obj instanceof ImmutableSearchDocumentAdd)) {return false;}
+
+        final ImmutableSearchDocumentAdd that = (ImmutableSearchDocumentAdd) obj;
+        return this.hashCode == that.hashCode
+            && Objects.equal(this.id, that.id)
+            && Objects.equal(this.version, that.version)
+            && Objects.equal(this.lang, that.lang)
+            && Objects.equal(this.fields, that.fields);
+    }
+
+    /**
+     * String representation of the ImmutableSearchDocumentAdd object
+     *
+     * @return String representation of the ImmutableSearchDocumentAdd object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("id", id)
+                      .add("version", version)
+                      .add("lang", lang)
+                      .add("fields", fields)
+                      .toString();
+    }
+}
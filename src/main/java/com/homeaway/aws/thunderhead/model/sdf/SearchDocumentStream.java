@@ -0,0 +1,71 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.sdf;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Iterators;
+
+import java.util.Iterator;
+
+/**
+ * An SDF batch whose documents are pulled from iterators while the batch is being written to Amazon, so that the
+ * documents never need to be held in memory all at once. The adds are written first and then the deletes.
+ *
+ * A SearchDocumentStream can only be written once, and it is posted as a single request so the caller is responsible
+ * for keeping it within the cloudsearch batch size limit.
+ *
+ * @author jmonette
+ */
+public class SearchDocumentStream {
+
+    private final Iterator<SearchDocumentAdd> searchDocumentAdds;
+    private final Iterator<SearchDocumentDelete> searchDocumentDeletes;
+
+    /**
+     * Creates a stream of the given adds and deletes
+     *
+     * @param searchDocumentAdds the adds, or null if there are none
+     * @param searchDocumentDeletes the deletes, or null if there are none
+     */
+    public SearchDocumentStream(Iterator<SearchDocumentAdd> searchDocumentAdds, Iterator<SearchDocumentDelete> searchDocumentDeletes) {
+        this.searchDocumentAdds = (searchDocumentAdds == null ? Iterators.<SearchDocumentAdd>emptyIterator() : searchDocumentAdds);
+        this.searchDocumentDeletes = (searchDocumentDeletes == null ? Iterators.<SearchDocumentDelete>emptyIterator() : searchDocumentDeletes);
+    }
+
+    public static SearchDocumentStream ofAdds(Iterator<SearchDocumentAdd> searchDocumentAdds) {
+        return new SearchDocumentStream(searchDocumentAdds, null);
+    }
+
+    public static SearchDocumentStream ofDeletes(Iterator<SearchDocumentDelete> searchDocumentDeletes) {
+        return new SearchDocumentStream(null, searchDocumentDeletes);
+    }
+
+    /*    Getters       */
+    public Iterator<SearchDocumentAdd> getSearchDocumentAdds() {
+        return searchDocumentAdds;
+    }
+
+    public Iterator<SearchDocumentDelete> getSearchDocumentDeletes() {
+        return searchDocumentDeletes;
+    }
+
+    @Override
+    public String toString() {
+        /* Asking the iterators for more documents could load them, so they are left alone */
+        return Objects.toStringHelper(this).toString();
+    }
+}
@@ -0,0 +1,120 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.search;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ListMultimap;
+
+/**
+ * An immutable query hit. Unlike SearchHit it can be shared between threads and held in caches without being copied,
+ * and its hashcode is computed once when it is built. The return fields are held by name in the order they were
+ * returned, so a field is looked up without scanning them. It is built with an ImmutableSearchHitBuilder.
+ *
+ * @author jmonette
+ */
+public final class ImmutableSearchHit {
+
+    /** The id for the hit found */
+    private final String id;
+
+    /** The values of the return fields, by field name */
+    private final ImmutableListMultimap<String, String> returnFields;
+
+    private final int hashCode;
+
+    public ImmutableSearchHit(String id, ListMultimap<String, String> returnFields) {
+        this.id = id;
+        this.returnFields = (returnFields == null ? ImmutableListMultimap.<String, String>of() : ImmutableListMultimap.copyOf(returnFields));
+        this.hashCode = Objects.hashCode(id, this.returnFields);
+    }
+
+    /**
+     * An immutable copy of the hit
+     *
+     * @param searchHit the hit to copy
+     * @return the immutable hit
+     */
+    public static ImmutableSearchHit copyOf(SearchHit searchHit) {
+        ImmutableListMultimap.Builder<String, String> returnFields = ImmutableListMultimap.builder();
+        if (searchHit.getReturnFieldsList() != null) {
+            for (ReturnFields returnField : searchHit.getReturnFieldsList()) {
+                returnFields.put(returnField.getName(), returnField.getValue());
+            }
+        }
+
+        return new ImmutableSearchHit(searchHit.getId(), returnFields.build());
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ImmutableListMultimap<String, String> getReturnFields() {
+        return returnFields;
+    }
+
+    /**
+     * The first value of a return field
+     *
+     * @param name the name of the field
+     * @return the value, or null if the field was not returned
+     */
+    public String getReturnField(String name) {
+        return (this.returnFields.containsKey(name) ? this.returnFields.get(name).get(0) : null);
+    }
+
+    /**
+     * The hashcode representing the ImmutableSearchHit object
+     *
+     * @return the hashcode representing the ImmutableSearchHit object
+     */
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Equals method for the ImmutableSearchHit object
+     *
+     * @param obj object to compare if this object is equal to
+     * @return true if the objects are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {return true;}
+        if (obj == null || !(obj instanceof ImmutableSearchHit)) {return false;}
+
+        final ImmutableSearchHit that = (ImmutableSearchHit) obj;
+        return this.hashCode == that.hashCode
+            && Objects.equal(this.id, that.id)
+            && Objects.equal(this.returnFields, that.returnFields);
+    }
+
+    /**
+     * String representation of the ImmutableSearchHit object
+     *
+     * @return String representation of the ImmutableSearchHit object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("id", id)
+                      .add("return-fields", returnFields)
+                      .toString();
+    }
+}
@@ -0,0 +1,121 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.search;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * An immutable page of query hits. Unlike SearchHits it can be shared between threads and held in caches without
+ * being copied. Its hits are held in an ImmutableList sized to them and its hashcode is computed once when it is built.
+ * It is built with an ImmutableSearchHitsBuilder.
+ *
+ * @author jmonette
+ */
+public final class ImmutableSearchHits {
+
+    /** The number of documents found */
+    private final int count;
+
+    /** The starting index */
+    private final int start;
+
+    /** The documents found */
+    private final ImmutableList<ImmutableSearchHit> hits;
+
+    private final int hashCode;
+
+    public ImmutableSearchHits(int count, int start, List<ImmutableSearchHit> hits) {
+        this.count = count;
+        this.start = start;
+        this.hits = (hits == null ? ImmutableList.<ImmutableSearchHit>of() : ImmutableList.copyOf(hits));
+        this.hashCode = Objects.hashCode(count, start, this.hits);
+    }
+
+    /**
+     * An immutable copy of the hits
+     *
+     * @param searchHits the hits to copy
+     * @return the immutable hits
+     */
+    public static ImmutableSearchHits copyOf(SearchHits searchHits) {
+        ImmutableList.Builder<ImmutableSearchHit> hits = ImmutableList.builder();
+        if (searchHits.getHits() != null) {
+            for (SearchHit searchHit : searchHits.getHits()) {
+                hits.add(ImmutableSearchHit.copyOf(searchHit));
+            }
+        }
+
+        return new ImmutableSearchHits(searchHits.getCount(), searchHits.getStart(), hits.build());
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public ImmutableList<ImmutableSearchHit> getHits() {
+        return hits;
+    }
+
+    /**
+     * The hashcode representing the ImmutableSearchHits object
+     *
+     * @return the hashcode representing the ImmutableSearchHits object
+     */
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Equals method for the ImmutableSearchHits object
+     *
+     * @param obj object to compare if this object is equal to
+     * @return true if the objects are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {return true;}
+        if (obj == null || !(obj instanceof ImmutableSearchHits)) {return false;}
+
+        final ImmutableSearchHits that = (ImmutableSearchHits) obj;
+        return this.hashCode == that.hashCode
+            && this.count == that.count
+            && this.start == that.start
+            && Objects.equal(this.hits, that.hits);
+    }
+
+    /**
+     * String representation of the ImmutableSearchHits object
+     *
+     * @return String representation of the ImmutableSearchHits object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("count", count)
+                      .add("start", start)
+                      .add("hits", hits)
+                      .toString();
+    }
+}
@@ -0,0 +1,149 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.search;
+
+import com.google.common.base.Objects;
+
+/**
+ * An immutable query response. Unlike SearchResponse it can be shared between threads and held in caches without
+ * being copied, and its hashcode is computed once when it is built. The request id and times of the SearchInfo are held
+ * on the response itself. It is built with an ImmutableSearchResponseBuilder.
+ *
+ * @author jmonette
+ */
+public final class ImmutableSearchResponse {
+
+    /** How to rank the query results */
+    private final String rank;
+
+    /** What expression was being matched */
+    private final String matchExpr;
+
+    /** The documents found */
+    private final ImmutableSearchHits found;
+
+    /** The request id cloudsearch assigned to the query */
+    private final String rid;
+
+    /** The time in milliseconds cloudsearch took for the query */
+    private final String timeMs;
+
+    /** The cpu time in milliseconds cloudsearch used for the query */
+    private final String cpuTimeMs;
+
+    private final int hashCode;
+
+    public ImmutableSearchResponse(String rank, String matchExpr, ImmutableSearchHits found, String rid, String timeMs, String cpuTimeMs) {
+        this.rank = rank;
+        this.matchExpr = matchExpr;
+        this.found = found;
+        this.rid = rid;
+        this.timeMs = timeMs;
+        this.cpuTimeMs = cpuTimeMs;
+        this.hashCode = Objects.hashCode(rank, matchExpr, found, rid, timeMs, cpuTimeMs);
+    }
+
+    /**
+     * An immutable copy of the response, without its SearchTiming
+     *
+     * @param searchResponse the response to copy
+     * @return the immutable response
+     */
+    public static ImmutableSearchResponse copyOf(SearchResponse searchResponse) {
+        ImmutableSearchHits found = (searchResponse.getFound() == null ? null : ImmutableSearchHits.copyOf(searchResponse.getFound()));
+        SearchInfo info = searchResponse.getInfo();
+
+        return new ImmutableSearchResponse(searchResponse.getRank(),
+                                           searchResponse.getMatchExpr(),
+                                           found,
+                                           (info == null ? null : info.getRid()),
+                                           (info == null ? null : info.getTimeMs()),
+                                           (info == null ? null : info.getCpuTimeMs()));
+    }
+
+    public String getRank() {
+        return rank;
+    }
+
+    public String getMatchExpr() {
+        return matchExpr;
+    }
+
+    public ImmutableSearchHits getFound() {
+        return found;
+    }
+
+    public String getRid() {
+        return rid;
+    }
+
+    public String getTimeMs() {
+        return timeMs;
+    }
+
+    public String getCpuTimeMs() {
+        return cpuTimeMs;
+    }
+
+    /**
+     * The hashcode representing the ImmutableSearchResponse object
+     *
+     * @return the hashcode representing the ImmutableSearchResponse object
+     */
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Equals method for the ImmutableSearchResponse object
+     *
+     * @param obj object to compare if this object is equal to
+     * @return true if the objects are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {return true;}
+        if (obj == null || !(obj instanceof ImmutableSearchResponse)) {return false;}
+
+        final ImmutableSearchResponse that = (ImmutableSearchResponse) obj;
+        return this.hashCode == that.hashCode
+            && Objects.equal(this.rank, that.rank)
+            && Objects.equal(this.matchExpr, that.matchExpr)
+            && Objects.equal(this.found, that.found)
+            && Objects.equal(this.rid, that.rid)
+            && Objects.equal(this.timeMs, that.timeMs)
+            && Objects.equal(this.cpuTimeMs, that.cpuTimeMs);
+    }
+
+    /**
+     * String representation of the ImmutableSearchResponse object
+     *
+     * @return String representation of the ImmutableSearchResponse object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("rank", rank)
+                      .add("match-expr", matchExpr)
+                      .add("found", found)
+                      .add("rid", rid)
+                      .add("time-ms", timeMs)
+                      .add("cpu-time-ms", cpuTimeMs)
+                      .toString();
+    }
+}
@@ -68,6 +68,40 @@ public class SearchInfo {
         this.cpuTimeMs = cpuTimeMs;
     }
 
+    /**
+     * The time in milliseconds to query the cloudsearch domain
+     *
+     * @return the time, or null if it was not reported or is not a number
+     */
+    public Long getTimeMillis() {
+        return toMillis(timeMs);
+    }
+
+    /**
+     * The actual cpu time in milliseconds to query the cloudsearch domain
+     *
+     * @return the cpu time, or null if it was not reported or is not a number
+     */
+    public Long getCpuTimeMillis() {
+        return toMillis(cpuTimeMs);
+    }
+
+    private static Long toMillis(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException nfe) {
+            try {
+                return Math.round(Double.parseDouble(value.trim()));
+            } catch (NumberFormatException nfe2) {
+                return null;
+            }
+        }
+    }
+
     /**
      * The hashcode representing the SearchInfo object
      *
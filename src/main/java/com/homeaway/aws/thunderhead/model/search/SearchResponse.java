@@ -20,6 +20,7 @@ import com.google.common.base.Objects;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.XmlType;
 
 /**
@@ -45,6 +46,10 @@ public class SearchResponse {
     @XmlElement(name = "info")
     private SearchInfo info;
 
+    /** Where the time of the query that fetched this response went, not part of the response itself */
+    @XmlTransient
+    private SearchTiming timing;
+
     /****************************** */
     /*    Getters and Setters       */
     /****************************** */
@@ -80,6 +85,20 @@ public class SearchResponse {
         this.info = info;
     }
 
+    /**
+     * Where the time of the request that fetched this response went. Coalesced and cached responses carry the timing
+     * of the original fetch.
+     *
+     * @return the timing, or null if the response was not fetched through the client
+     */
+    public SearchTiming getTiming() {
+        return timing;
+    }
+
+    public void setTiming(final SearchTiming timing) {
+        this.timing = timing;
+    }
+
     /**
      * The hashcode representing the SearchResponse object
      *
@@ -0,0 +1,208 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.search;
+
+import com.google.common.base.Objects;
+import com.homeaway.aws.thunderhead.model.enums.SearchTimingPhase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where the time of a query went, as seen by the client, next to the time cloudsearch reported for it. The time to
+ * first byte less the server time is the time spent on the network and in the domain's queues; the parse time is spent
+ * in this client.
+ *
+ * The connect time is the wait for a pooled connection. When no idle connection was left a new one is opened as the
+ * request is sent, and its handshake falls in the time to first byte.
+ *
+ * The timing describes the request that fetched the response. A response shared by the QueryCoalescer or served from
+ * the CachingCloudSearchClient carries the timing of that original fetch, not of the call that received it, and the
+ * metrics recorder is only told of it once.
+ *
+ * @author jmonette
+ */
+public class SearchTiming {
+
+    /** The endpoint the query was sent to */
+    private String endpoint;
+
+    /** The request id cloudsearch assigned to the query */
+    private String rid;
+
+    /** The time in nanoseconds to get a connection from the pool */
+    private long connectNanos;
+
+    /** Whether the connection was already open */
+    private boolean connectionReused;
+
+    /** The time in nanoseconds from sending the request to receiving the response headers */
+    private long firstByteNanos;
+
+    /** The time in nanoseconds spent waiting for the response body to arrive */
+    private long bodyReadNanos;
+
+    /** The time in nanoseconds spent parsing the response body */
+    private long parseNanos;
+
+    /** The time in milliseconds cloudsearch reported for the query */
+    private Long serverTimeMs;
+
+    /** The cpu time in milliseconds cloudsearch reported for the query */
+    private Long serverCpuTimeMs;
+
+    /****************************** */
+    /*    Getters and Setters       */
+    /****************************** */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(final String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getRid() {
+        return rid;
+    }
+
+    public void setRid(final String rid) {
+        this.rid = rid;
+    }
+
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public void setConnectNanos(final long connectNanos) {
+        this.connectNanos = connectNanos;
+    }
+
+    public boolean isConnectionReused() {
+        return connectionReused;
+    }
+
+    public void setConnectionReused(final boolean connectionReused) {
+        this.connectionReused = connectionReused;
+    }
+
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+
+    public void setFirstByteNanos(final long firstByteNanos) {
+        this.firstByteNanos = firstByteNanos;
+    }
+
+    public long getBodyReadNanos() {
+        return bodyReadNanos;
+    }
+
+    public void setBodyReadNanos(final long bodyReadNanos) {
+        this.bodyReadNanos = bodyReadNanos;
+    }
+
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    public void setParseNanos(final long parseNanos) {
+        this.parseNanos = parseNanos;
+    }
+
+    public Long getServerTimeMs() {
+        return serverTimeMs;
+    }
+
+    public void setServerTimeMs(final Long serverTimeMs) {
+        this.serverTimeMs = serverTimeMs;
+    }
+
+    public Long getServerCpuTimeMs() {
+        return serverCpuTimeMs;
+    }
+
+    public void setServerCpuTimeMs(final Long serverCpuTimeMs) {
+        this.serverCpuTimeMs = serverCpuTimeMs;
+    }
+
+    /**
+     * The time of the query as seen by the client
+     *
+     * @return the sum of the connect, first byte, body read and parse times in nanoseconds
+     */
+    public long getTotalNanos() {
+        return this.connectNanos + this.firstByteNanos + this.bodyReadNanos + this.parseNanos;
+    }
+
+    /**
+     * The time to first byte that cloudsearch did not account for
+     *
+     * @return the time in nanoseconds spent on the network and in queues, or -1 if no server time was reported
+     */
+    public long getNetworkNanos() {
+        if (this.serverTimeMs == null) {
+            return -1L;
+        }
+
+        return Math.max(0L, this.firstByteNanos - TimeUnit.MILLISECONDS.toNanos(this.serverTimeMs));
+    }
+
+    /**
+     * The time of one phase of the query
+     *
+     * @param phase the phase
+     * @return the time of the phase in nanoseconds, or -1 for a server time that was not reported
+     */
+    public long getNanos(SearchTimingPhase phase) {
+        switch (phase) {
+            case CONNECT:
+                return this.connectNanos;
+            case FIRST_BYTE:
+                return this.firstByteNanos;
+            case BODY_READ:
+                return this.bodyReadNanos;
+            case PARSE:
+                return this.parseNanos;
+            case SERVER:
+                return (this.serverTimeMs == null ? -1L : TimeUnit.MILLISECONDS.toNanos(this.serverTimeMs));
+            case SERVER_CPU:
+                return (this.serverCpuTimeMs == null ? -1L : TimeUnit.MILLISECONDS.toNanos(this.serverCpuTimeMs));
+            default:
+                throw new IllegalArgumentException("Unknown phase " + phase);
+        }
+    }
+
+    /**
+     * String representation of the SearchTiming object
+     *
+     * @return String representation of the SearchTiming object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("endpoint", endpoint)
+                      .add("rid", rid)
+                      .add("connectNanos", connectNanos)
+                      .add("connectionReused", connectionReused)
+                      .add("firstByteNanos", firstByteNanos)
+                      .add("bodyReadNanos", bodyReadNanos)
+                      .add("parseNanos", parseNanos)
+                      .add("time-ms", serverTimeMs)
+                      .add("cpu-time-ms", serverCpuTimeMs)
+                      .toString();
+    }
+}
@@ -0,0 +1,236 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchStatusCode;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the document service endpoint of a FakeCloudSearchServer. SDF batches in xml or json are applied to its
+ * FakeCloudSearchIndex, and batches over the maximum size are rejected with a 413 as CloudSearch does.
+ *
+ * @author jmonette
+ */
+@Path(CloudSearchClient.CLOUDSEARCH_VERSION + "/documents/batch")
+public class DocumentsResource {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final JAXBContext SDF_CONTEXT;
+
+    static {
+        try {
+            SDF_CONTEXT = JAXBContext.newInstance(SearchDocumentFormat.class);
+        } catch (JAXBException je) {
+            throw new ExceptionInInitializerError(je);
+        }
+    }
+
+    private final FakeCloudSearchIndex index;
+    private final FaultInjector faultInjector;
+    private final long maxBatchBytes;
+    private final AtomicLong requests = new AtomicLong();
+
+    public DocumentsResource(FakeCloudSearchIndex index, FaultInjector faultInjector, long maxBatchBytes) {
+        this.index = index;
+        this.faultInjector = faultInjector;
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    @POST
+    public Response batch(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType, byte[] body) {
+        this.requests.incrementAndGet();
+
+        int status = this.faultInjector.inject();
+        if (status != 0) {
+            return SearchResource.error(status, CloudSearchStatusCode.fromStatus(status).getErrorString());
+        }
+
+        if (body.length > this.maxBatchBytes) {
+            return SearchResource.error(CloudSearchStatusCode.REQUEST_TOO_LONG.getUpdateStatusCode(),
+                                        "The batch of " + body.length + " bytes is over the limit of " + this.maxBatchBytes);
+        }
+
+        SearchDocumentFormat batch;
+        try {
+            if (contentType != null && contentType.startsWith(MediaType.APPLICATION_JSON)) {
+                batch = readJson(body);
+            } else {
+                batch = (SearchDocumentFormat) SDF_CONTEXT.createUnmarshaller().unmarshal(new ByteArrayInputStream(body));
+            }
+        } catch (Exception e) {
+            return SearchResource.error(CloudSearchStatusCode.BAD_REQUEST.getUpdateStatusCode(), "Unable to read the batch: " + e.getMessage());
+        }
+
+        UploadResponse uploadResponse = apply(batch);
+
+        return Response.status(uploadResponse.getErrors() == null ? 200 : CloudSearchStatusCode.BAD_REQUEST.getUpdateStatusCode())
+                       .entity(uploadResponse)
+                       .type(MediaType.APPLICATION_XML_TYPE)
+                       .build();
+    }
+
+    /**
+     * The number of batches received, failed ones included
+     */
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    private UploadResponse apply(SearchDocumentFormat batch) {
+        List<String> errors = new ArrayList<String>();
+        int adds = 0;
+        int deletes = 0;
+
+        if (batch.getSearchDocumentAdds() != null) {
+            for (SearchDocumentAdd add : batch.getSearchDocumentAdds()) {
+                try {
+                    this.index.add(add);
+                    adds++;
+                } catch (IllegalArgumentException iae) {
+                    errors.add(iae.getMessage());
+                }
+            }
+        }
+
+        if (batch.getSearchDocumentDeletes() != null) {
+            for (SearchDocumentDelete delete : batch.getSearchDocumentDeletes()) {
+                try {
+                    this.index.delete(delete);
+                    deletes++;
+                } catch (IllegalArgumentException iae) {
+                    errors.add(iae.getMessage());
+                }
+            }
+        }
+
+        UploadResponse uploadResponse = new UploadResponse();
+        uploadResponse.setStatus(errors.isEmpty() ? "success" : "error");
+        uploadResponse.setAdds(adds);
+        uploadResponse.setDeletes(deletes);
+        uploadResponse.setErrors(errors.isEmpty() ? null : errors);
+
+        return uploadResponse;
+    }
+
+    /**
+     * Read a json SDF batch, an array of adds and deletes where each field is a value or an array of values
+     */
+    private static SearchDocumentFormat readJson(byte[] body) throws IOException {
+        List<SearchDocumentAdd> adds = new ArrayList<SearchDocumentAdd>();
+        List<SearchDocumentDelete> deletes = new ArrayList<SearchDocumentDelete>();
+
+        JsonParser parser = JSON_FACTORY.createJsonParser(body);
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("The batch is not a json array");
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String type = null;
+                String id = null;
+                String version = null;
+                String lang = null;
+                List<Field> fields = new ArrayList<Field>();
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("fields".equals(name)) {
+                        readFields(parser, fields);
+                    } else if ("type".equals(name)) {
+                        type = parser.getText();
+                    } else if ("id".equals(name)) {
+                        id = parser.getText();
+                    } else if ("version".equals(name)) {
+                        version = parser.getText();
+                    } else if ("lang".equals(name)) {
+                        lang = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+
+                if ("add".equals(type)) {
+                    SearchDocumentAdd add = new SearchDocumentAdd();
+                    add.setId(id);
+                    add.setVersion(version);
+                    add.setLang(lang);
+                    add.setFields(fields);
+                    adds.add(add);
+                } else if ("delete".equals(type)) {
+                    SearchDocumentDelete delete = new SearchDocumentDelete();
+                    delete.setId(id);
+                    delete.setVersion(version);
+                    deletes.add(delete);
+                } else {
+                    throw new IOException("Unknown document type: " + type);
+                }
+            }
+        } finally {
+            parser.close();
+        }
+
+        SearchDocumentFormat batch = new SearchDocumentFormat();
+        batch.setSearchDocumentAdds(adds);
+        batch.setSearchDocumentDeletes(deletes);
+
+        return batch;
+    }
+
+    private static void readFields(JsonParser parser, List<Field> fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    fields.add(field(name, parser.getText()));
+                }
+            } else {
+                fields.add(field(name, parser.getText()));
+            }
+        }
+    }
+
+    private static Field field(String name, String value) {
+        Field field = new Field();
+        field.setName(name);
+        field.setValue(value);
+        return field;
+    }
+}
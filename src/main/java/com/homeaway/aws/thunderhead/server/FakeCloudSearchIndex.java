@@ -0,0 +1,182 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.search.ReturnFields;
+import com.homeaway.aws.thunderhead.model.search.SearchHit;
+import com.homeaway.aws.thunderhead.model.search.SearchHits;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The in-memory documents of a FakeCloudSearchServer. As with CloudSearch an add or a delete only applies when its
+ * version is higher than the version of the document held, so batches replayed by retries are harmless. Hits are
+ * returned in the order of their ids, there is no relevance ranking.
+ *
+ * It is safe to use from many threads.
+ *
+ * @author jmonette
+ */
+public class FakeCloudSearchIndex {
+
+    private final ConcurrentMap<String, IndexedDocument> documents = new ConcurrentSkipListMap<String, IndexedDocument>();
+
+    /**
+     * Add or replace a document
+     *
+     * @param add the SDF add
+     * @return whether the add applied, false if the index already holds the document at the same or a later version
+     * @throws IllegalArgumentException if the add has no id or its version is not a number
+     */
+    public boolean add(SearchDocumentAdd add) {
+        IndexedDocument document = IndexedDocument.of(add);
+        while (true) {
+            IndexedDocument current = this.documents.putIfAbsent(document.getId(), document);
+            if (current == null) {
+                return true;
+            }
+            if (current.getVersion() >= document.getVersion()) {
+                return false;
+            }
+            if (this.documents.replace(document.getId(), current, document)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Delete a document
+     *
+     * @param delete the SDF delete
+     * @return whether the delete applied, false if the document is missing or held at the same or a later version
+     * @throws IllegalArgumentException if the delete has no id or its version is not a number
+     */
+    public boolean delete(SearchDocumentDelete delete) {
+        if (delete.getId() == null) {
+            throw new IllegalArgumentException("A delete is missing its id");
+        }
+
+        long version = IndexedDocument.parseVersion(delete.getId(), delete.getVersion());
+        while (true) {
+            IndexedDocument current = this.documents.get(delete.getId());
+            if (current == null || current.getVersion() >= version) {
+                return false;
+            }
+            if (this.documents.remove(delete.getId(), current)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Run a query against the documents
+     *
+     * @param q the q parameter, or null
+     * @param bq the bq parameter, or null
+     * @param start the offset of the first hit to return
+     * @param size the maximum number of hits to return
+     * @param returnFields the fields to return with each hit, none when null
+     * @return the hits
+     * @throws IllegalArgumentException if neither q nor bq is given or either is malformed
+     */
+    public SearchHits search(String q, String bq, int start, int size, Collection<String> returnFields) {
+        List<QueryExpression> expressions = new ArrayList<QueryExpression>(2);
+        if (q != null) {
+            expressions.add(QueryExpression.parseTextQuery(q));
+        }
+        if (bq != null) {
+            expressions.add(QueryExpression.parseBooleanQuery(bq));
+        }
+        if (expressions.isEmpty()) {
+            throw new IllegalArgumentException("A q or bq parameter is required");
+        }
+
+        int found = 0;
+        List<SearchHit> hits = new ArrayList<SearchHit>(Math.min(size, 100));
+        for (IndexedDocument document : this.documents.values()) {
+            if (!matches(expressions, document)) {
+                continue;
+            }
+
+            if (found >= start && hits.size() < size) {
+                hits.add(toHit(document, returnFields));
+            }
+            found++;
+        }
+
+        SearchHits searchHits = new SearchHits();
+        searchHits.setCount(found);
+        searchHits.setStart(start);
+        searchHits.setHits(hits);
+
+        return searchHits;
+    }
+
+    /**
+     * The number of documents held
+     */
+    public int size() {
+        return this.documents.size();
+    }
+
+    /**
+     * Remove every document
+     */
+    public void clear() {
+        this.documents.clear();
+    }
+
+    private boolean matches(List<QueryExpression> expressions, IndexedDocument document) {
+        for (QueryExpression expression : expressions) {
+            if (!expression.matches(document)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private SearchHit toHit(IndexedDocument document, Collection<String> returnFields) {
+        List<ReturnFields> returnFieldsList = new ArrayList<ReturnFields>();
+        if (returnFields != null) {
+            for (String name : returnFields) {
+                List<String> values = document.getFields().get(name);
+                if (values == null) {
+                    continue;
+                }
+
+                for (String value : values) {
+                    ReturnFields field = new ReturnFields();
+                    field.setName(name);
+                    field.setValue(value);
+                    returnFieldsList.add(field);
+                }
+            }
+        }
+
+        SearchHit searchHit = new SearchHit();
+        searchHit.setId(document.getId());
+        searchHit.setReturnFieldsList(returnFieldsList);
+
+        return searchHit;
+    }
+}
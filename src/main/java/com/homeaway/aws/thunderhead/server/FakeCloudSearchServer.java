@@ -0,0 +1,172 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.jersey.api.container.httpserver.HttpServerFactory;
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.homeaway.aws.thunderhead.client.CloudSearchClient.LOGGER;
+
+/**
+ * An embeddable stand-in for a CloudSearch domain, serving both the search and the document service endpoints from
+ * an in-memory FakeCloudSearchIndex over plain http on localhost. Latency and errors can be injected into each
+ * endpoint, so batching, retries and connection pooling can be load tested without an AWS domain.
+ *
+ * A client is pointed at it by giving getHost() as both its query and update host. Build one with the
+ * FakeCloudSearchServerBuilder.
+ *
+ * @author jmonette
+ */
+public class FakeCloudSearchServer {
+
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final int requestedPort;
+    private final int threads;
+    private final boolean tcpNoDelay;
+    private final FakeCloudSearchIndex index;
+    private final FaultInjector searchFaults;
+    private final FaultInjector updateFaults;
+    private final SearchResource searchResource;
+    private final DocumentsResource documentsResource;
+
+    private HttpServer httpServer;
+    private ExecutorService executor;
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     * @param threads the number of threads serving requests
+     * @param tcpNoDelay whether to set the JVM-wide sun.net.httpserver.nodelay property, if unset, when started
+     * @param maxBatchBytes the size over which SDF batches are rejected with a 413
+     * @param index the documents to serve
+     * @param random the source of the injected latencies and errors
+     */
+    public FakeCloudSearchServer(int port, int threads, boolean tcpNoDelay, long maxBatchBytes, FakeCloudSearchIndex index,
+                                 Random random) {
+        this.requestedPort = port;
+        this.threads = threads;
+        this.tcpNoDelay = tcpNoDelay;
+        this.index = index;
+        this.searchFaults = new FaultInjector(random);
+        this.updateFaults = new FaultInjector(random);
+        this.searchResource = new SearchResource(index, this.searchFaults, random);
+        this.documentsResource = new DocumentsResource(index, this.updateFaults, maxBatchBytes);
+    }
+
+    /**
+     * Start serving requests. If the server was built with tcpNoDelay, the sun.net.httpserver.nodelay system property is
+     * set first, unless it already has a value; the JDK http server reads it once for the whole JVM, so it only takes
+     * effect if no http server was created before.
+     *
+     * @throws IOException if the port could not be bound
+     */
+    public synchronized void start() throws IOException {
+        if (this.httpServer != null) {
+            throw new IllegalStateException("The server is already started");
+        }
+
+        if (this.tcpNoDelay && System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+
+        DefaultResourceConfig resourceConfig = new DefaultResourceConfig();
+        resourceConfig.getSingletons().add(this.searchResource);
+        resourceConfig.getSingletons().add(this.documentsResource);
+
+        this.httpServer = HttpServerFactory.create("http://localhost:" + this.requestedPort + "/", resourceConfig);
+        this.executor = Executors.newFixedThreadPool(this.threads, new ThreadFactoryBuilder().setDaemon(true)
+                                                                                              .setNameFormat("fake-cloudsearch-%d")
+                                                                                              .build());
+        this.httpServer.setExecutor(this.executor);
+        this.httpServer.start();
+
+        LOGGER.info("Started a fake CloudSearch server on {}", getHost());
+    }
+
+    /**
+     * Stop serving requests, dropping those in flight
+     */
+    public synchronized void stop() {
+        if (this.httpServer == null) {
+            return;
+        }
+
+        this.httpServer.stop(0);
+        this.executor.shutdownNow();
+        this.httpServer = null;
+        this.executor = null;
+    }
+
+    /**
+     * The port the server listens on
+     *
+     * @throws IllegalStateException if the server is not started
+     */
+    public synchronized int getPort() {
+        if (this.httpServer == null) {
+            throw new IllegalStateException("The server is not started");
+        }
+
+        return this.httpServer.getAddress().getPort();
+    }
+
+    /**
+     * The host and port to give a CloudSearchClientBuilder as the query and update host
+     */
+    public String getHost() {
+        return "localhost:" + getPort();
+    }
+
+    public FakeCloudSearchIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * The latency and errors injected into search requests, which can be changed while the server runs
+     */
+    public FaultInjector getSearchFaults() {
+        return searchFaults;
+    }
+
+    /**
+     * The latency and errors injected into document batches, which can be changed while the server runs
+     */
+    public FaultInjector getUpdateFaults() {
+        return updateFaults;
+    }
+
+    /**
+     * The number of search requests received
+     */
+    public long getSearchRequests() {
+        return this.searchResource.getRequests();
+    }
+
+    /**
+     * The number of document batches received
+     */
+    public long getUpdateRequests() {
+        return this.documentsResource.getRequests();
+    }
+}
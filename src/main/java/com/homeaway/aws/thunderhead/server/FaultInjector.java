@@ -0,0 +1,124 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency and the errors the fake server adds to one kind of request. Each request first waits for a latency
+ * drawn from the distribution, then fails with a status picked by the error rates or is served normally. The
+ * settings can be changed while the server runs, to script an outage in the middle of a load test.
+ *
+ * The error rates are meant for the statuses CloudSearch throttles and fails with: 413, 500 and 509.
+ *
+ * @author jmonette
+ */
+public class FaultInjector {
+
+    private final Random random;
+    private volatile LatencyDistribution latencyDistribution = LatencyDistributions.none();
+    private final Map<Integer, Double> errorRates = new ConcurrentHashMap<Integer, Double>();
+
+    public FaultInjector(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Waits for the latency of the request and picks its outcome
+     *
+     * @return the error status to fail the request with, or 0 to serve it
+     */
+    public int inject() {
+        long latency = this.latencyDistribution.nextNanos(this.random);
+        if (latency > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (this.errorRates.isEmpty()) {
+            return 0;
+        }
+
+        double draw = this.random.nextDouble();
+        for (Map.Entry<Integer, Double> errorRate : this.errorRates.entrySet()) {
+            draw -= errorRate.getValue();
+            if (draw < 0) {
+                return errorRate.getKey();
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Stop failing requests
+     */
+    public void clearErrorRates() {
+        this.errorRates.clear();
+    }
+
+    /****************************** */
+    /*    Getters and Setters       */
+    /****************************** */
+
+    public LatencyDistribution getLatencyDistribution() {
+        return latencyDistribution;
+    }
+
+    public void setLatencyDistribution(final LatencyDistribution latencyDistribution) {
+        this.latencyDistribution = Preconditions.checkNotNull(latencyDistribution);
+    }
+
+    public double getErrorRate(int status) {
+        Double errorRate = this.errorRates.get(status);
+        return (errorRate == null ? 0 : errorRate);
+    }
+
+    /**
+     * Fail the given fraction of the requests with the status. The rates of all the statuses add up to at most 1.
+     */
+    public void setErrorRate(int status, double errorRate) {
+        Preconditions.checkArgument(errorRate >= 0 && errorRate <= 1, "errorRate must be between 0 and 1");
+        if (errorRate == 0) {
+            this.errorRates.remove(status);
+        } else {
+            this.errorRates.put(status, errorRate);
+        }
+    }
+
+    /**
+     * String representation of the FaultInjector object
+     *
+     * @return a String representing the FaultInjector object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("latencyDistribution", this.latencyDistribution)
+                .add("errorRates", this.errorRates)
+                .toString();
+    }
+}
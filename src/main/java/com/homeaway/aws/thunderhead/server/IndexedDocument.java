@@ -0,0 +1,116 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import com.google.common.base.Objects;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A document held by a FakeCloudSearchIndex. The values of its text are split into words once, when it is added,
+ * rather than on every query.
+ *
+ * @author jmonette
+ */
+final class IndexedDocument {
+
+    private final String id;
+    private final long version;
+    private final Map<String, List<String>> fields;
+    private final Map<String, List<List<String>>> words;
+
+    IndexedDocument(String id, long version, List<Field> fields) {
+        this.id = id;
+        this.version = version;
+        this.fields = new LinkedHashMap<String, List<String>>();
+        this.words = new LinkedHashMap<String, List<List<String>>>();
+
+        if (fields != null) {
+            for (Field field : fields) {
+                if (field.getName() == null || field.getValue() == null) {
+                    continue;
+                }
+
+                List<String> values = this.fields.get(field.getName());
+                if (values == null) {
+                    values = new ArrayList<String>(1);
+                    this.fields.put(field.getName(), values);
+                    this.words.put(field.getName(), new ArrayList<List<String>>(1));
+                }
+                values.add(field.getValue());
+                this.words.get(field.getName()).add(QueryExpression.words(field.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Index an SDF add
+     *
+     * @throws IllegalArgumentException if the add has no id or its version is not a number
+     */
+    static IndexedDocument of(SearchDocumentAdd add) {
+        if (add.getId() == null) {
+            throw new IllegalArgumentException("An add is missing its id");
+        }
+
+        return new IndexedDocument(add.getId(), parseVersion(add.getId(), add.getVersion()), add.getFields());
+    }
+
+    static long parseVersion(String id, String version) {
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException nfe) {
+            throw new IllegalArgumentException("The document " + id + " has an invalid version: " + version);
+        }
+    }
+
+    String getId() {
+        return id;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    Map<String, List<String>> getFields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    Map<String, List<List<String>>> getWords() {
+        return words;
+    }
+
+    /**
+     * String representation of the IndexedDocument object
+     *
+     * @return a String representing the IndexedDocument object
+     */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("id", this.id)
+                .add("version", this.version)
+                .add("fields", this.fields)
+                .toString();
+    }
+}
@@ -0,0 +1,36 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import java.util.Random;
+
+/**
+ * A distribution the fake server draws the latency it adds to each request from. LatencyDistributions has the common
+ * ones.
+ *
+ * @author jmonette
+ */
+public interface LatencyDistribution {
+
+    /**
+     * Draw the latency for the next request
+     *
+     * @param random the source of randomness, shared by the requests of the server
+     * @return the latency to add in nanoseconds, zero for none
+     */
+    long nextNanos(Random random);
+}
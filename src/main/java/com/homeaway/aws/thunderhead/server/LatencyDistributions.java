@@ -0,0 +1,106 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factories for the common latency distributions. All the times are in milliseconds.
+ *
+ * @author jmonette
+ */
+public final class LatencyDistributions {
+
+    /** The z-score of the 99th percentile of the standard normal distribution */
+    private static final double P99_Z = 2.326348;
+
+    private static final LatencyDistribution NONE = fixed(0L);
+
+    private LatencyDistributions() {
+    }
+
+    /**
+     * No added latency
+     */
+    public static LatencyDistribution none() {
+        return NONE;
+    }
+
+    /**
+     * The same latency for every request
+     */
+    public static LatencyDistribution fixed(final long latency) {
+        Preconditions.checkArgument(latency >= 0, "latency must not be negative");
+        final long nanos = TimeUnit.MILLISECONDS.toNanos(latency);
+        return new LatencyDistribution() {
+            @Override
+            public long nextNanos(Random random) {
+                return nanos;
+            }
+
+            @Override
+            public String toString() {
+                return Objects.toStringHelper("Fixed").add("latency", latency).toString();
+            }
+        };
+    }
+
+    /**
+     * A latency spread evenly between the minimum and the maximum
+     */
+    public static LatencyDistribution uniform(final long min, final long max) {
+        Preconditions.checkArgument(min >= 0 && max >= min, "min must not be negative or more than max");
+        final long minNanos = TimeUnit.MILLISECONDS.toNanos(min);
+        final long rangeNanos = TimeUnit.MILLISECONDS.toNanos(max - min);
+        return new LatencyDistribution() {
+            @Override
+            public long nextNanos(Random random) {
+                return minNanos + (long) (random.nextDouble() * rangeNanos);
+            }
+
+            @Override
+            public String toString() {
+                return Objects.toStringHelper("Uniform").add("min", min).add("max", max).toString();
+            }
+        };
+    }
+
+    /**
+     * A latency whose logarithm is normally distributed, the long tailed shape real service latencies tend to have. It
+     * is described by its median and its 99th percentile.
+     */
+    public static LatencyDistribution logNormal(final long median, final long p99) {
+        Preconditions.checkArgument(median > 0 && p99 >= median, "median must be positive and not more than p99");
+        final double mu = Math.log(TimeUnit.MILLISECONDS.toNanos(median));
+        final double sigma = (Math.log(TimeUnit.MILLISECONDS.toNanos(p99)) - mu) / P99_Z;
+        return new LatencyDistribution() {
+            @Override
+            public long nextNanos(Random random) {
+                return (long) Math.exp(mu + sigma * random.nextGaussian());
+            }
+
+            @Override
+            public String toString() {
+                return Objects.toStringHelper("LogNormal").add("median", median).add("p99", p99).toString();
+            }
+        };
+    }
+}
@@ -0,0 +1,352 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A parsed q or bq parameter, matched against the documents of a FakeCloudSearchIndex.
+ *
+ * The q parameter is a list of terms which all have to match some field, a term starting with - must not match any.
+ * The bq parameter supports the structured queries of the 2011-02-01 api: (and ...), (or ...), (not ...),
+ * field:'phrase', 'phrase', field:number and the ranges field:min..max, field:..max and field:min.. on numeric
+ * fields. Text is matched on whole words, ignoring case.
+ *
+ * @author jmonette
+ */
+abstract class QueryExpression {
+
+    /**
+     * Whether the document matches the expression
+     */
+    abstract boolean matches(IndexedDocument document);
+
+    /**
+     * Parse a q parameter
+     *
+     * @throws IllegalArgumentException if there are no terms
+     */
+    static QueryExpression parseTextQuery(String q) {
+        List<QueryExpression> terms = new ArrayList<QueryExpression>();
+        for (String term : q.trim().split("\\s+")) {
+            if (term.startsWith("-") && term.length() > 1) {
+                terms.add(new Not(new Phrase(null, term.substring(1))));
+            } else if (term.length() > 0) {
+                terms.add(new Phrase(null, term));
+            }
+        }
+
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("The q parameter has no terms");
+        }
+
+        return new And(terms);
+    }
+
+    /**
+     * Parse a bq parameter
+     *
+     * @throws IllegalArgumentException if the query is malformed
+     */
+    static QueryExpression parseBooleanQuery(String bq) {
+        Parser parser = new Parser(bq);
+        QueryExpression expression = parser.parseExpression();
+        parser.skipWhitespace();
+        if (!parser.atEnd()) {
+            throw parser.error("Unexpected text");
+        }
+
+        return expression;
+    }
+
+    /**
+     * Split text into lower case words
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<String>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ENGLISH));
+                start = -1;
+            }
+        }
+
+        return words;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        QueryExpression parseExpression() {
+            skipWhitespace();
+            if (atEnd()) {
+                throw error("Expected an expression");
+            }
+
+            char c = this.text.charAt(this.position);
+            if (c == '(') {
+                return parseOperator();
+            }
+
+            if (c == '\'') {
+                return new Phrase(null, parseString());
+            }
+
+            String field = parseWord();
+            if (atEnd() || this.text.charAt(this.position) != ':') {
+                throw error("Expected a ':' after the field " + field);
+            }
+            this.position++;
+
+            if (!atEnd() && this.text.charAt(this.position) == '\'') {
+                return new Phrase(field, parseString());
+            }
+
+            return parseNumeric(field, parseWord());
+        }
+
+        private QueryExpression parseOperator() {
+            this.position++;
+            String operator = parseWord();
+            List<QueryExpression> operands = new ArrayList<QueryExpression>();
+            while (true) {
+                skipWhitespace();
+                if (atEnd()) {
+                    throw error("Expected a ')'");
+                }
+                if (this.text.charAt(this.position) == ')') {
+                    this.position++;
+                    break;
+                }
+                operands.add(parseExpression());
+            }
+
+            if ("and".equals(operator) && !operands.isEmpty()) {
+                return new And(operands);
+            }
+            if ("or".equals(operator) && !operands.isEmpty()) {
+                return new Or(operands);
+            }
+            if ("not".equals(operator) && operands.size() == 1) {
+                return new Not(operands.get(0));
+            }
+
+            throw error("Unsupported operator " + operator + " with " + operands.size() + " operands");
+        }
+
+        private QueryExpression parseNumeric(String field, String value) {
+            try {
+                int range = value.indexOf("..");
+                if (range < 0) {
+                    long number = Long.parseLong(value);
+                    return new Range(field, number, number);
+                }
+
+                String min = value.substring(0, range);
+                String max = value.substring(range + 2);
+                return new Range(field, (min.length() == 0 ? Long.MIN_VALUE : Long.parseLong(min)),
+                                 (max.length() == 0 ? Long.MAX_VALUE : Long.parseLong(max)));
+            } catch (NumberFormatException nfe) {
+                throw error("Expected a number or a range for the field " + field);
+            }
+        }
+
+        private String parseString() {
+            StringBuilder value = new StringBuilder();
+            this.position++;
+            while (!atEnd()) {
+                char c = this.text.charAt(this.position++);
+                if (c == '\\' && !atEnd()) {
+                    value.append(this.text.charAt(this.position++));
+                } else if (c == '\'') {
+                    return value.toString();
+                } else {
+                    value.append(c);
+                }
+            }
+
+            throw error("Unterminated string");
+        }
+
+        private String parseWord() {
+            int start = this.position;
+            while (!atEnd()) {
+                char c = this.text.charAt(this.position);
+                if (Character.isWhitespace(c) || c == '(' || c == ')' || c == ':' || c == '\'') {
+                    break;
+                }
+                this.position++;
+            }
+
+            if (start == this.position) {
+                throw error("Expected a word");
+            }
+
+            return this.text.substring(start, this.position);
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(this.text.charAt(this.position))) {
+                this.position++;
+            }
+        }
+
+        boolean atEnd() {
+            return this.position >= this.text.length();
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + this.position + " of the bq parameter: " + this.text);
+        }
+    }
+
+    private static final class And extends QueryExpression {
+        private final List<QueryExpression> operands;
+
+        And(List<QueryExpression> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean matches(IndexedDocument document) {
+            for (QueryExpression operand : this.operands) {
+                if (!operand.matches(document)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Or extends QueryExpression {
+        private final List<QueryExpression> operands;
+
+        Or(List<QueryExpression> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean matches(IndexedDocument document) {
+            for (QueryExpression operand : this.operands) {
+                if (operand.matches(document)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Not extends QueryExpression {
+        private final QueryExpression operand;
+
+        Not(QueryExpression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean matches(IndexedDocument document) {
+            return !this.operand.matches(document);
+        }
+    }
+
+    /**
+     * The words of the phrase appear in order in a value of the field, or of any field when no field is named
+     */
+    private static final class Phrase extends QueryExpression {
+        private final String field;
+        private final List<String> words;
+
+        Phrase(String field, String phrase) {
+            this.field = field;
+            this.words = words(phrase);
+        }
+
+        @Override
+        boolean matches(IndexedDocument document) {
+            if (this.field != null) {
+                return matches(document.getWords().get(this.field));
+            }
+
+            for (List<List<String>> values : document.getWords().values()) {
+                if (matches(values)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matches(List<List<String>> values) {
+            if (values == null) {
+                return false;
+            }
+
+            for (List<String> value : values) {
+                if (this.words.isEmpty() || Collections.indexOfSubList(value, this.words) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A value of the field is a number within the bounds
+     */
+    private static final class Range extends QueryExpression {
+        private final String field;
+        private final long min;
+        private final long max;
+
+        Range(String field, long min, long max) {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        boolean matches(IndexedDocument document) {
+            List<String> values = document.getFields().get(this.field);
+            if (values == null) {
+                return false;
+            }
+
+            for (String value : values) {
+                try {
+                    long number = Long.parseLong(value.trim());
+                    if (number >= this.min && number <= this.max) {
+                        return true;
+                    }
+                } catch (NumberFormatException nfe) {
+                    // not a numeric value, so it is not in the range
+                }
+            }
+            return false;
+        }
+    }
+}
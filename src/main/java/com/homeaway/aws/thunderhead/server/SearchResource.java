@@ -0,0 +1,200 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchResultsType;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchStatusCode;
+import com.homeaway.aws.thunderhead.model.search.ReturnFields;
+import com.homeaway.aws.thunderhead.model.search.SearchHit;
+import com.homeaway.aws.thunderhead.model.search.SearchHits;
+import com.homeaway.aws.thunderhead.model.search.SearchInfo;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the search endpoint of a FakeCloudSearchServer from its FakeCloudSearchIndex, in xml or json as the
+ * results-type parameter asks.
+ *
+ * @author jmonette
+ */
+@Path(CloudSearchClient.CLOUDSEARCH_VERSION + "/search")
+public class SearchResource {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int DEFAULT_SIZE = 10;
+
+    private final FakeCloudSearchIndex index;
+    private final FaultInjector faultInjector;
+    private final Random random;
+    private final AtomicLong requests = new AtomicLong();
+
+    public SearchResource(FakeCloudSearchIndex index, FaultInjector faultInjector, Random random) {
+        this.index = index;
+        this.faultInjector = faultInjector;
+        this.random = random;
+    }
+
+    @GET
+    public Response search(@QueryParam("q") String q, @QueryParam("bq") String bq, @QueryParam("start") String start,
+                           @QueryParam("size") String size, @QueryParam("return-fields") String returnFields,
+                           @QueryParam("results-type") String resultsType) {
+        long begin = System.nanoTime();
+        this.requests.incrementAndGet();
+
+        int status = this.faultInjector.inject();
+        if (status != 0) {
+            return error(status, CloudSearchStatusCode.fromStatus(status).getErrorString());
+        }
+
+        SearchResponse searchResponse;
+        try {
+            SearchHits searchHits = this.index.search(q, bq, toInt("start", start, 0), toInt("size", size, DEFAULT_SIZE),
+                                                      (returnFields == null ? null : Arrays.asList(returnFields.split(","))));
+
+            SearchInfo info = new SearchInfo();
+            info.setRid(Long.toHexString(this.random.nextLong()));
+            info.setTimeMs(String.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin)));
+            info.setCpuTimeMs("0");
+
+            searchResponse = new SearchResponse();
+            searchResponse.setRank("-text_relevance");
+            searchResponse.setMatchExpr(bq != null ? bq : q);
+            searchResponse.setFound(searchHits);
+            searchResponse.setInfo(info);
+        } catch (IllegalArgumentException iae) {
+            return error(CloudSearchStatusCode.BAD_REQUEST.getSearchStatusCode(), iae.getMessage());
+        }
+
+        if (CloudSearchResultsType.JSON.getName().equals(resultsType)) {
+            final SearchResponse jsonResponse = searchResponse;
+            return Response.ok(new StreamingOutput() {
+                @Override
+                public void write(OutputStream out) throws IOException {
+                    writeJson(jsonResponse, out);
+                }
+            }, MediaType.APPLICATION_JSON_TYPE).build();
+        }
+
+        return Response.ok(searchResponse, MediaType.APPLICATION_XML_TYPE).build();
+    }
+
+    /**
+     * The number of search requests received, failed ones included
+     */
+    public long getRequests() {
+        return this.requests.get();
+    }
+
+    static Response error(int status, String message) {
+        return Response.status(status).entity(message).type(MediaType.TEXT_PLAIN_TYPE).build();
+    }
+
+    private static int toInt(String name, String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int number = Integer.parseInt(value);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (NumberFormatException nfe) {
+            // reported below
+        }
+
+        throw new IllegalArgumentException("The " + name + " parameter is not a whole number: " + value);
+    }
+
+    /**
+     * Write the response in the json layout of CloudSearch, where each hit carries its fields as arrays of values
+     */
+    private static void writeJson(SearchResponse searchResponse, OutputStream out) throws IOException {
+        JsonGenerator generator = JSON_FACTORY.createJsonGenerator(out, JsonEncoding.UTF8);
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("rank", searchResponse.getRank());
+            generator.writeStringField("match-expr", searchResponse.getMatchExpr());
+
+            SearchHits searchHits = searchResponse.getFound();
+            generator.writeObjectFieldStart("hits");
+            generator.writeNumberField("found", searchHits.getCount());
+            generator.writeNumberField("start", searchHits.getStart());
+            generator.writeArrayFieldStart("hit");
+            for (SearchHit searchHit : searchHits.getHits()) {
+                generator.writeStartObject();
+                generator.writeStringField("id", searchHit.getId());
+                generator.writeObjectFieldStart("data");
+                writeData(generator, searchHit.getReturnFieldsList());
+                generator.writeEndObject();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+
+            SearchInfo info = searchResponse.getInfo();
+            generator.writeObjectFieldStart("info");
+            generator.writeStringField("rid", info.getRid());
+            generator.writeNumberField("time-ms", info.getTimeMillis());
+            generator.writeNumberField("cpu-time-ms", info.getCpuTimeMillis());
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+        } finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * The return fields of a hit are in field order, so the values of a field are next to each other
+     */
+    private static void writeData(JsonGenerator generator, List<ReturnFields> returnFieldsList) throws IOException {
+        List<String> values = new ArrayList<String>();
+        for (int i = 0; i < returnFieldsList.size(); i++) {
+            values.add(returnFieldsList.get(i).getValue());
+
+            String name = returnFieldsList.get(i).getName();
+            if (i + 1 == returnFieldsList.size() || !name.equals(returnFieldsList.get(i + 1).getName())) {
+                generator.writeArrayFieldStart(name);
+                for (String value : values) {
+                    generator.writeString(value);
+                }
+                generator.writeEndArray();
+                values.clear();
+            }
+        }
+    }
+}
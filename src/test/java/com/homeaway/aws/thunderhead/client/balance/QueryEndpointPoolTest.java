@@ -0,0 +1,142 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.balance;
+
+import com.google.common.collect.Lists;
+import com.homeaway.aws.thunderhead.client.FakeTicker;
+import com.homeaway.aws.thunderhead.client.builder.CircuitBreakerBuilder;
+import com.homeaway.aws.thunderhead.model.enums.CircuitBreakerState;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchInternalException;
+import com.sun.jersey.api.client.WebResource;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author jmonette
+ */
+public class QueryEndpointPoolTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final QueryEndpoint a = endpoint("http://a.example.com");
+    private final QueryEndpoint b = endpoint("http://b.example.com");
+
+    /**
+     * An endpoint failing queries in a row gets no queries until its ejection expires
+     */
+    @Test
+    public void ejectsFailingEndpoint() throws Exception {
+        QueryEndpointPool pool = new QueryEndpointPool(Lists.newArrayList(a, b), new RoundRobinEndpointSelector(), 2, 1000, ticker);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                pool.call(a, new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        throw new CloudSearchInternalException(500, "internal", null);
+                    }
+                });
+            } catch (CloudSearchInternalException csie) {
+                // expected
+            }
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(pool.select(), is(sameInstance(b)));
+        }
+        assertThat(pool.selectOther(b), is(sameInstance(b)));
+
+        ticker.advance(1000);
+        assertThat(pool.selectOther(b), is(sameInstance(a)));
+    }
+
+    /**
+     * An endpoint whose circuit breaker opened without it being ejected gets no queries until the breaker lets probes
+     * through
+     */
+    @Test
+    public void skipsEndpointWithOpenBreaker() throws Exception {
+        QueryEndpoint flaky = new QueryEndpoint(a.getWebResource(), null, CircuitBreakerBuilder.newInstance()
+                                                                                               .window(4, 4)
+                                                                                               .failureRateThreshold(0.5)
+                                                                                               .openDuration(1000)
+                                                                                               .ticker(ticker)
+                                                                                               .build("a"));
+        QueryEndpointPool pool = new QueryEndpointPool(Lists.newArrayList(flaky, b), new RoundRobinEndpointSelector(), 2, 1000, ticker);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                pool.call(flaky, new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        throw new CloudSearchInternalException(500, "internal", null);
+                    }
+                });
+            } catch (CloudSearchInternalException csie) {
+                // expected
+            }
+            pool.call(flaky, taking(1));
+        }
+
+        assertThat(flaky.isEjected(ticker.read()), is(false));
+        assertThat(flaky.getCircuitBreaker().getState(), is(CircuitBreakerState.OPEN));
+        for (int i = 0; i < 4; i++) {
+            assertThat(pool.select(), is(sameInstance(b)));
+        }
+
+        ticker.advance(1000);
+        assertThat(pool.selectOther(b), is(sameInstance(flaky)));
+    }
+
+    /**
+     * Power of two choices sends queries to the endpoint answering faster
+     */
+    @Test
+    public void prefersFasterEndpoint() throws Exception {
+        QueryEndpointPool pool = new QueryEndpointPool(Lists.newArrayList(a, b), new PowerOfTwoChoicesEndpointSelector(), 2, 1000, ticker);
+        pool.call(a, taking(50));
+        pool.call(b, taking(5));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(pool.select(), is(sameInstance(b)));
+        }
+        assertThat(a.getOutstanding(), is(0));
+    }
+
+    private Callable<String> taking(final long millis) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                ticker.advance(millis);
+                return "ok";
+            }
+        };
+    }
+
+    private QueryEndpoint endpoint(String uri) {
+        WebResource webResource = mock(WebResource.class);
+        when(webResource.getURI()).thenReturn(URI.create(uri));
+        return new QueryEndpoint(webResource, null, null);
+    }
+}
@@ -0,0 +1,196 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.batch;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.builder.BatchingDocumentUploaderBuilder;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchInternalException;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author jmonette
+ */
+public class BatchingDocumentUploaderTest {
+
+    private CloudSearchClient cloudSearchClient;
+    private UploadResponse uploadResponse;
+
+    @Before
+    public void setUp() throws Exception {
+        cloudSearchClient = mock(CloudSearchClient.class);
+        uploadResponse = new UploadResponse();
+        uploadResponse.setStatus("success");
+        when(cloudSearchClient.updateDomain(any(SearchDocumentFormat.class))).thenReturn(uploadResponse);
+    }
+
+    /**
+     * Documents are grouped into batches of the maximum document count and every future sees its batch's response
+     */
+    @Test
+    public void flushesOnDocumentCount() throws Exception {
+        BatchingDocumentUploader uploader = BatchingDocumentUploaderBuilder.newInstance(cloudSearchClient)
+                                                                           .maxBatchDocuments(3)
+                                                                           .lingerMillis(60000L)
+                                                                           .build();
+
+        List<ListenableFuture<UploadResponse>> futures = Lists.newArrayList();
+        for (int i = 0; i < 6; i++) {
+            futures.add(uploader.add(buildAdd("doc" + i, "value")));
+        }
+
+        for (ListenableFuture<UploadResponse> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS), is(sameInstance(uploadResponse)));
+        }
+
+        ArgumentCaptor<SearchDocumentFormat> batches = ArgumentCaptor.forClass(SearchDocumentFormat.class);
+        verify(cloudSearchClient, times(2)).updateDomain(batches.capture());
+        assertThat(batches.getAllValues().get(0).getSearchDocumentAdds().size(), is(3));
+        assertThat(batches.getAllValues().get(1).getSearchDocumentAdds().size(), is(3));
+        uploader.close();
+    }
+
+    /**
+     * A partially filled batch is uploaded once the linger time passes
+     */
+    @Test
+    public void flushesOnLinger() throws Exception {
+        BatchingDocumentUploader uploader = BatchingDocumentUploaderBuilder.newInstance(cloudSearchClient)
+                                                                           .lingerMillis(10L)
+                                                                           .build();
+
+        ListenableFuture<UploadResponse> add = uploader.add(buildAdd("doc", "value"));
+        ListenableFuture<UploadResponse> delete = uploader.delete(buildDelete("other"));
+
+        assertThat(add.get(5, TimeUnit.SECONDS), is(sameInstance(uploadResponse)));
+        assertThat(delete.get(5, TimeUnit.SECONDS), is(sameInstance(uploadResponse)));
+        uploader.close();
+    }
+
+    /**
+     * A batch is handed off before the next document would push it past the maximum batch size
+     */
+    @Test
+    public void flushesOnSize() throws Exception {
+        SearchDocumentSizeEstimator sizeEstimator = new SearchDocumentSizeEstimator();
+        SearchDocumentAdd add = buildAdd("doc", "0123456789");
+        long maxBatchBytes = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES + 2 * sizeEstimator.estimate(add);
+
+        BatchingDocumentUploader uploader = BatchingDocumentUploaderBuilder.newInstance(cloudSearchClient)
+                                                                           .maxBatchBytes(maxBatchBytes)
+                                                                           .lingerMillis(60000L)
+                                                                           .build();
+        uploader.add(add);
+        uploader.add(add);
+        ListenableFuture<UploadResponse> third = uploader.add(add);
+        uploader.close();
+
+        assertThat(third.get(5, TimeUnit.SECONDS), is(sameInstance(uploadResponse)));
+        // the batches are posted by two threads, so the first may still be in flight when the third completes
+        assertThat(uploader.awaitTermination(5, TimeUnit.SECONDS), is(true));
+        verify(cloudSearchClient, times(2)).updateDomain(any(SearchDocumentFormat.class));
+    }
+
+    /**
+     * A failed upload fails the future of every document in the batch
+     */
+    @Test
+    public void failedUploadFailsFutures() throws Exception {
+        when(cloudSearchClient.updateDomain(any(SearchDocumentFormat.class)))
+                .thenThrow(new CloudSearchInternalException(500, "Internal Server Error", null));
+
+        BatchingDocumentUploader uploader = BatchingDocumentUploaderBuilder.newInstance(cloudSearchClient).build();
+        ListenableFuture<UploadResponse> future = uploader.add(buildAdd("doc", "value"));
+        uploader.flush();
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the upload to fail");
+        } catch (ExecutionException ee) {
+            assertThat(ee.getCause(), is(instanceOf(CloudSearchInternalException.class)));
+        }
+        uploader.close();
+    }
+
+    /**
+     * The estimate is never smaller than what JAXB actually writes
+     */
+    @Test
+    public void estimateIsUpperBound() throws Exception {
+        SearchDocumentSizeEstimator sizeEstimator = new SearchDocumentSizeEstimator();
+        SearchDocumentAdd add = buildAdd("doc", "café & <b>\"漢字\"</b> 😀\ttab");
+        SearchDocumentDelete delete = buildDelete("gone");
+
+        SearchDocumentFormat searchDocumentFormat = new SearchDocumentFormat();
+        searchDocumentFormat.setSearchDocumentAdds(Lists.newArrayList(add));
+        searchDocumentFormat.setSearchDocumentDeletes(Lists.newArrayList(delete));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JAXBContext.newInstance(SearchDocumentFormat.class).createMarshaller().marshal(searchDocumentFormat, out);
+
+        long estimate = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES + sizeEstimator.estimate(add) + sizeEstimator.estimate(delete);
+        assertThat(estimate, is(greaterThanOrEqualTo((long) out.size())));
+    }
+
+    private SearchDocumentAdd buildAdd(String id, String value) {
+        Field field = new Field();
+        field.setName("example_field");
+        field.setValue(value);
+
+        SearchDocumentAdd searchDocumentAdd = new SearchDocumentAdd();
+        searchDocumentAdd.setId(id);
+        searchDocumentAdd.setVersion("1");
+        searchDocumentAdd.setLang("en");
+        searchDocumentAdd.setFields(Lists.newArrayList(field));
+
+        return searchDocumentAdd;
+    }
+
+    private SearchDocumentDelete buildDelete(String id) {
+        SearchDocumentDelete searchDocumentDelete = new SearchDocumentDelete();
+        searchDocumentDelete.setId(id);
+        searchDocumentDelete.setVersion("2");
+
+        return searchDocumentDelete;
+    }
+}
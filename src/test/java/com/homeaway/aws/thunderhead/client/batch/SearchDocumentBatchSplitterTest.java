@@ -0,0 +1,161 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.batch;
+
+import com.google.common.collect.Lists;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * @author jmonette
+ */
+public class SearchDocumentBatchSplitterTest {
+
+    private final SearchDocumentSizeEstimator sizeEstimator = new SearchDocumentSizeEstimator();
+
+    /**
+     * A batch within the limit is returned as is
+     */
+    @Test
+    public void smallBatchIsNotSplit() {
+        SearchDocumentFormat batch = buildBatch(5, 5);
+        SearchDocumentBatchSplitter splitter = new SearchDocumentBatchSplitter(sizeEstimator, Long.MAX_VALUE);
+
+        List<SearchDocumentFormat> batches = splitter.split(batch);
+
+        assertThat(batches.size(), is(1));
+        assertThat(batches.get(0), is(sameInstance(batch)));
+    }
+
+    /**
+     * A large batch is split into sub-batches within the limit that keep every document in order
+     */
+    @Test
+    public void largeBatchIsSplitInOrder() {
+        SearchDocumentFormat batch = buildBatch(50, 10);
+        long maxBatchBytes = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES + 7 * sizeEstimator.estimate(batch.getSearchDocumentAdds().get(0));
+        SearchDocumentBatchSplitter splitter = new SearchDocumentBatchSplitter(sizeEstimator, maxBatchBytes);
+
+        List<SearchDocumentAdd> adds = Lists.newArrayList();
+        List<SearchDocumentDelete> deletes = Lists.newArrayList();
+        for (SearchDocumentFormat subBatch : splitter.split(batch)) {
+            long bytes = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES;
+            for (SearchDocumentAdd add : subBatch.getSearchDocumentAdds()) {
+                bytes += sizeEstimator.estimate(add);
+            }
+            for (SearchDocumentDelete delete : subBatch.getSearchDocumentDeletes()) {
+                bytes += sizeEstimator.estimate(delete);
+            }
+
+            assertThat(bytes, is(lessThanOrEqualTo(maxBatchBytes)));
+            adds.addAll(subBatch.getSearchDocumentAdds());
+            deletes.addAll(subBatch.getSearchDocumentDeletes());
+        }
+
+        assertThat(adds, is(batch.getSearchDocumentAdds()));
+        assertThat(deletes, is(batch.getSearchDocumentDeletes()));
+    }
+
+    /**
+     * Halving splits by document count across the adds and deletes
+     */
+    @Test
+    public void halveSplitsAcrossAddsAndDeletes() {
+        SearchDocumentFormat batch = buildBatch(1, 3);
+        SearchDocumentBatchSplitter splitter = new SearchDocumentBatchSplitter(sizeEstimator, Long.MAX_VALUE);
+
+        List<SearchDocumentFormat> halves = splitter.halve(batch);
+
+        assertThat(halves.size(), is(2));
+        assertThat(halves.get(0).getSearchDocumentAdds().size(), is(1));
+        assertThat(halves.get(0).getSearchDocumentDeletes().size(), is(1));
+        assertThat(halves.get(1).getSearchDocumentAdds().size(), is(0));
+        assertThat(halves.get(1).getSearchDocumentDeletes().size(), is(2));
+        assertThat(splitter.halve(buildBatch(1, 0)).size(), is(1));
+    }
+
+    /**
+     * Merging sums the counts, concatenates the errors and reports an error if any sub-batch had one
+     */
+    @Test
+    public void mergeSumsCounts() {
+        SearchDocumentBatchSplitter splitter = new SearchDocumentBatchSplitter(sizeEstimator, Long.MAX_VALUE);
+
+        UploadResponse merged = splitter.merge(Lists.newArrayList(buildResponse("success", 3, 1, null),
+                                                                  buildResponse("success", 2, 0, null)));
+        assertThat(merged.getStatus(), is("success"));
+        assertThat(merged.getAdds(), is(5));
+        assertThat(merged.getDeletes(), is(1));
+        assertThat(merged.getErrors(), is(nullValue()));
+
+        merged = splitter.merge(Lists.newArrayList(buildResponse("success", 3, 1, null),
+                                                   buildResponse("error", 0, 0, Lists.newArrayList("bad field"))));
+        assertThat(merged.getStatus(), is("error"));
+        assertThat(merged.getErrors(), contains("bad field"));
+    }
+
+    private SearchDocumentFormat buildBatch(int adds, int deletes) {
+        SearchDocumentFormat searchDocumentFormat = new SearchDocumentFormat();
+        searchDocumentFormat.setSearchDocumentAdds(Lists.<SearchDocumentAdd>newArrayList());
+        searchDocumentFormat.setSearchDocumentDeletes(Lists.<SearchDocumentDelete>newArrayList());
+
+        for (int i = 0; i < adds; i++) {
+            Field field = new Field();
+            field.setName("example_field");
+            field.setValue("value " + i);
+
+            SearchDocumentAdd searchDocumentAdd = new SearchDocumentAdd();
+            searchDocumentAdd.setId(String.format("add%03d", i));
+            searchDocumentAdd.setVersion("1");
+            searchDocumentAdd.setLang("en");
+            searchDocumentAdd.setFields(Lists.newArrayList(field));
+            searchDocumentFormat.getSearchDocumentAdds().add(searchDocumentAdd);
+        }
+
+        for (int i = 0; i < deletes; i++) {
+            SearchDocumentDelete searchDocumentDelete = new SearchDocumentDelete();
+            searchDocumentDelete.setId(String.format("del%03d", i));
+            searchDocumentDelete.setVersion("2");
+            searchDocumentFormat.getSearchDocumentDeletes().add(searchDocumentDelete);
+        }
+
+        return searchDocumentFormat;
+    }
+
+    private UploadResponse buildResponse(String status, int adds, int deletes, List<String> errors) {
+        UploadResponse uploadResponse = new UploadResponse();
+        uploadResponse.setStatus(status);
+        uploadResponse.setAdds(adds);
+        uploadResponse.setDeletes(deletes);
+        uploadResponse.setErrors(errors);
+
+        return uploadResponse;
+    }
+}
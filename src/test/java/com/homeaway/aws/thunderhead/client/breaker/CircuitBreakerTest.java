@@ -0,0 +1,151 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.breaker;
+
+import com.google.common.collect.Lists;
+import com.homeaway.aws.thunderhead.client.FakeTicker;
+import com.homeaway.aws.thunderhead.client.builder.CircuitBreakerBuilder;
+import com.homeaway.aws.thunderhead.model.enums.CircuitBreakerState;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchBadRequestException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchCircuitOpenException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchInternalException;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class CircuitBreakerTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+    private final List<CircuitBreakerState> transitions = Lists.newArrayList();
+    private final CircuitBreaker circuitBreaker = CircuitBreakerBuilder.newInstance()
+                                                                       .window(4, 4)
+                                                                       .openDuration(1000)
+                                                                       .halfOpenCalls(2)
+                                                                       .ticker(ticker)
+                                                                       .listener(new CircuitBreakerListener() {
+                                                                           @Override
+                                                                           public void onStateChange(CircuitBreaker circuitBreaker, CircuitBreakerState from, CircuitBreakerState to) {
+                                                                               transitions.add(to);
+                                                                           }
+                                                                       })
+                                                                       .build("http://search.example.com");
+
+    /**
+     * Server errors open the breaker, which then fails fast until probes succeed after the open duration
+     */
+    @Test
+    public void opensOnFailuresAndClosesAfterProbes() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            call(succeeding());
+            call(failing());
+        }
+        assertThat(circuitBreaker.getState(), is(CircuitBreakerState.OPEN));
+
+        try {
+            circuitBreaker.call(succeeding());
+            fail("Expected the breaker to fail fast");
+        } catch (CloudSearchCircuitOpenException csoe) {
+            assertThat(csoe.getCloudSearchStatusCode() == null, is(true));
+            assertThat(csoe.getCircuitBreakerState(), is(CircuitBreakerState.OPEN));
+        }
+
+        ticker.advance(1000);
+        call(succeeding());
+        assertThat(circuitBreaker.getState(), is(CircuitBreakerState.HALF_OPEN));
+        call(succeeding());
+
+        assertThat(circuitBreaker.getState(), is(CircuitBreakerState.CLOSED));
+        assertThat(transitions, is((List<CircuitBreakerState>) Lists.newArrayList(CircuitBreakerState.OPEN,
+                                                                                  CircuitBreakerState.HALF_OPEN,
+                                                                                  CircuitBreakerState.CLOSED)));
+    }
+
+    /**
+     * A failed probe opens the breaker again
+     */
+    @Test
+    public void reopensOnFailedProbe() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            call(failing());
+        }
+        ticker.advance(1000);
+        call(failing());
+
+        assertThat(circuitBreaker.getState(), is(CircuitBreakerState.OPEN));
+    }
+
+    /**
+     * Slow calls open the breaker, while client errors show the endpoint is answering and do not
+     */
+    @Test
+    public void opensOnSlowCallsButNotClientErrors() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            call(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw new CloudSearchBadRequestException(400, "bad request", null);
+                }
+            });
+        }
+        assertThat(circuitBreaker.getState(), is(CircuitBreakerState.CLOSED));
+
+        for (int i = 0; i < 4; i++) {
+            call(new Callable<String>() {
+                @Override
+                public String call() {
+                    ticker.advance(CircuitBreakerBuilder.DEFAULT_SLOW_CALL_DURATION);
+                    return "slow";
+                }
+            });
+        }
+        assertThat(circuitBreaker.getState(), is(CircuitBreakerState.OPEN));
+    }
+
+    private void call(Callable<String> callable) {
+        try {
+            circuitBreaker.call(callable);
+        } catch (Exception e) {
+            // outcome recorded by the breaker
+        }
+    }
+
+    private Callable<String> succeeding() {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return "ok";
+            }
+        };
+    }
+
+    private Callable<String> failing() {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                throw new CloudSearchInternalException(500, "internal", null);
+            }
+        };
+    }
+}
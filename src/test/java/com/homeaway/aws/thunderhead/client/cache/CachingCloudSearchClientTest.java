@@ -0,0 +1,124 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.cache;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.FakeTicker;
+import com.homeaway.aws.thunderhead.client.builder.CachingCloudSearchClientBuilder;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchInternalException;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author jmonette
+ */
+public class CachingCloudSearchClientTest {
+
+    private CloudSearchClient cloudSearchClient;
+    private SearchResponse searchResponse;
+    private FakeTicker ticker;
+    private CachingCloudSearchClient cachingClient;
+
+    @Before
+    public void setUp() throws Exception {
+        cloudSearchClient = mock(CloudSearchClient.class);
+        searchResponse = new SearchResponse();
+        when(cloudSearchClient.query(any(MultivaluedMap.class))).thenReturn(searchResponse);
+
+        ticker = new FakeTicker();
+        cachingClient = CachingCloudSearchClientBuilder.newInstance(cloudSearchClient)
+                                                       .timeToLive(1000L)
+                                                       .ticker(ticker)
+                                                       .build();
+    }
+
+    /**
+     * Params in a different order, or with a different results type, hit the same cached response
+     */
+    @Test
+    public void cachesOnCanonicalParams() throws Exception {
+        MultivaluedMap<String, String> first = new MultivaluedMapImpl();
+        first.add("q", "star wars");
+        first.add("return-fields", "title");
+        first.add("return-fields", "year");
+
+        MultivaluedMap<String, String> second = new MultivaluedMapImpl();
+        second.add("return-fields", "year");
+        second.add("return-fields", "title");
+        second.add("results-type", "json");
+        second.add("q", "star wars");
+
+        assertThat(cachingClient.query(first), is(sameInstance(searchResponse)));
+        assertThat(cachingClient.query(second), is(sameInstance(searchResponse)));
+
+        verify(cloudSearchClient, times(1)).query(any(MultivaluedMap.class));
+        assertThat(cachingClient.getStats().hitCount(), is(1L));
+        assertThat(cachingClient.getStats().missCount(), is(1L));
+    }
+
+    /**
+     * A response is fetched again once its time to live has passed
+     */
+    @Test
+    public void expiresAfterTimeToLive() throws Exception {
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        queryParams.add("q", "star wars");
+
+        cachingClient.query(queryParams);
+        ticker.advance(999L);
+        cachingClient.query(queryParams);
+        ticker.advance(1L);
+        cachingClient.query(queryParams);
+
+        verify(cloudSearchClient, times(2)).query(any(MultivaluedMap.class));
+    }
+
+    /**
+     * A failed query is rethrown as is and is not cached
+     */
+    @Test
+    public void failuresAreNotCached() throws Exception {
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        queryParams.add("q", "star wars");
+        when(cloudSearchClient.query(any(MultivaluedMap.class))).thenThrow(new CloudSearchInternalException(500, "Internal Server Error", null))
+                                                                .thenReturn(searchResponse);
+
+        try {
+            cachingClient.query(queryParams);
+            fail("Expected the query to fail");
+        } catch (CloudSearchInternalException csie) {
+            assertThat(csie.getCloudSearchStatusCode(), is(500));
+        }
+
+        assertThat(cachingClient.query(queryParams), is(sameInstance(searchResponse)));
+        assertThat(cachingClient.getSize(), is(1L));
+    }
+}
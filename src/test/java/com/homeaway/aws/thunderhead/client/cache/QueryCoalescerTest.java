@@ -0,0 +1,213 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.cache;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchErrors;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchInternalException;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.junit.Test;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class QueryCoalescerTest {
+
+    private final QueryCoalescer queryCoalescer = new QueryCoalescer();
+    private final QueryCacheKey key = QueryCacheKey.of(queryParams());
+
+    /**
+     * Callers that arrive while a query is in flight share its request and its response
+     */
+    @Test
+    public void concurrentQueriesShareOneRequest() throws Exception {
+        final SearchResponse searchResponse = new SearchResponse();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger requests = new AtomicInteger();
+
+        final Callable<SearchResponse> query = new Callable<SearchResponse>() {
+            @Override
+            public SearchResponse call() throws Exception {
+                requests.incrementAndGet();
+                release.await();
+                return searchResponse;
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<SearchResponse>> results = Lists.newArrayList();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(new Callable<SearchResponse>() {
+                @Override
+                public SearchResponse call() throws Exception {
+                    return queryCoalescer.query(key, query);
+                }
+            }));
+        }
+
+        while (requests.get() == 0) {
+            Thread.sleep(1L);
+        }
+        Thread.sleep(50L);
+        release.countDown();
+
+        for (Future<SearchResponse> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS), is(sameInstance(searchResponse)));
+        }
+        assertThat(requests.get(), is(1));
+        assertThat(queryCoalescer.getInFlight(), is(0));
+        executor.shutdown();
+    }
+
+    /**
+     * Every caller of a failed request receives the same exception
+     */
+    @Test
+    public void waitersReceiveTheSameException() throws Exception {
+        SettableFuture<SearchResponse> request = SettableFuture.create();
+        ListenableFuture<SearchResponse> first = queryCoalescer.queryAsync(key, returning(request));
+        ListenableFuture<SearchResponse> second = queryCoalescer.queryAsync(key, returning(SettableFuture.<SearchResponse>create()));
+
+        CloudSearchClientException failure = new CloudSearchInternalException(500, "Internal Server Error", null);
+        request.setException(failure);
+
+        assertThat(causeOf(first), is(sameInstance((Throwable) failure)));
+        assertThat(causeOf(second), is(sameInstance((Throwable) failure)));
+        assertThat(queryCoalescer.getInFlight(), is(0));
+    }
+
+    /**
+     * The failure of a request shared with a blocking caller keeps its stack trace when the request was made for a
+     * CloudSearchResultClient call, which suppresses them on its thread
+     */
+    @Test
+    public void sharedFailuresKeepStackTraces() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger requests = new AtomicInteger();
+
+        final Callable<SearchResponse> query = new Callable<SearchResponse>() {
+            @Override
+            public SearchResponse call() throws Exception {
+                requests.incrementAndGet();
+                release.await();
+                throw new CloudSearchInternalException(500, "Internal Server Error", null);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Throwable> leader = executor.submit(new Callable<Throwable>() {
+            @Override
+            public Throwable call() throws Exception {
+                boolean suppressed = CloudSearchErrors.suppressStackTraces();
+                try {
+                    return failureOf(query);
+                } finally {
+                    CloudSearchErrors.restoreStackTraces(suppressed);
+                }
+            }
+        });
+        while (requests.get() == 0) {
+            Thread.sleep(1L);
+        }
+
+        Future<Throwable> follower = executor.submit(new Callable<Throwable>() {
+            @Override
+            public Throwable call() throws Exception {
+                return failureOf(query);
+            }
+        });
+        Thread.sleep(50L);
+        release.countDown();
+
+        assertThat(follower.get(5, TimeUnit.SECONDS), is(sameInstance(leader.get(5, TimeUnit.SECONDS))));
+        assertThat(follower.get().getStackTrace().length > 0, is(true));
+        assertThat(requests.get(), is(1));
+        executor.shutdown();
+    }
+
+    /**
+     * Cancelling one caller's future leaves the shared request and the other callers alone
+     */
+    @Test
+    public void cancellingOneCallerDoesNotCancelOthers() throws Exception {
+        SettableFuture<SearchResponse> request = SettableFuture.create();
+        ListenableFuture<SearchResponse> first = queryCoalescer.queryAsync(key, returning(request));
+        ListenableFuture<SearchResponse> second = queryCoalescer.queryAsync(key, returning(SettableFuture.<SearchResponse>create()));
+
+        first.cancel(true);
+        SearchResponse searchResponse = new SearchResponse();
+        request.set(searchResponse);
+
+        assertThat(request.isCancelled(), is(false));
+        assertThat(second.get(), is(sameInstance(searchResponse)));
+    }
+
+    private Throwable failureOf(Callable<SearchResponse> query) {
+        try {
+            queryCoalescer.query(key, query);
+        } catch (Throwable t) {
+            return t;
+        }
+        throw new AssertionError("The query should have failed");
+    }
+
+    private Callable<ListenableFuture<SearchResponse>> returning(final ListenableFuture<SearchResponse> request) {
+        return new Callable<ListenableFuture<SearchResponse>>() {
+            @Override
+            public ListenableFuture<SearchResponse> call() {
+                return request;
+            }
+        };
+    }
+
+    private Throwable causeOf(Future<SearchResponse> future) throws InterruptedException {
+        try {
+            future.get();
+            fail("Expected the query to fail");
+            return null;
+        } catch (ExecutionException ee) {
+            return ee.getCause();
+        }
+    }
+
+    private static MultivaluedMap<String, String> queryParams() {
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        queryParams.add("q", "star wars");
+
+        return queryParams;
+    }
+}
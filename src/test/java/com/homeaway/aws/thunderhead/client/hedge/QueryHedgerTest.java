@@ -0,0 +1,207 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.hedge;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author jmonette
+ */
+public class QueryHedgerTest {
+
+    private static final String ENDPOINT = "http://search.example.com";
+    private static final String OTHER_ENDPOINT = "http://search-other.example.com";
+
+    /**
+     * The tracked percentile is known once enough responses have been recorded
+     */
+    @Test
+    public void tracksPercentile() {
+        LatencyTracker latencyTracker = new LatencyTracker(0.95);
+        for (int i = 1; i <= 100; i++) {
+            latencyTracker.record(i);
+            if (i < LatencyTracker.MIN_SAMPLES) {
+                assertThat(latencyTracker.getPercentileNanos(), is(-1L));
+            }
+        }
+
+        assertThat(latencyTracker.getPercentileNanos(), is(92L));
+    }
+
+    /**
+     * A query slower than the percentile is sent again, the first response wins and the slow request is cancelled
+     */
+    @Test
+    public void hedgesSlowQuery() throws Exception {
+        QueryHedger queryHedger = new QueryHedger();
+        warm(queryHedger, TimeUnit.MILLISECONDS.toNanos(1));
+        SlowThenFast requests = new SlowThenFast();
+
+        ListenableFuture<String> result = queryHedger.hedge(ENDPOINT, requests);
+
+        assertThat(result.get(5, TimeUnit.SECONDS), is("hedge"));
+        assertThat(requests.sent.size(), is(2));
+        assertThat(queryHedger.getHedgesSent(), is(1L));
+
+        // the slow request is cancelled and the win counted just after the result is set
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((!requests.sent.get(0).isCancelled() || queryHedger.getHedgesWon() == 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(requests.sent.get(0).isCancelled(), is(true));
+        assertThat(queryHedger.getHedgesWon(), is(1L));
+    }
+
+    /**
+     * Queries are not hedged before the endpoint's response times are known
+     */
+    @Test
+    public void doesNotHedgeWithoutLatencies() throws Exception {
+        QueryHedger queryHedger = new QueryHedger();
+        SlowThenFast requests = new SlowThenFast();
+
+        ListenableFuture<String> result = queryHedger.hedge(ENDPOINT, requests);
+        Thread.sleep(50);
+        requests.sent.get(0).set("primary");
+
+        assertThat(result.get(5, TimeUnit.SECONDS), is("primary"));
+        assertThat(requests.sent.size(), is(1));
+    }
+
+    /**
+     * The response time of a duplicate sent to another endpoint is tracked against that endpoint, not the first one
+     */
+    @Test
+    public void tracksHedgeAgainstItsEndpoint() throws Exception {
+        QueryHedger queryHedger = new QueryHedger();
+        warm(queryHedger, TimeUnit.MILLISECONDS.toNanos(1));
+        final SettableFuture<String> primary = SettableFuture.create();
+
+        ListenableFuture<String> result = queryHedger.hedge(target(ENDPOINT, primary), new Supplier<HedgeTarget<String>>() {
+            @Override
+            public HedgeTarget<String> get() {
+                return target(OTHER_ENDPOINT, Futures.immediateFuture("hedge"));
+            }
+        });
+
+        assertThat(result.get(5, TimeUnit.SECONDS), is("hedge"));
+
+        // the primary is cancelled and its time recorded just after the result is set
+        LatencyTracker latencyTracker = queryHedger.getLatencyTracker(ENDPOINT);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (latencyTracker.getCount() == LatencyTracker.SAMPLE_SIZE && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(primary.isCancelled(), is(true));
+        assertThat(queryHedger.getLatencyTracker(OTHER_ENDPOINT).getCount(), is(1L));
+        assertThat(latencyTracker.getCount(), is(LatencyTracker.SAMPLE_SIZE + 1L));
+    }
+
+    /**
+     * Once the hedges saved up in the budget are spent, slow queries are no longer hedged
+     */
+    @Test
+    public void stopsHedgingWhenBudgetIsSpent() throws Exception {
+        QueryHedger queryHedger = new QueryHedger(0.95, 0.1);
+        warm(queryHedger, TimeUnit.MILLISECONDS.toNanos(1));
+
+        List<NeverAnswers> queries = Lists.newArrayList();
+        for (int i = 0; i < 10; i++) {
+            NeverAnswers requests = new NeverAnswers();
+            queryHedger.hedge(ENDPOINT, requests);
+            queries.add(requests);
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queryHedger.getHedgesSent() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(100);
+
+        // the reserve of five hedges is spent, and the tenths of a hedge earned since do not add up to another
+        assertThat(queryHedger.getHedgesSent(), is(5L));
+        int sent = 0;
+        for (NeverAnswers requests : queries) {
+            sent += requests.sent.size();
+        }
+        assertThat(sent, is(15));
+    }
+
+    private void warm(QueryHedger queryHedger, long nanos) {
+        LatencyTracker latencyTracker = queryHedger.getLatencyTracker(ENDPOINT);
+        for (int i = 0; i < LatencyTracker.SAMPLE_SIZE; i++) {
+            latencyTracker.record(nanos);
+        }
+    }
+
+    private static HedgeTarget<String> target(final String endpoint, final ListenableFuture<String> response) {
+        return new HedgeTarget<String>() {
+            @Override
+            public String getEndpoint() {
+                return endpoint;
+            }
+
+            @Override
+            public ListenableFuture<String> send() {
+                return response;
+            }
+        };
+    }
+
+    /**
+     * Every request hangs
+     */
+    private static class NeverAnswers implements Callable<ListenableFuture<String>> {
+        private final List<SettableFuture<String>> sent = Lists.newCopyOnWriteArrayList();
+
+        @Override
+        public ListenableFuture<String> call() {
+            SettableFuture<String> request = SettableFuture.create();
+            sent.add(request);
+            return request;
+        }
+    }
+
+    /**
+     * The first request hangs until completed by the test, every later request answers at once
+     */
+    private static class SlowThenFast implements Callable<ListenableFuture<String>> {
+        private final List<SettableFuture<String>> sent = Lists.newCopyOnWriteArrayList();
+
+        @Override
+        public ListenableFuture<String> call() {
+            SettableFuture<String> request = SettableFuture.create();
+            if (!sent.isEmpty()) {
+                request.set("hedge");
+            }
+            sent.add(request);
+            return request;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.impl;
+
+import com.google.common.io.ByteStreams;
+import com.homeaway.aws.thunderhead.client.io.SearchDocumentFormatJsonWriter;
+import com.homeaway.aws.thunderhead.client.io.SearchDocumentFormatWriter;
+import com.homeaway.aws.thunderhead.client.io.SearchResponseJsonReader;
+import com.homeaway.aws.thunderhead.client.io.SearchResponseReader;
+import com.homeaway.aws.thunderhead.load.ThreadAllocation;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchResultsType;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.RequestWriter;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Holds the bytes allocated by the calling thread per query and per upload to the budgets checked in to
+ * allocation-budgets.properties. The client runs against a stub transport which answers from memory, so only the
+ * client's own work is counted: building the request, serializing the batch and parsing the response.
+ *
+ * A budget is meant to catch a change that grows the allocation by a good share, not a few bytes. When a change
+ * legitimately moves a number, measure it again and update the budget in the same commit.
+ *
+ * @author jmonette
+ */
+public class AllocationBudgetTest {
+
+    private static final String BUDGETS = "allocation-budgets.properties";
+
+    /** Enough calls for the JIT to compile the hot path, escape analysis included */
+    private static final int WARMUP = 300;
+
+    private static final int MEASUREMENTS = 21;
+
+    private static final String UPLOAD_RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                                                + "<response status=\"success\" adds=\"1000\" deletes=\"0\"/>";
+
+    private static Properties budgets;
+
+    private StubHandler stubHandler;
+    private CloudSearchClientImpl cloudSearchClient;
+
+    @BeforeClass
+    public static void loadBudgets() throws IOException {
+        budgets = new Properties();
+        InputStream inputStream = AllocationBudgetTest.class.getClassLoader().getResourceAsStream(BUDGETS);
+        try {
+            budgets.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        assumeTrue(ThreadAllocation.isSupported());
+
+        ClientConfig clientConfig = new DefaultClientConfig();
+        clientConfig.getSingletons().add(new SearchDocumentFormatWriter());
+        clientConfig.getSingletons().add(new SearchDocumentFormatJsonWriter());
+        clientConfig.getSingletons().add(new SearchResponseJsonReader());
+        clientConfig.getSingletons().add(new SearchResponseReader());
+
+        this.stubHandler = new StubHandler();
+        Client client = new Client(this.stubHandler, clientConfig);
+        this.stubHandler.setMessageBodyWorkers(client.getMessageBodyWorkers());
+
+        this.cloudSearchClient = new CloudSearchClientImpl(client.resource("http://search-movies.example.com"),
+                                                           client.resource("http://doc-movies.example.com"));
+    }
+
+    /**
+     * A query for no hits, which is mostly the building of the query params and the request
+     */
+    @Test
+    public void buildingQuery() throws Exception {
+        this.stubHandler.response = xmlResponse(0);
+        final MultivaluedMap<String, String> queryParams = queryParams();
+
+        assertWithinBudget("query.build", new Call() {
+            @Override
+            public void call() throws Exception {
+                cloudSearchClient.query(queryParams);
+            }
+        });
+    }
+
+    /**
+     * A query parsing a 100 hit xml response
+     */
+    @Test
+    public void parsingXmlResponse() throws Exception {
+        this.stubHandler.response = xmlResponse(100);
+        final MultivaluedMap<String, String> queryParams = queryParams();
+
+        assertWithinBudget("query.parse.xml", new Call() {
+            @Override
+            public void call() throws Exception {
+                cloudSearchClient.query(queryParams);
+            }
+        });
+    }
+
+    /**
+     * A query parsing a 100 hit json response
+     */
+    @Test
+    public void parsingJsonResponse() throws Exception {
+        this.stubHandler.response = jsonResponse(100);
+        this.cloudSearchClient.setResultsType(CloudSearchResultsType.JSON);
+        final MultivaluedMap<String, String> queryParams = queryParams();
+
+        assertWithinBudget("query.parse.json", new Call() {
+            @Override
+            public void call() throws Exception {
+                cloudSearchClient.query(queryParams);
+            }
+        });
+    }
+
+    /**
+     * An upload serializing a 1000 document batch to xml
+     */
+    @Test
+    public void serializingBatch() throws Exception {
+        this.stubHandler.response = UPLOAD_RESPONSE.getBytes("UTF-8");
+        final SearchDocumentFormat batch = batch(1000);
+
+        assertWithinBudget("update.serialize.xml", new Call() {
+            @Override
+            public void call() throws Exception {
+                cloudSearchClient.updateDomain(batch);
+            }
+        });
+    }
+
+    /**
+     * Warm the call up, then take the median of the bytes allocated over a few calls and hold it to the budget
+     */
+    private void assertWithinBudget(String name, Call call) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            call.call();
+        }
+
+        long[] allocated = new long[MEASUREMENTS];
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            long start = ThreadAllocation.currentThreadAllocatedBytes();
+            call.call();
+            allocated[i] = ThreadAllocation.currentThreadAllocatedBytes() - start - ThreadAllocation.getOverhead();
+        }
+        Arrays.sort(allocated);
+        long median = allocated[MEASUREMENTS / 2];
+
+        long budget = Long.parseLong(budgets.getProperty(name));
+        assertThat("Bytes allocated per call for " + name, median, lessThanOrEqualTo(budget));
+    }
+
+    private static MultivaluedMap<String, String> queryParams() {
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        queryParams.add("bq", "(and title:'star wars' (not genre:'Comedy') year:1977..1983)");
+        queryParams.add("return-fields", "title,director,genre,year");
+        queryParams.add("size", "100");
+        return queryParams;
+    }
+
+    private static byte[] xmlResponse(int hits) throws IOException {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<results xmlns=\"http://cloudsearch.amazonaws.com/2011-02-01/results\">")
+                .append("<rank>-text_relevance</rank><match-expr>(label 'star wars')</match-expr>")
+                .append("<hits found=\"").append(hits).append("\" start=\"0\">");
+        for (int i = 0; i < hits; i++) {
+            xml.append("<hit id=\"tt").append(i).append("\">")
+               .append("<d name=\"title\">Star Wars Episode ").append(i).append("</d>")
+               .append("<d name=\"director\">George Lucas</d>")
+               .append("<d name=\"genre\">Sci-Fi</d>")
+               .append("<d name=\"year\">").append(1977 + i % 40).append("</d>")
+               .append("</hit>");
+        }
+        xml.append("</hits><info rid=\"b7c167f6c2da6d93531b9a7b314ad030b3a74803b4b7797e\" time-ms=\"3\" cpu-time-ms=\"0\"/></results>");
+        return xml.toString().getBytes("UTF-8");
+    }
+
+    private static byte[] jsonResponse(int hits) throws IOException {
+        StringBuilder json = new StringBuilder("{\"rank\":\"-text_relevance\",\"match-expr\":\"(label 'star wars')\",")
+                .append("\"hits\":{\"found\":").append(hits).append(",\"start\":0,\"hit\":[");
+        for (int i = 0; i < hits; i++) {
+            json.append(i == 0 ? "" : ",")
+                .append("{\"id\":\"tt").append(i).append("\",\"data\":{")
+                .append("\"title\":[\"Star Wars Episode ").append(i).append("\"],")
+                .append("\"director\":[\"George Lucas\"],")
+                .append("\"genre\":[\"Sci-Fi\"],")
+                .append("\"year\":[\"").append(1977 + i % 40).append("\"]}}");
+        }
+        json.append("]},\"info\":{\"rid\":\"b7c167f6c2da6d93531b9a7b314ad030b3a74803b4b7797e\",\"time-ms\":3,\"cpu-time-ms\":0}}");
+        return json.toString().getBytes("UTF-8");
+    }
+
+    private static SearchDocumentFormat batch(int documents) {
+        List<SearchDocumentAdd> adds = new ArrayList<SearchDocumentAdd>(documents);
+        for (int i = 0; i < documents; i++) {
+            List<Field> fields = new ArrayList<Field>();
+            fields.add(field("title", "Star Wars Episode " + i));
+            fields.add(field("director", "George Lucas"));
+            fields.add(field("genre", "Sci-Fi"));
+            fields.add(field("year", String.valueOf(1977 + i % 40)));
+            fields.add(field("description", "A long time ago in a galaxy far, far away & a <rebel> alliance"));
+
+            SearchDocumentAdd add = new SearchDocumentAdd();
+            add.setId("tt" + i);
+            add.setVersion("1");
+            add.setLang("en");
+            add.setFields(fields);
+            adds.add(add);
+        }
+
+        SearchDocumentFormat batch = new SearchDocumentFormat();
+        batch.setSearchDocumentAdds(adds);
+        return batch;
+    }
+
+    private static Field field(String name, String value) {
+        Field field = new Field();
+        field.setName(name);
+        field.setValue(value);
+        return field;
+    }
+
+    private interface Call {
+        void call() throws Exception;
+    }
+
+    /**
+     * Answers every request with the same response, writing any request entity to a stream which discards it
+     */
+    private static final class StubHandler extends RequestWriter implements ClientHandler {
+        private volatile byte[] response;
+
+        @Override
+        public ClientResponse handle(ClientRequest clientRequest) {
+            try {
+                if (clientRequest.getEntity() != null) {
+                    getRequestEntityWriter(clientRequest).writeRequestEntity(ByteStreams.nullOutputStream());
+                }
+            } catch (IOException ioe) {
+                throw new ClientHandlerException(ioe);
+            }
+
+            InBoundHeaders headers = new InBoundHeaders();
+            headers.putSingle("Content-Type", (this.response[0] == '{' ? MediaType.APPLICATION_JSON : MediaType.APPLICATION_XML));
+            return new ClientResponse(200, headers, new ByteArrayInputStream(this.response), getMessageBodyWorkers());
+        }
+    }
+}
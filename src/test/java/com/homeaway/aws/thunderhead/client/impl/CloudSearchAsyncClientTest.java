@@ -0,0 +1,255 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.impl;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.homeaway.aws.thunderhead.client.CloudSearchAsyncClient;
+import com.homeaway.aws.thunderhead.client.builder.CloudSearchClientBuilder;
+import com.homeaway.aws.thunderhead.client.builder.FakeCloudSearchServerBuilder;
+import com.homeaway.aws.thunderhead.client.hedge.LatencyTracker;
+import com.homeaway.aws.thunderhead.client.hedge.QueryHedger;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchBadRequestException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchBandwidthExceededException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchClientException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchForbiddenException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchGenericException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchInternalException;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+import com.homeaway.aws.thunderhead.server.FakeCloudSearchIndex;
+import com.homeaway.aws.thunderhead.server.FakeCloudSearchServer;
+import com.homeaway.aws.thunderhead.server.LatencyDistribution;
+import com.homeaway.aws.thunderhead.server.LatencyDistributions;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class CloudSearchAsyncClientTest {
+
+    private FakeCloudSearchServer server;
+    private CloudSearchAsyncClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        this.server = FakeCloudSearchServerBuilder.newInstance().seed(1L).build();
+        this.server.start();
+        this.client = CloudSearchClientBuilder.newInstance()
+                                              .queryHost(this.server.getHost())
+                                              .updateHost(this.server.getHost())
+                                              .asyncThreadPoolSize(1)
+                                              .buildAsync();
+    }
+
+    @After
+    public void tearDown() {
+        this.client.close();
+        this.server.stop();
+    }
+
+    /**
+     * A failed request completes its future with the exception for its status
+     */
+    @Test
+    public void mapsStatusToException() throws Exception {
+        Map<Integer, Class<? extends CloudSearchClientException>> exceptions = new LinkedHashMap<Integer, Class<? extends CloudSearchClientException>>();
+        exceptions.put(400, CloudSearchBadRequestException.class);
+        exceptions.put(403, CloudSearchForbiddenException.class);
+        exceptions.put(500, CloudSearchInternalException.class);
+        exceptions.put(509, CloudSearchBandwidthExceededException.class);
+        exceptions.put(503, CloudSearchGenericException.class);
+
+        for (Map.Entry<Integer, Class<? extends CloudSearchClientException>> exception : exceptions.entrySet()) {
+            this.server.getSearchFaults().clearErrorRates();
+            this.server.getSearchFaults().setErrorRate(exception.getKey(), 1.0);
+            this.server.getUpdateFaults().clearErrorRates();
+            this.server.getUpdateFaults().setErrorRate(exception.getKey(), 1.0);
+
+            assertFailsWith(this.client.queryAsync(params("q", "star")), exception.getValue());
+            assertFailsWith(this.client.updateDomainAsync(batch()), exception.getValue());
+        }
+
+        this.server.getSearchFaults().clearErrorRates();
+        assertThat(this.client.queryAsync(params("q", "star")).get(5, TimeUnit.SECONDS).getFound().getCount(), is(0));
+    }
+
+    /**
+     * A cancelled future stays cancelled when its response arrives, and the client can still be used
+     */
+    @Test
+    public void cancelsRequests() throws Exception {
+        this.server.getSearchFaults().setLatencyDistribution(LatencyDistributions.fixed(300L));
+
+        ListenableFuture<SearchResponse> searchResponse = this.client.queryAsync(params("q", "star"));
+        assertThat(searchResponse.cancel(true), is(true));
+
+        assertThat(searchResponse.isCancelled(), is(true));
+        try {
+            searchResponse.get();
+            fail("The future should have been cancelled");
+        } catch (CancellationException ce) {
+            // expected
+        }
+
+        this.server.getSearchFaults().setLatencyDistribution(LatencyDistributions.none());
+        assertThat(this.client.queryAsync(params("q", "star")).get(5, TimeUnit.SECONDS).getFound().getCount(), is(0));
+        assertThat(searchResponse.isCancelled(), is(true));
+    }
+
+    /**
+     * The sub-batches of a split batch reach the update host one after another in the order of the batch
+     */
+    @Test
+    public void postsSubBatchesInOrder() throws Exception {
+        final List<String> added = Collections.synchronizedList(new ArrayList<String>());
+        FakeCloudSearchIndex index = new FakeCloudSearchIndex() {
+            @Override
+            public boolean add(SearchDocumentAdd add) {
+                added.add(add.getId());
+                return super.add(add);
+            }
+        };
+        FakeCloudSearchServer server = FakeCloudSearchServerBuilder.newInstance()
+                                                                   .seed(1L)
+                                                                   .index(index)
+                                                                   .updateLatency(LatencyDistributions.uniform(0L, 50L))
+                                                                   .build();
+        server.start();
+        CloudSearchAsyncClient client = CloudSearchClientBuilder.newInstance()
+                                                                .updateHost(server.getHost())
+                                                                .asyncThreadPoolSize(8)
+                                                                .maxBatchBytes(1L)
+                                                                .buildAsync();
+        try {
+            List<SearchDocumentAdd> adds = new ArrayList<SearchDocumentAdd>();
+            List<String> ids = new ArrayList<String>();
+            for (int i = 0; i < 8; i++) {
+                adds.add(add("tt" + i));
+                ids.add("tt" + i);
+            }
+            SearchDocumentFormat batch = new SearchDocumentFormat();
+            batch.setSearchDocumentAdds(adds);
+
+            UploadResponse uploadResponse = client.updateDomainAsync(batch).get(5, TimeUnit.SECONDS);
+
+            assertThat(uploadResponse.getAdds(), is(8));
+            assertThat(server.getUpdateRequests(), is(8L));
+            assertThat(added, is(ids));
+        } finally {
+            client.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * The request that loses a hedge runs to the end and its connection goes back to the pool
+     */
+    @Test
+    public void releasesHedgeLoserConnection() throws Exception {
+        CloudSearchClientImpl client = (CloudSearchClientImpl) CloudSearchClientBuilder.newInstance()
+                                                                                      .queryHost(this.server.getHost())
+                                                                                      .buildAsync();
+        try {
+            QueryHedger queryHedger = new QueryHedger(0.95, 1.0);
+            LatencyTracker latencyTracker = queryHedger.getLatencyTracker(client.getQueryEndpointPool().select().getName());
+            for (int i = 0; i < LatencyTracker.SAMPLE_SIZE; i++) {
+                latencyTracker.record(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            client.setQueryHedger(queryHedger);
+            final AtomicInteger requests = new AtomicInteger();
+            this.server.getSearchFaults().setLatencyDistribution(new LatencyDistribution() {
+                @Override
+                public long nextNanos(Random random) {
+                    // the primary is still being read when the hedge wins
+                    return (requests.getAndIncrement() == 0 ? TimeUnit.MILLISECONDS.toNanos(500) : 0L);
+                }
+            });
+
+            assertThat(client.queryAsync(params("q", "star")).get(5, TimeUnit.SECONDS).getFound().getCount(), is(0));
+            assertThat(queryHedger.getHedgesSent(), is(1L));
+
+            HttpConnectionPool connectionPool = client.getConnectionPools()[0];
+            long deadline = System.currentTimeMillis() + 5000;
+            while (connectionPool.getConnectionsInUse() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(connectionPool.getConnectionsInUse(), is(0));
+        } finally {
+            client.close();
+        }
+    }
+
+    private void assertFailsWith(ListenableFuture<?> future, Class<? extends CloudSearchClientException> exceptionType) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("The request should have failed with " + exceptionType.getSimpleName());
+        } catch (ExecutionException ee) {
+            assertThat(ee.getCause(), instanceOf(exceptionType));
+        }
+    }
+
+    private SearchDocumentFormat batch() {
+        SearchDocumentFormat batch = new SearchDocumentFormat();
+        batch.setSearchDocumentAdds(Arrays.asList(add("tt0076759")));
+        return batch;
+    }
+
+    private SearchDocumentAdd add(String id) {
+        Field field = new Field();
+        field.setName("title");
+        field.setValue("Star Wars");
+
+        SearchDocumentAdd add = new SearchDocumentAdd();
+        add.setId(id);
+        add.setVersion("1");
+        add.setLang("en");
+        add.setFields(Arrays.asList(field));
+        return add;
+    }
+
+    private MultivaluedMap<String, String> params(String... keysAndValues) {
+        MultivaluedMap<String, String> params = new MultivaluedMapImpl();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            params.add(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return params;
+    }
+}
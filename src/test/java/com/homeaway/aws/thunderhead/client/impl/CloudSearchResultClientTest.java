@@ -0,0 +1,121 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.impl;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.CloudSearchResultClient;
+import com.homeaway.aws.thunderhead.client.builder.CloudSearchClientBuilder;
+import com.homeaway.aws.thunderhead.client.builder.FakeCloudSearchServerBuilder;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchStatusCode;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchBandwidthExceededException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchErrors;
+import com.homeaway.aws.thunderhead.model.result.CloudSearchResult;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.homeaway.aws.thunderhead.server.FakeCloudSearchServer;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class CloudSearchResultClientTest {
+
+    private FakeCloudSearchServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        this.server = FakeCloudSearchServerBuilder.newInstance().seed(1L).build();
+        this.server.start();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    /**
+     * A failed query is returned with its status and error entity, and its exception carries no stack trace
+     */
+    @Test
+    public void returnsFailures() throws Exception {
+        CloudSearchResultClient client = CloudSearchClientBuilder.newInstance().queryHost(this.server.getHost()).buildResult();
+        this.server.getSearchFaults().setErrorRate(509, 1.0);
+
+        CloudSearchResult<SearchResponse> result = client.queryResult(params("q", "star"));
+
+        assertThat(result.isSuccess(), is(false));
+        assertThat(result.getValue(), is(nullValue()));
+        assertThat(result.getStatusCode(), is(509));
+        assertThat(result.getCloudSearchStatusCode(), is(CloudSearchStatusCode.BANDWIDTH_LIMIT_EXCEEDED));
+        assertThat(result.getEntity(), is(notNullValue()));
+        assertThat(result.getErrorId(), is(notNullValue()));
+        assertThat(result.getError(), instanceOf(CloudSearchBandwidthExceededException.class));
+        assertThat(result.getError().getStackTrace().length, is(0));
+
+        this.server.getSearchFaults().clearErrorRates();
+        result = client.queryResult(params("q", "star"));
+
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getValue().getFound().getCount(), is(0));
+        assertThat(result.getCloudSearchStatusCode(), is(nullValue()));
+    }
+
+    /**
+     * Stack traces can be turned off for the exceptions thrown by the blocking client too
+     */
+    @Test
+    public void disablesStackTraces() throws Exception {
+        CloudSearchClient client = CloudSearchClientBuilder.newInstance().queryHost(this.server.getHost()).build();
+        this.server.getSearchFaults().setErrorRate(509, 1.0);
+
+        try {
+            client.query(params("q", "star"));
+            fail("The query should have been throttled");
+        } catch (CloudSearchBandwidthExceededException cbee) {
+            assertThat(cbee.getStackTrace().length > 0, is(true));
+        }
+
+        CloudSearchErrors.setStackTraceEnabled(false);
+        try {
+            client.query(params("q", "star"));
+            fail("The query should have been throttled");
+        } catch (CloudSearchBandwidthExceededException cbee) {
+            assertThat(cbee.getStackTrace().length, is(0));
+        } finally {
+            CloudSearchErrors.setStackTraceEnabled(true);
+        }
+    }
+
+    private MultivaluedMap<String, String> params(String... keysAndValues) {
+        MultivaluedMap<String, String> params = new MultivaluedMapImpl();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            params.add(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return params;
+    }
+}
@@ -0,0 +1,154 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.impl;
+
+import com.homeaway.aws.thunderhead.client.builder.CloudSearchClientBuilder;
+import com.homeaway.aws.thunderhead.client.builder.FakeCloudSearchServerBuilder;
+import com.homeaway.aws.thunderhead.server.FakeCloudSearchServer;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class HttpConnectionPoolTest {
+
+    private static final String EVICTOR_NAME = "thunderhead-idle-connection-evictor";
+
+    /**
+     * The builder's pool options end up in the params of the query and update connection managers
+     */
+    @Test
+    public void builderSetsManagerParams() throws Exception {
+        CloudSearchClientImpl client = (CloudSearchClientImpl) CloudSearchClientBuilder.newInstance()
+                                                                                      .queryHosts("search-a.example.com", "search-b.example.com")
+                                                                                      .updateHost("doc.example.com")
+                                                                                      .queryConnectTimeout(1500)
+                                                                                      .updateConnectTimeout(2500)
+                                                                                      .queryMaxConnections(8)
+                                                                                      .updateMaxConnections(4)
+                                                                                      .staleConnectionCheck(false)
+                                                                                      .socketSendBufferSize(65536)
+                                                                                      .socketReceiveBufferSize(131072)
+                                                                                      .build();
+        try {
+            HttpConnectionManagerParams queryParams = client.getConnectionPools()[0].getConnectionManager().getParams();
+            assertThat(queryParams.getConnectionTimeout(), is(1500));
+            assertThat(queryParams.getDefaultMaxConnectionsPerHost(), is(8));
+            assertThat(queryParams.getMaxTotalConnections(), is(16));
+            assertThat(queryParams.isStaleCheckingEnabled(), is(false));
+            assertThat(queryParams.getTcpNoDelay(), is(true));
+            assertThat(queryParams.getSendBufferSize(), is(65536));
+            assertThat(queryParams.getReceiveBufferSize(), is(131072));
+
+            HttpConnectionManagerParams updateParams = client.getConnectionPools()[1].getConnectionManager().getParams();
+            assertThat(updateParams.getConnectionTimeout(), is(2500));
+            assertThat(updateParams.getDefaultMaxConnectionsPerHost(), is(4));
+            assertThat(updateParams.getMaxTotalConnections(), is(4));
+        } finally {
+            client.close();
+        }
+    }
+
+    /**
+     * Shutting down the pool destroys its clients and their executors, closes the connection manager and stops the
+     * idle connection evictor
+     */
+    @Test
+    public void shutdownClosesClientsAndEvictor() throws Exception {
+        Set<Thread> evictors = evictorThreads();
+        HttpConnectionPool connectionPool = new HttpConnectionPool(new HttpConnectionManagerParams(), 1000L);
+        Set<Thread> started = evictorThreads();
+        started.removeAll(evictors);
+        assertThat(started.size(), is(1));
+        Thread evictor = started.iterator().next();
+
+        Client client = connectionPool.createClient(new DefaultClientConfig());
+        ExecutorService executorService = client.getExecutorService();
+
+        connectionPool.shutdown();
+        connectionPool.shutdown();
+
+        assertThat(executorService.isShutdown(), is(true));
+        evictor.join(5000L);
+        assertThat(evictor.isAlive(), is(false));
+
+        try {
+            client.resource("http://localhost:1").get(String.class);
+            fail("The connection manager should have been shutdown");
+        } catch (ClientHandlerException che) {
+            assertThat(che.getCause(), instanceOf(IllegalStateException.class));
+        }
+
+        try {
+            connectionPool.createClient(new DefaultClientConfig());
+            fail("A shutdown pool should not create clients");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+    }
+
+    /**
+     * A connection counts as in use from the request until its response is closed
+     */
+    @Test
+    public void countsConnectionsInUse() throws Exception {
+        FakeCloudSearchServer server = FakeCloudSearchServerBuilder.newInstance().seed(1L).build();
+        server.start();
+        HttpConnectionPool connectionPool = new HttpConnectionPool(new HttpConnectionManagerParams(), 0L);
+        try {
+            Client client = connectionPool.createClient(new DefaultClientConfig());
+            ClientResponse clientResponse = client.resource("http://" + server.getHost())
+                                                  .path("2011-02-01")
+                                                  .path("search")
+                                                  .queryParam("q", "star")
+                                                  .get(ClientResponse.class);
+            assertThat(clientResponse.getStatus(), is(200));
+            assertThat(connectionPool.getConnectionsInUse(), is(1));
+
+            clientResponse.close();
+            assertThat(connectionPool.getConnectionsInUse(), is(0));
+            assertThat(connectionPool.getConnectionsInPool(), is(1));
+        } finally {
+            connectionPool.shutdown();
+            server.stop();
+        }
+    }
+
+    private Set<Thread> evictorThreads() {
+        Set<Thread> threads = new HashSet<Thread>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (EVICTOR_NAME.equals(thread.getName())) {
+                threads.add(thread);
+            }
+        }
+        return threads;
+    }
+}
@@ -0,0 +1,86 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.impl;
+
+import com.homeaway.aws.thunderhead.client.io.SearchResponseReader;
+import com.homeaway.aws.thunderhead.client.metrics.InMemoryMetricsRecorder;
+import com.homeaway.aws.thunderhead.model.enums.SearchTimingPhase;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.homeaway.aws.thunderhead.model.search.SearchTiming;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author jmonette
+ */
+public class RequestTimingFilterTest {
+
+    private static final String RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                                         + "<results xmlns=\"http://cloudsearch.amazonaws.com/2011-02-01/results\">"
+                                         + "<hits found=\"0\" start=\"0\"/>"
+                                         + "<info rid=\"b7c167f6\" time-ms=\"3\" cpu-time-ms=\" 1 \"/>"
+                                         + "</results>";
+
+    /**
+     * A query's SearchResponse carries its timing, with the times cloudsearch reported, which is also recorded
+     */
+    @Test
+    public void attachesTiming() throws Exception {
+        ClientConfig clientConfig = new DefaultClientConfig();
+        clientConfig.getClasses().add(SearchResponseReader.class);
+        final Client[] client = new Client[1];
+        client[0] = new Client(new ClientHandler() {
+            @Override
+            public ClientResponse handle(ClientRequest clientRequest) {
+                InBoundHeaders headers = new InBoundHeaders();
+                headers.putSingle("Content-Type", MediaType.APPLICATION_XML);
+                return new ClientResponse(200, headers, new ByteArrayInputStream(RESPONSE.getBytes()), client[0].getMessageBodyWorkers());
+            }
+        }, clientConfig);
+        client[0].addFilter(new RequestTimingFilter());
+
+        InMemoryMetricsRecorder metricsRecorder = new InMemoryMetricsRecorder();
+        CloudSearchClientImpl cloudSearchClient = new CloudSearchClientImpl(client[0].resource("http://search-movies.example.com"), null);
+        cloudSearchClient.setMetricsRecorder(metricsRecorder);
+
+        SearchResponse searchResponse = cloudSearchClient.query(new MultivaluedMapImpl());
+
+        SearchTiming timing = searchResponse.getTiming();
+        assertThat(timing, is(notNullValue()));
+        assertThat(timing.getEndpoint(), is("http://search-movies.example.com"));
+        assertThat(timing.getServerTimeMs(), is(3L));
+        assertThat(timing.getServerCpuTimeMs(), is(1L));
+        assertThat(timing.getParseNanos() > 0, is(true));
+        assertThat(searchResponse.getInfo().getTimeMillis(), is(3L));
+        assertThat(metricsRecorder.snapshot().getPhaseLatency(SearchTimingPhase.SERVER).getCount(), is(1L));
+        assertThat(metricsRecorder.snapshot().getPhaseLatency(SearchTimingPhase.PARSE).getCount(), is(1L));
+    }
+}
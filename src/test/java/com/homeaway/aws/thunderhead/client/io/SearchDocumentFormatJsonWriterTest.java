@@ -0,0 +1,84 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.io;
+
+import com.google.common.collect.Lists;
+import com.homeaway.aws.thunderhead.client.batch.SearchDocumentJsonSizeEstimator;
+import com.homeaway.aws.thunderhead.client.batch.SearchDocumentSizeEstimator;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+/**
+ * @author jmonette
+ */
+public class SearchDocumentFormatJsonWriterTest {
+
+    private final SearchDocumentFormatJsonWriter writer = new SearchDocumentFormatJsonWriter();
+
+    /**
+     * Adds and deletes are written as typed objects, with repeated fields grouped into one multi-valued field
+     */
+    @Test
+    public void writesJsonSdf() throws Exception {
+        SearchDocumentAdd add = new SearchDocumentAdd();
+        add.setId("tt0484562");
+        add.setVersion("1");
+        add.setLang("en");
+        add.setFields(Lists.newArrayList(buildField("title", "The \"Seeker\""),
+                                         buildField("genre", "Adventure"),
+                                         buildField("year", "2007"),
+                                         buildField("genre", "Drama")));
+
+        SearchDocumentDelete delete = new SearchDocumentDelete();
+        delete.setId("tt0301199");
+        delete.setVersion("v2");
+
+        SearchDocumentFormat searchDocumentFormat = new SearchDocumentFormat();
+        searchDocumentFormat.setSearchDocumentAdds(Lists.newArrayList(add));
+        searchDocumentFormat.setSearchDocumentDeletes(Lists.newArrayList(delete));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(searchDocumentFormat, SearchDocumentFormat.class, SearchDocumentFormat.class, null,
+                       MediaType.APPLICATION_JSON_TYPE, null, out);
+
+        assertThat(out.toString("UTF-8"), is("[{\"type\":\"add\",\"id\":\"tt0484562\",\"version\":1,\"lang\":\"en\","
+                                             + "\"fields\":{\"title\":\"The \\\"Seeker\\\"\",\"genre\":[\"Adventure\",\"Drama\"],\"year\":\"2007\"}},"
+                                             + "{\"type\":\"delete\",\"id\":\"tt0301199\",\"version\":\"v2\"}]"));
+
+        SearchDocumentSizeEstimator sizeEstimator = new SearchDocumentJsonSizeEstimator();
+        long estimate = SearchDocumentSizeEstimator.BATCH_OVERHEAD_BYTES + sizeEstimator.estimate(add) + sizeEstimator.estimate(delete);
+        assertThat(estimate, is(greaterThanOrEqualTo((long) out.size())));
+    }
+
+    private Field buildField(String name, String value) {
+        Field field = new Field();
+        field.setName(name);
+        field.setValue(value);
+
+        return field;
+    }
+}
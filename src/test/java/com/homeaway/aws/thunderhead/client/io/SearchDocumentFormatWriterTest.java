@@ -0,0 +1,100 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.io;
+
+import com.google.common.collect.Lists;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentStream;
+import org.junit.Test;
+
+import javax.ws.rs.core.MediaType;
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author jmonette
+ */
+public class SearchDocumentFormatWriterTest {
+
+    private final SearchDocumentFormatWriter writer = new SearchDocumentFormatWriter();
+
+    /**
+     * A batch written with StAX reads back through the JAXB mapping as the same batch
+     */
+    @Test
+    public void batchReadsBackThroughJaxb() throws Exception {
+        SearchDocumentFormat searchDocumentFormat = new SearchDocumentFormat();
+        searchDocumentFormat.setSearchDocumentAdds(Lists.newArrayList(buildAdd("doc1", "café & <b>\"quoted\"</b>"),
+                                                                      buildAdd("doc2", "漢字")));
+        searchDocumentFormat.setSearchDocumentDeletes(Lists.newArrayList(buildDelete("doc3")));
+
+        assertThat(writeAndRead(searchDocumentFormat), is(searchDocumentFormat));
+    }
+
+    /**
+     * A stream is written with its adds first and then its deletes
+     */
+    @Test
+    public void streamReadsBackThroughJaxb() throws Exception {
+        SearchDocumentAdd add = buildAdd("doc1", "value");
+        SearchDocumentDelete delete = buildDelete("doc2");
+
+        SearchDocumentFormat read = writeAndRead(new SearchDocumentStream(Lists.newArrayList(add).iterator(),
+                                                                          Lists.newArrayList(delete).iterator()));
+
+        assertThat(read.getSearchDocumentAdds(), is((Object) Lists.newArrayList(add)));
+        assertThat(read.getSearchDocumentDeletes(), is((Object) Lists.newArrayList(delete)));
+    }
+
+    private SearchDocumentFormat writeAndRead(Object entity) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(entity, entity.getClass(), entity.getClass(), null, MediaType.APPLICATION_XML_TYPE, null, out);
+
+        return (SearchDocumentFormat) JAXBContext.newInstance(SearchDocumentFormat.class)
+                                                 .createUnmarshaller()
+                                                 .unmarshal(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private SearchDocumentAdd buildAdd(String id, String value) {
+        Field field = new Field();
+        field.setName("example_field");
+        field.setValue(value);
+
+        SearchDocumentAdd searchDocumentAdd = new SearchDocumentAdd();
+        searchDocumentAdd.setId(id);
+        searchDocumentAdd.setVersion("1");
+        searchDocumentAdd.setLang("en");
+        searchDocumentAdd.setFields(Lists.newArrayList(field));
+
+        return searchDocumentAdd;
+    }
+
+    private SearchDocumentDelete buildDelete(String id) {
+        SearchDocumentDelete searchDocumentDelete = new SearchDocumentDelete();
+        searchDocumentDelete.setId(id);
+        searchDocumentDelete.setVersion("2");
+
+        return searchDocumentDelete;
+    }
+}
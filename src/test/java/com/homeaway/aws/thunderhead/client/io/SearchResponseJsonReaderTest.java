@@ -0,0 +1,69 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.io;
+
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author jmonette
+ */
+public class SearchResponseJsonReaderTest {
+
+    /** The json form of SearchResponseReaderTest.RESPONSE */
+    private static final String RESPONSE = "{\"rank\":\"-text_relevance\","
+                                         + "\"match-expr\":\"(label 'star wars')\","
+                                         + "\"hits\":{\"found\":2,\"start\":0,\"hit\":["
+                                         + "{\"id\":\"tt0076759\",\"data\":{\"title\":[\"Star Wars & more\"],\"year\":[\"1977\"]}},"
+                                         + "{\"id\":\"tt0080684\",\"data\":{}}]},"
+                                         + "\"facets\":{\"genre\":{\"constraints\":[{\"value\":\"Sci-Fi\",\"count\":2}]}},"
+                                         + "\"info\":{\"rid\":\"b7c167f6c2da6d93531b9a7b314ad030b3a74803b4b7797e\",\"time-ms\":3,\"cpu-time-ms\":0}}";
+
+    private final SearchResponseJsonReader reader = new SearchResponseJsonReader();
+
+    /**
+     * A json response is read into the same model as the xml response
+     */
+    @Test
+    public void readsSameAsXml() throws Exception {
+        SearchResponse expected = new SearchResponseReader().read(new ByteArrayInputStream(SearchResponseReaderTest.RESPONSE.getBytes("UTF-8")));
+
+        SearchResponse searchResponse = reader.read(new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")));
+
+        assertThat(searchResponse, is(expected));
+    }
+
+    /**
+     * Each value of a multi-valued field becomes its own return field
+     */
+    @Test
+    public void readsMultiValuedFields() throws Exception {
+        String response = "{\"hits\":{\"found\":1,\"start\":0,\"hit\":[{\"id\":\"a\",\"data\":{\"genre\":[\"Action\",\"Sci-Fi\"]}}]}}";
+
+        SearchResponse searchResponse = reader.read(new ByteArrayInputStream(response.getBytes("UTF-8")));
+
+        assertThat(searchResponse.getFound().getHits().get(0).getReturnFieldsList().size(), is(2));
+        assertThat(searchResponse.getFound().getHits().get(0).getReturnFieldsList().get(1).getValue(), is("Sci-Fi"));
+        assertThat(searchResponse.getInfo(), is(nullValue()));
+    }
+}
@@ -0,0 +1,84 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.io;
+
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import org.junit.Test;
+
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author jmonette
+ */
+public class SearchResponseReaderTest {
+
+    static final String RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                                 + "<results xmlns=\"http://cloudsearch.amazonaws.com/2011-02-01/results\">"
+                                 + "<rank>-text_relevance</rank>"
+                                 + "<match-expr>(label 'star wars')</match-expr>"
+                                 + "<hits found=\"2\" start=\"0\">"
+                                 + "<hit id=\"tt0076759\"><d name=\"title\">Star Wars &amp; more</d><d name=\"year\">1977</d></hit>"
+                                 + "<hit id=\"tt0080684\"/>"
+                                 + "</hits>"
+                                 + "<facets><facet name=\"genre\"><constraint value=\"Sci-Fi\" count=\"2\"/></facet></facets>"
+                                 + "<info rid=\"b7c167f6c2da6d93531b9a7b314ad030b3a74803b4b7797e\" time-ms=\"3\" cpu-time-ms=\"0\"/>"
+                                 + "</results>";
+
+    private final SearchResponseReader reader = new SearchResponseReader();
+
+    /**
+     * The StAX reader fills the model exactly as the JAXB mapping does
+     */
+    @Test
+    public void readsSameAsJaxb() throws Exception {
+        SearchResponse expected = (SearchResponse) JAXBContext.newInstance(SearchResponse.class)
+                                                              .createUnmarshaller()
+                                                              .unmarshal(new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")));
+
+        SearchResponse searchResponse = reader.read(new ByteArrayInputStream(RESPONSE.getBytes("UTF-8")));
+
+        assertThat(searchResponse, is(expected));
+        assertThat(searchResponse.getFound().getHits().get(0).getReturnFieldsList().get(0).getValue(), is("Star Wars & more"));
+        assertThat(searchResponse.getFound().getHits().get(1).getReturnFieldsList(), is(nullValue()));
+        assertThat(searchResponse.getInfo().getTimeMs(), is("3"));
+    }
+
+    /**
+     * A response without any hits leaves the hit list unset, as JAXB does
+     */
+    @Test
+    public void readsEmptyHits() throws Exception {
+        String response = "<results><hits found=\"0\" start=\"0\"/><info rid=\"abc\" time-ms=\"1\" cpu-time-ms=\"0\"/></results>";
+
+        SearchResponse searchResponse = reader.read(new ByteArrayInputStream(response.getBytes("UTF-8")));
+
+        assertThat(searchResponse.getFound().getCount(), is(0));
+        assertThat(searchResponse.getFound().getHits(), is(nullValue()));
+        assertThat(searchResponse.getInfo().getRid(), is("abc"));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherRootElements() throws Exception {
+        reader.read(new ByteArrayInputStream("<error>bad</error>".getBytes("UTF-8")));
+    }
+}
@@ -0,0 +1,223 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.limit;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.homeaway.aws.thunderhead.client.builder.CloudSearchClientBuilder;
+import com.homeaway.aws.thunderhead.client.builder.FakeCloudSearchServerBuilder;
+import com.homeaway.aws.thunderhead.client.builder.RetryPolicyBuilder;
+import com.homeaway.aws.thunderhead.client.impl.CloudSearchClientImpl;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchInternalException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchLoadShedException;
+import com.homeaway.aws.thunderhead.server.FakeCloudSearchServer;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class ConcurrencyLimiterTest {
+
+    private final AtomicInteger started = new AtomicInteger();
+    private final SettableFuture<String> response = SettableFuture.create();
+
+    /**
+     * Requests over the limit are shed at once when there is no queue
+     */
+    @Test
+    public void shedsWhenQueueFull() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new GradientConcurrencyLimit(1, 1, 1), 0, 0L);
+        limiter.callAsync(pending());
+
+        ListenableFuture<String> shed = limiter.callAsync(pending());
+        assertThat(started.get(), is(1));
+        try {
+            shed.get();
+            fail("Expected the request to be shed");
+        } catch (ExecutionException ee) {
+            assertThat(ee.getCause(), is(instanceOf(CloudSearchLoadShedException.class)));
+            assertThat(((CloudSearchLoadShedException) ee.getCause()).isQueued(), is(false));
+        }
+
+        try {
+            limiter.call(new Callable<String>() {
+                @Override
+                public String call() {
+                    return "ok";
+                }
+            });
+            fail("Expected the request to be shed");
+        } catch (CloudSearchLoadShedException clse) {
+            assertThat(limiter.getShedCount(), is(2L));
+        }
+    }
+
+    /**
+     * A queued request is started when a request in flight completes
+     */
+    @Test
+    public void startsQueuedRequest() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new GradientConcurrencyLimit(1, 1, 1), 1, 10000L);
+        limiter.callAsync(pending());
+        ListenableFuture<String> queued = limiter.callAsync(new Callable<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> call() {
+                started.incrementAndGet();
+                return SettableFuture.create();
+            }
+        });
+        assertThat(started.get(), is(1));
+        assertThat(limiter.getQueued(), is(1));
+
+        response.set("ok");
+
+        assertThat(started.get(), is(2));
+        assertThat(limiter.getQueued(), is(0));
+        assertThat(limiter.getInFlight(), is(1));
+        assertThat(queued.isDone(), is(false));
+    }
+
+    /**
+     * A queued request is shed once it has waited too long
+     */
+    @Test
+    public void shedsQueuedRequestAfterWait() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new GradientConcurrencyLimit(1, 1, 1), 1, 10L);
+        limiter.callAsync(pending());
+
+        try {
+            limiter.callAsync(pending()).get(5, TimeUnit.SECONDS);
+            fail("Expected the request to be shed");
+        } catch (ExecutionException ee) {
+            assertThat(((CloudSearchLoadShedException) ee.getCause()).isQueued(), is(true));
+        }
+        assertThat(started.get(), is(1));
+        assertThat(limiter.getQueued(), is(0));
+    }
+
+    /**
+     * The gradient limit grows while response times hold and shrinks when they rise
+     */
+    @Test
+    public void gradientFollowsResponseTimes() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(10, 1, 100);
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), limit.getLimit(), false);
+        }
+        int grown = limit.getLimit();
+        assertThat(grown > 10, is(true));
+
+        for (int i = 0; i < 50; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(100), limit.getLimit(), false);
+        }
+        assertThat(limit.getLimit() < grown, is(true));
+    }
+
+    /**
+     * The vegas limit shrinks when many requests queue at the endpoint and on drops
+     */
+    @Test
+    public void vegasFollowsQueueing() {
+        VegasConcurrencyLimit limit = new VegasConcurrencyLimit(20, 1, 100);
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), 20, false);
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), limit.getLimit(), false);
+        }
+        int grown = limit.getLimit();
+        assertThat(grown > 20, is(true));
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(50), limit.getLimit(), false);
+        }
+        int shrunk = limit.getLimit();
+        assertThat(shrunk < grown, is(true));
+
+        limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), shrunk, true);
+        assertThat(limit.getLimit() < shrunk, is(true));
+    }
+
+    /**
+     * The client feeds the limit one sample for each attempt of a retried query, rather than one for the whole query
+     */
+    @Test
+    public void samplesEachAttempt() throws Exception {
+        FakeCloudSearchServer server = FakeCloudSearchServerBuilder.newInstance().seed(1L).build();
+        server.start();
+        try {
+            CloudSearchClientImpl client = (CloudSearchClientImpl) CloudSearchClientBuilder.newInstance()
+                                                                                         .queryHost(server.getHost())
+                                                                                         .retryPolicy(RetryPolicyBuilder.newInstance().maxAttempts(3).baseDelay(1L).build())
+                                                                                         .build();
+            final List<Boolean> drops = new CopyOnWriteArrayList<Boolean>();
+            client.setQueryConcurrencyLimiter(new ConcurrencyLimiter(new ConcurrencyLimit() {
+                @Override
+                public int getLimit() {
+                    return 10;
+                }
+
+                @Override
+                public void onSample(long rttNanos, int inFlight, boolean dropped) {
+                    drops.add(dropped);
+                }
+            }, 0, 0L));
+
+            MultivaluedMapImpl queryParams = new MultivaluedMapImpl();
+            queryParams.add("q", "star");
+
+            server.getSearchFaults().setErrorRate(500, 1.0);
+            try {
+                client.query(queryParams);
+                fail("The query should have failed");
+            } catch (CloudSearchInternalException csie) {
+                // expected
+            }
+            assertThat(drops, is((List<Boolean>) Arrays.asList(true, true, true)));
+
+            server.getSearchFaults().clearErrorRates();
+            client.query(queryParams);
+            assertThat(drops.size(), is(4));
+            assertThat(drops.get(3), is(false));
+            assertThat(client.getQueryConcurrencyLimiter().getInFlight(), is(0));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private Callable<ListenableFuture<String>> pending() {
+        return new Callable<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> call() {
+                started.incrementAndGet();
+                return response;
+            }
+        };
+    }
+}
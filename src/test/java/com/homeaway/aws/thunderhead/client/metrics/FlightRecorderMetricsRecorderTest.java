@@ -0,0 +1,96 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.model.search.SearchTiming;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Drives the Flight Recorder by reflection, as the tests are built for Java 6 too
+ *
+ * @author jmonette
+ */
+public class FlightRecorderMetricsRecorderTest {
+
+    /**
+     * Events are emitted while a recording runs, and only for requests at least as slow as the threshold. A request event
+     * spans its request, from onRequestStarted to onRequestCompleted
+     */
+    @Test
+    public void emitsEventsWhileRecording() throws Exception {
+        assumeTrue(FlightRecorderMetricsRecorder.isAvailable());
+
+        FlightRecorderMetricsRecorder metricsRecorder = new FlightRecorderMetricsRecorder(10L, 10L);
+        SearchTiming timing = new SearchTiming();
+        timing.setEndpoint("http://search-movies.example.com");
+        timing.setRid("b7c167f6");
+        timing.setFirstByteNanos(20000000L);
+        timing.setServerTimeMs(3L);
+
+        Class<?> recordingType = Class.forName("jdk.jfr.Recording");
+        Object recording = recordingType.newInstance();
+        recordingType.getMethod("start").invoke(recording);
+        assertThat(FlightRecorderMetricsRecorder.isRecording(), is(true));
+
+        Object slow = metricsRecorder.onRequestStarted(CloudSearchOperation.QUERY, timing.getEndpoint());
+        Object fast = metricsRecorder.onRequestStarted(CloudSearchOperation.QUERY, timing.getEndpoint());
+        Thread.sleep(20L);
+        metricsRecorder.onSearchTiming(timing);
+        metricsRecorder.onRequestCompleted(CloudSearchOperation.QUERY, timing.getEndpoint(), 20000000L, 200, 100L, 2000L, slow);
+        metricsRecorder.onRequestCompleted(CloudSearchOperation.QUERY, timing.getEndpoint(), 1000000L, 200, 100L, 2000L, fast);
+
+        recordingType.getMethod("stop").invoke(recording);
+        assertThat(FlightRecorderMetricsRecorder.isRecording(), is(false));
+
+        File file = File.createTempFile("thunderhead", ".jfr");
+        try {
+            Object path = File.class.getMethod("toPath").invoke(file);
+            Class<?> pathType = Class.forName("java.nio.file.Path");
+            recordingType.getMethod("dump", pathType).invoke(recording, path);
+            List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile").getMethod("readAllEvents", pathType).invoke(null, path);
+
+            int queries = 0;
+            int requests = 0;
+            for (Object event : events) {
+                Object eventType = event.getClass().getMethod("getEventType").invoke(event);
+                String name = (String) eventType.getClass().getMethod("getName").invoke(eventType);
+                if ("thunderhead.Query".equals(name)) {
+                    queries++;
+                    assertThat(event.getClass().getMethod("getString", String.class).invoke(event, "rid"), is((Object) "b7c167f6"));
+                } else if ("thunderhead.Request".equals(name)) {
+                    requests++;
+                    Object duration = event.getClass().getMethod("getDuration").invoke(event);
+                    long durationMillis = (Long) duration.getClass().getMethod("toMillis").invoke(duration);
+                    assertThat(durationMillis >= 20L, is(true));
+                }
+            }
+            assertThat(queries, is(1));
+            assertThat(requests, is(1));
+        } finally {
+            recordingType.getMethod("close").invoke(recording);
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.metrics;
+
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientHandler;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.core.header.InBoundHeaders;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class MetricsClientFilterTest {
+
+    private static final String ENDPOINT = "http://search-movies.example.com";
+
+    private final InMemoryMetricsRecorder metricsRecorder = new InMemoryMetricsRecorder();
+
+    /**
+     * A request is recorded once its response is read and closed
+     */
+    @Test
+    public void recordsRequest() throws Exception {
+        Client client = client(503, "unavailable");
+
+        ClientResponse clientResponse = client.resource(ENDPOINT).path("2011-02-01/search").queryParam("q", "star").get(ClientResponse.class);
+        assertThat(metricsRecorder.snapshot().get(CloudSearchOperation.QUERY, ENDPOINT).getInFlight(), is(1));
+        assertThat(clientResponse.getEntity(String.class), is("unavailable"));
+        clientResponse.close();
+
+        EndpointMetricsSnapshot snapshot = metricsRecorder.snapshot().get(CloudSearchOperation.QUERY, ENDPOINT);
+        assertThat(snapshot.getInFlight(), is(0));
+        assertThat(snapshot.getLatency().getCount(), is(1L));
+        assertThat(snapshot.getStatusCount(503), is(1L));
+        assertThat(snapshot.getRequestBytes(), is((long) (ENDPOINT + "/2011-02-01/search?q=star").length()));
+        assertThat(snapshot.getResponseBytes(), is(11L));
+    }
+
+    /**
+     * A request failing without a response is recorded with no status
+     */
+    @Test
+    public void recordsFailure() throws Exception {
+        Client client = new Client(new ClientHandler() {
+            @Override
+            public ClientResponse handle(ClientRequest clientRequest) {
+                throw new ClientHandlerException("Connection refused");
+            }
+        });
+        client.addFilter(new MetricsClientFilter(metricsRecorder, CloudSearchOperation.UPDATE));
+
+        try {
+            client.resource(ENDPOINT).post(ClientResponse.class, "<batch/>");
+            fail("Expected the request to fail");
+        } catch (ClientHandlerException che) {
+            // expected
+        }
+
+        EndpointMetricsSnapshot snapshot = metricsRecorder.snapshot().get(CloudSearchOperation.UPDATE, ENDPOINT);
+        assertThat(snapshot.getInFlight(), is(0));
+        assertThat(snapshot.getStatusCount(0), is(1L));
+    }
+
+    /**
+     * Percentiles are within the precision of the histogram, and merge across histograms
+     */
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            fast.record(TimeUnit.MILLISECONDS.toNanos(i));
+            slow.record(TimeUnit.SECONDS.toNanos(i));
+        }
+
+        HistogramSnapshot snapshot = fast.snapshot();
+        assertThat(snapshot.getCount(), is(1000L));
+        assertThat(snapshot.getMin(), is(TimeUnit.MILLISECONDS.toNanos(1)));
+        assertWithin(snapshot.getP50(), TimeUnit.MILLISECONDS.toNanos(500));
+        assertWithin(snapshot.getP99(), TimeUnit.MILLISECONDS.toNanos(990));
+        assertWithin(snapshot.getP999(), TimeUnit.MILLISECONDS.toNanos(999));
+
+        HistogramSnapshot merged = snapshot.merge(slow.snapshot());
+        assertThat(merged.getCount(), is(2000L));
+        assertWithin(merged.getP50(), TimeUnit.MILLISECONDS.toNanos(1000));
+        assertWithin(merged.getP99(), TimeUnit.SECONDS.toNanos(980));
+        assertThat(merged.getMax(), is(TimeUnit.SECONDS.toNanos(1000)));
+    }
+
+    private void assertWithin(long actual, long expected) {
+        assertThat(actual + " within 1.6% of " + expected, Math.abs(actual - expected) <= expected / 64, is(true));
+    }
+
+    private Client client(final int status, final String entity) {
+        final Client[] client = new Client[1];
+        client[0] = new Client(new ClientHandler() {
+            @Override
+            public ClientResponse handle(ClientRequest clientRequest) {
+                return new ClientResponse(status, new InBoundHeaders(), new ByteArrayInputStream(entity.getBytes()),
+                                          client[0].getMessageBodyWorkers());
+            }
+        });
+        client[0].addFilter(new MetricsClientFilter(metricsRecorder, CloudSearchOperation.QUERY));
+        return client[0];
+    }
+}
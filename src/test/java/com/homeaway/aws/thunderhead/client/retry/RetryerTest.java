@@ -0,0 +1,136 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.retry;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.homeaway.aws.thunderhead.client.builder.RetryPolicyBuilder;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchBadRequestException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchInternalException;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchRuntimeException;
+import org.junit.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class RetryerTest {
+
+    private final RetryPolicy retryPolicy = RetryPolicyBuilder.newInstance().baseDelay(1).maxDelay(5).build();
+
+    /**
+     * A query failing with a retryable status is attempted again until it succeeds
+     */
+    @Test
+    public void retriesRetryableStatus() throws Exception {
+        Retryer retryer = new Retryer(retryPolicy);
+        FailingCallable callable = new FailingCallable(2, new CloudSearchInternalException(500, "internal", null));
+
+        assertThat(retryer.call(callable), is("ok"));
+        assertThat(callable.attempts.get(), is(3));
+    }
+
+    /**
+     * A query failing with a status that will fail again is not retried
+     */
+    @Test
+    public void doesNotRetryClientErrors() throws Exception {
+        Retryer retryer = new Retryer(retryPolicy);
+        CloudSearchBadRequestException failure = new CloudSearchBadRequestException(400, "bad request", null);
+        FailingCallable callable = new FailingCallable(1, failure);
+
+        try {
+            retryer.call(callable);
+            fail("Expected the bad request to be thrown");
+        } catch (CloudSearchBadRequestException csbre) {
+            assertThat(csbre == failure, is(true));
+        }
+        assertThat(callable.attempts.get(), is(1));
+    }
+
+    /**
+     * Once the budget is spent failures are returned without retrying
+     */
+    @Test
+    public void stopsRetryingWhenBudgetIsSpent() throws Exception {
+        Retryer retryer = new Retryer(retryPolicy, new RetryBudget(0.0, 1));
+        FailingCallable callable = new FailingCallable(10, new CloudSearchInternalException(500, "internal", null));
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                retryer.call(callable);
+                fail("Expected the internal error to be thrown");
+            } catch (CloudSearchInternalException csie) {
+                // expected
+            }
+        }
+        assertThat(callable.attempts.get(), is(3));
+    }
+
+    /**
+     * An asynchronous query failing with an I/O error is attempted again on the scheduler
+     */
+    @Test
+    public void retriesIoFailuresAsynchronously() throws Exception {
+        Retryer retryer = new Retryer(retryPolicy);
+        final FailingCallable callable = new FailingCallable(1, new CloudSearchRuntimeException("timed out", new SocketTimeoutException()));
+
+        ListenableFuture<String> result = retryer.callAsync(new Callable<ListenableFuture<String>>() {
+            @Override
+            public ListenableFuture<String> call() {
+                try {
+                    return Futures.immediateFuture(callable.call());
+                } catch (Exception e) {
+                    return Futures.immediateFailedFuture(e);
+                }
+            }
+        });
+
+        assertThat(result.get(5, TimeUnit.SECONDS), is("ok"));
+        assertThat(callable.attempts.get(), is(2));
+    }
+
+    /**
+     * Fails the given number of attempts, then returns "ok"
+     */
+    private static class FailingCallable implements Callable<String> {
+        private final int failures;
+        private final Exception failure;
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        FailingCallable(int failures, Exception failure) {
+            this.failures = failures;
+            this.failure = failure;
+        }
+
+        @Override
+        public String call() throws Exception {
+            if (attempts.incrementAndGet() <= failures) {
+                throw failure;
+            }
+            return "ok";
+        }
+    }
+}
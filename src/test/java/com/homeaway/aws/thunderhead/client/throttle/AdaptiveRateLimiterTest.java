@@ -0,0 +1,81 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.client.throttle;
+
+import com.homeaway.aws.thunderhead.client.FakeTicker;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchBandwidthExceededException;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class AdaptiveRateLimiterTest {
+
+    private final FakeTicker ticker = new FakeTicker();
+
+    /**
+     * A full bucket lets a second of requests through at once, then spaces the rest out at the rate
+     */
+    @Test
+    public void spacesRequestsPastTheBurst() {
+        TokenBucket tokenBucket = new TokenBucket(10, 1.0, ticker);
+        for (int i = 0; i < 10; i++) {
+            assertThat(tokenBucket.reserve(1), is(0L));
+        }
+
+        assertThat(tokenBucket.reserve(1), is(TimeUnit.MILLISECONDS.toNanos(100)));
+        assertThat(tokenBucket.reserve(1), is(TimeUnit.MILLISECONDS.toNanos(200)));
+    }
+
+    /**
+     * A 509 halves the rates once per cooldown, and successes grow them back over time
+     */
+    @Test
+    public void cutsOnBandwidthExceededAndRecovers() throws Exception {
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(1000, 1000000, 0.5, 0.1, 0.05, TimeUnit.SECONDS.toNanos(1), ticker);
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                rateLimiter.call(0L, new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        throw new CloudSearchBandwidthExceededException(509, "bandwidth exceeded", null);
+                    }
+                });
+                fail("Expected the bandwidth exceeded exception to be thrown");
+            } catch (CloudSearchBandwidthExceededException csbee) {
+                // expected
+            }
+        }
+        assertThat(rateLimiter.getScale(), is(0.5));
+
+        ticker.advance(2000);
+        rateLimiter.onSuccess();
+        assertThat(Math.abs(rateLimiter.getScale() - 0.7) < 1e-9, is(true));
+
+        ticker.advance(10000);
+        rateLimiter.onSuccess();
+        assertThat(rateLimiter.getScale(), is(1.0));
+    }
+}
@@ -24,6 +24,7 @@ import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
 import com.homeaway.aws.thunderhead.model.search.SearchResponse;
 import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
 import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -55,6 +56,14 @@ public class CloudSearchClientIT extends BaseIT {
                                                     .build();
     }
 
+    /**
+     * This method releases the connections held by the cloudSearchClient
+     */
+    @After
+    public void tearDown() {
+        cloudSearchClient.close();
+    }
+
     /**
      * This test will test basic upload functionality. Uploads a document and verifies that there was no request errors
      */
@@ -0,0 +1,89 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.load;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.builder.CloudSearchClientBuilder;
+import com.homeaway.aws.thunderhead.client.builder.FakeCloudSearchServerBuilder;
+import com.homeaway.aws.thunderhead.client.builder.LoadGeneratorBuilder;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchOperation;
+import com.homeaway.aws.thunderhead.server.FakeCloudSearchServer;
+import org.junit.Test;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * @author jmonette
+ */
+public class LoadGeneratorTest {
+
+    /**
+     * A short run against the fake server measures both operations and breaks the errors down by status
+     */
+    @Test
+    public void reportsBothOperations() throws Exception {
+        FakeCloudSearchServer server = FakeCloudSearchServerBuilder.newInstance().seed(1L).updateErrorRate(509, 0.5).build();
+        server.start();
+        CloudSearchClient client = CloudSearchClientBuilder.newInstance()
+                                                           .queryHost(server.getHost())
+                                                           .updateHost(server.getHost())
+                                                           .build();
+        try {
+            LoadReport report = LoadGeneratorBuilder.newInstance(client)
+                                                    .threads(2)
+                                                    .warmup(1000L)
+                                                    .duration(1000L)
+                                                    .queryRatio(0.5)
+                                                    .batchSize(10)
+                                                    .build()
+                                                    .run();
+
+            OperationReport queries = report.get(CloudSearchOperation.QUERY);
+            OperationReport updates = report.get(CloudSearchOperation.UPDATE);
+            assertThat(queries.getSuccesses(), greaterThan(0L));
+            assertThat(queries.getErrors().isEmpty(), is(true));
+            assertThat(queries.getLatency().getCount(), is(queries.getRequests()));
+            assertThat(updates.getErrors().get("BANDWIDTH_LIMIT_EXCEEDED"), greaterThan(0L));
+            assertThat(updates.getSuccesses(), greaterThan(0L));
+            if (ThreadAllocation.isSupported()) {
+                assertThat(queries.getAllocatedBytesPerRequest(), greaterThan(0L));
+            }
+        } finally {
+            client.close();
+            server.stop();
+        }
+    }
+
+    /**
+     * The query corpus is read as url query strings
+     */
+    @Test
+    public void readsQueries() throws Exception {
+        List<MultivaluedMap<String, String>> queries = LoadGenerator.readQueries(new StringReader("# movies\n\nq=star+wars&size=10\nbq=title%3A%27jedi%27\n"));
+
+        assertThat(queries.size(), is(2));
+        assertThat(queries.get(0).getFirst("q"), is("star wars"));
+        assertThat(queries.get(0).getFirst("size"), is("10"));
+        assertThat(queries.get(1).getFirst("bq"), is("title:'jedi'"));
+    }
+}
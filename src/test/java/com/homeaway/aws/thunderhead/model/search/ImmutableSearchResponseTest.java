@@ -0,0 +1,134 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.model.search;
+
+import com.homeaway.aws.thunderhead.client.builder.ImmutableSearchDocumentAddBuilder;
+import com.homeaway.aws.thunderhead.client.builder.ImmutableSearchHitBuilder;
+import com.homeaway.aws.thunderhead.client.builder.ImmutableSearchHitsBuilder;
+import com.homeaway.aws.thunderhead.client.builder.ImmutableSearchResponseBuilder;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.ImmutableSearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class ImmutableSearchResponseTest {
+
+    /**
+     * A copy of a response equals the same response built with the builders, and is not changed with the original
+     */
+    @Test
+    public void copiesResponse() {
+        SearchResponse searchResponse = searchResponse();
+
+        ImmutableSearchResponse copy = ImmutableSearchResponse.copyOf(searchResponse);
+        ImmutableSearchResponse built = ImmutableSearchResponseBuilder.newInstance()
+                                                                      .rank("-text_relevance")
+                                                                      .matchExpr("(label 'star wars')")
+                                                                      .found(ImmutableSearchHitsBuilder.newInstance()
+                                                                                                       .count(2)
+                                                                                                       .start(0)
+                                                                                                       .hit(ImmutableSearchHitBuilder.newInstance()
+                                                                                                                                     .id("tt0076759")
+                                                                                                                                     .returnField("title", "Star Wars")
+                                                                                                                                     .returnField("genre", "Action")
+                                                                                                                                     .returnField("genre", "Sci-Fi")
+                                                                                                                                     .build())
+                                                                                                       .build())
+                                                                      .rid("abc")
+                                                                      .times("3", "0")
+                                                                      .build();
+
+        assertThat(copy, is(built));
+        assertThat(copy.hashCode(), is(built.hashCode()));
+        assertThat(copy.getFound().getHits().get(0).getReturnFields().get("genre"), is((List<String>) Arrays.asList("Action", "Sci-Fi")));
+        assertThat(copy.getFound().getHits().get(0).getReturnField("title"), is("Star Wars"));
+        assertThat(copy.getFound().getHits().get(0).getReturnField("year"), is(nullValue()));
+
+        searchResponse.getFound().getHits().clear();
+        assertThat(copy.getFound().getHits().size(), is(1));
+
+        try {
+            copy.getFound().getHits().clear();
+            fail("The hits should not be modifiable");
+        } catch (UnsupportedOperationException uoe) {
+            // expected
+        }
+    }
+
+    /**
+     * An add survives a round trip through its immutable form
+     */
+    @Test
+    public void copiesAdd() {
+        ImmutableSearchDocumentAdd add = ImmutableSearchDocumentAddBuilder.newInstance()
+                                                                          .id("tt0076759")
+                                                                          .version("1")
+                                                                          .field("title", "Star Wars")
+                                                                          .field("year", "1977")
+                                                                          .build();
+
+        SearchDocumentAdd searchDocumentAdd = add.toSearchDocumentAdd();
+        assertThat(searchDocumentAdd.getFields().get(1).getValue(), is("1977"));
+        assertThat(ImmutableSearchDocumentAdd.copyOf(searchDocumentAdd), is(add));
+        assertThat(ImmutableSearchDocumentAdd.copyOf(searchDocumentAdd).hashCode(), is(add.hashCode()));
+
+        searchDocumentAdd.setFields(new ArrayList<Field>());
+        assertThat(ImmutableSearchDocumentAdd.copyOf(searchDocumentAdd).getFields().isEmpty(), is(true));
+        assertThat(add.getFields().size(), is(2));
+    }
+
+    private SearchResponse searchResponse() {
+        SearchHit hit = new SearchHit();
+        hit.setId("tt0076759");
+        hit.setReturnFieldsList(Arrays.asList(returnField("title", "Star Wars"), returnField("genre", "Action"), returnField("genre", "Sci-Fi")));
+
+        SearchHits hits = new SearchHits();
+        hits.setCount(2);
+        hits.setHits(new ArrayList<SearchHit>(Arrays.asList(hit)));
+
+        SearchInfo info = new SearchInfo();
+        info.setRid("abc");
+        info.setTimeMs("3");
+        info.setCpuTimeMs("0");
+
+        SearchResponse searchResponse = new SearchResponse();
+        searchResponse.setRank("-text_relevance");
+        searchResponse.setMatchExpr("(label 'star wars')");
+        searchResponse.setFound(hits);
+        searchResponse.setInfo(info);
+        return searchResponse;
+    }
+
+    private ReturnFields returnField(String name, String value) {
+        ReturnFields returnFields = new ReturnFields();
+        returnFields.setName(name);
+        returnFields.setValue(value);
+        return returnFields;
+    }
+}
@@ -0,0 +1,156 @@
+/* Copyright (c) 2010 HomeAway, Inc.
+ * All rights reserved.  http://homeaway.github.io/thunderhead
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.homeaway.aws.thunderhead.server;
+
+import com.homeaway.aws.thunderhead.client.CloudSearchClient;
+import com.homeaway.aws.thunderhead.client.builder.CloudSearchClientBuilder;
+import com.homeaway.aws.thunderhead.client.builder.FakeCloudSearchServerBuilder;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchResultsType;
+import com.homeaway.aws.thunderhead.model.enums.CloudSearchSdfFormat;
+import com.homeaway.aws.thunderhead.model.exceptions.CloudSearchBandwidthExceededException;
+import com.homeaway.aws.thunderhead.model.sdf.Field;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentAdd;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentDelete;
+import com.homeaway.aws.thunderhead.model.sdf.SearchDocumentFormat;
+import com.homeaway.aws.thunderhead.model.search.SearchResponse;
+import com.homeaway.aws.thunderhead.model.upload.UploadResponse;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jmonette
+ */
+public class FakeCloudSearchServerTest {
+
+    private FakeCloudSearchServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        this.server = FakeCloudSearchServerBuilder.newInstance().seed(1L).build();
+        this.server.start();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop();
+    }
+
+    /**
+     * Documents uploaded through the client can be queried back with q, bq, paging and return fields
+     */
+    @Test
+    public void uploadsAndQueries() throws Exception {
+        for (CloudSearchSdfFormat sdfFormat : CloudSearchSdfFormat.values()) {
+            this.server.getIndex().clear();
+            CloudSearchClient client = CloudSearchClientBuilder.newInstance()
+                                                               .queryHost(this.server.getHost())
+                                                               .updateHost(this.server.getHost())
+                                                               .sdfFormat(sdfFormat)
+                                                               .resultsType(sdfFormat == CloudSearchSdfFormat.JSON ? CloudSearchResultsType.JSON : CloudSearchResultsType.XML)
+                                                               .build();
+
+            UploadResponse uploadResponse = client.updateDomain(batch(add("tt0076759", "Star Wars", "1977"),
+                                                                      add("tt0080684", "The Empire Strikes Back", "1980"),
+                                                                      add("tt0086190", "Return of the Jedi", "1983"),
+                                                                      add("tt0120915", "The Phantom Menace", "1999")));
+            assertThat(uploadResponse.getAdds(), is(4));
+
+            SearchResponse searchResponse = client.query(params("bq", "(and (not title:'menace') year:1977..1990)", "size", "2", "start", "1"));
+            assertThat(searchResponse.getFound().getCount(), is(3));
+            assertThat(searchResponse.getFound().getHits().get(0).getId(), is("tt0080684"));
+            assertThat(searchResponse.getFound().getHits().size(), is(2));
+
+            searchResponse = client.query(params("q", "star wars", "return-fields", "title,year"));
+            assertThat(searchResponse.getFound().getCount(), is(1));
+            assertThat(searchResponse.getFound().getHits().get(0).getReturnFieldsList().get(0).getValue(), is("Star Wars"));
+            assertThat(searchResponse.getFound().getHits().get(0).getReturnFieldsList().get(1).getValue(), is("1977"));
+
+            SearchDocumentDelete delete = new SearchDocumentDelete();
+            delete.setId("tt0076759");
+            delete.setVersion("2");
+            SearchDocumentFormat deletes = new SearchDocumentFormat();
+            deletes.setSearchDocumentDeletes(Arrays.asList(delete));
+            client.updateDomain(deletes);
+            assertThat(client.query(params("q", "star wars")).getFound().getCount(), is(0));
+        }
+    }
+
+    /**
+     * Injected errors reach the client with their CloudSearch status
+     */
+    @Test
+    public void injectsErrors() throws Exception {
+        CloudSearchClient client = CloudSearchClientBuilder.newInstance().queryHost(this.server.getHost()).build();
+        this.server.getSearchFaults().setErrorRate(509, 1.0);
+
+        try {
+            client.query(params("q", "star"));
+            fail("The query should have been throttled");
+        } catch (CloudSearchBandwidthExceededException cbee) {
+            // expected
+        }
+
+        this.server.getSearchFaults().clearErrorRates();
+        assertThat(client.query(params("q", "star")).getFound().getCount(), is(0));
+        assertThat(this.server.getSearchRequests(), is(2L));
+    }
+
+    private static MultivaluedMap<String, String> params(String... namesAndValues) {
+        MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            queryParams.add(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return queryParams;
+    }
+
+    private static SearchDocumentAdd add(String id, String title, String year) {
+        List<Field> fields = new ArrayList<Field>();
+        fields.add(field("title", title));
+        fields.add(field("year", year));
+
+        SearchDocumentAdd add = new SearchDocumentAdd();
+        add.setId(id);
+        add.setVersion("1");
+        add.setLang("en");
+        add.setFields(fields);
+        return add;
+    }
+
+    private static Field field(String name, String value) {
+        Field field = new Field();
+        field.setName(name);
+        field.setValue(value);
+        return field;
+    }
+
+    private static SearchDocumentFormat batch(SearchDocumentAdd... adds) {
+        SearchDocumentFormat batch = new SearchDocumentFormat();
+        batch.setSearchDocumentAdds(Arrays.asList(adds));
+        return batch;
+    }
+}